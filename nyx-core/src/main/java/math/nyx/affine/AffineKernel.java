@@ -1,13 +1,16 @@
 package math.nyx.affine;
 
-import org.apache.commons.math.linear.Array2DRowRealMatrix;
-import org.apache.commons.math.linear.RealMatrix;
 import org.springframework.util.Assert;
 
-import math.nyx.framework.Kernel;
+import math.nyx.core.DoubleSampleVector;
+import math.nyx.core.FixedPointSampleVector;
+import math.nyx.core.FloatSampleVector;
+import math.nyx.core.SampleVector;
+import math.nyx.framework.CorrelatingKernel;
+import math.nyx.framework.DomainPool;
 import math.nyx.framework.SignalBlock;
 
-public class AffineKernel implements Kernel {
+public class AffineKernel implements CorrelatingKernel {
 	public static final double THRESHOLD = 0.001;
 
 	private double threshold = THRESHOLD;
@@ -20,79 +23,293 @@ public class AffineKernel implements Kernel {
 
 	private boolean allowNegativeScales = ALLOW_NEGATIVE_SCALES;
 
+	public static final double MAX_SCALE = Double.POSITIVE_INFINITY;
+
+	private double maxScale = MAX_SCALE;
+
+	public static final int SCALE_BITS = 0;
+
+	private int scaleBits = SCALE_BITS;
+
+	public static final int OFFSET_BITS = 0;
+
+	private int offsetBits = OFFSET_BITS;
+
+	public static final double MIN_OFFSET = -255;
+
+	private double minOffset = MIN_OFFSET;
+
+	public static final double MAX_OFFSET = 255;
+
+	private double maxOffset = MAX_OFFSET;
+
+	/**
+	 * Bound on the magnitude of the quantized scales when maxScale isn't set, which keeps the transforms contractive.
+	 */
+	private static final double QUANTIZED_MAX_SCALE = 1;
+
+	/**
+	 * Rebuilt whenever one of the settings they depend on changes, null unless scaleBits and offsetBits are both set.
+	 */
+	private UniformQuantizer scaleQuantizer;
+
+	private UniformQuantizer offsetQuantizer;
+
+	/**
+	 * Relative tolerance for the rounding errors in the distances, used to loosen the lower bound.
+	 */
+	private static final double ROUNDING_TOLERANCE = 1e-6;
+
 	@Override
+	public AffineTransform encode(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		return encode(domainPool.getSamples(), domainPool.getOffset(index),
+				domainPool.getSumOfPoints(index), domainPool.getSumOfSquaredPoints(index),
+				domainPool.getDomainBlockIndex(index), rangeBlock, permute);
+	}
+
 	public AffineTransform encode(SignalBlock domainBlock, SignalBlock rangeBlock) {
 		return encode(domainBlock, rangeBlock, permute);
 	}
 
-	private double euclideanNorm(RealMatrix y, RealMatrix x, double s, double o) {
-		int n = y.getRowDimension();
-		assert(n == x.getRowDimension());
-		assert(1 == y.getColumnDimension() && 1 == x.getColumnDimension());
-		double sum = 0;
-		for (int i = 0; i < n; i++) {
-			sum += Math.pow(y.getEntry(i, 0) - s*x.getEntry(i, 0) - o, 2);
+	@Override
+	public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		return getDistance(domainPool.getSamples(), domainPool.getOffset(index),
+				domainPool.getSumOfPoints(index), domainPool.getSumOfSquaredPoints(index),
+				rangeBlock);
+	}
+
+	/**
+	 * For any scale |s| <= maxScale, the Cauchy-Schwarz inequality bounds the distance below by
+	 * the difference between the norms of the range's deviations and the scaled domain's deviations.
+	 * This bound holds for every permutation, since permuting the domain doesn't change its norm.
+	 */
+	@Override
+	public double getLowerBound(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		double rangeNorm = rangeBlock.getNormOfDeviations();
+		double domainNorm = getScaleBound() * domainPool.getNormOfDeviations(index);
+		if (!(domainNorm < rangeNorm)) {
+			return 0;
 		}
-		return Math.sqrt(sum);
+		return rangeNorm - domainNorm - ROUNDING_TOLERANCE * Math.sqrt(rangeBlock.getSumOfSquaredPoints());
+	}
+
+	public double getDistance(SignalBlock domainBlock, SignalBlock rangeBlock) {
+		return getDistance(domainBlock.getSamples(), 0,
+				domainBlock.getSumOfPoints(), domainBlock.getSumOfSquaredPoints(), rangeBlock);
+	}
+
+	public double getDistance(SignalBlock domainBlock, SignalBlock rangeBlock, Symmetry symmetry) {
+		return getDistance(domainBlock.getSamples(), 0,
+				domainBlock.getSumOfPoints(), domainBlock.getSumOfSquaredPoints(), rangeBlock, symmetry);
 	}
 
 	public AffineTransform encode(SignalBlock domainBlock, SignalBlock rangeBlock, Symmetry symmetry) {
-		RealMatrix domain = new Array2DRowRealMatrix(domainBlock.getBlock().getData(), false);
-		AffineTransform.permute(domain, symmetry);
-		RealMatrix range = rangeBlock.getBlock();
-
-		Assert.isTrue(domain.getColumnDimension() == 1,
-				"Domain must be a column vector.");
-		Assert.isTrue(range.getColumnDimension() == 1,
-				"Range must be a column vector.");
-		Assert.isTrue(domain.getRowDimension() == range.getRowDimension(),
-				"Domain and range must have the same dimension.");
+		return encode(domainBlock.getSamples(), 0, domainBlock.getSumOfPoints(), domainBlock.getSumOfSquaredPoints(),
+				domainBlock.getIndex(), rangeBlock, symmetry);
+	}
 
-		int n = domain.getRowDimension();
-		double s = 0;
-		double o = 0;
-		double sum_ais = domainBlock.getSumOfPoints();
-		double sum_bis = rangeBlock.getSumOfPoints();
-		double sum_squared_ais = domainBlock.getSumOfSquaredPoints();
-		//double sum_squared_bis = rangeBlock.getSumOfSquaredPoints();
-		double sum_ais_squared = Math.pow(sum_ais,2);
-		double one_over_n = ((double)1/(double)n);
+	public AffineTransform encode(SignalBlock domainBlock, SignalBlock rangeBlock, boolean permute) {
+		return encode(domainBlock.getSamples(), 0, domainBlock.getSumOfPoints(), domainBlock.getSumOfSquaredPoints(),
+				domainBlock.getIndex(), rangeBlock, permute);
+	}
 
-		double sum_ais_times_bis = 0;
+	@Override
+	public int[][] getPermutations(int dimension) {
+		if (permute) {
+			return SymmetryPermutations.getPermutations(dimension);
+		}
 
-		for (int i = 0; i < n; i++) {
-			sum_ais_times_bis += domain.getEntry(i, 0) * range.getEntry(i, 0);
+		int identity[] = new int[dimension];
+		for (int k = 0; k < dimension; k++) {
+			identity[k] = k;
 		}
+		return new int[][] {identity};
+	}
+
+	@Override
+	public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock, double innerProducts[][]) {
+		double sum_ais = domainPool.getSumOfPoints(index);
+		double sum_squared_ais = domainPool.getSumOfSquaredPoints(index);
+		int k = getBestPermutation(sum_ais, sum_squared_ais, innerProducts, index, rangeBlock);
+		return getDistance(sum_ais, sum_squared_ais, innerProducts[k][index], rangeBlock);
+	}
 
-		double s_denum = (n*sum_squared_ais) - sum_ais_squared;
+	@Override
+	public AffineTransform encode(DomainPool domainPool, int index, SignalBlock rangeBlock, double innerProducts[][]) {
+		double sum_ais = domainPool.getSumOfPoints(index);
+		double sum_squared_ais = domainPool.getSumOfSquaredPoints(index);
+		int k = getBestPermutation(sum_ais, sum_squared_ais, innerProducts, index, rangeBlock);
+		Symmetry symmetry = permute ? Symmetry.values()[k] : Symmetry.ORIGINAL;
+		return encode(sum_ais, sum_squared_ais, innerProducts[k][index], domainPool.getDomainBlockIndex(index),
+				rangeBlock, symmetry);
+	}
+
+	/**
+	 * Returns the index of the permutation with the least distance, following
+	 * the same order and threshold as the other methods.
+	 */
+	private int getBestPermutation(double sum_ais, double sum_squared_ais, double innerProducts[][], int index,
+			SignalBlock rangeBlock) {
+		if (!permute) {
+			return 0;
+		}
+
+		int n = rangeBlock.getDimension();
+		double sum_bis = rangeBlock.getSumOfPoints();
+		double sum_squared_bis = rangeBlock.getSumOfSquaredPoints();
+		double s_denum = (n*sum_squared_ais) - (sum_ais*sum_ais);
 		if (s_denum == 0) {
-			s = 0;
-			o = one_over_n * sum_bis;
+			// The scale is 0 for every permutation, so they all have the same distance
+			return 0;
+		}
+
+		// Compare the squared distances, which are given by the residual of the least-squares fit
+		// sum_squared_bis - sum_bis^2/n - c^2/(n*s_denum) when the scale isn't clamped, so that
+		// we don't need to divide or take a square root per permutation
+		double s_denum_inverse = 1 / s_denum;
+		double n_inverse = 1.0 / n;
+		double sum_ais_sum_bis = sum_ais*sum_bis;
+		double residual = sum_squared_bis - sum_bis*sum_bis*n_inverse;
+		double residual_scale = s_denum_inverse*n_inverse;
+		int bestPermutation = 0;
+		double bestSquaredDistance = Double.POSITIVE_INFINITY;
+		double squaredThreshold = threshold * threshold;
+		for (int k = 0; k < innerProducts.length; k++) {
+			double sum_ais_times_bis = innerProducts[k][index];
+			double c = (n*sum_ais_times_bis) - sum_ais_sum_bis;
+			double s = c*s_denum_inverse;
+			double squaredDistance;
+			if (scaleQuantizer == null && (s >= 0 || allowNegativeScales) && Math.abs(s) <= maxScale) {
+				squaredDistance = Math.max(residual - c*c*residual_scale, 0);
+			} else {
+				// The scale is clamped or quantized, so fall back to the general formula
+				squaredDistance = getSquaredDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis,
+						sum_ais_times_bis, s);
+			}
+
+			if (squaredDistance < bestSquaredDistance) {
+				bestSquaredDistance = squaredDistance;
+				bestPermutation = k;
+			}
+
+			// If the distance is <= the threshold, don't try to find a "better" transform
+			if (squaredDistance <= squaredThreshold) {
+				break;
+			}
+		}
+		return bestPermutation;
+	}
+
+	private double getDistance(SampleVector domain, int domainOffset, double sum_ais, double sum_squared_ais,
+			SignalBlock rangeBlock) {
+		if (!permute) {
+			return getDistance(domain, domainOffset, sum_ais, sum_squared_ais, rangeBlock, Symmetry.ORIGINAL);
+		}
+
+		// Iterate over all of the known symmetries to find the one with the least distance
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (Symmetry symmetry : Symmetry.values()) {
+			double distance = getDistance(domain, domainOffset, sum_ais, sum_squared_ais, rangeBlock, symmetry);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+			}
+
+			// If the distance is <= the threshold, don't try to find a "better" transform
+			if (distance <= threshold) {
+				break;
+			}
+		}
+		return bestDistance;
+	}
+
+	private double getDistance(SampleVector domain, int domainOffset, double sum_ais, double sum_squared_ais,
+			SignalBlock rangeBlock, Symmetry symmetry) {
+		double sum_ais_times_bis = getInnerProduct(domain, domainOffset, rangeBlock, symmetry);
+		return getDistance(sum_ais, sum_squared_ais, sum_ais_times_bis, rangeBlock);
+	}
+
+	private AffineTransform encode(SampleVector domain, int domainOffset, double sum_ais, double sum_squared_ais,
+			int domainBlockIndex, SignalBlock rangeBlock, Symmetry symmetry) {
+		double sum_ais_times_bis = getInnerProduct(domain, domainOffset, rangeBlock, symmetry);
+		return encode(sum_ais, sum_squared_ais, sum_ais_times_bis, domainBlockIndex, rangeBlock, symmetry);
+	}
+
+	/**
+	 * Distance of the best transform from a domain block to the range block, given the domain
+	 * block's sums and its inner product with the range block.
+	 */
+	protected double getDistance(double sum_ais, double sum_squared_ais, double sum_ais_times_bis,
+			SignalBlock rangeBlock) {
+		int n = rangeBlock.getDimension();
+		double sum_bis = rangeBlock.getSumOfPoints();
+		double sum_squared_bis = rangeBlock.getSumOfSquaredPoints();
+
+		double s = getScale(n, sum_ais, sum_squared_ais, sum_bis, sum_ais_times_bis);
+		return Math.sqrt(getSquaredDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis,
+				sum_ais_times_bis, s));
+	}
+
+	/**
+	 * Squared distance of the transform built from the least-squares scale s,
+	 * after the scale is clamped and quantized in the same way as encode.
+	 */
+	private double getSquaredDistance(int n, double sum_ais, double sum_squared_ais, double sum_bis,
+			double sum_squared_bis, double sum_ais_times_bis, double s) {
+		double o;
+		if (scaleQuantizer != null) {
+			s = scaleQuantizer.round(s);
+			o = offsetQuantizer.round(getOffset(n, sum_ais, sum_bis, s));
 		} else {
-			s = ((n*sum_ais_times_bis) - (sum_ais*sum_bis))/s_denum;
-			o = one_over_n * (sum_bis - s*sum_ais);
+			s = getLimitedScale(s);
+			o = getOffset(n, sum_ais, sum_bis, s);
+			if (s < 0 && allowNegativeScales == false) {
+				s = 0;
+			}
 		}
+		return getSquaredDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis, sum_ais_times_bis, s, o);
+	}
+
+	/**
+	 * Builds the best transform from a domain block to the range block, given the domain
+	 * block's sums and its inner product with the range block.
+	 */
+	protected AffineTransform encode(double sum_ais, double sum_squared_ais, double sum_ais_times_bis,
+			int domainBlockIndex, SignalBlock rangeBlock, Symmetry symmetry) {
+		int n = rangeBlock.getDimension();
+		double sum_bis = rangeBlock.getSumOfPoints();
+		double sum_squared_bis = rangeBlock.getSumOfSquaredPoints();
 
+		double s = getScale(n, sum_ais, sum_squared_ais, sum_bis, sum_ais_times_bis);
+		if (scaleQuantizer != null) {
+			// Fit the offset to the quantized scale, and score the transform with the quantized values
+			int scaleCode = scaleQuantizer.quantize(s);
+			s = scaleQuantizer.getValue(scaleCode);
+			int offsetCode = offsetQuantizer.quantize(getOffset(n, sum_ais, sum_bis, s));
+			double o = offsetQuantizer.getValue(offsetCode);
+			double norm = getDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis, sum_ais_times_bis, s, o);
+			return new QuantizedAffineTransform(domainBlockIndex, rangeBlock.getIndex(), norm,
+					scaleQuantizer, scaleCode, offsetQuantizer, offsetCode, symmetry);
+		}
+
+		s = getLimitedScale(s);
+		double o = getOffset(n, sum_ais, sum_bis, s);
 		if (s < 0 && allowNegativeScales == false) {
 			s = 0;
 		}
 
-		// TODO: Make this more efficient
-		double norm = euclideanNorm(range, domain, s, o);
-//		double u = (s*sum_squared_ais) - (2*sum_ais_times_bis) + (2*o*sum_ais);
-//		double v = (n*o) - (2*sum_bis);
-//		double R = one_over_n * (sum_squared_bis + s*u + o*v);
-//		double norm = Math.sqrt(Math.abs(R));
-		return new AffineTransform(domainBlock.getIndex(), rangeBlock.getIndex(),
+		double norm = getDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis, sum_ais_times_bis, s, o);
+		return new AffineTransform(domainBlockIndex, rangeBlock.getIndex(),
 				norm, s, o, symmetry);
 	}
 
-	public AffineTransform encode(SignalBlock domainBlock, SignalBlock rangeBlock, boolean permute) {
+	private AffineTransform encode(SampleVector domain, int domainOffset, double sum_ais, double sum_squared_ais,
+			int domainBlockIndex, SignalBlock rangeBlock, boolean permute) {
 		if (permute) {
 			// Iterate over all of the known symmetries to find the one with the least distance
 			AffineTransform bestTransform = null;
 			for (Symmetry symmetry : Symmetry.values()) {
-				AffineTransform transform = encode(domainBlock, rangeBlock, symmetry);
+				AffineTransform transform = encode(domain, domainOffset, sum_ais, sum_squared_ais,
+						domainBlockIndex, rangeBlock, symmetry);
 				if (transform.compareTo(bestTransform) < 0) {
 					bestTransform = transform;
 				}
@@ -104,8 +321,166 @@ public class AffineKernel implements Kernel {
 			}
 			return bestTransform;
 		} else {
-			return encode(domainBlock, rangeBlock, Symmetry.ORIGINAL);
+			return encode(domain, domainOffset, sum_ais, sum_squared_ais,
+					domainBlockIndex, rangeBlock, Symmetry.ORIGINAL);
+		}
+	}
+
+	/**
+	 * Least-squares scale used to map the domain onto the range.
+	 */
+	protected static double getScale(int n, double sum_ais, double sum_squared_ais,
+			double sum_bis, double sum_ais_times_bis) {
+		double s_denum = (n*sum_squared_ais) - (sum_ais*sum_ais);
+		if (s_denum == 0) {
+			return 0;
+		}
+		return ((n*sum_ais_times_bis) - (sum_ais*sum_bis))/s_denum;
+	}
+
+	/**
+	 * Limits the magnitude of the scale to maxScale. Negative scales are only limited when they're allowed,
+	 * since they're otherwise clamped to 0 after the offset is computed.
+	 */
+	private double getLimitedScale(double s) {
+		if (s > maxScale) {
+			return maxScale;
+		} else if (s < -maxScale && allowNegativeScales) {
+			return -maxScale;
+		}
+		return s;
+	}
+
+	/**
+	 * Least-squares offset used to map the domain onto the range with the given scale.
+	 */
+	protected static double getOffset(int n, double sum_ais, double sum_bis, double s) {
+		return (sum_bis - s*sum_ais) / n;
+	}
+
+	/**
+	 * Euclidean distance between the range and the transformed domain,
+	 * computed in closed form from the sums.
+	 */
+	protected static double getDistance(int n, double sum_ais, double sum_squared_ais, double sum_bis,
+			double sum_squared_bis, double sum_ais_times_bis, double s, double o) {
+		return Math.sqrt(getSquaredDistance(n, sum_ais, sum_squared_ais, sum_bis, sum_squared_bis,
+				sum_ais_times_bis, s, o));
+	}
+
+	protected static double getSquaredDistance(int n, double sum_ais, double sum_squared_ais, double sum_bis,
+			double sum_squared_bis, double sum_ais_times_bis, double s, double o) {
+		double u = (s*sum_squared_ais) - (2*sum_ais_times_bis) + (2*o*sum_ais);
+		double v = (n*o) - (2*sum_bis);
+		double R = sum_squared_bis + s*u + o*v;
+		// Guard against rounding errors when the fit is (nearly) perfect
+		return Math.max(R, 0);
+	}
+
+	/**
+	 * Computes the inner product between the permuted domain, starting at the given offset, and
+	 * the range block. When the domain and the range block's samples both hold floats, or both hold
+	 * fixed-point codes, the products are summed with floats, or exactly with integers.
+	 */
+	protected static double getInnerProduct(SampleVector domain, int domainOffset, SignalBlock rangeBlock,
+			Symmetry symmetry) {
+		SampleVector range = rangeBlock.getSamples();
+		if (domain instanceof DoubleSampleVector) {
+			return getInnerProduct(((DoubleSampleVector)domain).getDataRef(), domainOffset, rangeBlock.getData(),
+					symmetry);
+		} else if (domain instanceof FloatSampleVector && range instanceof FloatSampleVector) {
+			return getInnerProduct(((FloatSampleVector)domain).getDataRef(), domainOffset,
+					((FloatSampleVector)range).getDataRef(), symmetry);
+		} else if (domain instanceof FixedPointSampleVector && range instanceof FixedPointSampleVector
+				&& ((FixedPointSampleVector)domain).hasSameFormat((FixedPointSampleVector)range)) {
+			return getInnerProduct((FixedPointSampleVector)domain, domainOffset, (FixedPointSampleVector)range,
+					symmetry);
+		}
+
+		double block[] = new double[rangeBlock.getDimension()];
+		domain.get(domainOffset, block, 0, block.length);
+		return getInnerProduct(block, 0, rangeBlock.getData(), symmetry);
+	}
+
+	protected static double getInnerProduct(float domain[], int domainOffset, float range[], Symmetry symmetry) {
+		Assert.isTrue(domainOffset + range.length <= domain.length,
+				"Domain and range must have the same dimension.");
+
+		float sum = 0;
+		if (symmetry == Symmetry.ORIGINAL) {
+			for (int i = 0; i < range.length; i++) {
+				sum += domain[domainOffset + i] * range[i];
+			}
+		} else {
+			int permutation[] = SymmetryPermutations.getPermutation(symmetry, range.length);
+			for (int i = 0; i < range.length; i++) {
+				sum += domain[domainOffset + permutation[i]] * range[i];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Sums the products of the codes, and converts the sum back to the product of the values,
+	 * where a = minVal + c_a*step and b = minVal + c_b*step.
+	 */
+	protected static double getInnerProduct(FixedPointSampleVector domain, int domainOffset,
+			FixedPointSampleVector range, Symmetry symmetry) {
+		short domainCodes[] = domain.getDataRef();
+		short rangeCodes[] = range.getDataRef();
+		int n = rangeCodes.length;
+		Assert.isTrue(domainOffset + n <= domainCodes.length,
+				"Domain and range must have the same dimension.");
+
+		long sumOfProducts = 0;
+		if (symmetry == Symmetry.ORIGINAL) {
+			for (int i = 0; i < n; i++) {
+				sumOfProducts += (long)(domainCodes[domainOffset + i] & FixedPointSampleVector.MAX_CODE)
+						* (rangeCodes[i] & FixedPointSampleVector.MAX_CODE);
+			}
+		} else {
+			int permutation[] = SymmetryPermutations.getPermutation(symmetry, n);
+			for (int i = 0; i < n; i++) {
+				sumOfProducts += (long)(domainCodes[domainOffset + permutation[i]] & FixedPointSampleVector.MAX_CODE)
+						* (rangeCodes[i] & FixedPointSampleVector.MAX_CODE);
+			}
+		}
+
+		double minVal = domain.getMinVal();
+		double step = domain.getStep();
+		if (minVal == 0) {
+			return step*step*sumOfProducts;
+		}
+
+		// The sums of the codes don't depend on the symmetry
+		long sumOfCodes = 0;
+		for (int i = 0; i < n; i++) {
+			sumOfCodes += (domainCodes[domainOffset + i] & FixedPointSampleVector.MAX_CODE)
+					+ (rangeCodes[i] & FixedPointSampleVector.MAX_CODE);
+		}
+		return n*minVal*minVal + minVal*step*sumOfCodes + step*step*sumOfProducts;
+	}
+
+	/**
+	 * Computes the inner product between the permuted domain, starting at the
+	 * given offset, and the range, without permuting the domain.
+	 */
+	protected static double getInnerProduct(double domain[], int domainOffset, double range[], Symmetry symmetry) {
+		Assert.isTrue(domainOffset + range.length <= domain.length,
+				"Domain and range must have the same dimension.");
+
+		double sum = 0;
+		if (symmetry == Symmetry.ORIGINAL) {
+			for (int i = 0; i < range.length; i++) {
+				sum += domain[domainOffset + i] * range[i];
+			}
+		} else {
+			int permutation[] = SymmetryPermutations.getPermutation(symmetry, range.length);
+			for (int i = 0; i < range.length; i++) {
+				sum += domain[domainOffset + permutation[i]] * range[i];
+			}
 		}
+		return sum;
 	}
 
 	public void setThreshold(double threshold) {
@@ -127,9 +502,91 @@ public class AffineKernel implements Kernel {
 
 	public void setAllowNegativeScales(boolean allowNegativeScales) {
 		this.allowNegativeScales = allowNegativeScales;
+		updateQuantizers();
 	}
 
 	public boolean getAllowNegativeScales() { 
 		return allowNegativeScales;
 	}
+
+	/**
+	 * Limits the magnitude of the scales, the offset is then fitted to the limited scale.
+	 */
+	public void setMaxScale(double maxScale) {
+		Assert.isTrue(maxScale >= 0, "Maximum scale must be non-negative.");
+		this.maxScale = maxScale;
+		updateQuantizers();
+	}
+
+	public double getMaxScale() {
+		return maxScale;
+	}
+
+	/**
+	 * Largest magnitude of the scales chosen by the kernel.
+	 */
+	private double getScaleBound() {
+		if (scaleQuantizer != null) {
+			return Math.max(Math.abs(scaleQuantizer.getMin()), Math.abs(scaleQuantizer.getMax()));
+		}
+		return maxScale;
+	}
+
+	private void updateQuantizers() {
+		if (scaleBits <= 0 || offsetBits <= 0) {
+			scaleQuantizer = null;
+			offsetQuantizer = null;
+			return;
+		}
+
+		double scaleBound = Double.isInfinite(maxScale) ? QUANTIZED_MAX_SCALE : maxScale;
+		scaleQuantizer = new UniformQuantizer(scaleBits, allowNegativeScales ? -scaleBound : 0, scaleBound);
+		offsetQuantizer = new UniformQuantizer(offsetBits, minOffset, maxOffset);
+	}
+
+	/**
+	 * Quantizes the scales to this many bits while searching, along with the offsets, so that the
+	 * transforms are scored with the values that will be decoded. The scales are limited to maxScale,
+	 * or to 1 if it isn't set, and are only quantized when offsetBits is also set. 0 disables this.
+	 */
+	public void setScaleBits(int scaleBits) {
+		Assert.isTrue(scaleBits >= 0, "Number of bits must be non-negative.");
+		this.scaleBits = scaleBits;
+		updateQuantizers();
+	}
+
+	public int getScaleBits() {
+		return scaleBits;
+	}
+
+	/**
+	 * Quantizes the offsets to this many bits over [minOffset, maxOffset], see setScaleBits.
+	 */
+	public void setOffsetBits(int offsetBits) {
+		Assert.isTrue(offsetBits >= 0, "Number of bits must be non-negative.");
+		this.offsetBits = offsetBits;
+		updateQuantizers();
+	}
+
+	public int getOffsetBits() {
+		return offsetBits;
+	}
+
+	public void setMinOffset(double minOffset) {
+		this.minOffset = minOffset;
+		updateQuantizers();
+	}
+
+	public double getMinOffset() {
+		return minOffset;
+	}
+
+	public void setMaxOffset(double maxOffset) {
+		this.maxOffset = maxOffset;
+		updateQuantizers();
+	}
+
+	public double getMaxOffset() {
+		return maxOffset;
+	}
 }
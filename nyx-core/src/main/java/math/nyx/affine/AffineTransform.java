@@ -1,20 +1,30 @@
 package math.nyx.affine;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.commons.math.linear.Array2DColumnRealMatrix;
 import org.apache.commons.math.linear.RealMatrix;
-import org.springframework.util.Assert;
 
 import math.nyx.core.AbstractTransform;
+import math.nyx.core.FixedPointSampleVector;
 import math.nyx.core.Signal;
 
 import com.google.common.base.Objects.ToStringHelper;
 
 public class AffineTransform extends AbstractTransform {
 	private static final long serialVersionUID = 4115274904771797361L;
+
+	/**
+	 * Number of fraction bits of the scale and the offset when the transform is applied to fixed-point codes.
+	 */
+	private static final int FIXED_POINT_BITS = 16;
+
+	/**
+	 * Largest scale whose products with the codes safely fit in a long once it is shifted by FIXED_POINT_BITS.
+	 */
+	private static final double MAX_FIXED_POINT_SCALE = 1 << 24;
+
 	private final double scale;
 	private final double offset;
 	private final Symmetry symmetry;
@@ -68,22 +78,97 @@ public class AffineTransform extends AbstractTransform {
 
 	@Override
 	public void apply(Array2DColumnRealMatrix domain, Signal signal) {
-		permute(domain, symmetry);
+		double data[] = domain.getDataRef()[0];
+		apply(data.clone(), data, signal);
+	}
 
-		double data[][] = domain.getDataRef();
-		int dimension = domain.getRowDimension();
-		for (int i = 0; i < dimension; i++) {
-			data[0][i] = data[0][i] * scale + offset; 
+	@Override
+	public void apply(double source[], double target[], Signal signal) {
+		int dimension = source.length;
+		if (symmetry == Symmetry.ORIGINAL) {
+			for (int i = 0; i < dimension; i++) {
+				target[i] = source[i] * scale + offset;
+			}
+		} else {
+			int permutation[] = SymmetryPermutations.getPermutation(symmetry, dimension);
+			for (int i = 0; i < dimension; i++) {
+				target[i] = source[permutation[i]] * scale + offset;
+			}
 		}
-		
+
 		// Bound the transform with the min and max vals of the underlying signal
 		double minVal = signal.getMinVal();
 		double maxVal = signal.getMaxVal();
-		for (int i = 0; i < data[0].length; i++) {
-			if (data[0][i] < minVal) {
-				data[0][i] = minVal;
-			} else if (data[0][i] > maxVal) {
-				data[0][i] = maxVal;
+		for (int i = 0; i < dimension; i++) {
+			if (target[i] < minVal) {
+				target[i] = minVal;
+			} else if (target[i] > maxVal) {
+				target[i] = maxVal;
+			}
+		}
+	}
+
+	@Override
+	public void apply(float source[], float target[], Signal signal) {
+		int dimension = source.length;
+		float s = (float)scale;
+		float o = (float)offset;
+		if (symmetry == Symmetry.ORIGINAL) {
+			for (int i = 0; i < dimension; i++) {
+				target[i] = source[i] * s + o;
+			}
+		} else {
+			int permutation[] = SymmetryPermutations.getPermutation(symmetry, dimension);
+			for (int i = 0; i < dimension; i++) {
+				target[i] = source[permutation[i]] * s + o;
+			}
+		}
+
+		float minVal = (float)signal.getMinVal();
+		float maxVal = (float)signal.getMaxVal();
+		for (int i = 0; i < dimension; i++) {
+			if (target[i] < minVal) {
+				target[i] = minVal;
+			} else if (target[i] > maxVal) {
+				target[i] = maxVal;
+			}
+		}
+	}
+
+	@Override
+	public void apply(short source[], short target[], double minVal, int fractionBits, Signal signal) {
+		int dimension = source.length;
+		int minCode = FixedPointSampleVector.getCode(signal.getMinVal(), minVal, fractionBits);
+		int maxCode = FixedPointSampleVector.getCode(signal.getMaxVal(), minVal, fractionBits);
+		int permutation[] = symmetry == Symmetry.ORIGINAL ? null
+				: SymmetryPermutations.getPermutation(symmetry, dimension);
+		if (!(Math.abs(scale) < MAX_FIXED_POINT_SCALE)) {
+			// The scale is too large to shift, so go through the values
+			double step = 1.0 / (1 << fractionBits);
+			for (int i = 0; i < dimension; i++) {
+				int code = source[permutation == null ? i : permutation[i]] & FixedPointSampleVector.MAX_CODE;
+				int transformedCode = FixedPointSampleVector.getCode((minVal + code * step) * scale + offset,
+						minVal, fractionBits);
+				target[i] = (short)Math.min(Math.max(transformedCode, minCode), maxCode);
+			}
+			return;
+		}
+
+		// With codes, x -> x*scale + offset becomes c -> c*scale + (offset + (scale - 1)*minVal)*2^fractionBits,
+		// the half added to the offset rounds the shifted results
+		long s = Math.round(scale * (1L << FIXED_POINT_BITS));
+		long o = Math.round((offset + (scale - 1) * minVal) * (1L << (fractionBits + FIXED_POINT_BITS)))
+				+ (1L << (FIXED_POINT_BITS - 1));
+		if (permutation == null) {
+			for (int i = 0; i < dimension; i++) {
+				long transformedCode = ((source[i] & FixedPointSampleVector.MAX_CODE) * s + o) >> FIXED_POINT_BITS;
+				target[i] = (short)Math.min(Math.max(transformedCode, minCode), maxCode);
+			}
+		} else {
+			for (int i = 0; i < dimension; i++) {
+				long transformedCode = ((source[permutation[i]] & FixedPointSampleVector.MAX_CODE) * s + o)
+						>> FIXED_POINT_BITS;
+				target[i] = (short)Math.min(Math.max(transformedCode, minCode), maxCode);
 			}
 		}
 	}
@@ -93,14 +178,22 @@ public class AffineTransform extends AbstractTransform {
 			return;
 
 		// Permute using the symmetry operator
-		int k = 0;
 		double copyOfColumn[] = vector.getColumn(0);
-		Iterator<Double> it = new SymmetryIterator(copyOfColumn, symmetry);
-		while (it.hasNext()) {
-			vector.setEntry(k++, 0, it.next());
+		int permutation[] = SymmetryPermutations.getPermutation(symmetry, copyOfColumn.length);
+		for (int k = 0; k < permutation.length; k++) {
+			vector.setEntry(k, 0, copyOfColumn[permutation[k]]);
 		}
+	}
 
-		Assert.isTrue(k == copyOfColumn.length);
+	@Override
+	public double getContractivity() {
+		return Math.abs(scale);
+	}
+
+	@Override
+	public double applyToConstant(double value, Signal signal) {
+		// Permuting a constant block leaves it unchanged
+		return Math.min(Math.max(value * scale + offset, signal.getMinVal()), signal.getMaxVal());
 	}
 
 	@Override
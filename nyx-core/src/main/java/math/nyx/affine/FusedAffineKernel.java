@@ -0,0 +1,160 @@
+package math.nyx.affine;
+
+import org.springframework.util.Assert;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.SignalBlock;
+
+/**
+ * Affine kernel that computes the inner products between a domain block and all of the
+ * symmetries of the range block in a single pass over the domain.
+ *
+ * Instead of permuting the domain block once per symmetry, the range block is permuted
+ * by the inverse of every symmetry, and the permuted range blocks are interleaved so that
+ * their j-th entries are contiguous. Every domain entry is then read once and multiplied
+ * against 8 consecutive range entries, which keeps the 8 sums independent and the memory
+ * accesses sequential. The permuted range block is cached per thread, since a range block
+ * is compared against many domain blocks in a row.
+ *
+ * The transforms selected are the same as the ones selected by AffineKernel, up to
+ * rounding, so the two kernels can be swapped in the configuration.
+ *
+ * @author jwhite
+ */
+public class FusedAffineKernel extends AffineKernel {
+	private static final int NUM_SYMMETRIES = 8;
+
+	private static final Symmetry SYMMETRIES[] = Symmetry.values();
+
+	private final ThreadLocal<PermutedRangeBlock> permutedRangeBlocks = new ThreadLocal<PermutedRangeBlock>() {
+		@Override
+		protected PermutedRangeBlock initialValue() {
+			return new PermutedRangeBlock();
+		}
+	};
+
+	public FusedAffineKernel() {
+		Assert.isTrue(SYMMETRIES.length == NUM_SYMMETRIES, "The fused kernel expects 8 symmetries.");
+	}
+
+	@Override
+	public AffineTransform encode(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		if (!getPermute()) {
+			return super.encode(domainPool, index, rangeBlock);
+		}
+
+		double sum_ais = domainPool.getSumOfPoints(index);
+		double sum_squared_ais = domainPool.getSumOfSquaredPoints(index);
+		double products[] = getInnerProducts(domainPool, index, rangeBlock);
+		int bestSymmetry = getBestSymmetry(sum_ais, sum_squared_ais, products, rangeBlock);
+		return encode(sum_ais, sum_squared_ais, products[bestSymmetry],
+				domainPool.getDomainBlockIndex(index), rangeBlock, SYMMETRIES[bestSymmetry]);
+	}
+
+	@Override
+	public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		if (!getPermute()) {
+			return super.getDistance(domainPool, index, rangeBlock);
+		}
+
+		double sum_ais = domainPool.getSumOfPoints(index);
+		double sum_squared_ais = domainPool.getSumOfSquaredPoints(index);
+		double products[] = getInnerProducts(domainPool, index, rangeBlock);
+		int bestSymmetry = getBestSymmetry(sum_ais, sum_squared_ais, products, rangeBlock);
+		return getDistance(sum_ais, sum_squared_ais, products[bestSymmetry], rangeBlock);
+	}
+
+	/**
+	 * Returns the ordinal of the symmetry with the least distance, visiting the symmetries
+	 * in the same order as AffineKernel and stopping at the first one within the threshold.
+	 */
+	private int getBestSymmetry(double sum_ais, double sum_squared_ais, double products[], SignalBlock rangeBlock) {
+		int bestSymmetry = 0;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int k = 0; k < NUM_SYMMETRIES; k++) {
+			double distance = getDistance(sum_ais, sum_squared_ais, products[k], rangeBlock);
+			if (distance < bestDistance) {
+				bestDistance = distance;
+				bestSymmetry = k;
+			}
+
+			// If the distance is <= the threshold, don't try to find a "better" transform
+			if (distance <= getThreshold()) {
+				break;
+			}
+		}
+		return bestSymmetry;
+	}
+
+	/**
+	 * Computes the inner products between the domain block and the range block for
+	 * every symmetry, indexed by the symmetry's ordinal. The returned array is reused
+	 * by the next call made on the same thread.
+	 */
+	private double[] getInnerProducts(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+		PermutedRangeBlock permuted = permutedRangeBlocks.get();
+		permuted.setRangeBlock(rangeBlock);
+
+		double domain[] = domainPool.getData();
+		int offset = domainPool.getOffset(index);
+		int n = rangeBlock.getDimension();
+		Assert.isTrue(offset + n <= domain.length, "Domain and range must have the same dimension.");
+
+		double r[] = permuted.entries;
+		double p0 = 0, p1 = 0, p2 = 0, p3 = 0, p4 = 0, p5 = 0, p6 = 0, p7 = 0;
+		for (int j = 0, k = 0; j < n; j++, k += NUM_SYMMETRIES) {
+			double a = domain[offset + j];
+			p0 += a * r[k];
+			p1 += a * r[k + 1];
+			p2 += a * r[k + 2];
+			p3 += a * r[k + 3];
+			p4 += a * r[k + 4];
+			p5 += a * r[k + 5];
+			p6 += a * r[k + 6];
+			p7 += a * r[k + 7];
+		}
+
+		double products[] = permuted.products;
+		products[0] = p0;
+		products[1] = p1;
+		products[2] = p2;
+		products[3] = p3;
+		products[4] = p4;
+		products[5] = p5;
+		products[6] = p6;
+		products[7] = p7;
+		return products;
+	}
+
+	/**
+	 * The range block permuted by the inverse of every symmetry, with
+	 * entries[j*8 + k] = range[i] where permutation_k[i] = j, so that
+	 * sum_i domain[permutation_k[i]] * range[i] = sum_j domain[j] * entries[j*8 + k].
+	 */
+	private static class PermutedRangeBlock {
+		private SignalBlock rangeBlock;
+		private double entries[] = new double[0];
+		private final double products[] = new double[NUM_SYMMETRIES];
+
+		public void setRangeBlock(SignalBlock rangeBlock) {
+			if (this.rangeBlock == rangeBlock) {
+				return;
+			}
+
+			double range[] = rangeBlock.getData();
+			int n = range.length;
+			if (entries.length != n * NUM_SYMMETRIES) {
+				entries = new double[n * NUM_SYMMETRIES];
+			}
+
+			int permutations[][] = SymmetryPermutations.getPermutations(n);
+			for (int k = 0; k < NUM_SYMMETRIES; k++) {
+				int permutation[] = permutations[k];
+				for (int i = 0; i < n; i++) {
+					entries[permutation[i] * NUM_SYMMETRIES + k] = range[i];
+				}
+			}
+			this.rangeBlock = rangeBlock;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package math.nyx.affine;
+
+import java.util.Map;
+
+import com.google.common.base.Objects.ToStringHelper;
+
+/**
+ * Affine transform whose scale and offset are levels of uniform quantizers, and can be
+ * stored as their codes. The transform is applied using the values of these levels,
+ * so it decodes to exactly what the encoder scored.
+ *
+ * @author jwhite
+ */
+public class QuantizedAffineTransform extends AffineTransform {
+	private static final long serialVersionUID = 5360945713186950137L;
+	private final UniformQuantizer scaleQuantizer;
+	private final UniformQuantizer offsetQuantizer;
+	private final int scaleCode;
+	private final int offsetCode;
+
+	public QuantizedAffineTransform(int domainBlockIndex, int rangeBlockIndex, double distance,
+			UniformQuantizer scaleQuantizer, int scaleCode, UniformQuantizer offsetQuantizer, int offsetCode,
+			Symmetry symmetry) {
+		super(domainBlockIndex, rangeBlockIndex, distance, scaleQuantizer.getValue(scaleCode),
+				offsetQuantizer.getValue(offsetCode), symmetry);
+		this.scaleQuantizer = scaleQuantizer;
+		this.offsetQuantizer = offsetQuantizer;
+		this.scaleCode = scaleCode;
+		this.offsetCode = offsetCode;
+	}
+
+	public UniformQuantizer getScaleQuantizer() {
+		return scaleQuantizer;
+	}
+
+	public UniformQuantizer getOffsetQuantizer() {
+		return offsetQuantizer;
+	}
+
+	public int getScaleCode() {
+		return scaleCode;
+	}
+
+	public int getOffsetCode() {
+		return offsetCode;
+	}
+
+	@Override
+	public Map<String, Object> getKernelParameters() {
+		Map<String, Object> params = super.getKernelParameters();
+		params.put("scaleCode", scaleCode);
+		params.put("offsetCode", offsetCode);
+		return params;
+	}
+
+	@Override
+	protected ToStringHelper toStringHelper() {
+		return super.toStringHelper()
+	            .add("scaleCode", scaleCode)
+	            .add("offsetCode", offsetCode);
+	}
+}
@@ -0,0 +1,67 @@
+package math.nyx.affine;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Precomputed permutation tables for the symmetries of square blocks.
+ *
+ * For a block x of the given dimension, the block permuted by a symmetry is given by
+ * x[permutation[0]], x[permutation[1]], ..., x[permutation[dimension - 1]].
+ *
+ * @author jwhite
+ */
+public class SymmetryPermutations {
+	private static final ConcurrentMap<Integer, int[][]> tables = new ConcurrentHashMap<Integer, int[][]>();
+
+	private SymmetryPermutations() {
+		// Static methods only
+	}
+
+	/**
+	 * Returns the permutation for the given symmetry, the returned array must not be modified.
+	 */
+	public static int[] getPermutation(Symmetry symmetry, int dimension) {
+		return getPermutations(dimension)[symmetry.ordinal()];
+	}
+
+	/**
+	 * Returns the permutations for all of the symmetries, indexed by their ordinal.
+	 */
+	public static int[][] getPermutations(int dimension) {
+		int permutations[][] = tables.get(dimension);
+		if (permutations == null) {
+			permutations = generatePermutations(dimension);
+			int existing[][] = tables.putIfAbsent(dimension, permutations);
+			if (existing != null) {
+				permutations = existing;
+			}
+		}
+		return permutations;
+	}
+
+	private static int[][] generatePermutations(int dimension) {
+		int width = (int)Math.round(Math.sqrt(dimension));
+		Assert.isTrue(width * width == dimension, "Row dimension must be a square.");
+
+		// Permute the indices themselves to build the tables
+		double indices[] = new double[dimension];
+		for (int k = 0; k < dimension; k++) {
+			indices[k] = k;
+		}
+
+		Symmetry symmetries[] = Symmetry.values();
+		int permutations[][] = new int[symmetries.length][dimension];
+		for (Symmetry symmetry : symmetries) {
+			int k = 0;
+			Iterator<Double> it = new SymmetryIterator(indices, symmetry);
+			while (it.hasNext()) {
+				permutations[symmetry.ordinal()][k++] = it.next().intValue();
+			}
+		}
+		return permutations;
+	}
+}
@@ -0,0 +1,99 @@
+package math.nyx.affine;
+
+import java.io.Serializable;
+
+import org.springframework.util.Assert;
+
+import com.google.common.base.Objects;
+
+/**
+ * Maps values in [min, max] onto 2^bits evenly spaced levels, including both end points.
+ * Values outside of the interval are clamped to it.
+ *
+ * @author jwhite
+ */
+public class UniformQuantizer implements Serializable {
+	private static final long serialVersionUID = -2143868155393127626L;
+	private final int bits;
+	private final double min;
+	private final double max;
+	private final double step;
+
+	public UniformQuantizer(int bits, double min, double max) {
+		Assert.isTrue(bits >= 1 && bits <= 16, "Number of bits must be in [1, 16].");
+		Assert.isTrue(min < max, "Interval must not be empty.");
+		this.bits = bits;
+		this.min = min;
+		this.max = max;
+		this.step = (max - min) / (getNumLevels() - 1);
+	}
+
+	public int getNumLevels() {
+		return 1 << bits;
+	}
+
+	/**
+	 * Returns the code of the level closest to the given value.
+	 */
+	public int quantize(double value) {
+		if (!(value > min)) {
+			return 0;
+		} else if (value >= max) {
+			return getNumLevels() - 1;
+		}
+		return (int)Math.round((value - min) / step);
+	}
+
+	/**
+	 * Returns the value of the level with the given code.
+	 */
+	public double getValue(int code) {
+		Assert.isTrue(code >= 0 && code < getNumLevels(), "Code is out of range.");
+		return min + code * step;
+	}
+
+	/**
+	 * Returns the value of the level closest to the given value.
+	 */
+	public double round(double value) {
+		return getValue(quantize(value));
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(bits, min, max);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (!(obj instanceof UniformQuantizer)) {
+			return false;
+		}
+
+		UniformQuantizer rhs = (UniformQuantizer)obj;
+		return bits == rhs.bits && min == rhs.min && max == rhs.max;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass())
+	            .add("bits", bits)
+	            .add("min", min)
+	            .add("max", max)
+	            .toString();
+	}
+}
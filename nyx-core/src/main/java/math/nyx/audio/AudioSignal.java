@@ -11,10 +11,11 @@ import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import math.nyx.core.ByteSampleVector;
 import math.nyx.core.Fractal;
+import math.nyx.core.SampleVector;
 import math.nyx.core.Signal;
 
-import org.apache.commons.math.linear.Array2DRowRealMatrix;
 import org.apache.commons.math.linear.RealMatrix;
 
 public class AudioSignal extends Signal {
@@ -29,12 +30,17 @@ public class AudioSignal extends Signal {
 		this.metadata = metadata;
 	}
 
+	public AudioSignal(Fractal fractal, SampleVector decodedVector, AudioMetadata metadata) {
+		super(fractal, decodedVector);
+		this.metadata = metadata;
+	}
+
 	public AudioSignal(AudioInputStream audioIs) throws IOException {
 		this(audioStreamToVector(audioIs), new AudioMetadata(audioIs.getFormat(), audioIs.getFrameLength()));
 	}
 
 	public AudioSignal(Signal s, AudioMetadata metadata) {
-		super(s.getVector());
+		super(s.getSamples());
 		this.metadata = metadata;
 	}
 
@@ -43,17 +49,22 @@ public class AudioSignal extends Signal {
 		this.metadata = metadata;
 	}
 
+	public AudioSignal(SampleVector v, AudioMetadata metadata) {
+		super(v);
+		this.metadata = metadata;
+	}
+
 	public AudioSignal(InputStream is) throws IOException, UnsupportedAudioFileException {
 		this(AudioSystem.getAudioInputStream(is));
 	}
 
 	public AudioInputStream getAudioStream() {
-		RealMatrix x = getVector();
-		int size = x.getRowDimension();
+		SampleVector x = getSamples();
+		int size = x.size();
 		
 		byte[] b = new byte[size];
 		for (int i = 0; i < size; i++) {
-			b[i] = (byte)x.getEntry(i, 0);
+			b[i] = (byte)x.get(i);
 		}
 
 		ByteArrayInputStream bis = new ByteArrayInputStream(b);
@@ -68,17 +79,13 @@ public class AudioSignal extends Signal {
 		return metadata;
 	}
 
-	private static RealMatrix audioStreamToVector(AudioInputStream audioIs) throws IOException  {
+	private static SampleVector audioStreamToVector(AudioInputStream audioIs) throws IOException  {
 		int size = audioIs.available();
 		byte[] b = new byte[size];
 		audioIs.read(b);
-		
-		RealMatrix x = new Array2DRowRealMatrix(size, 1);
-		for (int i = 0; i < size; i++) {
-			x.setEntry(i, 0, b[i] & 0xFF);
-		}
 
-		return x;
+		// The samples are stored as unsigned bytes
+		return new ByteSampleVector(b);
 	}
 
 	@Override
@@ -7,6 +7,9 @@ public abstract class AbstractTransform implements Transform {
 	private static final long serialVersionUID = -7636935260663735189L;
 	private final int domainBlockIndex;
 	private final int rangeBlockIndex;
+	/**
+	 * Boxed, since it is part of the serialized form of the transforms in older fractals.
+	 */
 	private final Double distance;
 
 	public AbstractTransform(int domainBlockIndex, int rangeBlockIndex, double distance) {
@@ -0,0 +1,57 @@
+package math.nyx.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the values packed by a BitWriter at arbitrary bit offsets, without changing the position
+ * of the underlying buffer, so that the same reader can be shared by several threads.
+ *
+ * @author jwhite
+ */
+public class BitReader {
+	private final ByteBuffer buffer;
+
+	/**
+	 * Offsets are relative to the current position of the buffer.
+	 */
+	public BitReader(ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * Reads numBits bits starting at the given offset, keeping the lowest 64 of them.
+	 */
+	public long read(long bitOffset, int numBits) {
+		int index = (int)(bitOffset >>> 3);
+		int numAvailableBits = 8 - (int)(bitOffset & 7);
+		long value = 0;
+		while (numBits > 0) {
+			int current = buffer.get(index++) & 0xFF;
+			int n = Math.min(numAvailableBits, numBits);
+			int bits = (current >>> (numAvailableBits - n)) & ((1 << n) - 1);
+			value = (value << n) | bits;
+			numBits -= n;
+			numAvailableBits = 8;
+		}
+		return value;
+	}
+
+	public int readInt(long bitOffset, int numBits) {
+		return (int)read(bitOffset, numBits);
+	}
+
+	public boolean readBoolean(long bitOffset) {
+		return read(bitOffset, 1) != 0;
+	}
+
+	public double readDouble(long bitOffset) {
+		return Double.longBitsToDouble(read(bitOffset, 64));
+	}
+
+	/**
+	 * Number of bytes that can be read.
+	 */
+	public int size() {
+		return buffer.limit();
+	}
+}
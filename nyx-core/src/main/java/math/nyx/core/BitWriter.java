@@ -0,0 +1,79 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+/**
+ * Packs values of arbitrary bit widths into a byte array, most significant bit first.
+ *
+ * @author jwhite
+ */
+public class BitWriter {
+	private byte buffer[];
+	private int size = 0;
+	private int pending = 0;
+	private int numPendingBits = 0;
+
+	public BitWriter() {
+		this(1024);
+	}
+
+	public BitWriter(int initialCapacity) {
+		buffer = new byte[Math.max(initialCapacity, 1)];
+	}
+
+	/**
+	 * Appends the numBits lowest bits of the given value, padded with leading zeros past 64 bits.
+	 */
+	public void write(long value, int numBits) {
+		for (; numBits > 64; numBits -= 8) {
+			write(0, 8);
+		}
+		while (numBits > 0) {
+			int n = Math.min(8 - numPendingBits, numBits);
+			int bits = (int)(value >>> (numBits - n)) & ((1 << n) - 1);
+			pending = (pending << n) | bits;
+			numPendingBits += n;
+			numBits -= n;
+
+			if (numPendingBits == 8) {
+				append((byte)pending);
+				pending = 0;
+				numPendingBits = 0;
+			}
+		}
+	}
+
+	public void write(boolean value) {
+		write(value ? 1 : 0, 1);
+	}
+
+	public void write(double value) {
+		write(Double.doubleToLongBits(value), 64);
+	}
+
+	/**
+	 * Pads the last byte with zeros, and returns the packed bytes.
+	 */
+	public byte[] toByteArray() {
+		if (numPendingBits > 0) {
+			append((byte)(pending << (8 - numPendingBits)));
+			pending = 0;
+			numPendingBits = 0;
+		}
+		return Arrays.copyOf(buffer, size);
+	}
+
+	private void append(byte b) {
+		if (size == buffer.length) {
+			buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+		}
+		buffer[size++] = b;
+	}
+
+	/**
+	 * Number of bits required to store all of the values in [0, maxValue].
+	 */
+	public static int getNumBits(long maxValue) {
+		return 64 - Long.numberOfLeadingZeros(maxValue);
+	}
+}
@@ -0,0 +1,61 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+/**
+ * Samples stored as unsigned 8-bit integers. Values are rounded, and clamped to [0, 255].
+ *
+ * @author jwhite
+ */
+public class ByteSampleVector extends SampleVector {
+	private static final long serialVersionUID = 8165297468640633542L;
+
+	public static final int MAX_VALUE = 0xFF;
+
+	private final byte data[];
+
+	public ByteSampleVector(int size) {
+		this(new byte[size]);
+	}
+
+	/**
+	 * Wraps the given array, without copying it.
+	 */
+	public ByteSampleVector(byte data[]) {
+		this.data = data;
+	}
+
+	public byte[] getDataRef() {
+		return data;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public double get(int index) {
+		return data[index] & MAX_VALUE;
+	}
+
+	@Override
+	public void set(int index, double value) {
+		data[index] = (byte)Math.round(Math.min(Math.max(value, 0), MAX_VALUE));
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 1;
+	}
+
+	@Override
+	public ByteSampleVector create(int size) {
+		return new ByteSampleVector(size);
+	}
+
+	@Override
+	public ByteSampleVector copyOf(int size) {
+		return new ByteSampleVector(Arrays.copyOf(data, size));
+	}
+}
@@ -0,0 +1,98 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.math.linear.Array2DColumnRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+
+import com.google.common.base.Objects.ToStringHelper;
+
+/**
+ * Fills the range block with a constant value, regardless of the contents of the domain block.
+ *
+ * Used for flat range blocks, which don't need to be compared with any of the domain blocks.
+ * The decoder doesn't fetch the domain block of these transforms, but it is still a valid index
+ * so that the transform can be applied like any other.
+ *
+ * @author jwhite
+ */
+public class ConstantTransform extends AbstractTransform {
+	private static final long serialVersionUID = 2620839046716380151L;
+	private final double value;
+
+	public ConstantTransform(int domainBlockIndex, int rangeBlockIndex, double distance, double value) {
+		super(domainBlockIndex, rangeBlockIndex, distance);
+		this.value = value;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Value bounded by the min and max vals of the underlying signal, like the other transforms.
+	 */
+	public double getValue(Signal signal) {
+		return Math.min(Math.max(value, signal.getMinVal()), signal.getMaxVal());
+	}
+
+	@Override
+	public void apply(RealMatrix domain, Signal signal) {
+		double boundedValue = getValue(signal);
+		for (int i = 0; i < domain.getRowDimension(); i++) {
+			domain.setEntry(i, 0, boundedValue);
+		}
+	}
+
+	@Override
+	public void apply(Array2DColumnRealMatrix domain, Signal signal) {
+		double data[] = domain.getDataRef()[0];
+		apply(data, data, signal);
+	}
+
+	@Override
+	public void apply(double source[], double target[], Signal signal) {
+		double boundedValue = getValue(signal);
+		for (int i = 0; i < target.length; i++) {
+			target[i] = boundedValue;
+		}
+	}
+
+	@Override
+	public void apply(float source[], float target[], Signal signal) {
+		float boundedValue = (float)getValue(signal);
+		for (int i = 0; i < target.length; i++) {
+			target[i] = boundedValue;
+		}
+	}
+
+	@Override
+	public void apply(short source[], short target[], double minVal, int fractionBits, Signal signal) {
+		Arrays.fill(target, (short)FixedPointSampleVector.getCode(getValue(signal), minVal, fractionBits));
+	}
+
+	@Override
+	public double getContractivity() {
+		return 0;
+	}
+
+	@Override
+	public double applyToConstant(double value, Signal signal) {
+		return getValue(signal);
+	}
+
+	@Override
+	public Map<String, Object> getKernelParameters() {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("value", String.format("%.4f", value));
+		return params;
+	}
+
+	@Override
+	protected ToStringHelper toStringHelper() {
+		return super.toStringHelper()
+	            .add("value", value);
+	}
+}
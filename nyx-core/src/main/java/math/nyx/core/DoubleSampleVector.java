@@ -0,0 +1,83 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+/**
+ * Samples stored as doubles.
+ *
+ * @author jwhite
+ */
+public class DoubleSampleVector extends SampleVector {
+	private static final long serialVersionUID = -6409009520367212405L;
+	private final double data[];
+
+	public DoubleSampleVector(int size) {
+		this(new double[size]);
+	}
+
+	/**
+	 * Wraps the given array, without copying it.
+	 */
+	public DoubleSampleVector(double data[]) {
+		this.data = data;
+	}
+
+	public double[] getDataRef() {
+		return data;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public double get(int index) {
+		return data[index];
+	}
+
+	@Override
+	public void set(int index, double value) {
+		data[index] = value;
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 8;
+	}
+
+	@Override
+	public DoubleSampleVector create(int size) {
+		return new DoubleSampleVector(size);
+	}
+
+	@Override
+	public void get(int offset, double target[], int targetOffset, int length) {
+		System.arraycopy(data, offset, target, targetOffset, length);
+	}
+
+	@Override
+	public void set(int offset, double source[], int sourceOffset, int length) {
+		System.arraycopy(source, sourceOffset, data, offset, length);
+	}
+
+	@Override
+	public void copyTo(int offset, SampleVector target, int targetOffset, int length) {
+		target.set(targetOffset, data, offset, length);
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(data, value);
+	}
+
+	@Override
+	public double[] toArray() {
+		return data.clone();
+	}
+
+	@Override
+	public DoubleSampleVector copyOf(int size) {
+		return new DoubleSampleVector(Arrays.copyOf(data, size));
+	}
+}
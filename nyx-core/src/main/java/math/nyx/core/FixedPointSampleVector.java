@@ -0,0 +1,138 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+import org.springframework.util.Assert;
+
+/**
+ * Samples stored as unsigned 16-bit fixed-point numbers relative to a minimum value:
+ * the code c stands for minVal + c / 2^fractionBits. Values are rounded to the nearest
+ * code, and clamped to the codes' range, so new vectors hold minVal instead of zero.
+ *
+ * @author jwhite
+ */
+public class FixedPointSampleVector extends SampleVector {
+	private static final long serialVersionUID = -5326440381093318716L;
+
+	public static final int MAX_CODE = 0xFFFF;
+
+	public static final int MAX_FRACTION_BITS = 16;
+
+	private final short data[];
+	private final double minVal;
+	private final int fractionBits;
+	private final double scale;
+	private final double step;
+
+	public FixedPointSampleVector(int size, double minVal, int fractionBits) {
+		this(new short[size], minVal, fractionBits);
+	}
+
+	/**
+	 * Wraps the given array of codes, without copying it.
+	 */
+	public FixedPointSampleVector(short data[], double minVal, int fractionBits) {
+		Assert.isTrue(fractionBits >= 0 && fractionBits <= MAX_FRACTION_BITS,
+				"Number of fraction bits must be in [0, " + MAX_FRACTION_BITS + "].");
+		this.data = data;
+		this.minVal = minVal;
+		this.fractionBits = fractionBits;
+		this.scale = 1 << fractionBits;
+		this.step = 1 / scale;
+	}
+
+	/**
+	 * Largest number of fraction bits for which the codes cover [minVal, maxVal], or 0
+	 * if the range is too wide, in which case the samples are rounded to integers and
+	 * clamped to [minVal, minVal + 65535].
+	 */
+	public static int getFractionBits(double minVal, double maxVal) {
+		double range = maxVal - minVal;
+		int fractionBits = MAX_FRACTION_BITS;
+		while (fractionBits > 0 && range * (1 << fractionBits) > MAX_CODE) {
+			fractionBits--;
+		}
+		return fractionBits;
+	}
+
+	public short[] getDataRef() {
+		return data;
+	}
+
+	public double getMinVal() {
+		return minVal;
+	}
+
+	public int getFractionBits() {
+		return fractionBits;
+	}
+
+	/**
+	 * Value of a single code, 2^-fractionBits.
+	 */
+	public double getStep() {
+		return step;
+	}
+
+	/**
+	 * Whether the codes of the two vectors stand for the same values.
+	 */
+	public boolean hasSameFormat(FixedPointSampleVector other) {
+		return minVal == other.minVal && fractionBits == other.fractionBits;
+	}
+
+	/**
+	 * Returns the code closest to the given value.
+	 */
+	public int getCode(double value) {
+		return getCode(value, minVal, scale);
+	}
+
+	/**
+	 * Returns the code closest to the given value, in a vector with the given minVal and fractionBits.
+	 */
+	public static int getCode(double value, double minVal, int fractionBits) {
+		return getCode(value, minVal, (double)(1 << fractionBits));
+	}
+
+	private static int getCode(double value, double minVal, double scale) {
+		// Truncating the non-negative code rounds it half up, without the cost of Math.round
+		double code = (value - minVal) * scale + 0.5;
+		return code < 0 ? 0 : code > MAX_CODE ? MAX_CODE : (int)code;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public double get(int index) {
+		return minVal + (data[index] & MAX_CODE) * step;
+	}
+
+	@Override
+	public void set(int index, double value) {
+		data[index] = (short)getCode(value);
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(data, (short)getCode(value));
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 2;
+	}
+
+	@Override
+	public FixedPointSampleVector create(int size) {
+		return new FixedPointSampleVector(size, minVal, fractionBits);
+	}
+
+	@Override
+	public FixedPointSampleVector copyOf(int size) {
+		return new FixedPointSampleVector(Arrays.copyOf(data, size), minVal, fractionBits);
+	}
+}
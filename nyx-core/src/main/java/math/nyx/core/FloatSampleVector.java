@@ -0,0 +1,70 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+/**
+ * Samples stored as floats.
+ *
+ * @author jwhite
+ */
+public class FloatSampleVector extends SampleVector {
+	private static final long serialVersionUID = 1806346484322788917L;
+	private final float data[];
+
+	public FloatSampleVector(int size) {
+		this(new float[size]);
+	}
+
+	/**
+	 * Wraps the given array, without copying it.
+	 */
+	public FloatSampleVector(float data[]) {
+		this.data = data;
+	}
+
+	public float[] getDataRef() {
+		return data;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public double get(int index) {
+		return data[index];
+	}
+
+	@Override
+	public void set(int index, double value) {
+		data[index] = (float)value;
+	}
+
+	@Override
+	public void get(int offset, double target[], int targetOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			target[targetOffset + i] = data[offset + i];
+		}
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(data, (float)value);
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 4;
+	}
+
+	@Override
+	public FloatSampleVector create(int size) {
+		return new FloatSampleVector(size);
+	}
+
+	@Override
+	public FloatSampleVector copyOf(int size) {
+		return new FloatSampleVector(Arrays.copyOf(data, size));
+	}
+}
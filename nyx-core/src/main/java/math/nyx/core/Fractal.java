@@ -1,30 +1,31 @@
 package math.nyx.core;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.List;
 
 import math.nyx.framework.FractalCodec;
+import math.nyx.framework.LatticeGeometry;
 import math.nyx.framework.PartitioningStrategy;
 
 import org.apache.commons.math.linear.RealMatrix;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
-import org.springframework.util.SerializationUtils;
 
 import com.google.common.base.Objects;
 
@@ -33,14 +34,51 @@ public class Fractal implements Serializable {
 
 	private static Logger logger = LogManager.getLogger("Nyx");
 
+	/**
+	 * Whether the transforms are deflated when the fractal is written.
+	 */
+	public static final boolean DEFLATE = false;
+
+	/**
+	 * Context that the codecs are looked up in. It is shared by all of the fractals and is only
+	 * closed when the JVM shuts down, since the codecs hold on to its beans, i.e. the executor.
+	 */
+	private static ClassPathXmlApplicationContext context;
+
 	private String codecName;
 
-	private final Signal signal;
+	private SignalDescriptor descriptor;
+
+	/**
+	 * Source signal, only kept when it is set explicitly, e.g. for reporting.
+	 * Fractals serialized by older versions of Nyx always hold it.
+	 */
+	private Signal signal;
+
+	/**
+	 * Positions of the range blocks relative to the domain blocks, used to store the domain block
+	 * indices relative to their range blocks. Only kept in the binary format.
+	 */
+	private transient LatticeGeometry latticeGeometry;
 
 	private final List<Transform> transforms = new LinkedList<Transform>();
 
+	/**
+	 * Creates a fractal for the given signal, which only keeps its descriptor.
+	 */
 	public Fractal(Signal signal) {
-		this.signal = signal;
+		this(new SignalDescriptor(signal));
+	}
+
+	public Fractal(SignalDescriptor descriptor) {
+		this.descriptor = descriptor;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (descriptor == null && signal != null) {
+			descriptor = new SignalDescriptor(signal);
+		}
 	}
 
 	public Signal decode() {
@@ -52,18 +90,20 @@ public class Fractal implements Serializable {
 	}
 
 	public Signal decode(int scale, FractalDecoderVisitor visitor) {
-		ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
-		FractalDecoder codec = (FractalDecoder)ctx.getBean(codecName);
-		Signal signal = codec.decode(this, scale, visitor);
-		ctx.close();
-		return signal;
+		FractalDecoder codec = (FractalDecoder)getContext().getBean(codecName);
+		return codec.decode(this, scale, visitor);
 	}
 
 	public FractalCodec getCodec() {
-		ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
-		FractalCodec codec = (FractalCodec)ctx.getBean(codecName);
-		ctx.close();
-		return codec;
+		return (FractalCodec)getContext().getBean(codecName);
+	}
+
+	private static synchronized ClassPathXmlApplicationContext getContext() {
+		if (context == null) {
+			context = new ClassPathXmlApplicationContext("applicationContext.xml");
+			context.registerShutdownHook();
+		}
+		return context;
 	}
 
 	public PartitioningStrategy getPartitioner() {
@@ -71,7 +111,7 @@ public class Fractal implements Serializable {
 	}
 
 	public PartitioningStrategy getPartitioner(int scale) {
-		return getCodec().getPartitioningStrategyFactory().getPartitioner(signal, scale);
+		return getCodec().getPartitioningStrategyFactory().getPartitioner(descriptor.createSignal(), scale);
 	}
 
 	public void setCodecName(String codecName) {
@@ -82,7 +122,30 @@ public class Fractal implements Serializable {
 		return codecName;
 	}
 
-	public Signal getSignal() {
+	public SignalDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	public void setLatticeGeometry(LatticeGeometry latticeGeometry) {
+		this.latticeGeometry = latticeGeometry;
+	}
+
+	/**
+	 * Returns the geometry of the partitioner that the fractal was encoded with,
+	 * or null if it isn't known or its domain blocks aren't laid out on a lattice.
+	 */
+	public LatticeGeometry getLatticeGeometry() {
+		return latticeGeometry;
+	}
+
+	public void setSourceSignal(Signal signal) {
+		this.signal = signal;
+	}
+
+	/**
+	 * Returns the source signal, or null if it wasn't kept.
+	 */
+	public Signal getSourceSignal() {
 		return signal;
 	}
 
@@ -94,8 +157,19 @@ public class Fractal implements Serializable {
 		return transforms;
 	}
 
+	/**
+	 * Loads a fractal stored in the binary format, or with Java serialization
+	 * by older versions of Nyx.
+	 */
 	public static Fractal load(File inputFile) throws IOException {
-	    // De-serialize the fractal
+		try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (FractalFormat.isFractalFormat(buffer)) {
+				return new FractalView(buffer).toFractal();
+			}
+		}
+
+		// De-serialize the fractal
 	    try(
 	    	InputStream file = new FileInputStream(inputFile);
 	    	InputStream buffer = new BufferedInputStream(file);
@@ -104,30 +178,36 @@ public class Fractal implements Serializable {
 	    	return (Fractal)input.readObject();
 	    }
 	    catch(ClassNotFoundException ex) {
-	    	System.out.println("Cannot perform input. Class not found: " + ex);
-	    	ex.printStackTrace();
+	    	logger.error("Cannot perform input. Class not found.", ex);
 	    	throw new IOException(ex);
 	    }
 	}
 
 	public void write(File outputFile) throws IOException {
-		// Serialize the fractal
-	    try (
-			OutputStream file = new FileOutputStream(outputFile);
-			OutputStream buffer = new BufferedOutputStream(file);
-			ObjectOutput output = new ObjectOutputStream(buffer);
-	    ){
-	    	output.writeObject(this);
+		try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			FractalFormat.write(this, channel, DEFLATE);
 		}
 	}
 
-	@SuppressWarnings({ "rawtypes" })
+	/**
+	 * Rewrites a fractal that was stored with Java serialization in the binary format.
+	 */
+	public static void convert(File inputFile, File outputFile) throws IOException {
+		load(inputFile).write(outputFile);
+	}
+
 	public Signal getSignalFromDecodedVector(RealMatrix x, int scale) {
+		return getSignalFromDecodedVector(SampleVector.valueOf(x), scale);
+	}
+
+	@SuppressWarnings({ "rawtypes" })
+	public Signal getSignalFromDecodedVector(SampleVector x, int scale) {
 		try {
-			Class[] types = {this.getClass(), RealMatrix.class, signal.getMetadata().getClass()};
-			Constructor constructor = signal.getClass().getConstructor(types);
+			Class[] types = {this.getClass(), SampleVector.class, descriptor.getMetadata().getClass()};
+			Constructor constructor = Class.forName(descriptor.getType()).getConstructor(types);
 
-			Object[] parameters = {this, x, signal.getMetadata().scale(scale)};
+			Object[] parameters = {this, x, descriptor.getMetadata().scale(scale)};
 			Object instanceOfMyClass = constructor.newInstance(parameters);
 
 			return (Signal)instanceOfMyClass;
@@ -137,15 +217,24 @@ public class Fractal implements Serializable {
 		}
 	}
 
+	/**
+	 * Size of the fractal when it is written to disk.
+	 */
 	public long getSizeInBytes() {
-		return SerializationUtils.serialize(this).length;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			FractalFormat.write(this, Channels.newChannel(out), DEFLATE);
+		} catch (IOException ex) {
+			throw new RuntimeException("Could not write fractal.", ex);
+		}
+		return out.size();
 	}
 
 	@Override
 	public String toString() {
 	    return Objects.toStringHelper(this.getClass())
 	    		.add("codecName", getCodecName())
-	    		.add("signal", getSignal())
+	    		.add("descriptor", getDescriptor())
 	    		.add("numTransforms", getTransforms().size())
 	            .toString();
 	}
@@ -0,0 +1,491 @@
+package math.nyx.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+
+import math.nyx.affine.AffineTransform;
+import math.nyx.affine.QuantizedAffineTransform;
+import math.nyx.affine.UniformQuantizer;
+import math.nyx.audio.AudioMetadata;
+import math.nyx.framework.DomainLattice;
+import math.nyx.framework.LatticeGeometry;
+import math.nyx.image.ImageMetadata;
+
+/**
+ * Binary format of the .nyx files.
+ *
+ * The file starts with a header that holds the name of the codec, the descriptor of the signal,
+ * the geometry of the partitioner's lattice when it has one, and the values of the constant
+ * transforms. Only the image and audio metadata can be stored.
+ * The header is followed by the transforms, which are stored as bit-packed records of the same
+ * width, so that any record can be read directly. The fields are only as wide as the largest
+ * value they need to store:
+ *
+ *   kind         1 bit, 0 for affine transforms and 1 for constant transforms
+ *   range        rangeBits, omitted when the range block of every record is its index
+ *   domain       domainBits, relative to the range block when that takes fewer bits, see
+ *                LatticeGeometry.getRelativeDomainBlockIndex. The relative indices are
+ *                decoded with the geometry stored in the header, so reading a fractal
+ *                doesn't depend on how its codec is configured
+ *   payload      payloadBits, made up of the following fields for affine transforms
+ *     symmetry   symmetryBits
+ *     scale      the scale quantizer's code, or 64 bits when the transforms aren't quantized
+ *     offset     the offset quantizer's code, or 64 bits when the transforms aren't quantized
+ *   payload      the index of the value in the table, for constant transforms
+ *
+ * The records can be deflated, in which case they must be inflated before they're read.
+ * The distances of the transforms are only used while encoding, and aren't stored.
+ * Only the affine and constant transforms can be stored.
+ *
+ * @author jwhite
+ */
+public class FractalFormat {
+	private static final byte MAGIC[] = {'N', 'Y', 'X', 0x1A};
+
+	public static final int VERSION = 3;
+
+	static final int FLAG_DEFLATED = 1;
+
+	static final int FLAG_QUANTIZED = 2;
+
+	static final int FLAG_SEQUENTIAL = 4;
+
+	static final int FLAG_RELATIVE = 8;
+
+	static final int FLAG_LATTICE = 16;
+
+	private static final int METADATA_IMAGE = 1;
+
+	private static final int METADATA_AUDIO = 2;
+
+	private static final int PROPERTY_STRING = 0;
+
+	private static final int PROPERTY_INTEGER = 1;
+
+	private static final int PROPERTY_LONG = 2;
+
+	private static final int PROPERTY_BOOLEAN = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private FractalFormat() {
+		// Static methods only
+	}
+
+	/**
+	 * Returns true if the buffer, starting at its current position, holds a fractal in this format.
+	 */
+	public static boolean isFractalFormat(ByteBuffer buffer) {
+		if (buffer.remaining() < MAGIC.length) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static void write(Fractal fractal, WritableByteChannel channel, boolean deflate) throws IOException {
+		List<Transform> transforms = fractal.getTransforms();
+		UniformQuantizer quantizers[] = getQuantizers(transforms);
+
+		// Size the fields of the records
+		boolean sequential = true;
+		int maxRangeBlockIndex = 0;
+		int maxDomainBlockIndex = 0;
+		int maxSymmetry = 0;
+		int numConstants = 0;
+		int i = 0;
+		for (Transform transform : transforms) {
+			sequential &= transform.getRangeBlockIndex() == i++;
+			maxRangeBlockIndex = Math.max(maxRangeBlockIndex, transform.getRangeBlockIndex());
+			maxDomainBlockIndex = Math.max(maxDomainBlockIndex, transform.getDomainBlockIndex());
+			if (transform instanceof ConstantTransform) {
+				numConstants++;
+			} else if (transform instanceof AffineTransform) {
+				maxSymmetry = Math.max(maxSymmetry, ((AffineTransform)transform).getSymmetry().ordinal());
+			} else {
+				throw new IOException("Cannot store transforms of type " + transform.getClass().getName());
+			}
+		}
+		int rangeBits = sequential ? 0 : BitWriter.getNumBits(maxRangeBlockIndex);
+		int domainBits = BitWriter.getNumBits(maxDomainBlockIndex);
+
+		// Domain blocks that were searched for near their range blocks have small relative indices
+		LatticeGeometry geometry = getLatticeGeometry(fractal);
+		int relativeDomainBlockIndices[] = null;
+		boolean relative = false;
+		if (geometry != null) {
+			relativeDomainBlockIndices = getRelativeDomainBlockIndices(fractal, geometry);
+			int maxRelativeIndex = 0;
+			for (int relativeIndex : relativeDomainBlockIndices) {
+				maxRelativeIndex = Math.max(maxRelativeIndex, relativeIndex);
+			}
+			relative = BitWriter.getNumBits(maxRelativeIndex) < domainBits;
+			domainBits = Math.min(domainBits, BitWriter.getNumBits(maxRelativeIndex));
+		}
+		int symmetryBits = BitWriter.getNumBits(maxSymmetry);
+		int scaleBits = quantizers != null ? quantizers[0].getBits() : 64;
+		int offsetBits = quantizers != null ? quantizers[1].getBits() : 64;
+		int payloadBits = Math.max(symmetryBits + scaleBits + offsetBits, BitWriter.getNumBits(Math.max(numConstants - 1, 0)));
+
+		// Pack the records, and collect the values of the constant transforms
+		BitWriter records = new BitWriter(transforms.size() * (2 + rangeBits + domainBits + payloadBits) / 8);
+		double constants[] = new double[numConstants];
+		numConstants = 0;
+		i = 0;
+		for (Transform transform : transforms) {
+			boolean constant = transform instanceof ConstantTransform;
+			records.write(constant);
+			records.write(transform.getRangeBlockIndex(), rangeBits);
+			records.write(relative ? relativeDomainBlockIndices[i] : transform.getDomainBlockIndex(), domainBits);
+			i++;
+
+			if (constant) {
+				constants[numConstants] = ((ConstantTransform)transform).getValue();
+				records.write(numConstants++, payloadBits);
+				continue;
+			}
+
+			AffineTransform affineTransform = (AffineTransform)transform;
+			records.write(affineTransform.getSymmetry().ordinal(), symmetryBits);
+			if (quantizers != null) {
+				QuantizedAffineTransform quantizedTransform = (QuantizedAffineTransform)transform;
+				records.write(quantizedTransform.getScaleCode(), scaleBits);
+				records.write(quantizedTransform.getOffsetCode(), offsetBits);
+			} else {
+				records.write(affineTransform.getScale());
+				records.write(affineTransform.getOffset());
+			}
+			records.write(0, payloadBits - symmetryBits - scaleBits - offsetBits);
+		}
+		byte packedRecords[] = records.toByteArray();
+		int numPackedBytes = packedRecords.length;
+		if (deflate) {
+			packedRecords = deflate(packedRecords);
+		}
+
+		// Header
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(headerBytes);
+		header.write(MAGIC);
+		header.writeShort(VERSION);
+		header.writeByte((deflate ? FLAG_DEFLATED : 0) | (quantizers != null ? FLAG_QUANTIZED : 0)
+				| (sequential ? FLAG_SEQUENTIAL : 0) | (relative ? FLAG_RELATIVE : 0)
+				| (geometry != null ? FLAG_LATTICE : 0));
+		writeString(header, fractal.getCodecName());
+
+		ByteArrayOutputStream signalBytes = new ByteArrayOutputStream();
+		DataOutputStream signalHeader = new DataOutputStream(signalBytes);
+		writeDescriptor(signalHeader, fractal.getDescriptor());
+		signalHeader.flush();
+		header.writeInt(signalBytes.size());
+		signalBytes.writeTo(header);
+		if (geometry != null) {
+			writeLatticeGeometry(header, geometry);
+		}
+
+		header.writeInt(transforms.size());
+		header.writeByte(rangeBits);
+		header.writeByte(domainBits);
+		header.writeByte(symmetryBits);
+		header.writeByte(payloadBits);
+		if (quantizers != null) {
+			for (UniformQuantizer quantizer : quantizers) {
+				header.writeByte(quantizer.getBits());
+				header.writeDouble(quantizer.getMin());
+				header.writeDouble(quantizer.getMax());
+			}
+		}
+		header.writeInt(constants.length);
+		for (double value : constants) {
+			header.writeDouble(value);
+		}
+		header.writeInt(numPackedBytes);
+		header.writeInt(packedRecords.length);
+		header.flush();
+
+		writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+		writeFully(channel, ByteBuffer.wrap(packedRecords));
+	}
+
+	public static Fractal read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		while (channel.read(buffer) >= 0) {
+			if (!buffer.hasRemaining()) {
+				ByteBuffer largerBuffer = ByteBuffer.allocate(2 * buffer.capacity());
+				buffer.flip();
+				largerBuffer.put(buffer);
+				buffer = largerBuffer;
+			}
+		}
+		buffer.flip();
+		return read(buffer);
+	}
+
+	/**
+	 * Reads the fractal stored in the buffer, starting at its current position.
+	 */
+	public static Fractal read(ByteBuffer buffer) throws IOException {
+		return new FractalView(buffer).toFractal();
+	}
+
+	/**
+	 * Returns the geometry of the fractal's partitioner, or null if it isn't known,
+	 * or if the transforms don't fit in it.
+	 */
+	private static LatticeGeometry getLatticeGeometry(Fractal fractal) {
+		LatticeGeometry geometry = fractal.getLatticeGeometry();
+		if (geometry == null) {
+			return null;
+		}
+
+		for (Transform transform : fractal.getTransforms()) {
+			if (transform.getRangeBlockIndex() >= geometry.getNumRangeBlocks()
+					|| transform.getDomainBlockIndex() >= geometry.getDomainLattice().size()) {
+				return null;
+			}
+		}
+		return geometry;
+	}
+
+	/**
+	 * Codes the domain block index of each transform relative to its range block.
+	 */
+	private static int[] getRelativeDomainBlockIndices(Fractal fractal, LatticeGeometry geometry) {
+		int relativeDomainBlockIndices[] = new int[fractal.getTransforms().size()];
+		int i = 0;
+		for (Transform transform : fractal.getTransforms()) {
+			relativeDomainBlockIndices[i++] = geometry.getRelativeDomainBlockIndex(transform.getRangeBlockIndex(),
+					transform.getDomainBlockIndex());
+		}
+		return relativeDomainBlockIndices;
+	}
+
+	private static void writeLatticeGeometry(DataOutputStream out, LatticeGeometry geometry) throws IOException {
+		DomainLattice lattice = geometry.getDomainLattice();
+		out.writeInt(lattice.getNumPlanes());
+		out.writeInt(lattice.getNumRows());
+		out.writeInt(lattice.getNumColumns());
+		out.writeInt(geometry.getNumRangeRows());
+		out.writeInt(geometry.getNumRangeColumns());
+		out.writeInt(geometry.getRangeWidth());
+		out.writeInt(geometry.getPlaneHeight());
+		out.writeInt(geometry.getPlaneWidth());
+		out.writeInt(geometry.getDomainStride());
+	}
+
+	static LatticeGeometry readLatticeGeometry(ByteBuffer buffer) {
+		DomainLattice lattice = new DomainLattice(buffer.getInt(), buffer.getInt(), buffer.getInt());
+		return new LatticeGeometry(lattice, buffer.getInt(), buffer.getInt(), buffer.getInt(),
+				buffer.getInt(), buffer.getInt(), buffer.getInt());
+	}
+
+	/**
+	 * Returns the scale and offset quantizers when all of the affine transforms share them, and null otherwise.
+	 */
+	private static UniformQuantizer[] getQuantizers(List<Transform> transforms) {
+		UniformQuantizer quantizers[] = null;
+		for (Transform transform : transforms) {
+			if (!(transform instanceof AffineTransform)) {
+				continue;
+			} else if (!(transform instanceof QuantizedAffineTransform)) {
+				return null;
+			}
+
+			QuantizedAffineTransform quantizedTransform = (QuantizedAffineTransform)transform;
+			if (quantizers == null) {
+				quantizers = new UniformQuantizer[] {quantizedTransform.getScaleQuantizer(),
+						quantizedTransform.getOffsetQuantizer()};
+			} else if (!quantizers[0].equals(quantizedTransform.getScaleQuantizer())
+					|| !quantizers[1].equals(quantizedTransform.getOffsetQuantizer())) {
+				return null;
+			}
+		}
+		return quantizers;
+	}
+
+	private static void writeDescriptor(DataOutputStream out, SignalDescriptor descriptor) throws IOException {
+		writeString(out, descriptor.getType());
+		out.writeInt(descriptor.getDimension());
+		out.writeInt(descriptor.getPad());
+		out.writeInt(descriptor.getNumChannels());
+		out.writeDouble(descriptor.getMinVal());
+		out.writeDouble(descriptor.getMaxVal());
+
+		SignalMetadata metadata = descriptor.getMetadata();
+		if (metadata instanceof ImageMetadata) {
+			ImageMetadata imageMetadata = (ImageMetadata)metadata;
+			out.writeByte(METADATA_IMAGE);
+			out.writeInt(imageMetadata.getWidth());
+			out.writeInt(imageMetadata.getHeight());
+			out.writeInt(imageMetadata.getType());
+			out.writeInt(imageMetadata.getNumComponents());
+		} else if (metadata instanceof AudioMetadata) {
+			AudioMetadata audioMetadata = (AudioMetadata)metadata;
+			AudioFormat format = audioMetadata.getFormat();
+			out.writeByte(METADATA_AUDIO);
+			writeString(out, format.getEncoding().toString());
+			out.writeFloat(format.getSampleRate());
+			out.writeInt(format.getSampleSizeInBits());
+			out.writeInt(format.getChannels());
+			out.writeInt(format.getFrameSize());
+			out.writeFloat(format.getFrameRate());
+			out.writeBoolean(format.isBigEndian());
+			out.writeLong(audioMetadata.getFrameLength());
+			writeProperties(out, format.properties());
+		} else {
+			// The metadata is read back from files that may come from anywhere, so only the
+			// known types are stored, and never as serialized objects
+			throw new IOException("Unsupported metadata " + metadata + ".");
+		}
+	}
+
+	private static void writeProperties(DataOutputStream out, Map<String, Object> properties) throws IOException {
+		out.writeShort(properties.size());
+		for (Map.Entry<String, Object> property : new TreeMap<String, Object>(properties).entrySet()) {
+			writeString(out, property.getKey());
+			Object value = property.getValue();
+			if (value instanceof String) {
+				out.writeByte(PROPERTY_STRING);
+				writeString(out, (String)value);
+			} else if (value instanceof Integer) {
+				out.writeByte(PROPERTY_INTEGER);
+				out.writeInt((Integer)value);
+			} else if (value instanceof Long) {
+				out.writeByte(PROPERTY_LONG);
+				out.writeLong((Long)value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(PROPERTY_BOOLEAN);
+				out.writeBoolean((Boolean)value);
+			} else {
+				throw new IOException("Unsupported value of audio property " + property.getKey() + ".");
+			}
+		}
+	}
+
+	private static Map<String, Object> readProperties(ByteBuffer buffer) throws IOException {
+		Map<String, Object> properties = new HashMap<String, Object>();
+		int numProperties = buffer.getShort() & 0xFFFF;
+		for (int k = 0; k < numProperties; k++) {
+			String key = readString(buffer);
+			int valueType = buffer.get();
+			if (valueType == PROPERTY_STRING) {
+				properties.put(key, readString(buffer));
+			} else if (valueType == PROPERTY_INTEGER) {
+				properties.put(key, buffer.getInt());
+			} else if (valueType == PROPERTY_LONG) {
+				properties.put(key, buffer.getLong());
+			} else if (valueType == PROPERTY_BOOLEAN) {
+				properties.put(key, buffer.get() != 0);
+			} else {
+				throw new IOException("Unsupported type " + valueType + " of audio property " + key + ".");
+			}
+		}
+		return properties;
+	}
+
+	static SignalDescriptor readDescriptor(ByteBuffer buffer) throws IOException {
+		String type = readString(buffer);
+		int dimension = buffer.getInt();
+		int pad = buffer.getInt();
+		int numChannels = buffer.getInt();
+		double minVal = buffer.getDouble();
+		double maxVal = buffer.getDouble();
+
+		SignalMetadata metadata;
+		int metadataType = buffer.get();
+		if (metadataType == METADATA_IMAGE) {
+			metadata = new ImageMetadata(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+		} else if (metadataType == METADATA_AUDIO) {
+			Encoding encoding = new Encoding(readString(buffer));
+			float sampleRate = buffer.getFloat();
+			int sampleSizeInBits = buffer.getInt();
+			int channels = buffer.getInt();
+			int frameSize = buffer.getInt();
+			float frameRate = buffer.getFloat();
+			boolean bigEndian = buffer.get() != 0;
+			long frameLength = buffer.getLong();
+			AudioFormat format = new AudioFormat(encoding, sampleRate, sampleSizeInBits, channels, frameSize,
+					frameRate, bigEndian, readProperties(buffer));
+			metadata = new AudioMetadata(format, frameLength);
+		} else {
+			throw new IOException("Unsupported metadata type " + metadataType + ".");
+		}
+
+		return new SignalDescriptor(type, dimension, pad, numChannels, minVal, maxVal, metadata);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte bytes[] = s.getBytes(UTF8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(ByteBuffer buffer) {
+		byte bytes[] = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static byte[] deflate(byte data[]) {
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		deflater.setInput(data);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte chunk[] = new byte[8192];
+		while (!deflater.finished()) {
+			out.write(chunk, 0, deflater.deflate(chunk));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	static byte[] inflate(ByteBuffer buffer, int length) throws IOException {
+		byte input[] = new byte[buffer.remaining()];
+		buffer.get(input);
+
+		Inflater inflater = new Inflater();
+		inflater.setInput(input);
+		byte output[] = new byte[length];
+		try {
+			int n = 0;
+			while (n < length && !inflater.finished()) {
+				int k = inflater.inflate(output, n, length - n);
+				if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Deflated records are truncated.");
+				}
+				n += k;
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("Deflated records are corrupt.", ex);
+		} finally {
+			inflater.end();
+		}
+		return output;
+	}
+}
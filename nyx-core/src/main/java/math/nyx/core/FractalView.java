@@ -0,0 +1,282 @@
+package math.nyx.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import math.nyx.affine.AffineTransform;
+import math.nyx.affine.QuantizedAffineTransform;
+import math.nyx.affine.Symmetry;
+import math.nyx.affine.UniformQuantizer;
+import math.nyx.framework.LatticeGeometry;
+
+import com.google.common.base.Objects;
+
+/**
+ * Random-access view of a fractal stored in the binary format, see FractalFormat.
+ *
+ * Opening the view only parses the header, and the transforms are read from the buffer when
+ * they are accessed, so a fractal can be memory-mapped and used without creating an object
+ * for each of its transforms. The view is thread-safe.
+ *
+ * @author jwhite
+ */
+public class FractalView {
+	private static final Symmetry SYMMETRIES[] = Symmetry.values();
+
+	private final String codecName;
+	private final SignalDescriptor descriptor;
+
+	private final int numTransforms;
+	private final boolean sequential;
+	private final LatticeGeometry latticeGeometry;
+	private final boolean relative;
+	private final int rangeBits;
+	private final int domainBits;
+	private final int symmetryBits;
+	private final int payloadBits;
+	private final int recordBits;
+
+	private final UniformQuantizer scaleQuantizer;
+	private final UniformQuantizer offsetQuantizer;
+	private final int scaleBits;
+	private final int offsetBits;
+
+	private final ByteBuffer constants;
+	private final BitReader records;
+
+	/**
+	 * Parses the header of the fractal stored in the buffer, starting at its current position.
+	 * The buffer must not be modified while the view is in use.
+	 */
+	public FractalView(ByteBuffer buffer) throws IOException {
+		buffer = buffer.slice();
+		try {
+			if (!FractalFormat.isFractalFormat(buffer)) {
+				throw new IOException("Not a fractal.");
+			}
+			buffer.position(4);
+			int version = buffer.getShort();
+			if (version > FractalFormat.VERSION) {
+				throw new IOException("Unsupported fractal version " + version + ".");
+			}
+			int flags = buffer.get();
+			codecName = FractalFormat.readString(buffer);
+			descriptor = FractalFormat.readDescriptor(slice(buffer, buffer.getInt()));
+			if ((flags & FractalFormat.FLAG_LATTICE) != 0) {
+				latticeGeometry = FractalFormat.readLatticeGeometry(buffer);
+			} else {
+				latticeGeometry = null;
+			}
+
+			numTransforms = buffer.getInt();
+			sequential = (flags & FractalFormat.FLAG_SEQUENTIAL) != 0;
+			relative = (flags & FractalFormat.FLAG_RELATIVE) != 0;
+			if (relative && latticeGeometry == null) {
+				throw new IOException("Relative domain block indices require the lattice geometry.");
+			}
+			rangeBits = buffer.get() & 0xFF;
+			domainBits = buffer.get() & 0xFF;
+			symmetryBits = buffer.get() & 0xFF;
+			payloadBits = buffer.get() & 0xFF;
+			recordBits = 1 + rangeBits + domainBits + payloadBits;
+			if ((flags & FractalFormat.FLAG_QUANTIZED) != 0) {
+				scaleQuantizer = new UniformQuantizer(buffer.get(), buffer.getDouble(), buffer.getDouble());
+				offsetQuantizer = new UniformQuantizer(buffer.get(), buffer.getDouble(), buffer.getDouble());
+				scaleBits = scaleQuantizer.getBits();
+				offsetBits = offsetQuantizer.getBits();
+			} else {
+				scaleQuantizer = null;
+				offsetQuantizer = null;
+				scaleBits = 64;
+				offsetBits = 64;
+			}
+			constants = slice(buffer, 8 * buffer.getInt());
+
+			int numPackedBytes = buffer.getInt();
+			ByteBuffer packedRecords = slice(buffer, buffer.getInt());
+			if ((flags & FractalFormat.FLAG_DEFLATED) != 0) {
+				packedRecords = ByteBuffer.wrap(FractalFormat.inflate(packedRecords, numPackedBytes));
+			}
+			if ((long)numTransforms * recordBits > 8L * packedRecords.remaining()) {
+				throw new IOException("Fractal is truncated.");
+			}
+			records = new BitReader(packedRecords);
+		} catch (BufferUnderflowException | IllegalArgumentException ex) {
+			throw new IOException("Fractal is truncated.", ex);
+		}
+	}
+
+	/**
+	 * Maps the given file into memory and opens a view on it.
+	 */
+	public static FractalView map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new FractalView(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Returns the next length bytes of the buffer, and moves past them.
+	 */
+	private static ByteBuffer slice(ByteBuffer buffer, int length) {
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		return slice;
+	}
+
+	public String getCodecName() {
+		return codecName;
+	}
+
+	public SignalDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	public int getNumTransforms() {
+		return numTransforms;
+	}
+
+	public boolean isQuantized() {
+		return scaleQuantizer != null;
+	}
+
+	private long getRecordOffset(int index) {
+		if (index < 0 || index >= numTransforms) {
+			throw new IndexOutOfBoundsException("Transform " + index + " of " + numTransforms + ".");
+		}
+		return (long)index * recordBits;
+	}
+
+	private long getPayloadOffset(int index) {
+		return getRecordOffset(index) + 1 + rangeBits + domainBits;
+	}
+
+	public boolean isConstant(int index) {
+		return records.readBoolean(getRecordOffset(index));
+	}
+
+	public int getRangeBlockIndex(int index) {
+		long offset = getRecordOffset(index);
+		return sequential ? index : records.readInt(offset + 1, rangeBits);
+	}
+
+	public int getDomainBlockIndex(int index) {
+		int domainBlockIndex = records.readInt(getRecordOffset(index) + 1 + rangeBits, domainBits);
+		if (relative) {
+			return latticeGeometry.getDomainBlockIndex(getRangeBlockIndex(index), domainBlockIndex);
+		}
+		return domainBlockIndex;
+	}
+
+	/**
+	 * Returns true if the domain block indices are stored relative to the range blocks.
+	 */
+	public boolean isRelative() {
+		return relative;
+	}
+
+	/**
+	 * Returns the geometry of the partitioner's lattice, or null if it wasn't stored.
+	 */
+	public LatticeGeometry getLatticeGeometry() {
+		return latticeGeometry;
+	}
+
+	/**
+	 * Symmetry of an affine transform.
+	 */
+	public Symmetry getSymmetry(int index) {
+		return SYMMETRIES[records.readInt(getPayloadOffset(index), symmetryBits)];
+	}
+
+	/**
+	 * Code of the scale of an affine transform, when the transforms are quantized.
+	 */
+	public int getScaleCode(int index) {
+		return records.readInt(getPayloadOffset(index) + symmetryBits, scaleBits);
+	}
+
+	/**
+	 * Code of the offset of an affine transform, when the transforms are quantized.
+	 */
+	public int getOffsetCode(int index) {
+		return records.readInt(getPayloadOffset(index) + symmetryBits + scaleBits, offsetBits);
+	}
+
+	/**
+	 * Scale of an affine transform.
+	 */
+	public double getScale(int index) {
+		if (scaleQuantizer != null) {
+			return scaleQuantizer.getValue(getScaleCode(index));
+		}
+		return records.readDouble(getPayloadOffset(index) + symmetryBits);
+	}
+
+	/**
+	 * Offset of an affine transform.
+	 */
+	public double getOffset(int index) {
+		if (offsetQuantizer != null) {
+			return offsetQuantizer.getValue(getOffsetCode(index));
+		}
+		return records.readDouble(getPayloadOffset(index) + symmetryBits + scaleBits);
+	}
+
+	/**
+	 * Value of a constant transform.
+	 */
+	public double getValue(int index) {
+		return constants.getDouble(8 * records.readInt(getPayloadOffset(index), payloadBits));
+	}
+
+	/**
+	 * Creates the transform stored at the given index.
+	 */
+	public Transform getTransform(int index) {
+		int rangeBlockIndex = getRangeBlockIndex(index);
+		int domainBlockIndex = getDomainBlockIndex(index);
+		if (isConstant(index)) {
+			return new ConstantTransform(domainBlockIndex, rangeBlockIndex, 0, getValue(index));
+		} else if (scaleQuantizer != null) {
+			return new QuantizedAffineTransform(domainBlockIndex, rangeBlockIndex, 0, scaleQuantizer,
+					getScaleCode(index), offsetQuantizer, getOffsetCode(index), getSymmetry(index));
+		} else {
+			return new AffineTransform(domainBlockIndex, rangeBlockIndex, 0, getScale(index), getOffset(index),
+					getSymmetry(index));
+		}
+	}
+
+	/**
+	 * Creates a fractal holding all of the transforms.
+	 */
+	public Fractal toFractal() {
+		Fractal fractal = new Fractal(descriptor);
+		fractal.setCodecName(codecName);
+		fractal.setLatticeGeometry(latticeGeometry);
+		for (int i = 0; i < numTransforms; i++) {
+			fractal.addTransform(getTransform(i));
+		}
+		return fractal;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass())
+	    		.add("codecName", codecName)
+	    		.add("numTransforms", numTransforms)
+	    		.add("recordBits", recordBits)
+	    		.add("quantized", isQuantized())
+	    		.add("relative", isRelative())
+	            .toString();
+	}
+}
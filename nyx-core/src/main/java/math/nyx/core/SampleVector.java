@@ -0,0 +1,135 @@
+package math.nyx.core;
+
+import java.io.Serializable;
+
+import org.apache.commons.math.linear.Array2DColumnRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+import org.springframework.util.Assert;
+
+/**
+ * Dense vector of samples, stored in a primitive array whose type depends on the range
+ * of the samples, e.g. bytes for 8-bit images or audio, and doubles for decoded signals.
+ *
+ * The samples are always read and written as doubles.
+ *
+ * @author jwhite
+ */
+public abstract class SampleVector implements Serializable {
+	private static final long serialVersionUID = 3263407233405405022L;
+
+	/**
+	 * Number of samples compared at a time by getMaxDistance.
+	 */
+	private static final int CHUNK_SIZE = 4096;
+
+	public abstract int size();
+
+	public abstract double get(int index);
+
+	public abstract void set(int index, double value);
+
+	/**
+	 * Number of bytes used to store each sample.
+	 */
+	public abstract int getBytesPerSample();
+
+	/**
+	 * Creates a vector of the given size, with the same type of storage, whose samples are all zero.
+	 */
+	public abstract SampleVector create(int size);
+
+	/**
+	 * Copies length samples, starting at offset, to the target array.
+	 */
+	public void get(int offset, double target[], int targetOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			target[targetOffset + i] = get(offset + i);
+		}
+	}
+
+	/**
+	 * Replaces length samples, starting at offset, with the ones in the source array.
+	 */
+	public void set(int offset, double source[], int sourceOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			set(offset + i, source[sourceOffset + i]);
+		}
+	}
+
+	/**
+	 * Copies length samples, starting at offset, to the target vector.
+	 */
+	public void copyTo(int offset, SampleVector target, int targetOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			target.set(targetOffset + i, get(offset + i));
+		}
+	}
+
+	/**
+	 * Sets all of the samples to the given value.
+	 */
+	public void fill(double value) {
+		for (int i = 0; i < size(); i++) {
+			set(i, value);
+		}
+	}
+
+	/**
+	 * Largest absolute difference between the samples of this vector and the other vector.
+	 */
+	public double getMaxDistance(SampleVector other) {
+		Assert.isTrue(other.size() == size(), "Vectors must have the same size.");
+		double a[] = new double[Math.min(size(), CHUNK_SIZE)];
+		double b[] = new double[a.length];
+		double maxDistance = 0;
+		for (int offset = 0; offset < size(); offset += CHUNK_SIZE) {
+			int length = Math.min(CHUNK_SIZE, size() - offset);
+			get(offset, a, 0, length);
+			other.get(offset, b, 0, length);
+			for (int i = 0; i < length; i++) {
+				maxDistance = Math.max(maxDistance, Math.abs(a[i] - b[i]));
+			}
+		}
+		return maxDistance;
+	}
+
+	public double[] toArray() {
+		double array[] = new double[size()];
+		get(0, array, 0, array.length);
+		return array;
+	}
+
+	/**
+	 * Returns a copy of the first size samples, padded with zeros if the vector is shorter.
+	 */
+	public SampleVector copyOf(int size) {
+		SampleVector copy = create(size);
+		copyTo(0, copy, 0, Math.min(size, size()));
+		return copy;
+	}
+
+	public long getSizeInBytes() {
+		return (long)size() * getBytesPerSample();
+	}
+
+	/**
+	 * Returns a column matrix backed by this vector.
+	 */
+	public RealMatrix toRealMatrix() {
+		return new SampleVectorMatrix(this);
+	}
+
+	/**
+	 * Returns the first column of the given matrix as a vector, which is backed by the matrix
+	 * when it is a SampleVectorMatrix or an Array2DColumnRealMatrix, and a copy otherwise.
+	 */
+	public static SampleVector valueOf(RealMatrix x) {
+		Assert.isTrue(x.getColumnDimension() == 1, "Matrix must have a single column.");
+		if (x instanceof SampleVectorMatrix) {
+			return ((SampleVectorMatrix)x).getSampleVector();
+		} else if (x instanceof Array2DColumnRealMatrix) {
+			return new DoubleSampleVector(((Array2DColumnRealMatrix)x).getDataRef()[0]);
+		}
+		return new DoubleSampleVector(x.getColumn(0));
+	}
+}
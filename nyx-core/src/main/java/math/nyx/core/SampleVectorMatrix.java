@@ -0,0 +1,77 @@
+package math.nyx.core;
+
+import org.apache.commons.math.linear.AbstractRealMatrix;
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.MatrixUtils;
+import org.apache.commons.math.linear.RealMatrix;
+
+/**
+ * Column matrix backed by a sample vector, for compatibility with the code that works with matrices.
+ * Changes to the matrix are written through to the vector.
+ *
+ * @author jwhite
+ */
+public class SampleVectorMatrix extends AbstractRealMatrix {
+	private final SampleVector x;
+
+	public SampleVectorMatrix(SampleVector x) {
+		this.x = x;
+	}
+
+	public SampleVector getSampleVector() {
+		return x;
+	}
+
+	@Override
+	public RealMatrix createMatrix(int rowDimension, int columnDimension) {
+		if (columnDimension == 1) {
+			return new SampleVectorMatrix(new DoubleSampleVector(rowDimension));
+		}
+		return new Array2DRowRealMatrix(rowDimension, columnDimension);
+	}
+
+	@Override
+	public SampleVectorMatrix copy() {
+		return new SampleVectorMatrix(x.copyOf(x.size()));
+	}
+
+	@Override
+	public double getEntry(int row, int column) {
+		MatrixUtils.checkColumnIndex(this, column);
+		return x.get(row);
+	}
+
+	@Override
+	public void setEntry(int row, int column, double value) {
+		MatrixUtils.checkColumnIndex(this, column);
+		x.set(row, value);
+	}
+
+	@Override
+	public void addToEntry(int row, int column, double increment) {
+		MatrixUtils.checkColumnIndex(this, column);
+		x.set(row, x.get(row) + increment);
+	}
+
+	@Override
+	public void multiplyEntry(int row, int column, double factor) {
+		MatrixUtils.checkColumnIndex(this, column);
+		x.set(row, x.get(row) * factor);
+	}
+
+	@Override
+	public double[] getColumn(int column) {
+		MatrixUtils.checkColumnIndex(this, column);
+		return x.toArray();
+	}
+
+	@Override
+	public int getRowDimension() {
+		return x.size();
+	}
+
+	@Override
+	public int getColumnDimension() {
+		return 1;
+	}
+}
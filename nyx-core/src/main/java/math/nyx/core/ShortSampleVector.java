@@ -0,0 +1,61 @@
+package math.nyx.core;
+
+import java.util.Arrays;
+
+/**
+ * Samples stored as unsigned 16-bit integers. Values are rounded, and clamped to [0, 65535].
+ *
+ * @author jwhite
+ */
+public class ShortSampleVector extends SampleVector {
+	private static final long serialVersionUID = -2311948262418913707L;
+
+	public static final int MAX_VALUE = 0xFFFF;
+
+	private final short data[];
+
+	public ShortSampleVector(int size) {
+		this(new short[size]);
+	}
+
+	/**
+	 * Wraps the given array, without copying it.
+	 */
+	public ShortSampleVector(short data[]) {
+		this.data = data;
+	}
+
+	public short[] getDataRef() {
+		return data;
+	}
+
+	@Override
+	public int size() {
+		return data.length;
+	}
+
+	@Override
+	public double get(int index) {
+		return data[index] & MAX_VALUE;
+	}
+
+	@Override
+	public void set(int index, double value) {
+		data[index] = (short)Math.round(Math.min(Math.max(value, 0), MAX_VALUE));
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 2;
+	}
+
+	@Override
+	public ShortSampleVector create(int size) {
+		return new ShortSampleVector(size);
+	}
+
+	@Override
+	public ShortSampleVector copyOf(int size) {
+		return new ShortSampleVector(Arrays.copyOf(data, size));
+	}
+}
@@ -2,6 +2,10 @@ package math.nyx.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ServiceLoader;
 
@@ -15,24 +19,64 @@ import com.google.common.base.Objects.ToStringHelper;
 public abstract class Signal implements Serializable {
 	private static final long serialVersionUID = -3505516831802019801L;
 
-	private RealMatrix x;
-	private final int numChannels;
+	private SampleVector x;
+	private int numChannels;
 	private int pad = 0;
 
+	/**
+	 * The samples are serialized as a RealMatrix, as they were before they were stored in a
+	 * SampleVector, so that the fractals serialized by older versions of Nyx can still be read.
+	 */
+	private static final ObjectStreamField serialPersistentFields[] = {
+		new ObjectStreamField("x", RealMatrix.class),
+		new ObjectStreamField("numChannels", int.class),
+		new ObjectStreamField("pad", int.class)
+	};
+
 	public Signal(int dimension) {
-		this(new Array2DRowRealMatrix(dimension, 1));
+		this(new DoubleSampleVector(dimension));
 	}
 
 	public Signal(RealMatrix x) {
+		this(SampleVector.valueOf(x));
+	}
+
+	public Signal(SampleVector x) {
 		this.x = x;
 		this.numChannels = 1;
 	}
 
 	public Signal(Fractal fractal, RealMatrix decodedVector) {
+		this(fractal, SampleVector.valueOf(decodedVector));
+	}
+
+	public Signal(Fractal fractal, SampleVector decodedVector) {
 		// Extract the unpadded signal from the decoded vector
-		int unpaddedSignalDimension = decodedVector.getRowDimension() - fractal.getSignal().getPad();
-		this.x = decodedVector.getSubMatrix(0, unpaddedSignalDimension-1, 0, 0);
-		this.numChannels = fractal.getSignal().getNumChannels();
+		int unpaddedSignalDimension = decodedVector.size() - fractal.getDescriptor().getPad();
+		this.x = decodedVector.copyOf(unpaddedSignalDimension);
+		this.numChannels = fractal.getDescriptor().getNumChannels();
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("x", new Array2DRowRealMatrix(x.toArray()));
+		fields.put("numChannels", numChannels);
+		fields.put("pad", pad);
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		Object samples = fields.get("x", null);
+		if (samples instanceof RealMatrix) {
+			x = SampleVector.valueOf((RealMatrix)samples);
+		} else if (samples instanceof SampleVector) {
+			x = (SampleVector)samples;
+		} else {
+			throw new InvalidObjectException("Signal has no samples.");
+		}
+		numChannels = fields.get("numChannels", 1);
+		pad = fields.get("pad", 0);
 	}
 
 	/** Used to identify the type of the signal in a report. */
@@ -57,28 +101,46 @@ public abstract class Signal implements Serializable {
 		}
 
 		// Copy the existing vector over to the padded vector
-		RealMatrix paddedVector = new Array2DRowRealMatrix(targetDimension, 1);
-		paddedVector.setSubMatrix(x.getData(), 0, 0);
-		
-		// Save the results
 		pad = targetPad;
-		x = paddedVector;
+		x = x.copyOf(targetDimension);
 	}
 
-	public RealMatrix getVector() {
+	/**
+	 * Marks the last entries of the vector as padding, without changing it.
+	 */
+	void setPad(int pad) {
+		this.pad = pad;
+	}
+
+	/**
+	 * Restores the range of a signal created from its descriptor. The signals whose range
+	 * follows from their metadata ignore it.
+	 */
+	protected void setRange(double minVal, double maxVal) {
+		// The range follows from the metadata by default
+	}
+
+	public SampleVector getSamples() {
 		return x;
 	}
 
+	/**
+	 * Returns a column matrix backed by the samples.
+	 */
+	public RealMatrix getVector() {
+		return x.toRealMatrix();
+	}
+
 	public double getEntry(final int row) {
-		return x.getEntry(row, 0);
+		return x.get(row);
 	}
 
 	public RealMatrix getUnpaddedVector() {
-		return getVector().getSubMatrix(0, getUnpaddedDimension()-1, 0, 0);
+		return x.copyOf(getUnpaddedDimension()).toRealMatrix();
 	}
 
 	public int getDimension() {
-		return x.getRowDimension();
+		return x.size();
 	}
 
 	public int getPad() {
@@ -130,7 +192,12 @@ public abstract class Signal implements Serializable {
 		} else if (getUnpaddedDimension() != rhs.getUnpaddedDimension()) {
 			return false;
 		} else {
-			return getUnpaddedVector().equals(rhs.getUnpaddedVector());
+			for (int i = 0; i < getUnpaddedDimension(); i++) {
+				if (getEntry(i) != rhs.getEntry(i)) {
+					return false;
+				}
+			}
+			return true;
 		}
     }
 
@@ -0,0 +1,120 @@
+package math.nyx.core;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+
+import org.springframework.util.Assert;
+
+import com.google.common.base.Objects;
+
+/**
+ * Describes an encoded signal without holding its entries: its type, geometry, range and metadata.
+ * This is all that is needed to decode a fractal.
+ *
+ * @author jwhite
+ */
+public class SignalDescriptor implements Serializable {
+	private static final long serialVersionUID = 4690391583613593327L;
+
+	private final String type;
+	private final int dimension;
+	private final int pad;
+	private final int numChannels;
+	private final double minVal;
+	private final double maxVal;
+	private final SignalMetadata metadata;
+
+	public SignalDescriptor(Signal signal) {
+		this(signal.getClass().getName(), signal.getDimension(), signal.getPad(), signal.getNumChannels(),
+				signal.getMinVal(), signal.getMaxVal(), signal.getMetadata());
+	}
+
+	public SignalDescriptor(String type, int dimension, int pad, int numChannels, double minVal, double maxVal,
+			SignalMetadata metadata) {
+		Assert.isTrue(pad >= 0 && pad <= dimension, "Pad must be in [0, dimension].");
+		this.type = type;
+		this.dimension = dimension;
+		this.pad = pad;
+		this.numChannels = numChannels;
+		this.minVal = minVal;
+		this.maxVal = maxVal;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Name of the signal's class.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Dimension of the signal, including the pad.
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getPad() {
+		return pad;
+	}
+
+	public int getUnpaddedDimension() {
+		return dimension - pad;
+	}
+
+	public int getNumChannels() {
+		return numChannels;
+	}
+
+	public double getMinVal() {
+		return minVal;
+	}
+
+	public double getMaxVal() {
+		return maxVal;
+	}
+
+	public SignalMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Creates a signal of this type whose entries are all zero, and aren't stored,
+	 * for the partitioners and decoders which only need its geometry.
+	 */
+	public Signal createSignal() {
+		return createSignal(new ZeroSampleVector(dimension));
+	}
+
+	/**
+	 * Creates a signal of this type holding the given (padded) vector.
+	 */
+	public Signal createSignal(SampleVector x) {
+		Assert.isTrue(x.size() == dimension, "Vector must have the same dimension as the signal.");
+		Signal signal;
+		try {
+			Class<?> signalClass = Class.forName(type);
+			Constructor<?> constructor = signalClass.getConstructor(SampleVector.class, metadata.getClass());
+			signal = (Signal)constructor.newInstance(x, metadata);
+		} catch (Exception ex) {
+			throw new IllegalStateException("Could not create a signal of type " + type + ".", ex);
+		}
+		signal.setPad(pad);
+		signal.setRange(minVal, maxVal);
+		return signal;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass())
+	    		.add("type", type)
+	    		.add("dimension", dimension)
+	    		.add("pad", pad)
+	    		.add("numChannels", numChannels)
+	    		.add("minVal", minVal)
+	    		.add("maxVal", maxVal)
+	    		.add("metadata", metadata)
+	            .toString();
+	}
+}
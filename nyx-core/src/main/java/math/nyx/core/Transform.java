@@ -12,5 +12,33 @@ public interface Transform extends Serializable, Comparable<Transform> {
 	public int getRangeBlockIndex();
 	public void apply(RealMatrix domain, Signal signal);
 	public void apply(Array2DColumnRealMatrix domain, Signal signal);
+
+	/**
+	 * Applies the transform to the source block and stores the results in the target block,
+	 * leaving the source untouched.
+	 */
+	public void apply(double source[], double target[], Signal signal);
+
+	/**
+	 * Same as apply(source[], target[], signal), computed with floats.
+	 */
+	public void apply(float source[], float target[], Signal signal);
+
+	/**
+	 * Same as apply(source[], target[], signal), where the blocks hold the codes of a
+	 * FixedPointSampleVector with the given minVal and fractionBits, computed with integers.
+	 */
+	public void apply(short source[], short target[], double minVal, int fractionBits, Signal signal);
 	public Map<String, Object> getKernelParameters();
+
+	/**
+	 * Largest factor by which the transform can scale the distance between two blocks.
+	 */
+	public double getContractivity();
+
+	/**
+	 * Applies the transform to a constant block with the given value, and returns the value
+	 * of the resulting block, which is also constant.
+	 */
+	public double applyToConstant(double value, Signal signal);
 }
@@ -0,0 +1,48 @@
+package math.nyx.core;
+
+/**
+ * Read-only vector whose samples are all zero, which doesn't allocate any storage.
+ * Used for the signals which are only needed for their geometry.
+ *
+ * @author jwhite
+ */
+public class ZeroSampleVector extends SampleVector {
+	private static final long serialVersionUID = -2086412764135926017L;
+
+	private final int size;
+
+	public ZeroSampleVector(int size) {
+		this.size = size;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is out of [0, " + size + ").");
+		}
+		return 0;
+	}
+
+	@Override
+	public void set(int index, double value) {
+		throw new UnsupportedOperationException("Vector is read-only.");
+	}
+
+	@Override
+	public int getBytesPerSample() {
+		return 0;
+	}
+
+	/**
+	 * Creates a writable vector, stored as bytes.
+	 */
+	@Override
+	public SampleVector create(int size) {
+		return new ByteSampleVector(size);
+	}
+}
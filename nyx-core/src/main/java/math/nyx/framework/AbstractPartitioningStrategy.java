@@ -48,8 +48,8 @@ public abstract class AbstractPartitioningStrategy implements PartitioningStrate
 	@Override
 	public SparseRealMatrix getDomainFetchOperator(int domainBlockIndex) {
 		int domainIndices[] = getDomainIndices(domainBlockIndex);
-		SparseRealMatrix F_I = new OpenMapRealMatrix(getDomainDimension(), getScaledSignalDimension());
-		for (int k = 0; k < getDomainDimension(); k++) {
+		SparseRealMatrix F_I = new OpenMapRealMatrix(domainIndices.length, getScaledSignalDimension());
+		for (int k = 0; k < domainIndices.length; k++) {
 			F_I.setEntry(k, domainIndices[k], 1);
 		}
 		return F_I;
@@ -58,8 +58,8 @@ public abstract class AbstractPartitioningStrategy implements PartitioningStrate
 	@Override
 	public SparseRealMatrix getRangeFetchOperator(int rangeBlockIndex) {
 		int rangeIndices[] = getRangeIndices(rangeBlockIndex);
-		SparseRealMatrix F_I = new OpenMapRealMatrix(getRangeDimension(), getScaledSignalDimension());
-		for (int k = 0; k < getRangeDimension(); k++) {
+		SparseRealMatrix F_I = new OpenMapRealMatrix(rangeIndices.length, getScaledSignalDimension());
+		for (int k = 0; k < rangeIndices.length; k++) {
 			F_I.setEntry(k, rangeIndices[k], 1);
 		}
 		return F_I;
@@ -69,13 +69,68 @@ public abstract class AbstractPartitioningStrategy implements PartitioningStrate
 	public SparseRealMatrix getPutOperator(int rangeBlockIndex) {
 		int rangeIndices[] = getRangeIndices(rangeBlockIndex);
 		//System.out.printf("Range indices for block %d: %s\n", rangeBlockIndex, Arrays.toString(rangeIndices));
-		SparseRealMatrix P_J = new OpenMapRealMatrix(getScaledSignalDimension(), getRangeDimension());
-		for (int k = 0; k < getRangeDimension(); k++) {
+		SparseRealMatrix P_J = new OpenMapRealMatrix(getScaledSignalDimension(), rangeIndices.length);
+		for (int k = 0; k < rangeIndices.length; k++) {
 			P_J.setEntry(rangeIndices[k], k, 1);
 		}
 		return P_J;
 	}
 
+	/**
+	 * The range blocks partition the signal unless the partitioner says otherwise.
+	 */
+	@Override
+	public boolean hasDisjointRangeBlocks() {
+		return true;
+	}
+
+	/**
+	 * The domain blocks aren't laid out on a lattice unless the partitioner says so.
+	 */
+	@Override
+	public LatticeGeometry getLatticeGeometry() {
+		return null;
+	}
+
+	@Override
+	public DomainLattice getDomainLattice() {
+		LatticeGeometry geometry = getLatticeGeometry();
+		return geometry != null ? geometry.getDomainLattice() : null;
+	}
+
+	@Override
+	public int[] getDomainWindow(int rangeBlockIndex, int radius) {
+		LatticeGeometry geometry = getLatticeGeometry();
+		if (geometry != null) {
+			return geometry.getDomainWindow(rangeBlockIndex, radius);
+		}
+
+		// Without a lattice, all of the domain blocks are equally close
+		int window[] = new int[getNumDomainPartitions()];
+		for (int i = 0; i < window.length; i++) {
+			window[i] = i;
+		}
+		return window;
+	}
+
+	@Override
+	public int getRelativeDomainBlockIndex(int rangeBlockIndex, int domainBlockIndex) {
+		LatticeGeometry geometry = getLatticeGeometry();
+		if (geometry == null) {
+			return domainBlockIndex;
+		}
+		return geometry.getRelativeDomainBlockIndex(rangeBlockIndex, domainBlockIndex);
+	}
+
+	@Override
+	public int getDomainBlockIndex(int rangeBlockIndex, int relativeDomainBlockIndex) {
+		LatticeGeometry geometry = getLatticeGeometry();
+		if (geometry == null) {
+			return relativeDomainBlockIndex;
+		}
+		return geometry.getDomainBlockIndex(rangeBlockIndex, relativeDomainBlockIndex);
+	}
+
 	@Override
 	public String toString() {
 	    return Objects.toStringHelper(this.getClass())
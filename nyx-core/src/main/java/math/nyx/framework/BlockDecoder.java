@@ -0,0 +1,344 @@
+package math.nyx.framework;
+
+import java.util.Arrays;
+
+import org.apache.commons.math.linear.Array2DColumnRealMatrix;
+
+import math.nyx.core.ConstantTransform;
+import math.nyx.core.DoubleSampleVector;
+import math.nyx.core.FixedPointSampleVector;
+import math.nyx.core.FloatSampleVector;
+import math.nyx.core.SampleVector;
+import math.nyx.core.Signal;
+import math.nyx.core.Transform;
+
+/**
+ * Holds the buffers used to apply the transforms of range blocks
+ * with a given dimension when decoding.
+ *
+ * @author jwhite
+ */
+public class BlockDecoder {
+	private final int domainIndices[];
+	private final int rangeIndices[];
+	private final int decimationIndices[][];
+	private final int decimationRatio;
+	private final int decimationShift;
+
+	private final Array2DColumnRealMatrix domain;
+	private final Array2DColumnRealMatrix decimatedDomain;
+	private final Array2DColumnRealMatrix transformedDomain;
+
+	private final float floatDomain[];
+	private final float floatDecimatedDomain[];
+	private final float floatTransformedDomain[];
+
+	private final short fixedDomain[];
+	private final short fixedDecimatedDomain[];
+	private final short fixedTransformedDomain[];
+
+	/**
+	 * Precision the last block was transformed with, the double buffers are only
+	 * filled when they're requested for the others.
+	 */
+	private Precision appliedPrecision = Precision.DOUBLE;
+
+	/**
+	 * Format of the codes of the last block transformed with fixed point numbers.
+	 */
+	private double fixedMinVal;
+	private double fixedStep;
+
+	private double maxChange;
+
+	public BlockDecoder(int domainDimension, int rangeDimension, DecimationStrategy decimator) {
+		domainIndices = new int[domainDimension];
+		rangeIndices = new int[rangeDimension];
+		decimationIndices = decimator.getIndices();
+		decimationRatio = decimator.getDecimationRatio();
+		decimationShift = Integer.bitCount(decimationRatio) == 1 ? Integer.numberOfTrailingZeros(decimationRatio) : -1;
+
+		domain = new Array2DColumnRealMatrix(domainDimension, 1);
+		decimatedDomain = new Array2DColumnRealMatrix(rangeDimension, 1);
+		transformedDomain = new Array2DColumnRealMatrix(rangeDimension, 1);
+
+		floatDomain = new float[domainDimension];
+		floatDecimatedDomain = new float[rangeDimension];
+		floatTransformedDomain = new float[rangeDimension];
+
+		fixedDomain = new short[domainDimension];
+		fixedDecimatedDomain = new short[rangeDimension];
+		fixedTransformedDomain = new short[rangeDimension];
+	}
+
+	/**
+	 * Fetches the transform's domain block from x, decimates it, applies the transform
+	 * and stores the results in the transform's range block in x_n. Constant transforms
+	 * skip the fetch and the decimation. x and x_n may be the same vector, since the domain
+	 * block is fetched before the range block is written.
+	 */
+	public void apply(Transform transform, PartitioningStrategy partitioner, double x[], double x_n[], Signal signal) {
+		apply(transform, partitioner, new DoubleSampleVector(x), new DoubleSampleVector(x_n), signal);
+	}
+
+	/**
+	 * Same as apply(transform, partitioner, x[], x_n[], signal), where the blocks are read from
+	 * and written to vectors of any precision. The blocks of float vectors are transformed
+	 * with floats, the blocks of fixed-point vectors that share their format are transformed
+	 * with integers, and the others with doubles.
+	 */
+	public void apply(Transform transform, PartitioningStrategy partitioner, SampleVector x, SampleVector x_n,
+			Signal signal) {
+		apply(transform, partitioner, x, x_n, signal, null);
+	}
+
+	/**
+	 * Same as apply(transform, partitioner, x, x_n, signal), where the entries of the range block
+	 * that are flagged in shadowed are left as they are in x_n. These are the entries that a later
+	 * range block overwrites. shadowed may be null, in which case the whole range block is written.
+	 */
+	public void apply(Transform transform, PartitioningStrategy partitioner, SampleVector x, SampleVector x_n,
+			Signal signal, boolean shadowed[]) {
+		if (x instanceof FloatSampleVector && x_n instanceof FloatSampleVector) {
+			apply(transform, partitioner, ((FloatSampleVector)x).getDataRef(),
+					((FloatSampleVector)x_n).getDataRef(), signal, shadowed);
+			return;
+		} else if (x instanceof FixedPointSampleVector && x_n instanceof FixedPointSampleVector
+				&& ((FixedPointSampleVector)x).hasSameFormat((FixedPointSampleVector)x_n)) {
+			apply(transform, partitioner, (FixedPointSampleVector)x, (FixedPointSampleVector)x_n, signal, shadowed);
+			return;
+		}
+
+		appliedPrecision = Precision.DOUBLE;
+		double transformedDomainRef[] = transformedDomain.getDataRef()[0];
+		if (transform instanceof ConstantTransform) {
+			Arrays.fill(transformedDomainRef, ((ConstantTransform)transform).getValue(signal));
+		} else {
+			double domainRef[] = domain.getDataRef()[0];
+			double decimatedDomainRef[] = decimatedDomain.getDataRef()[0];
+
+			// Fetch
+			partitioner.getDomainIndices(transform.getDomainBlockIndex(), domainIndices);
+			fetch(x, domainRef);
+
+			// Decimate
+			for (int i = 0; i < decimationIndices.length; i++) {
+				decimatedDomainRef[i] = 0;
+				for (int j = 0; j < decimationIndices[i].length; j++) {
+					decimatedDomainRef[i] += domainRef[decimationIndices[i][j]];
+				}
+				decimatedDomainRef[i] *= 1.0f/decimationRatio;
+			}
+
+			// Transform
+			transform.apply(decimatedDomainRef, transformedDomainRef, signal);
+		}
+
+		// Put, writing the shadowed entries back unchanged
+		partitioner.getRangeIndices(transform.getRangeBlockIndex(), rangeIndices);
+		if (shadowed != null) {
+			for (int i = 0; i < rangeIndices.length; i++) {
+				if (shadowed[i]) {
+					transformedDomainRef[i] = x_n.get(rangeIndices[i]);
+				}
+			}
+		}
+		if (x == x_n) {
+			updateMaxChange(x_n, transformedDomainRef);
+		}
+		put(transformedDomainRef, x_n);
+	}
+
+	/**
+	 * Same as apply(transform, partitioner, x, x_n, signal, shadowed), computed with floats.
+	 */
+	public void apply(Transform transform, PartitioningStrategy partitioner, float x[], float x_n[],
+			Signal signal, boolean shadowed[]) {
+		appliedPrecision = Precision.FLOAT;
+		if (transform instanceof ConstantTransform) {
+			Arrays.fill(floatTransformedDomain, (float)((ConstantTransform)transform).getValue(signal));
+		} else {
+			// Fetch
+			partitioner.getDomainIndices(transform.getDomainBlockIndex(), domainIndices);
+			for (int i = 0; i < domainIndices.length; i++) {
+				floatDomain[i] = x[domainIndices[i]];
+			}
+
+			// Decimate
+			for (int i = 0; i < decimationIndices.length; i++) {
+				float sum = 0;
+				for (int j = 0; j < decimationIndices[i].length; j++) {
+					sum += floatDomain[decimationIndices[i][j]];
+				}
+				floatDecimatedDomain[i] = sum * (1.0f/decimationRatio);
+			}
+
+			// Transform
+			transform.apply(floatDecimatedDomain, floatTransformedDomain, signal);
+		}
+
+		// Put, writing the shadowed entries back unchanged
+		partitioner.getRangeIndices(transform.getRangeBlockIndex(), rangeIndices);
+		if (shadowed != null) {
+			for (int i = 0; i < rangeIndices.length; i++) {
+				if (shadowed[i]) {
+					floatTransformedDomain[i] = x_n[rangeIndices[i]];
+				}
+			}
+		}
+		if (x == x_n) {
+			for (int i = 0; i < rangeIndices.length; i++) {
+				maxChange = Math.max(maxChange, Math.abs(x_n[rangeIndices[i]] - floatTransformedDomain[i]));
+			}
+		}
+		for (int i = 0; i < rangeIndices.length; i++) {
+			x_n[rangeIndices[i]] = floatTransformedDomain[i];
+		}
+	}
+
+	/**
+	 * Same as apply(transform, partitioner, x, x_n, signal, shadowed), computed with the integer
+	 * codes of the vectors, which must have the same format. The decimated entries are rounded
+	 * to the nearest code.
+	 */
+	private void apply(Transform transform, PartitioningStrategy partitioner, FixedPointSampleVector x,
+			FixedPointSampleVector x_n, Signal signal, boolean shadowed[]) {
+		appliedPrecision = Precision.FIXED;
+		fixedMinVal = x.getMinVal();
+		fixedStep = x.getStep();
+		short xRef[] = x.getDataRef();
+		short x_nRef[] = x_n.getDataRef();
+		if (transform instanceof ConstantTransform) {
+			transform.apply(fixedDecimatedDomain, fixedTransformedDomain, x.getMinVal(), x.getFractionBits(), signal);
+		} else {
+			// Fetch
+			partitioner.getDomainIndices(transform.getDomainBlockIndex(), domainIndices);
+			for (int i = 0; i < domainIndices.length; i++) {
+				fixedDomain[i] = xRef[domainIndices[i]];
+			}
+
+			// Decimate, shifting instead of dividing when the ratio is a power of two
+			int half = decimationRatio / 2;
+			for (int i = 0; i < decimationIndices.length; i++) {
+				int sum = half;
+				for (int j = 0; j < decimationIndices[i].length; j++) {
+					sum += fixedDomain[decimationIndices[i][j]] & FixedPointSampleVector.MAX_CODE;
+				}
+				fixedDecimatedDomain[i] = (short)(decimationShift >= 0 ? sum >> decimationShift : sum / decimationRatio);
+			}
+
+			// Transform
+			transform.apply(fixedDecimatedDomain, fixedTransformedDomain, x.getMinVal(), x.getFractionBits(), signal);
+		}
+
+		// Put, writing the shadowed entries back unchanged
+		partitioner.getRangeIndices(transform.getRangeBlockIndex(), rangeIndices);
+		if (shadowed != null) {
+			for (int i = 0; i < rangeIndices.length; i++) {
+				if (shadowed[i]) {
+					fixedTransformedDomain[i] = x_nRef[rangeIndices[i]];
+				}
+			}
+		}
+		if (x == x_n) {
+			int maxCodeChange = 0;
+			for (int i = 0; i < rangeIndices.length; i++) {
+				int code = x_nRef[rangeIndices[i]] & FixedPointSampleVector.MAX_CODE;
+				int transformedCode = fixedTransformedDomain[i] & FixedPointSampleVector.MAX_CODE;
+				maxCodeChange = Math.max(maxCodeChange, Math.abs(code - transformedCode));
+			}
+			maxChange = Math.max(maxChange, maxCodeChange * fixedStep);
+		}
+		for (int i = 0; i < rangeIndices.length; i++) {
+			x_nRef[rangeIndices[i]] = fixedTransformedDomain[i];
+		}
+	}
+
+	private void updateMaxChange(SampleVector x, double block[]) {
+		for (int i = 0; i < rangeIndices.length; i++) {
+			maxChange = Math.max(maxChange, Math.abs(x.get(rangeIndices[i]) - block[i]));
+		}
+	}
+
+	/**
+	 * Copies the entries of x at the domain indices to the domain buffer. The loops are
+	 * specialized for each type of vector, since this is where the decoder spends its time
+	 * waiting on memory.
+	 */
+	private void fetch(SampleVector x, double domainRef[]) {
+		if (x instanceof DoubleSampleVector) {
+			double data[] = ((DoubleSampleVector)x).getDataRef();
+			for (int i = 0; i < domainIndices.length; i++) {
+				domainRef[i] = data[domainIndices[i]];
+			}
+		} else {
+			for (int i = 0; i < domainIndices.length; i++) {
+				domainRef[i] = x.get(domainIndices[i]);
+			}
+		}
+	}
+
+	/**
+	 * Copies the given block to the entries of x_n at the range indices.
+	 */
+	private void put(double block[], SampleVector x_n) {
+		if (x_n instanceof DoubleSampleVector) {
+			double data[] = ((DoubleSampleVector)x_n).getDataRef();
+			for (int i = 0; i < rangeIndices.length; i++) {
+				data[rangeIndices[i]] = block[i];
+			}
+		} else {
+			for (int i = 0; i < rangeIndices.length; i++) {
+				x_n.set(rangeIndices[i], block[i]);
+			}
+		}
+	}
+
+	/**
+	 * Largest change made to a sample by the calls to apply since the last reset. Only changes
+	 * made in place are tracked, otherwise they're given by the distance between x and x_n.
+	 */
+	public double getMaxChange() {
+		return maxChange;
+	}
+
+	public void resetMaxChange() {
+		maxChange = 0;
+	}
+
+	/**
+	 * Domain block fetched by the last call to apply, constant transforms don't fetch their domain block.
+	 */
+	public Array2DColumnRealMatrix getDomain() {
+		if (appliedPrecision == Precision.FLOAT) {
+			copy(floatDomain, domain.getDataRef()[0]);
+		} else if (appliedPrecision == Precision.FIXED) {
+			copy(fixedDomain, domain.getDataRef()[0]);
+		}
+		return domain;
+	}
+
+	/**
+	 * Transformed domain block computed by the last call to apply.
+	 */
+	public Array2DColumnRealMatrix getTransformedDomain() {
+		if (appliedPrecision == Precision.FLOAT) {
+			copy(floatTransformedDomain, transformedDomain.getDataRef()[0]);
+		} else if (appliedPrecision == Precision.FIXED) {
+			copy(fixedTransformedDomain, transformedDomain.getDataRef()[0]);
+		}
+		return transformedDomain;
+	}
+
+	private static void copy(float source[], double target[]) {
+		for (int i = 0; i < source.length; i++) {
+			target[i] = source[i];
+		}
+	}
+
+	private void copy(short codes[], double target[]) {
+		for (int i = 0; i < codes.length; i++) {
+			target[i] = fixedMinVal + (codes[i] & FixedPointSampleVector.MAX_CODE) * fixedStep;
+		}
+	}
+}
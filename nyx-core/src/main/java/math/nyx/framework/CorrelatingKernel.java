@@ -0,0 +1,28 @@
+package math.nyx.framework;
+
+import math.nyx.core.Transform;
+
+/**
+ * A kernel that only depends on the domain blocks through their sums and their
+ * inner products with the (permuted) range block, which lets the encoder compute
+ * the inner products for all of the domain blocks at once.
+ */
+public interface CorrelatingKernel extends Kernel {
+	/**
+	 * Returns the permutations p for which the kernel needs the inner products
+	 * sum_k domain[p[k]] * range[k] between the domain blocks and the range block.
+	 */
+	public int[][] getPermutations(int dimension);
+
+	/**
+	 * Same as getDistance(domainPool, index, rangeBlock), where innerProducts[k][index]
+	 * is the inner product for the k-th permutation.
+	 */
+	public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock, double innerProducts[][]);
+
+	/**
+	 * Same as encode(domainPool, index, rangeBlock), where innerProducts[k][index]
+	 * is the inner product for the k-th permutation.
+	 */
+	public Transform encode(DomainPool domainPool, int index, SignalBlock rangeBlock, double innerProducts[][]);
+}
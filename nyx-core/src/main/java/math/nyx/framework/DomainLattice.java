@@ -0,0 +1,210 @@
+package math.nyx.framework;
+
+import org.springframework.util.Assert;
+
+import com.google.common.base.Objects;
+
+/**
+ * Positions of a partitioner's domain blocks, which are numbered plane by plane,
+ * then row by row, then column by column.
+ *
+ * The blocks around a given block are visited in a square spiral: the block itself first, followed
+ * by the rings of blocks that are 1, 2, ... positions away along either axis, staying in the same plane.
+ * When there is a single row, the spiral alternates between the left and the right of the block instead.
+ * The ranks in this order are used as relative indices, so that the closest blocks get the smallest indices.
+ *
+ * @author jwhite
+ */
+public class DomainLattice {
+	private final int numPlanes;
+	private final int numRows;
+	private final int numColumns;
+
+	public DomainLattice(int numPlanes, int numRows, int numColumns) {
+		Assert.isTrue(numPlanes > 0 && numRows > 0 && numColumns > 0, "Lattice must have at least one position.");
+		this.numPlanes = numPlanes;
+		this.numRows = numRows;
+		this.numColumns = numColumns;
+	}
+
+	/**
+	 * Returns the position, along one axis, of the block that starts closest to the given
+	 * (unscaled) offset, when there are numPositions blocks that are stride samples apart.
+	 */
+	public static int getNearestPosition(double offset, int stride, int numPositions) {
+		int position = (int)Math.round(offset / stride);
+		return Math.max(Math.min(position, numPositions - 1), 0);
+	}
+
+	public int getNumPlanes() {
+		return numPlanes;
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumColumns() {
+		return numColumns;
+	}
+
+	public int size() {
+		return numPlanes * numRows * numColumns;
+	}
+
+	public int getIndex(int plane, int row, int column) {
+		return (plane * numRows + row) * numColumns + column;
+	}
+
+	public int getPlane(int index) {
+		return index / (numRows * numColumns);
+	}
+
+	public int getRow(int index) {
+		return (index / numColumns) % numRows;
+	}
+
+	public int getColumn(int index) {
+		return index % numColumns;
+	}
+
+	/**
+	 * Returns the blocks in the same plane as the given block that are at most radius
+	 * positions away from it along each axis, in spiral order.
+	 */
+	public int[] getWindow(int center, int radius) {
+		Assert.isTrue(radius >= 0, "Radius must be non-negative.");
+		radius = Math.min(radius, Math.max(numRows, numColumns) - 1);
+		int row = getRow(center);
+		int column = getColumn(center);
+		int rows = Math.min(row + radius, numRows - 1) - Math.max(row - radius, 0) + 1;
+		int columns = Math.min(column + radius, numColumns - 1) - Math.max(column - radius, 0) + 1;
+		int window[] = new int[rows * columns];
+
+		int numRanks = numRows == 1 ? 2 * radius + 1 : (2 * radius + 1) * (2 * radius + 1);
+		int offset[] = new int[2];
+		int n = 0;
+		for (int rank = 0; rank < numRanks && n < window.length; rank++) {
+			getOffset(rank, offset);
+			int index = getIndex(center, offset);
+			if (index >= 0) {
+				window[n++] = index;
+			}
+		}
+		return window;
+	}
+
+	/**
+	 * Codes the domain block's index relative to the given block.
+	 */
+	public int getRelativeIndex(int center, int index) {
+		int rank = getRank(getRow(index) - getRow(center), getColumn(index) - getColumn(center));
+		int planeOffset = (getPlane(index) - getPlane(center) + numPlanes) % numPlanes;
+		return rank * numPlanes + planeOffset;
+	}
+
+	/**
+	 * Decodes an index returned by getRelativeIndex.
+	 */
+	public int getIndexFromRelative(int center, int relativeIndex) {
+		Assert.isTrue(relativeIndex >= 0, "Relative index must be non-negative.");
+		int offset[] = new int[2];
+		getOffset(relativeIndex / numPlanes, offset);
+		int plane = (getPlane(center) + relativeIndex % numPlanes) % numPlanes;
+		int index = getIndex(getIndex(plane, getRow(center), getColumn(center)), offset);
+		Assert.isTrue(index >= 0, "Relative index is outside of the lattice.");
+		return index;
+	}
+
+	/**
+	 * Returns the index of the block at the given offset from the given block,
+	 * or -1 if there's no such block in the same plane.
+	 */
+	private int getIndex(int center, int offset[]) {
+		int row = getRow(center) + offset[0];
+		int column = getColumn(center) + offset[1];
+		if (row < 0 || row >= numRows || column < 0 || column >= numColumns) {
+			return -1;
+		}
+		return getIndex(getPlane(center), row, column);
+	}
+
+	private int getRank(int rowOffset, int columnOffset) {
+		if (numRows == 1) {
+			return columnOffset <= 0 ? -2 * columnOffset : 2 * columnOffset - 1;
+		}
+
+		int k = Math.max(Math.abs(rowOffset), Math.abs(columnOffset));
+		if (k == 0) {
+			return 0;
+		}
+
+		// Walk around the ring clockwise, starting from its top left corner
+		int first = (2 * k - 1) * (2 * k - 1);
+		if (rowOffset == -k) {
+			return first + columnOffset + k;
+		} else if (columnOffset == k) {
+			return first + 2 * k + rowOffset + k;
+		} else if (rowOffset == k) {
+			return first + 4 * k + k - columnOffset;
+		} else {
+			return first + 6 * k + k - rowOffset;
+		}
+	}
+
+	private void getOffset(int rank, int offset[]) {
+		if (numRows == 1) {
+			offset[0] = 0;
+			offset[1] = rank % 2 == 0 ? -rank / 2 : (rank + 1) / 2;
+			return;
+		}
+
+		int k = (int)((Math.sqrt(rank) + 1) / 2);
+		if (k == 0) {
+			offset[0] = 0;
+			offset[1] = 0;
+			return;
+		}
+
+		int p = rank - (2 * k - 1) * (2 * k - 1);
+		if (p <= 2 * k) {
+			offset[0] = -k;
+			offset[1] = p - k;
+		} else if (p <= 4 * k) {
+			offset[0] = p - 2 * k - k;
+			offset[1] = k;
+		} else if (p <= 6 * k) {
+			offset[0] = k;
+			offset[1] = k - (p - 4 * k);
+		} else {
+			offset[0] = k - (p - 6 * k);
+			offset[1] = -k;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(numPlanes, numRows, numColumns);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (!(obj instanceof DomainLattice)) {
+			return false;
+		}
+
+		DomainLattice rhs = (DomainLattice)obj;
+		return numPlanes == rhs.numPlanes && numRows == rhs.numRows && numColumns == rhs.numColumns;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass())
+	            .add("numPlanes", numPlanes)
+	            .add("numRows", numRows)
+	            .add("numColumns", numColumns)
+	            .toString();
+	}
+}
@@ -0,0 +1,249 @@
+package math.nyx.framework;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.springframework.util.Assert;
+
+import math.nyx.core.DoubleSampleVector;
+import math.nyx.core.SampleVector;
+
+import com.google.common.base.Objects;
+
+/**
+ * Stores all of the decimated domain blocks in a single contiguous array,
+ * along with the per-block sums needed by the kernel.
+ *
+ * Block i occupies the entries [i*dimension, (i+1)*dimension) of the data array,
+ * and corresponds to the domain block with index firstDomainBlockIndex + i, unless
+ * the pool is a subset of another pool.
+ *
+ * The blocks can also be stored with a lower precision, in which case the kernels
+ * compute with these samples instead of the data.
+ *
+ * @author jwhite
+ */
+public class DomainPool {
+	private final int size;
+	private final int dimension;
+	private final int firstDomainBlockIndex;
+	private final int domainBlockIndices[];
+	private final double data[];
+	private final double sumOfPoints[];
+	private final double sumOfSquaredPoints[];
+	private final double normsOfDeviations[];
+	private Precision precision = Precision.DOUBLE;
+	private SampleVector samples;
+
+	public DomainPool(int size, int dimension) {
+		this(size, dimension, 0);
+	}
+
+	public DomainPool(int size, int dimension, int firstDomainBlockIndex) {
+		this(size, dimension, firstDomainBlockIndex, null);
+	}
+
+	private DomainPool(int size, int dimension, int firstDomainBlockIndex, int domainBlockIndices[]) {
+		Assert.isTrue(size >= 0, "Size must be non-negative.");
+		Assert.isTrue(dimension > 0, "Dimension must be positive.");
+		this.size = size;
+		this.dimension = dimension;
+		this.firstDomainBlockIndex = firstDomainBlockIndex;
+		this.domainBlockIndices = domainBlockIndices;
+		this.data = new double[size * dimension];
+		this.sumOfPoints = new double[size];
+		this.sumOfSquaredPoints = new double[size];
+		this.normsOfDeviations = new double[size];
+		this.samples = new DoubleSampleVector(data);
+	}
+
+	/**
+	 * Also stores the blocks with the given precision, for samples in [minVal, maxVal]. The blocks
+	 * that are already in the pool are rounded, and the others are rounded by generateFacts.
+	 */
+	public void setPrecision(Precision precision, double minVal, double maxVal) {
+		this.precision = precision;
+		if (precision == Precision.DOUBLE) {
+			samples = new DoubleSampleVector(data);
+		} else {
+			samples = precision.createVector(data.length, minVal, maxVal);
+			samples.set(0, data, 0, data.length);
+		}
+	}
+
+	/**
+	 * Copies the given block into the pool at the given index and updates its sums.
+	 */
+	public void setBlock(int index, double block[]) {
+		Assert.isTrue(block.length == dimension, "Block must have the same dimension as the pool.");
+		System.arraycopy(block, 0, data, getOffset(index), dimension);
+		generateFacts(index);
+	}
+
+	/**
+	 * Updates the sums of the block at the given index, this must be called
+	 * after the block's entries are written directly to the data array.
+	 */
+	public void generateFacts(int index) {
+		int offset = getOffset(index);
+		double sum = 0;
+		double sumOfSquares = 0;
+		for (int k = offset; k < offset + dimension; k++) {
+			double xi = data[k];
+			sum += xi;
+			sumOfSquares += xi * xi;
+		}
+		sumOfPoints[index] = sum;
+		sumOfSquaredPoints[index] = sumOfSquares;
+		if (precision != Precision.DOUBLE) {
+			samples.set(offset, data, offset, dimension);
+		}
+
+		// Sum the deviations separately to avoid cancelling sumOfSquares - sum^2/n
+		double mean = sum / dimension;
+		double sumOfSquaredDeviations = 0;
+		for (int k = offset; k < offset + dimension; k++) {
+			double di = data[k] - mean;
+			sumOfSquaredDeviations += di * di;
+		}
+		normsOfDeviations[index] = Math.sqrt(sumOfSquaredDeviations);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * Entries of all the blocks, this array must only be modified while the pool is being filled.
+	 */
+	public double[] getData() {
+		return data;
+	}
+
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Entries of all the blocks with the pool's precision, laid out like the data. This vector
+	 * wraps the data when the precision is DOUBLE.
+	 */
+	public SampleVector getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Returns the index of the domain block stored at the given index in the pool.
+	 */
+	public int getDomainBlockIndex(int index) {
+		if (domainBlockIndices != null) {
+			return domainBlockIndices[index];
+		}
+		return firstDomainBlockIndex + index;
+	}
+
+	/**
+	 * Returns a new pool holding copies of the blocks at the given indices, in the given order.
+	 * The blocks keep their domain block indices.
+	 */
+	public DomainPool getSubset(int indices[]) {
+		int subsetDomainBlockIndices[] = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			subsetDomainBlockIndices[i] = getDomainBlockIndex(indices[i]);
+		}
+
+		DomainPool subset = new DomainPool(indices.length, dimension, 0, subsetDomainBlockIndices);
+		if (precision != Precision.DOUBLE) {
+			subset.precision = precision;
+			subset.samples = samples.create(subset.data.length);
+		}
+		for (int i = 0; i < indices.length; i++) {
+			int index = indices[i];
+			System.arraycopy(data, getOffset(index), subset.data, subset.getOffset(i), dimension);
+			if (precision != Precision.DOUBLE) {
+				samples.copyTo(getOffset(index), subset.samples, subset.getOffset(i), dimension);
+			}
+			subset.sumOfPoints[i] = sumOfPoints[index];
+			subset.sumOfSquaredPoints[i] = sumOfSquaredPoints[index];
+			subset.normsOfDeviations[i] = normsOfDeviations[index];
+		}
+		return subset;
+	}
+
+	/**
+	 * Returns a new pool holding copies of the blocks sorted by decreasing norm of deviations,
+	 * blocks with equal norms stay in pool order. The blocks keep their domain block indices.
+	 */
+	public DomainPool getSortedByNormOfDeviations() {
+		Integer order[] = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(normsOfDeviations[b], normsOfDeviations[a]);
+			}
+		});
+
+		int indices[] = new int[size];
+		for (int i = 0; i < size; i++) {
+			indices[i] = order[i];
+		}
+		return getSubset(indices);
+	}
+
+	public int getOffset(int index) {
+		return index * dimension;
+	}
+
+	/**
+	 * Returns a copy of the block at the given index.
+	 */
+	public double[] getBlock(int index) {
+		double block[] = new double[dimension];
+		System.arraycopy(data, getOffset(index), block, 0, dimension);
+		return block;
+	}
+
+	public double getSumOfPoints(int index) {
+		return sumOfPoints[index];
+	}
+
+	public double getSumOfSquaredPoints(int index) {
+		return sumOfSquaredPoints[index];
+	}
+
+	/**
+	 * Euclidean norm of the deviations of the block's points from their mean.
+	 */
+	public double getNormOfDeviations(int index) {
+		return normsOfDeviations[index];
+	}
+
+	/**
+	 * Approximate number of bytes used by the pool.
+	 */
+	public long getSizeInBytes() {
+		long sizeInBytes = 8L * (data.length + sumOfPoints.length + sumOfSquaredPoints.length
+				+ normsOfDeviations.length);
+		if (domainBlockIndices != null) {
+			sizeInBytes += 4L * domainBlockIndices.length;
+		}
+		if (precision != Precision.DOUBLE) {
+			sizeInBytes += samples.getSizeInBytes();
+		}
+		return sizeInBytes;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass()).add("size", size)
+	            .add("dimension", dimension)
+	            .toString();
+	}
+}
@@ -0,0 +1,151 @@
+package math.nyx.framework;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+/**
+ * Shrinks a domain pool before it is searched.
+ *
+ * The affine maps absorb the mean and the contrast of a domain block, so blocks whose
+ * normalised content (x - mean(x)) / |x - mean(x)| is nearly the same are interchangeable,
+ * and only the first of these is kept. Flat blocks can only map to flat range blocks,
+ * which any single flat block serves just as well, so only the flattest one is kept.
+ * Of the remaining blocks, the ones with the largest variance are kept until the pool
+ * holds the given fraction of its original size.
+ *
+ * @author jwhite
+ */
+public class DomainPoolReducer {
+	/**
+	 * Blocks whose deviations are smaller than this, relative to the norm of their points, are flat.
+	 */
+	private static final double FLAT_TOLERANCE = 1e-3;
+
+	/**
+	 * Number of quantization steps per root mean square entry of a normalised block,
+	 * blocks are duplicates when their quantized entries are all equal.
+	 */
+	private static final int NUM_DUPLICATE_LEVELS = 8;
+
+	private final double fraction;
+
+	private int numDuplicates;
+
+	private int numFlat;
+
+	public DomainPoolReducer(double fraction) {
+		Assert.isTrue(fraction > 0 && fraction <= 1, "Fraction must be in (0, 1].");
+		this.fraction = fraction;
+	}
+
+	/**
+	 * Returns a new pool with the kept blocks, in the same order as in the given pool.
+	 */
+	public DomainPool reduce(DomainPool domainPool) {
+		int size = domainPool.size();
+		int dimension = domainPool.getDimension();
+		double data[] = domainPool.getData();
+		double levels = NUM_DUPLICATE_LEVELS * Math.sqrt(dimension);
+
+		// Find the flattest block and the distinct blocks
+		int flattestIndex = -1;
+		int distinctIndices[] = new int[size];
+		int numDistinct = 0;
+		numDuplicates = 0;
+		numFlat = 0;
+		Set<Key> keys = new HashSet<Key>();
+		int quantized[] = new int[dimension];
+		for (int i = 0; i < size; i++) {
+			double norm = domainPool.getNormOfDeviations(i);
+			if (flattestIndex < 0 || norm < domainPool.getNormOfDeviations(flattestIndex)) {
+				flattestIndex = i;
+			}
+			if (norm <= FLAT_TOLERANCE * Math.sqrt(domainPool.getSumOfSquaredPoints(i))) {
+				numFlat++;
+				continue;
+			}
+
+			int offset = domainPool.getOffset(i);
+			double mean = domainPool.getSumOfPoints(i) / dimension;
+			for (int j = 0; j < dimension; j++) {
+				quantized[j] = (int)Math.round((data[offset + j] - mean) / norm * levels);
+			}
+			if (!keys.add(new Key(quantized.clone()))) {
+				numDuplicates++;
+				continue;
+			}
+			distinctIndices[numDistinct++] = i;
+		}
+
+		// Keep the distinct blocks with the largest variance, along with the flattest block
+		int numKept = Math.max((int)Math.ceil(fraction * size), 1);
+		boolean keepFlattest = flattestIndex >= 0 && numFlat > 0;
+		int numDistinctKept = Math.min(numDistinct, keepFlattest ? numKept - 1 : numKept);
+
+		final double norms[] = new double[numDistinct];
+		Integer order[] = new Integer[numDistinct];
+		for (int i = 0; i < numDistinct; i++) {
+			norms[i] = domainPool.getNormOfDeviations(distinctIndices[i]);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				// Largest norm first, the sort is stable so ties stay in pool order
+				return Double.compare(norms[b], norms[a]);
+			}
+		});
+
+		int keptIndices[] = new int[numDistinctKept + (keepFlattest ? 1 : 0)];
+		for (int i = 0; i < numDistinctKept; i++) {
+			keptIndices[i] = distinctIndices[order[i]];
+		}
+		if (keepFlattest) {
+			keptIndices[numDistinctKept] = flattestIndex;
+		}
+		Arrays.sort(keptIndices);
+		return domainPool.getSubset(keptIndices);
+	}
+
+	/**
+	 * Number of blocks that were dropped as duplicates by the last call to reduce.
+	 */
+	public int getNumDuplicates() {
+		return numDuplicates;
+	}
+
+	/**
+	 * Number of flat blocks found by the last call to reduce, only one of these is kept.
+	 */
+	public int getNumFlat() {
+		return numFlat;
+	}
+
+	public double getFraction() {
+		return fraction;
+	}
+
+	private static class Key {
+		private final int entries[];
+		private final int hashCode;
+
+		public Key(int entries[]) {
+			this.entries = entries;
+			this.hashCode = Arrays.hashCode(entries);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(entries, ((Key)o).entries);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package math.nyx.framework;
+
+/**
+ * Determines which of the decimated domain blocks should be compared
+ * against a given range block when encoding.
+ */
+public interface DomainSearchStrategy {
+	/**
+	 * Returns the pool indices of the decimated domain blocks to compare against the given
+	 * range block, in the order in which they should be tried.
+	 */
+	public int[] getCandidates(SignalBlock rangeBlock);
+}
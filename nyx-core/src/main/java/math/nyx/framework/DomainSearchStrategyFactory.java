@@ -0,0 +1,6 @@
+package math.nyx.framework;
+
+public interface DomainSearchStrategyFactory {
+	public DomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner,
+			DomainPool domainPool);
+}
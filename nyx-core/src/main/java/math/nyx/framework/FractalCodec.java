@@ -1,14 +1,23 @@
 package math.nyx.framework;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.math.linear.Array2DColumnRealMatrix;
 import org.apache.commons.math.linear.Array2DRowRealMatrix;
 import org.apache.commons.math.linear.RealMatrix;
 import org.apache.commons.math.linear.SparseRealMatrix;
@@ -18,15 +27,26 @@ import org.springframework.util.Assert;
 
 import com.google.common.base.Objects;
 
+import math.nyx.core.ConstantTransform;
 import math.nyx.core.DummyFractalDecoderVisitor;
 import math.nyx.core.Fractal;
 import math.nyx.core.FractalDecoder;
 import math.nyx.core.FractalDecoderVisitor;
 import math.nyx.core.FractalEncoder;
+import math.nyx.core.SampleVector;
 import math.nyx.core.Signal;
 import math.nyx.core.Transform;
 import math.nyx.framework.Kernel;
 import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.correlation.CrossCorrelator;
+import math.nyx.framework.linear.AveragingDecimationStrategy;
+import math.nyx.framework.linear.LinearPartitioningStrategy;
+import math.nyx.framework.planar.PlanarPartitioningStrategy;
+import math.nyx.framework.search.ExhaustiveDomainSearchStrategy;
+import math.nyx.framework.search.ExhaustiveDomainSearchStrategyFactory;
+import math.nyx.framework.search.WindowedDomainSearchStrategy;
+import math.nyx.framework.square.SquareDecimationStrategy;
+import math.nyx.framework.square.SquarePartitioningStrategy;
 
 public class FractalCodec implements FractalEncoder, FractalDecoder {
 	private static Logger logger = LogManager.getLogger("Nyx");
@@ -37,6 +57,42 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 
 	private DecimationStrategyFactory decimationStrategyFactory;
 
+	private DomainSearchStrategyFactory domainSearchStrategyFactory = new ExhaustiveDomainSearchStrategyFactory();
+
+	/**
+	 * Shared by all of the codecs that aren't given an executor. The pool's threads are
+	 * daemon threads, so it never needs to be shut down.
+	 */
+	private static final ExecutorService DEFAULT_EXECUTOR = new ForkJoinPool();
+
+	private ExecutorService executor = DEFAULT_EXECUTOR;
+
+	private static final int TASKS_PER_THREAD = 4;
+
+	public static final int BATCH_SIZE = 0;
+
+	private int batchSize = BATCH_SIZE;
+
+	public static final boolean CROSS_CORRELATE = false;
+
+	private boolean crossCorrelate = CROSS_CORRELATE;
+
+	public static final double FLAT_THRESHOLD = 0.001;
+
+	private double flatThreshold = FLAT_THRESHOLD;
+
+	public static final int SEARCH_RADIUS = 0;
+
+	private int searchRadius = SEARCH_RADIUS;
+
+	public static final double DOMAIN_POOL_FRACTION = 1;
+
+	private double domainPoolFraction = DOMAIN_POOL_FRACTION;
+
+	public static final boolean SORT_DOMAIN_POOL = false;
+
+	private boolean sortDomainPool = SORT_DOMAIN_POOL;
+
 	private String name;
 
 	public static final int DECODE_ITERATIONS = 12;
@@ -47,12 +103,32 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 
 	private boolean optimized = OPTIMIZED;
 
+	public static final double DECODE_TOLERANCE = 0;
+
+	private double decodeTolerance = DECODE_TOLERANCE;
+
+	public static final boolean DECODE_FROM_DC = false;
+
+	private boolean decodeFromDC = DECODE_FROM_DC;
+
+	public static final boolean IN_PLACE_DECODE = false;
+
+	private boolean inPlaceDecode = IN_PLACE_DECODE;
+
+	public static final boolean PARALLEL_DECODE = true;
+
+	private boolean parallelDecode = PARALLEL_DECODE;
+
+	public static final Precision PRECISION = Precision.DOUBLE;
+
+	private Precision precision = PRECISION;
+
 	public Fractal encode(Signal signal) {
 		// Fetch the partitioner, this will pad the signal if necessary
 		PartitioningStrategy partitioner = partitioningStrategyFactory.getPartitioner(signal);
 
 		// Now fetch the underlying vector
-		RealMatrix x = signal.getVector();
+		double x[] = signal.getSamples().toArray();
 
 		// Break the signal into non-overlapping range blocks
 		int numRangePartitions = partitioner.getNumRangePartitions();
@@ -60,101 +136,509 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 				numRangePartitions, partitioner.getRangeDimension());
 		List<SignalBlock> rangeBlocks = new ArrayList<SignalBlock>();
 		for (int i = 0; i < numRangePartitions; i++) {
-			// Fetch the range block at index i
-			SparseRealMatrix F_I = partitioner.getRangeFetchOperator(i);
-			RealMatrix rangeBlock = F_I.multiply(x);	
-			//System.out.println("Range block: " + rangeBlock);
-
-			// Store the results
-			rangeBlocks.add(new SignalBlock(i, rangeBlock));
+			rangeBlocks.add(getRangeBlock(x, partitioner, i));
 		}
 
-		// Build the decimation operator D
-		SparseRealMatrix D = getDecimationOperator(partitioner);
-
 		// Break the signal into overlapping domain blocks
-		int numDomainPartitions = partitioner.getNumDomainPartitions();
 		logger.info("Partitioning domain with {} partitions of dimension {}.", 
-				numDomainPartitions, partitioner.getDomainDimension());
-		List<SignalBlock> decimatedDomainBlocks = new ArrayList<SignalBlock>();
-		for (int i = 0; i < numDomainPartitions; i++) {
-			// Fetch the domain block at index i
-			SparseRealMatrix F_I = partitioner.getDomainFetchOperator(i);
-			RealMatrix domainBlock = F_I.multiply(x);		
+				partitioner.getNumDomainPartitions(), partitioner.getDomainDimension());
+		DomainPool domainPool = getDomainPool(x, partitioner, getDecimator(partitioner), 0);
 
-			// Decimate it
-			RealMatrix decimatedDomainBlock = D.multiply(domainBlock);
+		// Construct the fractal used to store our results
+		Fractal fractal = new Fractal(signal);
+		fractal.setCodecName(name);
+		fractal.setLatticeGeometry(partitioner.getLatticeGeometry());
 
-			// Store the results
-			decimatedDomainBlocks.add(new SignalBlock(i, decimatedDomainBlock));
+		// Now match the domain and range partitions while minimizing the distance
+		// and store the results in the fractal
+		for (Transform transform : encode(partitioner, rangeBlocks, domainPool)) {
+			fractal.addTransform(transform);
 		}
+		return fractal;
+	}
 
+	/**
+	 * Fetches the range block at the given index.
+	 */
+	protected SignalBlock getRangeBlock(double x[], PartitioningStrategy partitioner, int rangeBlockIndex) {
+		int rangeIndices[] = partitioner.getRangeIndices(rangeBlockIndex);
+		double rangeBlock[] = new double[rangeIndices.length];
+		for (int j = 0; j < rangeIndices.length; j++) {
+			rangeBlock[j] = x[rangeIndices[j]];
+		}
+		return new SignalBlock(rangeBlockIndex, rangeBlock);
+	}
+
+	/**
+	 * Fetches and decimates all of the partitioner's domain blocks. The domain block indices
+	 * stored in the pool start at firstDomainBlockIndex.
+	 */
+	protected DomainPool getDomainPool(double x[], PartitioningStrategy partitioner, DecimationStrategy decimator,
+			int firstDomainBlockIndex) {
+		final int decimationRatio = decimator.getDecimationRatio();
+		int decimationIndices[][] = decimator.getIndices();
+
+		int numDomainPartitions = partitioner.getNumDomainPartitions();
+		DomainPool domainPool = new DomainPool(numDomainPartitions, partitioner.getRangeDimension(),
+				firstDomainBlockIndex);
+		Signal signal = partitioner.getSignal();
+		domainPool.setPrecision(precision, signal.getMinVal(), signal.getMaxVal());
+		double poolRef[] = domainPool.getData();
+		int domainIndices[] = new int[partitioner.getDomainDimension()];
+
+		// Round the entries to the codec's precision, so that the kernel scores the
+		// transforms against the same domain blocks as the decoder
+		SampleVector block = precision.createVector(decimationIndices.length, signal.getMinVal(), signal.getMaxVal());
+		for (int i = 0; i < numDomainPartitions; i++) {
+			// Fetch and decimate the domain block at index i, storing the results in the pool
+			partitioner.getDomainIndices(i, domainIndices);
+			int offset = domainPool.getOffset(i);
+			for (int j = 0; j < decimationIndices.length; j++) {
+				double sum = 0;
+				for (int l = 0; l < decimationIndices[j].length; l++) {
+					sum += x[domainIndices[decimationIndices[j][l]]];
+				}
+				block.set(j, sum * (1.0f/decimationRatio));
+			}
+			block.get(0, poolRef, offset, decimationIndices.length);
+			domainPool.generateFacts(i);
+		}
+		logger.info("Stored {} decimated domain blocks in a pool of {}.", domainPool.size(),
+				humanReadableByteCount(domainPool.getSizeInBytes(), true));
+		return domainPool;
+	}
+
+	/**
+	 * Keeps the distinct, high variance blocks of the domain pool, up to domainPoolFraction of its size.
+	 */
+	protected DomainPool reduceDomainPool(DomainPool domainPool) {
+		DomainPoolReducer reducer = new DomainPoolReducer(domainPoolFraction);
+		DomainPool reducedDomainPool = reducer.reduce(domainPool);
+		logger.info("Reduced the domain pool from {} to {} blocks ({} duplicates, {} flat blocks).",
+				domainPool.size(), reducedDomainPool.size(), reducer.getNumDuplicates(), reducer.getNumFlat());
+		return reducedDomainPool;
+	}
+
+	/**
+	 * Finds the best transform for each of the range blocks using the blocks in the domain pool.
+	 * The transforms are returned in the same order as the range blocks.
+	 */
+	protected List<Transform> encode(PartitioningStrategy partitioner, List<SignalBlock> rangeBlocks,
+			DomainPool domainPool) {
 		// If we have any range blocks, we should have at least 1 domain block
 		if (!rangeBlocks.isEmpty()) {
-			Assert.notEmpty(decimatedDomainBlocks);
+			Assert.isTrue(domainPool.size() > 0);
 		}
 
-		// Construct the fractal used to store our results
-		Fractal fractal = new Fractal(signal);
-		fractal.setCodecName(name);
+		// Flat range blocks are encoded with constant transforms, without searching the domain pool
+		Transform transforms[] = new Transform[rangeBlocks.size()];
+		List<SignalBlock> rangeBlocksToSearch = new ArrayList<SignalBlock>(rangeBlocks.size());
+		for (int i = 0; i < rangeBlocks.size(); i++) {
+			SignalBlock rangeBlock = rangeBlocks.get(i);
+			if (rangeBlock.getNormOfDeviations() <= flatThreshold) {
+				transforms[i] = new ConstantTransform(domainPool.getDomainBlockIndex(0), rangeBlock.getIndex(),
+						rangeBlock.getNormOfDeviations(), rangeBlock.getSumOfPoints() / rangeBlock.getDimension());
+			} else {
+				rangeBlocksToSearch.add(rangeBlock);
+			}
+		}
+		if (rangeBlocksToSearch.size() < rangeBlocks.size()) {
+			logger.info("Encoded {} flat range blocks with constant transforms.",
+					rangeBlocks.size() - rangeBlocksToSearch.size());
+		}
 
-		// Now match the domain and range partitions while minimizing the distance
-		// and store the results in the fractal
-		logger.info("Encoding range blocks...");
-		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-	    List<Future<Transform>> futures = new ArrayList<Future<Transform>>();
-	    for (SignalBlock rangeBlock : rangeBlocks) {
-	    	Callable<Transform> worker = new Worker(rangeBlock, kernel, decimatedDomainBlocks);
-	    	Future<Transform> future = executor.submit(worker);
-	    	futures.add(future);
-	    }
-	    
-	    int k = 0;
-	    for (Future<Transform> future : futures) {
-	    	try {
-				fractal.addTransform(future.get());
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			} catch (ExecutionException e) {
-				throw new RuntimeException(e);
+		// Fill in the other transforms, preserving the order of the range blocks
+		Iterator<Transform> searchedTransforms = search(partitioner, rangeBlocksToSearch, domainPool).iterator();
+		for (int i = 0; i < transforms.length; i++) {
+			if (transforms[i] == null) {
+				transforms[i] = searchedTransforms.next();
 			}
-	    	String percentageComplete = String.format("%.2f%%", ((float)k/rangeBlocks.size()) * 100);
-	    	logger.info("Successfully encoded {}/{} ({}) range blocks.", ++k, rangeBlocks.size(), percentageComplete);
-	    }
+		}
+		return new ArrayList<Transform>(Arrays.asList(transforms));
+	}
 
-	    executor.shutdown();
-	    
-		return fractal;
+	/**
+	 * Finds the best match in the domain pool for each of the range blocks.
+	 */
+	private List<Transform> search(PartitioningStrategy partitioner, List<SignalBlock> rangeBlocks,
+			DomainPool domainPool) {
+		if (rangeBlocks.isEmpty()) {
+			return new ArrayList<Transform>();
+		}
+
+		// Drop the domain blocks that are unlikely to be useful
+		if (domainPoolFraction < 1 && domainPool.size() > 0) {
+			domainPool = reduceDomainPool(domainPool);
+		}
+
+		if (sortDomainPool && domainPool.size() > 0) {
+			domainPool = domainPool.getSortedByNormOfDeviations();
+		}
+
+		// Round the range blocks to the precision of the pool, so that the kernel can score them with it
+		if (domainPool.getPrecision() != Precision.DOUBLE) {
+			for (SignalBlock rangeBlock : rangeBlocks) {
+				SampleVector samples = domainPool.getSamples().create(rangeBlock.getDimension());
+				samples.set(0, rangeBlock.getData(), 0, rangeBlock.getDimension());
+				rangeBlock.setSamples(samples);
+			}
+		}
+
+		// Determine which domain blocks should be compared with each range block
+		DomainSearchStrategy searchStrategy = getSearchStrategy(partitioner, domainPool);
+
+		// The exhaustive search compares the candidates in pool order, so when the pool is sorted
+		// the lower bounds only grow along the candidates, and the search can stop at the first pruned one
+		boolean stopWhenPruned = sortDomainPool && searchStrategy instanceof ExhaustiveDomainSearchStrategy;
+
+		// Compute the inner products with all of the domain blocks at once, when supported
+		CrossCorrelator correlator = crossCorrelate ? getCrossCorrelator(partitioner, domainPool) : null;
+
+		int parallelism = getParallelism();
+		AtomicLong numComparisons = new AtomicLong();
+		AtomicLong numPruned = new AtomicLong();
+		List<Transform> transforms;
+		if (rangeBlocks.size() < parallelism) {
+			// There aren't enough range blocks to keep every thread busy, so split the domain blocks instead
+			logger.info("Encoding range blocks, splitting the domain blocks across {} tasks...", parallelism);
+			transforms = encodeBySplittingDomainBlocks(rangeBlocks, domainPool, searchStrategy, correlator,
+					stopWhenPruned, parallelism, numComparisons, numPruned);
+		} else {
+			logger.info("Encoding range blocks...");
+			transforms = encodeByBatchingRangeBlocks(rangeBlocks, domainPool, searchStrategy, correlator,
+					stopWhenPruned, parallelism, numComparisons, numPruned);
+		}
+
+		logger.info("Compared {} domain blocks with each range block on average ({} in the pool).",
+				numComparisons.get() / rangeBlocks.size(), domainPool.size());
+		long numCandidates = numComparisons.get() + numPruned.get();
+		String percentagePruned = String.format("%.2f%%",
+				numCandidates > 0 ? ((float)numPruned.get()/numCandidates) * 100 : 0f);
+		logger.info("Pruned {}/{} ({}) candidates whose lower bound couldn't improve on the best match.",
+				numPruned.get(), numCandidates, percentagePruned);
+
+		return transforms;
 	}
 
-	private static class Worker implements Callable<Transform> {
-		private final SignalBlock rangeBlock;
-		private final Kernel kernel;
-		private final List<SignalBlock> decimatedDomainBlocks;
+	/**
+	 * Returns the search strategy built by the factory, restricted to the domain blocks
+	 * around each range block when the search radius is set.
+	 */
+	protected DomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner, DomainPool domainPool) {
+		DomainSearchStrategy searchStrategy = domainSearchStrategyFactory.getSearchStrategy(partitioner,
+				domainPool);
+		if (searchRadius > 0) {
+			logger.info("Searching the domain blocks up to {} positions away from each range block.", searchRadius);
+			searchStrategy = new WindowedDomainSearchStrategy(partitioner, domainPool, searchRadius, searchStrategy);
+		}
+		return searchStrategy;
+	}
 
-		public Worker(SignalBlock rangeBlock, Kernel kernel, List<SignalBlock> decimatedDomainBlocks) {
-			this.rangeBlock = rangeBlock;
+	private List<Transform> encodeByBatchingRangeBlocks(List<SignalBlock> rangeBlocks, DomainPool domainPool,
+			DomainSearchStrategy searchStrategy, CrossCorrelator correlator, boolean stopWhenPruned, int parallelism,
+			AtomicLong numComparisons, AtomicLong numPruned) {
+		int numRangeBlocks = rangeBlocks.size();
+		int size = batchSize > 0 ? batchSize : Math.max(numRangeBlocks / (parallelism * TASKS_PER_THREAD), 1);
+
+		List<Future<List<Transform>>> futures = new ArrayList<Future<List<Transform>>>();
+		try {
+			for (int from = 0; from < numRangeBlocks; from += size) {
+				List<SignalBlock> batch = rangeBlocks.subList(from, Math.min(from + size, numRangeBlocks));
+				futures.add(executor.submit(new Worker(batch, kernel, domainPool, searchStrategy, correlator,
+						stopWhenPruned, numComparisons, numPruned)));
+			}
+
+			List<Transform> transforms = new ArrayList<Transform>(numRangeBlocks);
+			for (Future<List<Transform>> future : futures) {
+				transforms.addAll(getResult(future));
+				String percentageComplete = String.format("%.2f%%", ((float)transforms.size()/numRangeBlocks) * 100);
+				logger.info("Successfully encoded {}/{} ({}) range blocks.", transforms.size(), numRangeBlocks,
+						percentageComplete);
+			}
+			return transforms;
+		} finally {
+			// Don't leave any tasks behind if one of them failed
+			cancel(futures);
+		}
+	}
+
+	private List<Transform> encodeBySplittingDomainBlocks(List<SignalBlock> rangeBlocks, DomainPool domainPool,
+			DomainSearchStrategy searchStrategy, CrossCorrelator correlator, boolean stopWhenPruned, int parallelism,
+			AtomicLong numComparisons, AtomicLong numPruned) {
+		List<List<Future<Match>>> futuresPerRangeBlock = new ArrayList<List<Future<Match>>>();
+		List<double[][]> innerProductsPerRangeBlock = new ArrayList<double[][]>();
+		try {
+			for (SignalBlock rangeBlock : rangeBlocks) {
+				int candidates[] = searchStrategy.getCandidates(rangeBlock);
+				int size = Math.max((candidates.length + parallelism - 1) / parallelism, 1);
+				double innerProducts[][] = correlator != null ? correlate(correlator, kernel, rangeBlock, null) : null;
+				innerProductsPerRangeBlock.add(innerProducts);
+
+				List<Future<Match>> futures = new ArrayList<Future<Match>>();
+				for (int from = 0; from < candidates.length; from += size) {
+					futures.add(executor.submit(new DomainWorker(rangeBlock, kernel, domainPool, innerProducts,
+							candidates, from, Math.min(from + size, candidates.length), stopWhenPruned,
+							numComparisons, numPruned)));
+				}
+				futuresPerRangeBlock.add(futures);
+			}
+
+			List<Transform> transforms = new ArrayList<Transform>(rangeBlocks.size());
+			for (int i = 0; i < rangeBlocks.size(); i++) {
+				// Reduce the matches in the same order as the candidates, stopping at the first
+				// part that reached the threshold, so that we find the same match as a sequential search
+				Match bestMatch = new Match();
+				for (Future<Match> future : futuresPerRangeBlock.get(i)) {
+					Match match = getResult(future);
+					if (match.distance < bestMatch.distance) {
+						bestMatch = match;
+					}
+					if (match.thresholdReached) {
+						break;
+					}
+				}
+				transforms.add(encode(kernel, domainPool, rangeBlocks.get(i), innerProductsPerRangeBlock.get(i),
+						bestMatch));
+				logger.info("Successfully encoded {}/{} range blocks.", i + 1, rangeBlocks.size());
+			}
+			return transforms;
+		} finally {
+			for (List<Future<Match>> futures : futuresPerRangeBlock) {
+				cancel(futures);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that the executor can run concurrently.
+	 */
+	protected int getParallelism() {
+		int numProcessors = Runtime.getRuntime().availableProcessors();
+		if (executor instanceof ForkJoinPool) {
+			return ((ForkJoinPool)executor).getParallelism();
+		} else if (executor instanceof ThreadPoolExecutor) {
+			return Math.max(Math.min(((ThreadPoolExecutor)executor).getMaximumPoolSize(), numProcessors), 1);
+		}
+		return numProcessors;
+	}
+
+	private static <T> T getResult(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static <T> void cancel(List<Future<T>> futures) {
+		for (Future<T> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Returns a correlator that computes the inner products between a range block and all of the
+	 * blocks in the domain pool, or null if the kernel, partitioner or decimator aren't supported.
+	 */
+	protected CrossCorrelator getCrossCorrelator(PartitioningStrategy partitioner, DomainPool domainPool) {
+		DecimationStrategy decimator = getDecimator(partitioner);
+		int rangeDimension = partitioner.getRangeDimension();
+		int rangeWidth = (int)Math.round(Math.sqrt(rangeDimension));
+
+		CrossCorrelator correlator = null;
+		if (!(kernel instanceof CorrelatingKernel) || partitioner.getScale() != 1) {
+			correlator = null;
+		} else if (partitioner instanceof LinearPartitioningStrategy
+				&& decimator instanceof AveragingDecimationStrategy && decimator.getDecimationRatio() == 2) {
+			correlator = CrossCorrelator.forLinearSignal(getVector(partitioner), rangeDimension);
+		} else if (partitioner instanceof PlanarPartitioningStrategy && decimator instanceof SquareDecimationStrategy) {
+			PlanarPartitioningStrategy planar = (PlanarPartitioningStrategy)partitioner;
+			correlator = CrossCorrelator.forPlanes(getVector(partitioner), planar.getNumPlanes(),
+					planar.getPlaneHeight(), planar.getPlaneWidth(), rangeWidth);
+		} else if (partitioner instanceof SquarePartitioningStrategy && decimator instanceof SquareDecimationStrategy) {
+			double x[] = getVector(partitioner);
+			int signalWidth = (int)Math.round(Math.sqrt(x.length));
+			correlator = CrossCorrelator.forPlanes(x, 1, signalWidth, signalWidth, rangeWidth);
+		}
+
+		if (correlator == null) {
+			logger.warn("Cross-correlation is not supported by {}, comparing the domain blocks one at a time.",
+					partitioner.getClass().getSimpleName());
+			return null;
+		} else if (correlator.getNumDomainBlocks() != domainPool.size() || sortDomainPool) {
+			logger.warn("Cross-correlation requires the full, unsorted domain pool, comparing the domain blocks one at a time.");
+			return null;
+		}
+		return correlator;
+	}
+
+	private static double[] getVector(PartitioningStrategy partitioner) {
+		return partitioner.getSignal().getSamples().toArray();
+	}
+
+	/**
+	 * Computes the inner products between the range block and all of the domain blocks,
+	 * reusing the given arrays when possible.
+	 */
+	private static double[][] correlate(CrossCorrelator correlator, Kernel kernel, SignalBlock rangeBlock,
+			double innerProducts[][]) {
+		int permutations[][] = ((CorrelatingKernel)kernel).getPermutations(rangeBlock.getDimension());
+		if (innerProducts == null || innerProducts.length != permutations.length) {
+			innerProducts = new double[permutations.length][correlator.getNumDomainBlocks()];
+		}
+		correlator.correlate(rangeBlock.getData(), permutations, innerProducts);
+		return innerProducts;
+	}
+
+	/**
+	 * Best domain block found when comparing a range block with some of its candidates.
+	 */
+	private static class Match {
+		private int index = -1;
+		private double distance = Double.POSITIVE_INFINITY;
+		private boolean thresholdReached = false;
+	}
+
+	/**
+	 * Compares the range block with the candidates in [from, to), stopping
+	 * at the first domain block whose distance is within the kernel's threshold. The inner products
+	 * are only given when they were computed by a correlator.
+	 *
+	 * Candidates whose lower bound is >= the best distance so far are skipped, these can neither
+	 * replace the best match nor be within the threshold, so the match is the same as when
+	 * comparing all of the candidates. When stopWhenPruned is set, the bounds of the candidates
+	 * must not decrease, and the search stops at the first skipped candidate.
+	 */
+	private static Match findBestMatch(Kernel kernel, DomainPool domainPool, SignalBlock rangeBlock,
+			double innerProducts[][], int candidates[], int from, int to, boolean stopWhenPruned,
+			AtomicLong numComparisons, AtomicLong numPruned) {
+		// Score the candidates without building any transforms
+		Match match = new Match();
+		int pruned = 0;
+		int k = from;
+		while (k < to) {
+			int index = candidates[k++];
+			if (kernel.getLowerBound(domainPool, index, rangeBlock) >= match.distance) {
+				if (stopWhenPruned) {
+					// None of the remaining candidates can improve on the match either
+					pruned += to - k + 1;
+					k = to;
+					break;
+				}
+				pruned++;
+				continue;
+			}
+
+			double distance = innerProducts == null ? kernel.getDistance(domainPool, index, rangeBlock)
+					: ((CorrelatingKernel)kernel).getDistance(domainPool, index, rangeBlock, innerProducts);
+			if (distance < match.distance) {
+				match.distance = distance;
+				match.index = index;
+			}
+
+			// If the distance is <= the kernel's threshold, don't try to find a "better" transform
+			if (distance <= kernel.getThreshold()) {
+				match.thresholdReached = true;
+				break;
+			}
+		}
+		numComparisons.addAndGet(k - from - pruned);
+		numPruned.addAndGet(pruned);
+		return match;
+	}
+
+	private static Transform encode(Kernel kernel, DomainPool domainPool, SignalBlock rangeBlock,
+			double innerProducts[][], Match match) {
+		// Only build the transform for the winning candidate
+		if (match.index < 0) {
+			throw new IllegalStateException("No transform found for range block " + rangeBlock.getIndex() + ".");
+		}
+		if (innerProducts != null) {
+			return ((CorrelatingKernel)kernel).encode(domainPool, match.index, rangeBlock, innerProducts);
+		}
+		return kernel.encode(domainPool, match.index, rangeBlock);
+	}
+
+	/**
+	 * Encodes a batch of range blocks.
+	 */
+	private static class Worker implements Callable<List<Transform>> {
+		private final List<SignalBlock> rangeBlocks;
+		private final Kernel kernel;
+		private final DomainPool domainPool;
+		private final DomainSearchStrategy searchStrategy;
+		private final CrossCorrelator correlator;
+		private final boolean stopWhenPruned;
+		private final AtomicLong numComparisons;
+		private final AtomicLong numPruned;
+
+		public Worker(List<SignalBlock> rangeBlocks, Kernel kernel, DomainPool domainPool,
+				DomainSearchStrategy searchStrategy, CrossCorrelator correlator, boolean stopWhenPruned,
+				AtomicLong numComparisons, AtomicLong numPruned) {
+			this.rangeBlocks = rangeBlocks;
 			this.kernel = kernel;
-			this.decimatedDomainBlocks = decimatedDomainBlocks;
+			this.domainPool = domainPool;
+			this.searchStrategy = searchStrategy;
+			this.correlator = correlator;
+			this.stopWhenPruned = stopWhenPruned;
+			this.numComparisons = numComparisons;
+			this.numPruned = numPruned;
 		}
 
 		@Override
-		public Transform call() throws Exception {
-			Transform bestTransform = null;
-			for (SignalBlock domainBlock : decimatedDomainBlocks) {
-				Transform transform = kernel.encode(domainBlock, rangeBlock);
-				if (transform.compareTo(bestTransform) < 0)
-					bestTransform = transform;
-
-				// If the distance is <= the kernel's threshold, don't try to find a "better" transform
-				if (transform.getDistance() <= kernel.getThreshold())
-					break;
+		public List<Transform> call() {
+			List<Transform> transforms = new ArrayList<Transform>(rangeBlocks.size());
+			double innerProducts[][] = null;
+			for (SignalBlock rangeBlock : rangeBlocks) {
+				int candidates[] = searchStrategy.getCandidates(rangeBlock);
+				if (correlator != null) {
+					innerProducts = correlate(correlator, kernel, rangeBlock, innerProducts);
+				}
+				Match match = findBestMatch(kernel, domainPool, rangeBlock, innerProducts, candidates,
+						0, candidates.length, stopWhenPruned, numComparisons, numPruned);
+				transforms.add(encode(kernel, domainPool, rangeBlock, innerProducts, match));
 			}
+			return transforms;
+		}
+	}
 
-			if (bestTransform != null)
-				return bestTransform;
+	/**
+	 * Compares a single range block with some of its candidates.
+	 */
+	private static class DomainWorker implements Callable<Match> {
+		private final SignalBlock rangeBlock;
+		private final Kernel kernel;
+		private final DomainPool domainPool;
+		private final double innerProducts[][];
+		private final int candidates[];
+		private final int from;
+		private final int to;
+		private final boolean stopWhenPruned;
+		private final AtomicLong numComparisons;
+		private final AtomicLong numPruned;
+
+		public DomainWorker(SignalBlock rangeBlock, Kernel kernel, DomainPool domainPool, double innerProducts[][],
+				int candidates[], int from, int to, boolean stopWhenPruned, AtomicLong numComparisons,
+				AtomicLong numPruned) {
+			this.rangeBlock = rangeBlock;
+			this.kernel = kernel;
+			this.domainPool = domainPool;
+			this.innerProducts = innerProducts;
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+			this.stopWhenPruned = stopWhenPruned;
+			this.numComparisons = numComparisons;
+			this.numPruned = numPruned;
+		}
 
-			throw new Exception("No transform found.");
+		@Override
+		public Match call() {
+			return findBestMatch(kernel, domainPool, rangeBlock, innerProducts, candidates, from, to,
+					stopWhenPruned, numComparisons, numPruned);
 		}
 	}
 
@@ -186,12 +670,12 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 	}
 
 	public Signal decodeSimple(Fractal fractal, int scale, int numberOfIterations, FractalDecoderVisitor visitor) {
-		PartitioningStrategy partitioner = partitioningStrategyFactory.getPartitioner(fractal.getSignal(), scale);
+		Signal signal = fractal.getDescriptor().createSignal();
+		PartitioningStrategy partitioner = partitioningStrategyFactory.getPartitioner(signal, scale);
 		int scaledSignalDimension = partitioner.getScaledSignalDimension();
 		RealMatrix x = new Array2DRowRealMatrix(scaledSignalDimension, 1);
 
 		int numTransforms = fractal.getTransforms().size();
-		Signal signal = fractal.getSignal();
 		SparseRealMatrix D = getDecimationOperator(partitioner);
 		
 		for (int n = 1; n <= numberOfIterations; n++) {
@@ -216,10 +700,11 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 				// Apply the transform
 				transform.apply(decimatedDomainBlock, signal);
 				
-				// Put
+				// Put, replacing the current contents of the range block
 				int rangeBlockIndex = transform.getRangeBlockIndex();
+				SparseRealMatrix F_J = partitioner.getRangeFetchOperator(rangeBlockIndex);
 				SparseRealMatrix P_J = partitioner.getPutOperator(rangeBlockIndex);
-				x_n = x_n.add(P_J.multiply(decimatedDomainBlock));
+				x_n = x_n.add(P_J.multiply(decimatedDomainBlock.subtract(F_J.multiply(x_n))));
 			}
 
 			x = x_n;
@@ -229,91 +714,109 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 	}
 
 	public Signal decodeOptimized(Fractal fractal, int scale, int numberOfIterations, FractalDecoderVisitor visitor) {
-		PartitioningStrategy partitioner = partitioningStrategyFactory.getPartitioner(fractal.getSignal(), scale);
+		Signal signal = fractal.getDescriptor().createSignal();
+		PartitioningStrategy partitioner = partitioningStrategyFactory.getPartitioner(signal, scale);
 		int scaledSignalDimension = partitioner.getScaledSignalDimension();
 
-		logger.info("Allocating memory for two column vectors of dimension {} (total of {}) and associated operators.",
-						scaledSignalDimension, humanReadableByteCount(2*(long)scaledSignalDimension*8, true));
-
-		Array2DColumnRealMatrix domain = new Array2DColumnRealMatrix(partitioner.getDomainDimension(), 1);
-		double domainRef[][] = domain.getDataRef();
+		int numVectors = inPlaceDecode ? 1 : 2;
+		logger.info("Allocating memory for {} column vector(s) of dimension {} (total of {}) and associated operators.",
+						numVectors, scaledSignalDimension,
+						humanReadableByteCount(numVectors*(long)scaledSignalDimension*precision.getBytesPerSample(), true));
 
-		Array2DColumnRealMatrix x = new Array2DColumnRealMatrix(scaledSignalDimension, 1);
-		double xRef[][] = x.getDataRef();
+		SampleVector x = precision.createVector(scaledSignalDimension, signal.getMinVal(), signal.getMaxVal());
+		RealMatrix xMatrix = x.toRealMatrix();
 
-		Array2DColumnRealMatrix x_n = new Array2DColumnRealMatrix(scaledSignalDimension, 1);
-		double xnRef[][] = x_n.getDataRef();
+		// When decoding in place, the transforms read from and write to the same vector
+		SampleVector x_n = inPlaceDecode ? x : x.create(scaledSignalDimension);
+		RealMatrix xnMatrix = inPlaceDecode ? xMatrix : x_n.toRealMatrix();
 
-		int domainIndices[] = new int[partitioner.getDomainDimension()];
-		int rangeIndices[] = new int[partitioner.getRangeDimension()];
-
-		DecimationStrategy decimator = getDecimator(partitioner);
-		final int decimationRatio = decimator.getDecimationRatio();
-		int decimationIndices[][] = decimator.getIndices();
+		if (decodeFromDC) {
+			setDCValues(fractal, signal, numberOfIterations, partitioner, x);
+		}
+		double contractivity = getContractivity(fractal);
+
+		BlockDecoder blockDecoders[] = getBlockDecoders(partitioner);
+
+		List<Transform> transforms = fractal.getTransforms();
+		int numTransforms = transforms.size();
+
+		List<DecodeWorker> workers = null;
+		Map<Transform, boolean[]> shadowedEntries = null;
+		if (inPlaceDecode) {
+			transforms = getInPlaceOrder(fractal, signal, partitioner);
+			shadowedEntries = getShadowedEntries(fractal, partitioner);
+		} else if (parallelDecode && getParallelism() > 1 && visitor.getClass() == DummyFractalDecoderVisitor.class
+				&& partitioner.hasDisjointRangeBlocks()) {
+			workers = getDecodeWorkers(fractal, partitioner, signal);
+			logger.info("Applying the transforms in {} tasks per iteration.", workers.size());
+		}
 
-		Array2DColumnRealMatrix decimatedDomain = new Array2DColumnRealMatrix(partitioner.getRangeDimension(), 1);
-		double decimatedDomainRef[][] = decimatedDomain.getDataRef();
-
-		int numTransforms = fractal.getTransforms().size();
-		Signal signal = fractal.getSignal();
+		// The blocks of float and fixed-point vectors are converted to doubles when they're visited,
+		// which the default visitor doesn't need
+		boolean visitTransforms = visitor.getClass() != DummyFractalDecoderVisitor.class;
 
 		logger.info("Done allocating memory.");
 		
 		visitor.beforeDecode();
 
 		for (int n = 1; n <= numberOfIterations; n++) {
-			visitor.beforeIteration(n, x, x_n);
+			visitor.beforeIteration(n, xMatrix, xnMatrix);
 			logger.info("Decoding: Iteration {} of {}", n, numberOfIterations);
 
-			logger.trace("Resetting vector to 0.");
-			for (int i = 0; i < scaledSignalDimension; i++) {
-				xnRef[0][i] = 0;
-			}
-
-			int k = 1;
-			for (Transform transform : fractal.getTransforms()) {
-				if (logger.isDebugEnabled()) {
-					String percentageComplete = String.format("%.2f%%", ((float)k/numTransforms) * 100);
-					logger.debug("Applying transform {}/{} ({}): {}", ++k, numTransforms,
-							percentageComplete, transform);
+			if (inPlaceDecode) {
+				for (BlockDecoder blockDecoder : blockDecoders) {
+					blockDecoder.resetMaxChange();
 				}
+			} else {
+				logger.trace("Resetting vector to 0.");
+				x_n.fill(0);
+			}
 
-				logger.trace("Fetching");
-				partitioner.getDomainIndices(transform.getDomainBlockIndex(), domainIndices);
-				for (int i = 0; i < domainIndices.length; i++) {
-					domainRef[0][i] = xRef[0][domainIndices[i]];
+			if (workers != null) {
+				// The range blocks are disjoint, so the tasks can write to x_n concurrently.
+				// Overlapping blocks are always written in order, by the serial loop
+				for (DecodeWorker worker : workers) {
+					worker.setVectors(x, x_n);
 				}
-
-				logger.trace("Decimating");
-				for (int i = 0; i < decimationIndices.length; i++) {
-					decimatedDomainRef[0][i] = 0;
-					for (int j = 0; j < decimationIndices[i].length; j++) {
-						decimatedDomainRef[0][i] += domainRef[0][decimationIndices[i][j]];
+				invokeAll(workers);
+			} else {
+				int k = 1;
+				for (Transform transform : transforms) {
+					if (logger.isDebugEnabled()) {
+						String percentageComplete = String.format("%.2f%%", ((float)k/numTransforms) * 100);
+						logger.debug("Applying transform {}/{} ({}): {}", ++k, numTransforms,
+								percentageComplete, transform);
 					}
-					decimatedDomainRef[0][i] *= 1.0f/decimationRatio;
-				}
 
-				logger.trace("Transforming");
-				transform.apply(decimatedDomain, signal);
+					BlockDecoder blockDecoder = blockDecoders[getBlockDecoderIndex(partitioner, transform)];
+					boolean shadowed[] = shadowedEntries != null ? shadowedEntries.get(transform) : null;
+					blockDecoder.apply(transform, partitioner, x, x_n, signal, shadowed);
 
-				logger.trace("Putting");
-				int rangeBlockIndex = transform.getRangeBlockIndex();
-				partitioner.getRangeIndices(rangeBlockIndex, rangeIndices);
-				for (int i = 0; i < rangeIndices.length; i++) {
-					x_n.addToEntry(rangeIndices[i], 0, decimatedDomainRef[0][i]);
+					if (visitTransforms) {
+						visitor.afterTransform(n, transform, xMatrix, blockDecoder.getDomain(),
+								blockDecoder.getTransformedDomain(), xnMatrix);
+					}
 				}
-
-				visitor.afterTransform(n, transform, x, domain, decimatedDomain, x_n);
 			}
-			visitor.afterIteration(n, x, x_n);
+			visitor.afterIteration(n, xMatrix, xnMatrix);
 			
 			// Swap x and x_n
-			Array2DColumnRealMatrix tmp = x;
+			SampleVector tmp = x;
 			x = x_n;
 			x_n = tmp;
 
-			xRef = x.getDataRef();
-			xnRef = x_n.getDataRef();
+			RealMatrix tmpMatrix = xMatrix;
+			xMatrix = xnMatrix;
+			xnMatrix = tmpMatrix;
+
+			if (decodeTolerance > 0 && n < numberOfIterations) {
+				double change = inPlaceDecode ? getMaxChange(blockDecoders) : x.getMaxDistance(x_n);
+				double errorBound = getErrorBound(change, contractivity);
+				if (errorBound <= decodeTolerance) {
+					logger.info("Decoding: Converged after {} iterations, to within {}.", n, errorBound);
+					break;
+				}
+			}
 		}
 		
 		visitor.afterDecode();
@@ -321,6 +824,294 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 		return fractal.getSignalFromDecodedVector(x, scale);
 	}
 
+	/**
+	 * Fills the range blocks of x with their means at the attractor, which gives the decoder a low
+	 * resolution version of the attractor to start from. The mean of a range block is its transform
+	 * applied to the mean of its domain block, which is in turn the mean of the range blocks that the
+	 * domain block overlaps, so the means are found by iterating the transforms on one value per range
+	 * block. Since the means don't depend on the scale, this is done with the unscaled partitioner.
+	 */
+	private void setDCValues(Fractal fractal, Signal signal, int numberOfIterations, PartitioningStrategy partitioner,
+			SampleVector x) {
+		// The transforms are held in a linked list, so they're copied to an array to be indexed
+		Transform transforms[] = fractal.getTransforms().toArray(new Transform[0]);
+		int numTransforms = transforms.length;
+		int domainTransforms[][] = getDomainTransforms(transforms, signal, partitioner);
+
+		// Iterate on the means, samples that aren't covered by a range block stay at zero
+		double means[] = new double[numTransforms];
+		double nextMeans[] = new double[numTransforms];
+		for (int n = 1; n <= numberOfIterations; n++) {
+			for (int k = 0; k < numTransforms; k++) {
+				double domainMean = 0;
+				if (domainTransforms[k] != null) {
+					for (int owner : domainTransforms[k]) {
+						domainMean += owner < 0 ? 0 : means[owner];
+					}
+					domainMean /= domainTransforms[k].length;
+				}
+				nextMeans[k] = transforms[k].applyToConstant(domainMean, signal);
+			}
+
+			double tmp[] = means;
+			means = nextMeans;
+			nextMeans = tmp;
+		}
+
+		for (int k = 0; k < numTransforms; k++) {
+			for (int index : partitioner.getRangeIndices(transforms[k].getRangeBlockIndex())) {
+				x.set(index, means[k]);
+			}
+		}
+	}
+
+	/**
+	 * Maps the samples of the domain block of each transform to the transforms whose range blocks cover
+	 * them, or to -1 for samples that aren't covered. Since the blocks cover the same samples at every
+	 * scale, this is done with the unscaled partitioner. Constant transforms have no domain block, and
+	 * are mapped to null.
+	 */
+	private int[][] getDomainTransforms(Transform transforms[], Signal signal, PartitioningStrategy partitioner) {
+		int numTransforms = transforms.length;
+		PartitioningStrategy unscaledPartitioner = partitioner.getScale() == 1 ? partitioner
+				: partitioningStrategyFactory.getPartitioner(signal, 1);
+
+		// Find the transform whose range block covers each sample, if any
+		int rangeTransforms[] = new int[unscaledPartitioner.getScaledSignalDimension()];
+		Arrays.fill(rangeTransforms, -1);
+		for (int k = 0; k < numTransforms; k++) {
+			for (int index : unscaledPartitioner.getRangeIndices(transforms[k].getRangeBlockIndex())) {
+				rangeTransforms[index] = k;
+			}
+		}
+
+		int domainTransforms[][] = new int[numTransforms][];
+		for (int k = 0; k < numTransforms; k++) {
+			Transform transform = transforms[k];
+			if (transform instanceof ConstantTransform) {
+				continue;
+			}
+
+			int domainIndices[] = unscaledPartitioner.getDomainIndices(transform.getDomainBlockIndex());
+			domainTransforms[k] = new int[domainIndices.length];
+			for (int i = 0; i < domainIndices.length; i++) {
+				domainTransforms[k][i] = rangeTransforms[domainIndices[i]];
+			}
+		}
+		return domainTransforms;
+	}
+
+	/**
+	 * Orders the transforms for decoding in place, so that each transform is applied after the transforms
+	 * whose range blocks its domain block overlaps, and reads the values they wrote in the same iteration.
+	 * The dependencies are sorted topologically with a depth-first search. They usually contain cycles,
+	 * which are broken by ignoring the dependency that closes each cycle.
+	 */
+	private List<Transform> getInPlaceOrder(Fractal fractal, Signal signal, PartitioningStrategy partitioner) {
+		Transform transforms[] = fractal.getTransforms().toArray(new Transform[0]);
+		int numTransforms = transforms.length;
+		int domainTransforms[][] = getDomainTransforms(transforms, signal, partitioner);
+
+		final int UNVISITED = 0, VISITING = 1, VISITED = 2;
+		int states[] = new int[numTransforms];
+		int stack[] = new int[numTransforms];
+		int positions[] = new int[numTransforms];
+
+		List<Transform> order = new ArrayList<Transform>(numTransforms);
+		for (int root = 0; root < numTransforms; root++) {
+			if (states[root] != UNVISITED) {
+				continue;
+			}
+
+			int depth = 0;
+			stack[depth] = root;
+			positions[depth++] = 0;
+			states[root] = VISITING;
+			while (depth > 0) {
+				int k = stack[depth - 1];
+				int dependencies[] = domainTransforms[k];
+				if (dependencies != null && positions[depth - 1] < dependencies.length) {
+					int dependency = dependencies[positions[depth - 1]++];
+					if (dependency >= 0 && states[dependency] == UNVISITED) {
+						stack[depth] = dependency;
+						positions[depth++] = 0;
+						states[dependency] = VISITING;
+					}
+				} else {
+					// All of the dependencies that don't close a cycle have been ordered
+					states[k] = VISITED;
+					order.add(transforms[k]);
+					depth--;
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Flags the entries of each range block that a later range block overwrites. The overlapping entries
+	 * are taken from the last block, so when decoding in place, where the transforms aren't applied in
+	 * order, the earlier blocks must leave them as they are. Only the transforms whose range blocks are
+	 * partly overwritten are mapped.
+	 */
+	private static Map<Transform, boolean[]> getShadowedEntries(Fractal fractal, PartitioningStrategy partitioner) {
+		Map<Transform, boolean[]> shadowedEntries = new IdentityHashMap<Transform, boolean[]>();
+		if (partitioner.hasDisjointRangeBlocks()) {
+			return shadowedEntries;
+		}
+
+		// Visit the range blocks from last to first, keeping track of the entries written so far
+		List<Transform> transforms = fractal.getTransforms();
+		BitSet written = new BitSet(partitioner.getScaledSignalDimension());
+		ListIterator<Transform> it = transforms.listIterator(transforms.size());
+		while (it.hasPrevious()) {
+			Transform transform = it.previous();
+			int rangeIndices[] = partitioner.getRangeIndices(transform.getRangeBlockIndex());
+			boolean shadowed[] = null;
+			for (int i = 0; i < rangeIndices.length; i++) {
+				if (written.get(rangeIndices[i])) {
+					if (shadowed == null) {
+						shadowed = new boolean[rangeIndices.length];
+					}
+					shadowed[i] = true;
+				}
+				written.set(rangeIndices[i]);
+			}
+			if (shadowed != null) {
+				shadowedEntries.put(transform, shadowed);
+			}
+		}
+		return shadowedEntries;
+	}
+
+	private static double getMaxChange(BlockDecoder blockDecoders[]) {
+		double maxChange = 0;
+		for (BlockDecoder blockDecoder : blockDecoders) {
+			maxChange = Math.max(maxChange, blockDecoder.getMaxChange());
+		}
+		return maxChange;
+	}
+
+	private static double getContractivity(Fractal fractal) {
+		double contractivity = 0;
+		for (Transform transform : fractal.getTransforms()) {
+			contractivity = Math.max(contractivity, transform.getContractivity());
+		}
+		return contractivity;
+	}
+
+	/**
+	 * Bounds the largest difference between the iterate and the attractor, given the largest change made
+	 * to a sample by the last iteration. When the transforms are contractive, with factor c < 1, the fetches
+	 * and decimations don't increase the largest difference between two vectors, so the attractor is within
+	 * c / (1 - c) times the change. This holds for in place iterations as well, which are contractive with
+	 * the same factor. Otherwise the change is used as an estimate.
+	 */
+	private static double getErrorBound(double change, double contractivity) {
+		if (contractivity < 1) {
+			return change * contractivity / (1 - contractivity);
+		}
+		return change;
+	}
+
+	/**
+	 * Splits the transforms into batches of neighbouring range blocks, which are applied by
+	 * separate tasks. Each thread gets its own block decoders, since they hold the buffers.
+	 */
+	private List<DecodeWorker> getDecodeWorkers(Fractal fractal, final PartitioningStrategy partitioner,
+			Signal signal) {
+		List<Transform> transforms = new ArrayList<Transform>(fractal.getTransforms());
+		Collections.sort(transforms, new Comparator<Transform>() {
+			@Override
+			public int compare(Transform t1, Transform t2) {
+				return Integer.compare(t1.getRangeBlockIndex(), t2.getRangeBlockIndex());
+			}
+		});
+
+		ThreadLocal<BlockDecoder[]> blockDecoders = new ThreadLocal<BlockDecoder[]>() {
+			@Override
+			protected BlockDecoder[] initialValue() {
+				return getBlockDecoders(partitioner);
+			}
+		};
+
+		int numTransforms = transforms.size();
+		int size = batchSize > 0 ? batchSize : Math.max(numTransforms / (getParallelism() * TASKS_PER_THREAD), 1);
+		List<DecodeWorker> workers = new ArrayList<DecodeWorker>();
+		for (int from = 0; from < numTransforms; from += size) {
+			workers.add(new DecodeWorker(transforms.subList(from, Math.min(from + size, numTransforms)),
+					partitioner, signal, blockDecoders));
+		}
+		return workers;
+	}
+
+	private <T> void invokeAll(List<? extends Callable<T>> tasks) {
+		List<Future<T>> futures;
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		for (Future<T> future : futures) {
+			getResult(future);
+		}
+	}
+
+	/**
+	 * Applies a batch of transforms, reading from x and writing to x_n.
+	 */
+	private class DecodeWorker implements Callable<Void> {
+		private final List<Transform> transforms;
+		private final PartitioningStrategy partitioner;
+		private final Signal signal;
+		private final ThreadLocal<BlockDecoder[]> blockDecoders;
+		private SampleVector x;
+		private SampleVector x_n;
+
+		public DecodeWorker(List<Transform> transforms, PartitioningStrategy partitioner, Signal signal,
+				ThreadLocal<BlockDecoder[]> blockDecoders) {
+			this.transforms = transforms;
+			this.partitioner = partitioner;
+			this.signal = signal;
+			this.blockDecoders = blockDecoders;
+		}
+
+		/**
+		 * Sets the vectors used by the next call, this must be called before the worker is submitted.
+		 */
+		public void setVectors(SampleVector x, SampleVector x_n) {
+			this.x = x;
+			this.x_n = x_n;
+		}
+
+		@Override
+		public Void call() {
+			BlockDecoder decoders[] = blockDecoders.get();
+			for (Transform transform : transforms) {
+				decoders[getBlockDecoderIndex(partitioner, transform)].apply(transform, partitioner, x, x_n, signal);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Allocates the buffers used to decode the range blocks of the given partitioner.
+	 */
+	protected BlockDecoder[] getBlockDecoders(PartitioningStrategy partitioner) {
+		return new BlockDecoder[] {
+			new BlockDecoder(partitioner.getDomainDimension(), partitioner.getRangeDimension(),
+					getDecimator(partitioner))
+		};
+	}
+
+	/**
+	 * Returns the index of the block decoder used to apply the given transform.
+	 */
+	protected int getBlockDecoderIndex(PartitioningStrategy partitioner, Transform transform) {
+		return 0;
+	}
+
 	public DecimationStrategy getDecimator(PartitioningStrategy partitioner) {
 		return decimationStrategyFactory.getDecimator(partitioner.getRangeDimension(),
 				partitioner.getDomainDimension());
@@ -354,6 +1145,106 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 		return decimationStrategyFactory;
 	}
 
+	public void setDomainSearchStrategyFactory(DomainSearchStrategyFactory domainSearchStrategyFactory) {
+		this.domainSearchStrategyFactory = domainSearchStrategyFactory;
+	}
+
+	public DomainSearchStrategyFactory getDomainSearchStrategyFactory() {
+		return domainSearchStrategyFactory;
+	}
+
+	/**
+	 * Executor used to encode the range blocks, and to apply the transforms when decoding,
+	 * this may be shared with other codecs.
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Number of range blocks encoded or decoded by each task, or 0 to pick a size based on the
+	 * number of range blocks and the executor's parallelism.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Computes the inner products between each range block and all of the domain blocks with FFTs,
+	 * instead of one domain block at a time. This requires a correlating kernel, and a linear, square
+	 * or planar partitioner, otherwise the domain blocks are compared one at a time.
+	 */
+	public void setCrossCorrelate(boolean crossCorrelate) {
+		this.crossCorrelate = crossCorrelate;
+	}
+
+	public boolean getCrossCorrelate() {
+		return crossCorrelate;
+	}
+
+	/**
+	 * Range blocks whose deviations from their mean have a norm <= flatThreshold are encoded
+	 * with a constant transform, without searching the domain pool. A negative value disables this.
+	 */
+	public void setFlatThreshold(double flatThreshold) {
+		this.flatThreshold = flatThreshold;
+	}
+
+	public double getFlatThreshold() {
+		return flatThreshold;
+	}
+
+	/**
+	 * Only compares each range block with the domain blocks that are at most searchRadius positions
+	 * away from it along each axis of the partitioner's domain lattice, starting with the closest ones.
+	 * The whole signal is searched when this is 0.
+	 */
+	public void setSearchRadius(int searchRadius) {
+		Assert.isTrue(searchRadius >= 0, "Search radius must be non-negative.");
+		this.searchRadius = searchRadius;
+	}
+
+	public int getSearchRadius() {
+		return searchRadius;
+	}
+
+	/**
+	 * Fraction of the domain blocks that are kept in the pool when encoding, after dropping
+	 * duplicate and flat blocks and then the blocks with the least variance. The pool is
+	 * left as is when this is 1. Cross-correlation needs the full pool.
+	 */
+	public void setDomainPoolFraction(double domainPoolFraction) {
+		Assert.isTrue(domainPoolFraction > 0 && domainPoolFraction <= 1, "Fraction must be in (0, 1].");
+		this.domainPoolFraction = domainPoolFraction;
+	}
+
+	public double getDomainPoolFraction() {
+		return domainPoolFraction;
+	}
+
+	/**
+	 * Sorts the domain pool by decreasing variance before searching it. The exhaustive search can then
+	 * stop at the first domain block whose lower bound can't improve on the best match, instead of
+	 * checking the bounds of all of the remaining blocks. The best distances are the same as with the
+	 * unsorted pool, but the search may settle on a different block when several of them are equally
+	 * good, or within the kernel's threshold. Cross-correlation needs the unsorted pool.
+	 */
+	public void setSortDomainPool(boolean sortDomainPool) {
+		this.sortDomainPool = sortDomainPool;
+	}
+
+	public boolean getSortDomainPool() {
+		return sortDomainPool;
+	}
+
 	public void setName(String name) {
 		this.name = name;
 	}
@@ -378,6 +1269,73 @@ public class FractalCodec implements FractalEncoder, FractalDecoder {
 		return optimized;
 	}
 
+	/**
+	 * Stops the optimized decoder before decodeIterations once the iterate is estimated to be within
+	 * this distance of the attractor, in every sample. 0 always runs all of the iterations.
+	 */
+	public void setDecodeTolerance(double decodeTolerance) {
+		Assert.isTrue(decodeTolerance >= 0, "Tolerance must be non-negative.");
+		this.decodeTolerance = decodeTolerance;
+	}
+
+	public double getDecodeTolerance() {
+		return decodeTolerance;
+	}
+
+	/**
+	 * Starts the optimized decoder from the means of the range blocks at the attractor, instead
+	 * of zeros, so that fewer iterations are needed to reach it.
+	 */
+	public void setDecodeFromDC(boolean decodeFromDC) {
+		this.decodeFromDC = decodeFromDC;
+	}
+
+	public boolean getDecodeFromDC() {
+		return decodeFromDC;
+	}
+
+	/**
+	 * Decodes with a single vector, in the manner of Gauss-Seidel, instead of computing each iterate
+	 * from the previous one in a second vector. This halves the memory used by the optimized decoder,
+	 * and since the transforms are ordered so that they read the values written before them in the
+	 * same iteration, fewer iterations are usually needed. The transforms are applied serially.
+	 */
+	public void setInPlaceDecode(boolean inPlaceDecode) {
+		this.inPlaceDecode = inPlaceDecode;
+	}
+
+	public boolean getInPlaceDecode() {
+		return inPlaceDecode;
+	}
+
+	/**
+	 * Applies the transforms of each iteration in parallel on the executor when decoding with the
+	 * optimized decoder. Visitors are notified after every transform, so the transforms are applied
+	 * one at a time whenever the decoder is given a visitor other than the DummyFractalDecoderVisitor.
+	 */
+	public void setParallelDecode(boolean parallelDecode) {
+		this.parallelDecode = parallelDecode;
+	}
+
+	public boolean getParallelDecode() {
+		return parallelDecode;
+	}
+
+	/**
+	 * Precision of the vectors and of the block arithmetic used by the optimized decoder,
+	 * and of the domain blocks and the inner products scored by the encoder. FLOAT and FIXED
+	 * halve and quarter the memory traffic of the decoder, at the cost of rounding the signal
+	 * after every iteration.
+	 */
+	public void setPrecision(Precision precision) {
+		Assert.notNull(precision, "Precision must not be null.");
+		this.precision = precision;
+	}
+
+	public Precision getPrecision() {
+		return precision;
+	}
+
 	public String toString() {
 	    return Objects.toStringHelper(this.getClass())
 	    		.add("name", getName())
@@ -3,6 +3,23 @@ package math.nyx.framework;
 import math.nyx.core.Transform;
 
 public interface Kernel {
-	public Transform encode(SignalBlock domainBlock, SignalBlock rangeBlock);
+	/**
+	 * Finds the best transform from the domain block stored at the given index
+	 * in the pool to the range block.
+	 */
+	public Transform encode(DomainPool domainPool, int index, SignalBlock rangeBlock);
+
+	/**
+	 * Returns the distance of the transform that would be returned by
+	 * encode(domainPool, index, rangeBlock) without building the transform.
+	 */
+	public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock);
+
+	/**
+	 * Returns a lower bound on getDistance(domainPool, index, rangeBlock) computed from
+	 * the sums of the blocks alone, or 0 when no bound is known.
+	 */
+	public double getLowerBound(DomainPool domainPool, int index, SignalBlock rangeBlock);
+
 	public double getThreshold();
 }
@@ -0,0 +1,172 @@
+package math.nyx.framework;
+
+import org.springframework.util.Assert;
+
+import com.google.common.base.Objects;
+
+/**
+ * Positions of a partitioner's range blocks relative to its domain lattice, which is all that
+ * is needed to code the domain block indices relative to the range blocks.
+ *
+ * The range blocks of each plane are laid out on a grid of numRangeRows x numRangeColumns blocks
+ * that are rangeWidth (unscaled) rows and columns wide, and numbered like the domain blocks. When the
+ * plane's height or width isn't a multiple of the range width, the last row or column of blocks is
+ * shifted inwards so that it ends on the edge of the plane. The domain blocks start every domainStride
+ * rows and columns of their plane. Signals that aren't split into planes have a single plane, and
+ * one-dimensional signals have a single row.
+ *
+ * The geometry doesn't depend on the scale, so it is stored with the fractals, which can then
+ * decode their relative indices without knowing how their codec was configured.
+ *
+ * @author jwhite
+ */
+public class LatticeGeometry {
+	private final DomainLattice domainLattice;
+	private final int numRangeRows;
+	private final int numRangeColumns;
+	private final int rangeWidth;
+	private final int planeHeight;
+	private final int planeWidth;
+	private final int domainStride;
+
+	public LatticeGeometry(DomainLattice domainLattice, int numRangeRows, int numRangeColumns, int rangeWidth,
+			int planeHeight, int planeWidth, int domainStride) {
+		Assert.isTrue(numRangeRows > 0 && numRangeColumns > 0, "Grid must have at least one range block.");
+		Assert.isTrue(rangeWidth > 0 && domainStride > 0, "Range width and domain stride must be positive.");
+		Assert.isTrue(planeHeight >= rangeWidth && planeWidth >= rangeWidth, "Range blocks must fit in the plane.");
+		this.domainLattice = domainLattice;
+		this.numRangeRows = numRangeRows;
+		this.numRangeColumns = numRangeColumns;
+		this.rangeWidth = rangeWidth;
+		this.planeHeight = planeHeight;
+		this.planeWidth = planeWidth;
+		this.domainStride = domainStride;
+	}
+
+	/**
+	 * Geometry of range blocks that tile their planes exactly.
+	 */
+	public LatticeGeometry(DomainLattice domainLattice, int numRangeRows, int numRangeColumns, int rangeWidth,
+			int domainStride) {
+		this(domainLattice, numRangeRows, numRangeColumns, rangeWidth, numRangeRows * rangeWidth,
+				numRangeColumns * rangeWidth, domainStride);
+	}
+
+	public DomainLattice getDomainLattice() {
+		return domainLattice;
+	}
+
+	public int getNumRangeRows() {
+		return numRangeRows;
+	}
+
+	public int getNumRangeColumns() {
+		return numRangeColumns;
+	}
+
+	public int getRangeWidth() {
+		return rangeWidth;
+	}
+
+	public int getPlaneHeight() {
+		return planeHeight;
+	}
+
+	public int getPlaneWidth() {
+		return planeWidth;
+	}
+
+	public int getDomainStride() {
+		return domainStride;
+	}
+
+	public int getNumRangeBlocks() {
+		return domainLattice.getNumPlanes() * numRangeRows * numRangeColumns;
+	}
+
+	/**
+	 * Returns the (unscaled) row of the plane that the range block starts on.
+	 */
+	public int getRangeRow(int rangeBlockIndex) {
+		int k = rangeBlockIndex % (numRangeRows * numRangeColumns);
+		return Math.min((k / numRangeColumns) * rangeWidth, planeHeight - rangeWidth);
+	}
+
+	/**
+	 * Returns the (unscaled) column of the plane that the range block starts on.
+	 */
+	public int getRangeColumn(int rangeBlockIndex) {
+		int k = rangeBlockIndex % (numRangeRows * numRangeColumns);
+		return Math.min((k % numRangeColumns) * rangeWidth, planeWidth - rangeWidth);
+	}
+
+	/**
+	 * Returns the domain block in the same plane that is centered on the range block, or the closest one to it.
+	 */
+	public int getNearestDomainBlockIndex(int rangeBlockIndex) {
+		Assert.isTrue(rangeBlockIndex >= 0 && rangeBlockIndex < getNumRangeBlocks(), "Range block is outside of the grid.");
+		int plane = rangeBlockIndex / (numRangeRows * numRangeColumns);
+		int row = DomainLattice.getNearestPosition(getRangeRow(rangeBlockIndex) - 0.5 * rangeWidth,
+				domainStride, domainLattice.getNumRows());
+		int column = DomainLattice.getNearestPosition(getRangeColumn(rangeBlockIndex) - 0.5 * rangeWidth,
+				domainStride, domainLattice.getNumColumns());
+		return domainLattice.getIndex(plane, row, column);
+	}
+
+	/**
+	 * Returns the domain blocks that are at most radius positions away from the
+	 * range block along each axis, nearest first.
+	 */
+	public int[] getDomainWindow(int rangeBlockIndex, int radius) {
+		return domainLattice.getWindow(getNearestDomainBlockIndex(rangeBlockIndex), radius);
+	}
+
+	/**
+	 * Codes the domain block's index relative to the range block's position.
+	 */
+	public int getRelativeDomainBlockIndex(int rangeBlockIndex, int domainBlockIndex) {
+		return domainLattice.getRelativeIndex(getNearestDomainBlockIndex(rangeBlockIndex), domainBlockIndex);
+	}
+
+	/**
+	 * Decodes an index returned by getRelativeDomainBlockIndex.
+	 */
+	public int getDomainBlockIndex(int rangeBlockIndex, int relativeDomainBlockIndex) {
+		return domainLattice.getIndexFromRelative(getNearestDomainBlockIndex(rangeBlockIndex),
+				relativeDomainBlockIndex);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(domainLattice, numRangeRows, numRangeColumns, rangeWidth,
+				planeHeight, planeWidth, domainStride);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (!(obj instanceof LatticeGeometry)) {
+			return false;
+		}
+
+		LatticeGeometry rhs = (LatticeGeometry)obj;
+		return domainLattice.equals(rhs.domainLattice) && numRangeRows == rhs.numRangeRows
+				&& numRangeColumns == rhs.numRangeColumns && rangeWidth == rhs.rangeWidth
+				&& planeHeight == rhs.planeHeight && planeWidth == rhs.planeWidth
+				&& domainStride == rhs.domainStride;
+	}
+
+	@Override
+	public String toString() {
+	    return Objects.toStringHelper(this.getClass())
+	            .add("domainLattice", domainLattice)
+	            .add("numRangeRows", numRangeRows)
+	            .add("numRangeColumns", numRangeColumns)
+	            .add("rangeWidth", rangeWidth)
+	            .add("planeHeight", planeHeight)
+	            .add("planeWidth", planeWidth)
+	            .add("domainStride", domainStride)
+	            .toString();
+	}
+}
@@ -34,4 +34,39 @@ public interface PartitioningStrategy {
 	public void getDomainIndices(int domainBlockIndex, int domainIndices[]);
 	
 	public void getRangeIndices(int rangeBlockIndex, int rangeIndices[]);
+
+	/**
+	 * Returns true if no two range blocks share an entry, in which case they can be
+	 * written in any order. Otherwise the overlapping entries are taken from the block
+	 * with the largest index, so the blocks must be written in order.
+	 */
+	public boolean hasDisjointRangeBlocks();
+
+	/**
+	 * Returns the positions of the domain blocks, or null if they aren't laid out on a lattice.
+	 */
+	public DomainLattice getDomainLattice();
+
+	/**
+	 * Returns the positions of the range blocks relative to the domain lattice,
+	 * or null if the domain blocks aren't laid out on a lattice.
+	 */
+	public LatticeGeometry getLatticeGeometry();
+
+	/**
+	 * Returns the domain blocks that are at most radius positions away from the
+	 * range block along each axis, nearest first.
+	 */
+	public int[] getDomainWindow(int rangeBlockIndex, int radius);
+
+	/**
+	 * Codes the domain block's index relative to the range block's position, so that
+	 * the nearby domain blocks get the smallest indices.
+	 */
+	public int getRelativeDomainBlockIndex(int rangeBlockIndex, int domainBlockIndex);
+
+	/**
+	 * Decodes an index returned by getRelativeDomainBlockIndex.
+	 */
+	public int getDomainBlockIndex(int rangeBlockIndex, int relativeDomainBlockIndex);
 }
@@ -0,0 +1,60 @@
+package math.nyx.framework;
+
+import math.nyx.core.DoubleSampleVector;
+import math.nyx.core.FixedPointSampleVector;
+import math.nyx.core.FloatSampleVector;
+import math.nyx.core.SampleVector;
+
+/**
+ * Precision of the arithmetic and of the vectors that the codecs iterate on when decoding,
+ * and of the decimated domain blocks and the inner products that they score the range blocks
+ * with when encoding.
+ *
+ * @author jwhite
+ */
+public enum Precision {
+	/**
+	 * 64-bit floating point numbers.
+	 */
+	DOUBLE(8) {
+		@Override
+		public SampleVector createVector(int size, double minVal, double maxVal) {
+			return new DoubleSampleVector(size);
+		}
+	},
+
+	/**
+	 * 32-bit floating point numbers.
+	 */
+	FLOAT(4) {
+		@Override
+		public SampleVector createVector(int size, double minVal, double maxVal) {
+			return new FloatSampleVector(size);
+		}
+	},
+
+	/**
+	 * 16-bit fixed point numbers spanning the signal's range, see FixedPointSampleVector.
+	 */
+	FIXED(2) {
+		@Override
+		public SampleVector createVector(int size, double minVal, double maxVal) {
+			return new FixedPointSampleVector(size, minVal, FixedPointSampleVector.getFractionBits(minVal, maxVal));
+		}
+	};
+
+	private final int bytesPerSample;
+
+	private Precision(int bytesPerSample) {
+		this.bytesPerSample = bytesPerSample;
+	}
+
+	public int getBytesPerSample() {
+		return bytesPerSample;
+	}
+
+	/**
+	 * Creates a vector of the given size holding samples in [minVal, maxVal] with this precision.
+	 */
+	public abstract SampleVector createVector(int size, double minVal, double maxVal);
+}
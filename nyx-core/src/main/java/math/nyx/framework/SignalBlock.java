@@ -1,12 +1,19 @@
 package math.nyx.framework;
 
+import org.apache.commons.math.linear.Array2DColumnRealMatrix;
 import org.apache.commons.math.linear.RealMatrix;
+import org.springframework.util.Assert;
+
+import math.nyx.core.DoubleSampleVector;
+import math.nyx.core.SampleVector;
 
 import com.google.common.base.Objects;
 
 public class SignalBlock {
 	private final int index;
 	private final RealMatrix block;
+	private final double data[];
+	private SampleVector samples;
 
 	private double minVal = Double.POSITIVE_INFINITY;
 	private double maxVal = Double.NEGATIVE_INFINITY;
@@ -15,10 +22,24 @@ public class SignalBlock {
 	private double sumOfPoints = Double.NEGATIVE_INFINITY;
 	private double sumOfAbsPoints = Double.NEGATIVE_INFINITY;
 	private double sumOfSquaredPoints = Double.NEGATIVE_INFINITY;
+	private double normOfDeviations = Double.NEGATIVE_INFINITY;
 
 	public SignalBlock(int index, RealMatrix block) {
 		this.index = index;
 		this.block = block;
+		this.data = block.getColumn(0);
+		this.samples = new DoubleSampleVector(data);
+		generateFacts();
+	}
+
+	/**
+	 * Wraps the given entries without copying them, the array must not be modified afterwards.
+	 */
+	public SignalBlock(int index, double data[]) {
+		this.index = index;
+		this.block = new Array2DColumnRealMatrix(new double[][] {data}, false);
+		this.data = data;
+		this.samples = new DoubleSampleVector(data);
 		generateFacts();
 	}
 
@@ -30,8 +51,35 @@ public class SignalBlock {
 		return block;
 	}
 
+	/**
+	 * Entries of the block as a primitive array, this array must not be modified.
+	 */
+	public double[] getData() {
+		return data;
+	}
+
+	/**
+	 * Entries of the block as a vector, which wraps the data unless they were rounded to a lower precision.
+	 */
+	public SampleVector getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Replaces the vector returned by getSamples with the entries of the block rounded to a lower
+	 * precision, which the kernels may compute with instead of the data.
+	 */
+	public void setSamples(SampleVector samples) {
+		Assert.isTrue(samples.size() == data.length, "Samples must have the same dimension as the block.");
+		this.samples = samples;
+	}
+
+	public int getDimension() {
+		return data.length;
+	}
+
 	private void generateFacts() {
-		double[] xis = block.getColumn(0);
+		double[] xis = data;
 		double sum = 0;
 		double sumOfAbs = 0;
 		double sumOfSquares = 0;
@@ -58,6 +106,14 @@ public class SignalBlock {
 		maxVal = max;
 		minAbsVal = minAbs;
 		maxAbsVal = maxAbs;
+
+		// Sum the deviations separately to avoid cancelling sumOfSquares - sum^2/n
+		double mean = xis.length > 0 ? sum / xis.length : 0;
+		double sumOfSquaredDeviations = 0;
+		for (double xi : xis) {
+			sumOfSquaredDeviations += (xi - mean) * (xi - mean);
+		}
+		normOfDeviations = Math.sqrt(sumOfSquaredDeviations);
 	}
 	
 	public double getSumOfPoints() {
@@ -72,6 +128,13 @@ public class SignalBlock {
 		return sumOfSquaredPoints;
 	}
 
+	/**
+	 * Euclidean norm of the deviations of the points from their mean.
+	 */
+	public double getNormOfDeviations() {
+		return normOfDeviations;
+	}
+
 	public double getMinVal() {
 		return minVal;
 	}
@@ -0,0 +1,339 @@
+package math.nyx.framework.correlation;
+
+import java.util.Arrays;
+
+import org.springframework.util.Assert;
+
+/**
+ * Computes the inner products between a block and every decimated domain block at once.
+ *
+ * The signal is made up of one or more planes of height x width entries, and the domain blocks
+ * start at every row and column of a plane. A domain block is decimated by averaging cells of
+ * rowRatio x columnRatio entries, so its entry (i, j) is the entry (r + rowRatio*i, c + columnRatio*j)
+ * of the averaged plane y, where (r, c) is the domain block's top left corner. The inner products
+ * with all of the domain blocks are then the cross-correlation of y with the block upsampled by the
+ * decimation ratios.
+ *
+ * Instead of upsampling the block, y is split by the parity of the rows and columns into
+ * sub-planes which are correlated with the block itself, which makes the transforms 4 times smaller.
+ * The two sub-planes that only differ by the parity of their columns are packed into the real and
+ * imaginary parts of a single complex plane, and long planes are cut into overlapping tiles, so that
+ * correlating a block only costs one small forward transform, and one inverse transform per tile.
+ * The transforms of the sub-planes are computed once, when the correlator is constructed.
+ *
+ * The domain blocks are numbered plane by plane, and row by row within each plane, which matches
+ * the numbering used by the linear, square and planar partitioners.
+ *
+ * @author jwhite
+ */
+public class CrossCorrelator {
+	private final int numPlanes;
+	private final int height;
+	private final int width;
+	private final int blockHeight;
+	private final int blockWidth;
+	private final int rowRatio;
+	private final int columnRatio = 2;
+	private final int numDomainRows;
+	private final int numDomainColumns;
+	private final int numOutputRows[];
+	private final int numOutputColumns[];
+
+	private final int fftRows;
+	private final int fftColumns;
+	private final int tileWidth;
+	private final int numTiles;
+	private final FFT horizontalFFT;
+	private final FFT verticalFFT;
+
+	// Transforms of the packed sub-planes, indexed by plane, row parity and tile
+	private final double spectraRe[][];
+	private final double spectraIm[][];
+
+	private final ThreadLocal<double[][]> buffers = new ThreadLocal<double[][]>() {
+		@Override
+		protected double[][] initialValue() {
+			return new double[10][fftRows * fftColumns];
+		}
+	};
+
+	/**
+	 * Correlator for a one-dimensional signal whose domain blocks are decimated by averaging pairs of samples.
+	 */
+	public static CrossCorrelator forLinearSignal(double x[], int rangeDimension) {
+		return new CrossCorrelator(x, 1, 1, x.length, 1, rangeDimension, 1);
+	}
+
+	/**
+	 * Correlator for planes whose square domain blocks are decimated by averaging 2x2 cells.
+	 */
+	public static CrossCorrelator forPlanes(double x[], int numPlanes, int height, int width, int rangeWidth) {
+		return new CrossCorrelator(x, numPlanes, height, width, rangeWidth, rangeWidth, 2);
+	}
+
+	private CrossCorrelator(double x[], int numPlanes, int height, int width,
+			int blockHeight, int blockWidth, int rowRatio) {
+		Assert.isTrue(numPlanes > 0 && x.length == numPlanes * height * width,
+				"Signal dimension must match the planes.");
+		Assert.isTrue(blockHeight > 0 && blockWidth > 0, "Block dimensions must be positive.");
+		this.numPlanes = numPlanes;
+		this.height = height;
+		this.width = width;
+		this.blockHeight = blockHeight;
+		this.blockWidth = blockWidth;
+		this.rowRatio = rowRatio;
+
+		numDomainRows = height - rowRatio*blockHeight + 1;
+		numDomainColumns = width - columnRatio*blockWidth + 1;
+		Assert.isTrue(numDomainRows > 0 && numDomainColumns > 0, "Planes must contain at least one domain block.");
+
+		// Number of domain blocks starting on the rows and columns of every parity
+		numOutputRows = new int[rowRatio];
+		for (int pr = 0; pr < rowRatio; pr++) {
+			numOutputRows[pr] = Math.max((numDomainRows - pr + rowRatio - 1) / rowRatio, 0);
+		}
+		numOutputColumns = new int[columnRatio];
+		for (int pc = 0; pc < columnRatio; pc++) {
+			numOutputColumns[pc] = Math.max((numDomainColumns - pc + columnRatio - 1) / columnRatio, 0);
+		}
+
+		// The transforms must be large enough to avoid wrapping around
+		fftRows = FFT.getSize(numOutputRows[0] + blockHeight - 1);
+		fftColumns = getFFTColumns(numOutputColumns[0], blockWidth, fftRows);
+		tileWidth = fftColumns - blockWidth + 1;
+		numTiles = (numOutputColumns[0] + tileWidth - 1) / tileWidth;
+		horizontalFFT = new FFT(fftColumns);
+		verticalFFT = new FFT(fftRows);
+
+		double scratch[][] = buffers.get();
+		spectraRe = new double[numPlanes * rowRatio * numTiles][];
+		spectraIm = new double[numPlanes * rowRatio * numTiles][];
+		for (int p = 0; p < numPlanes; p++) {
+			for (int pr = 0; pr < rowRatio; pr++) {
+				for (int t = 0; t < numTiles; t++) {
+					int s = getSpectrumIndex(p, pr, t);
+					spectraRe[s] = new double[fftRows * fftColumns];
+					spectraIm[s] = new double[fftRows * fftColumns];
+					fillTile(x, p, pr, t, spectraRe[s], spectraIm[s]);
+					transform(spectraRe[s], spectraIm[s], fftRows, scratch[0], scratch[1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks the width of the tiles that minimizes the cost of the inverse transforms.
+	 */
+	private static int getFFTColumns(int numOutputColumns, int blockWidth, int fftRows) {
+		int fullWidth = FFT.getSize(numOutputColumns + blockWidth - 1);
+		int bestWidth = fullWidth;
+		double bestCost = getCost(fftRows, fullWidth, 1);
+		for (int w = FFT.getSize(4 * blockWidth); w < fullWidth; w *= 2) {
+			int tiles = (numOutputColumns + (w - blockWidth)) / (w - blockWidth + 1);
+			double cost = getCost(fftRows, w, tiles);
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestWidth = w;
+			}
+		}
+		return bestWidth;
+	}
+
+	private static double getCost(int fftRows, int fftColumns, int numTiles) {
+		int numBits = Integer.numberOfTrailingZeros(fftRows) + Integer.numberOfTrailingZeros(fftColumns);
+		return (double)numTiles * fftRows * fftColumns * (numBits + 1);
+	}
+
+	private int getSpectrumIndex(int plane, int rowParity, int tile) {
+		return (plane * rowRatio + rowParity) * numTiles + tile;
+	}
+
+	/**
+	 * Stores the tile of the sub-planes with the given row parity in the real
+	 * (even columns) and imaginary (odd columns) parts.
+	 */
+	private void fillTile(double x[], int plane, int rowParity, int tile, double re[], double im[]) {
+		int planeOffset = plane * height * width;
+		double weight = 1.0 / (rowRatio * columnRatio);
+		for (int u = 0; u < fftRows; u++) {
+			int r = rowRatio*u + rowParity;
+			if (r > height - rowRatio) {
+				break;
+			}
+			for (int v = 0; v < fftColumns; v++) {
+				for (int pc = 0; pc < columnRatio; pc++) {
+					int c = columnRatio*(tile*tileWidth + v) + pc;
+					if (c > width - columnRatio) {
+						continue;
+					}
+
+					// Average the cell whose top left corner is at (r, c)
+					double sum = 0;
+					for (int a = 0; a < rowRatio; a++) {
+						for (int b = 0; b < columnRatio; b++) {
+							sum += x[planeOffset + (r + a)*width + c + b];
+						}
+					}
+					(pc == 0 ? re : im)[u*fftColumns + v] = sum * weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forward 2-D transform, where only the first numRows rows can be non-zero.
+	 */
+	private void transform(double re[], double im[], int numRows, double scratchRe[], double scratchIm[]) {
+		// Transform the rows, after transposing them so that their entries are transformed together
+		transposeRows(re, im, scratchRe, scratchIm, numRows);
+		horizontalFFT.transform(scratchRe, scratchIm, fftRows, numRows, false);
+		transposeColumns(scratchRe, scratchIm, re, im, numRows);
+
+		// Transform the columns
+		if (fftRows > 1) {
+			verticalFFT.transform(re, im, fftColumns, fftColumns, false);
+		}
+	}
+
+	/**
+	 * Inverse 2-D transform, where only the first numRows rows of the result are computed.
+	 * The result is stored transposed in the scratch arrays, with entry (u, v) at v*fftRows + u.
+	 */
+	private void inverseTransform(double re[], double im[], int numRows, double scratchRe[], double scratchIm[]) {
+		if (fftRows > 1) {
+			verticalFFT.transform(re, im, fftColumns, fftColumns, true);
+		}
+		transposeRows(re, im, scratchRe, scratchIm, numRows);
+		horizontalFFT.transform(scratchRe, scratchIm, fftRows, numRows, true);
+	}
+
+	/**
+	 * Copies the entries (u, v) of the first numRows rows of the matrix
+	 * to the entries v*fftRows + u of the target arrays.
+	 */
+	private void transposeRows(double re[], double im[], double targetRe[], double targetIm[], int numRows) {
+		for (int u = 0; u < numRows; u++) {
+			int e = u*fftColumns;
+			for (int v = 0; v < fftColumns; v++, e++) {
+				targetRe[v*fftRows + u] = re[e];
+				targetIm[v*fftRows + u] = im[e];
+			}
+		}
+	}
+
+	/**
+	 * Inverse of transposeRows.
+	 */
+	private void transposeColumns(double sourceRe[], double sourceIm[], double re[], double im[], int numRows) {
+		for (int u = 0; u < numRows; u++) {
+			int e = u*fftColumns;
+			for (int v = 0; v < fftColumns; v++, e++) {
+				re[e] = sourceRe[v*fftRows + u];
+				im[e] = sourceIm[v*fftRows + u];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of domain blocks, which is the length of the arrays filled by correlate.
+	 */
+	public int getNumDomainBlocks() {
+		return numPlanes * numDomainRows * numDomainColumns;
+	}
+
+	/**
+	 * For every permutation k and domain block i, computes
+	 * products[k][i] = sum_m domain_i[permutations[k][m]] * block[m],
+	 * where domain_i is the decimated domain block, stored in row-major order.
+	 */
+	public void correlate(double block[], int permutations[][], double products[][]) {
+		Assert.isTrue(block.length == blockHeight * blockWidth, "Block must have the same dimension as the range blocks.");
+		Assert.isTrue(products.length >= permutations.length, "There must be one array of products per permutation.");
+
+		double b[][] = buffers.get();
+		double packedRe[] = b[0];
+		double packedIm[] = b[1];
+		double kernelRe[][] = new double[][] {b[2], b[4]};
+		double kernelIm[][] = new double[][] {b[3], b[5]};
+
+		for (int k = 0; k < permutations.length; k += 2) {
+			// Permute the block by the inverse permutations, so that we can correlate them with the domain.
+			// Since the blocks are real, we can transform two of them at once.
+			int numKernels = Math.min(permutations.length - k, 2);
+			Arrays.fill(packedRe, 0);
+			Arrays.fill(packedIm, 0);
+			for (int n = 0; n < numKernels; n++) {
+				double kernel[] = n == 0 ? packedRe : packedIm;
+				int permutation[] = permutations[k + n];
+				for (int m = 0; m < block.length; m++) {
+					int j = permutation[m];
+					kernel[(j / blockWidth)*fftColumns + (j % blockWidth)] = block[m];
+				}
+			}
+			transform(packedRe, packedIm, blockHeight, b[8], b[9]);
+			separate(packedRe, packedIm, kernelRe, kernelIm);
+
+			for (int n = 0; n < numKernels; n++) {
+				Assert.isTrue(products[k + n].length == getNumDomainBlocks(),
+						"There must be one product per domain block.");
+				correlate(kernelRe[n], kernelIm[n], products[k + n], b[6], b[7], b[8], b[9]);
+			}
+		}
+	}
+
+	/**
+	 * Splits the transform of x + iy, where x and y are real, into the transforms of x and y.
+	 */
+	private void separate(double re[], double im[], double kernelRe[][], double kernelIm[][]) {
+		for (int k = 0; k < fftRows; k++) {
+			int mirroredRow = ((fftRows - k) & (fftRows - 1)) * fftColumns;
+			for (int l = 0; l < fftColumns; l++) {
+				int e = k*fftColumns + l;
+				int m = mirroredRow + ((fftColumns - l) & (fftColumns - 1));
+				kernelRe[0][e] = (re[e] + re[m]) / 2;
+				kernelIm[0][e] = (im[e] - im[m]) / 2;
+				kernelRe[1][e] = (im[e] + im[m]) / 2;
+				kernelIm[1][e] = (re[m] - re[e]) / 2;
+			}
+		}
+	}
+
+	/**
+	 * Correlates the kernel, given by its transform, with all of the domain blocks.
+	 */
+	private void correlate(double kernelRe[], double kernelIm[], double output[],
+			double re[], double im[], double scratchRe[], double scratchIm[]) {
+		double norm = 1.0 / (fftRows * fftColumns);
+		int numDomainBlocksPerPlane = numDomainRows * numDomainColumns;
+		for (int p = 0; p < numPlanes; p++) {
+			for (int pr = 0; pr < rowRatio; pr++) {
+				int numRows = numOutputRows[pr];
+				for (int t = 0; t < numTiles; t++) {
+					// Multiply by the conjugate of the kernel's transform to correlate
+					int s = getSpectrumIndex(p, pr, t);
+					double zr[] = spectraRe[s];
+					double zi[] = spectraIm[s];
+					for (int e = 0; e < re.length; e++) {
+						re[e] = zr[e]*kernelRe[e] + zi[e]*kernelIm[e];
+						im[e] = zi[e]*kernelRe[e] - zr[e]*kernelIm[e];
+					}
+					inverseTransform(re, im, numRows, scratchRe, scratchIm);
+
+					// The real parts hold the domain blocks on even columns, and the imaginary parts the odd ones
+					int firstColumn = t*tileWidth;
+					int numEvenColumns = Math.min(tileWidth, numOutputColumns[0] - firstColumn);
+					int numOddColumns = Math.min(tileWidth, numOutputColumns[1] - firstColumn);
+					for (int u = 0; u < numRows; u++) {
+						int offset = p*numDomainBlocksPerPlane + (rowRatio*u + pr)*numDomainColumns + columnRatio*firstColumn;
+						for (int v = 0; v < numEvenColumns; v++) {
+							output[offset + columnRatio*v] = scratchRe[v*fftRows + u] * norm;
+						}
+						for (int v = 0; v < numOddColumns; v++) {
+							output[offset + columnRatio*v + 1] = scratchIm[v*fftRows + u] * norm;
+						}
+					}
+				}
+			}
+		}
+	}
+}
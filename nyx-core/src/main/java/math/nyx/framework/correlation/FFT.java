@@ -0,0 +1,94 @@
+package math.nyx.framework.correlation;
+
+import org.springframework.util.Assert;
+
+/**
+ * In-place radix-2 fast Fourier transform of complex vectors whose length is a power of two.
+ *
+ * The real and imaginary parts are stored in separate arrays. The vectors are the columns of
+ * a matrix whose rows are stored one after another, and all of the columns are transformed
+ * together, one row at a time, so that the inner loops run over contiguous entries.
+ * Neither direction is normalized.
+ *
+ * @author jwhite
+ */
+public class FFT {
+	private final int size;
+	private final int bitReversedIndices[];
+	private final double cos[];
+	private final double sin[];
+
+	public FFT(int size) {
+		Assert.isTrue(size > 0 && Integer.bitCount(size) == 1, "Size must be a power of two.");
+		this.size = size;
+
+		int numBits = Integer.numberOfTrailingZeros(size);
+		bitReversedIndices = new int[size];
+		for (int i = 0; i < size; i++) {
+			bitReversedIndices[i] = numBits == 0 ? 0 : Integer.reverse(i) >>> (32 - numBits);
+		}
+
+		cos = new double[size / 2];
+		sin = new double[size / 2];
+		for (int i = 0; i < size / 2; i++) {
+			cos[i] = Math.cos(2 * Math.PI * i / size);
+			sin[i] = Math.sin(2 * Math.PI * i / size);
+		}
+	}
+
+	/**
+	 * Returns the smallest power of two that is >= n.
+	 */
+	public static int getSize(int n) {
+		Assert.isTrue(n > 0 && n <= (1 << 30), "Length must be positive.");
+		return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Transforms the first numColumns columns of the size x rowLength matrix
+	 * stored in re and im. A single vector is a matrix with a row length of 1.
+	 */
+	public void transform(double re[], double im[], int rowLength, int numColumns, boolean inverse) {
+		Assert.isTrue(numColumns <= rowLength && re.length >= size * rowLength, "Matrix is too small.");
+
+		// Reorder the rows
+		for (int i = 0; i < size; i++) {
+			int j = bitReversedIndices[i];
+			if (i < j) {
+				int a = i*rowLength;
+				int b = j*rowLength;
+				for (int v = 0; v < numColumns; v++, a++, b++) {
+					double t = re[a]; re[a] = re[b]; re[b] = t;
+					t = im[a]; im[a] = im[b]; im[b] = t;
+				}
+			}
+		}
+
+		// Combine the transforms of the halves, doubling their length at every pass
+		double sign = inverse ? 1 : -1;
+		for (int length = 2; length <= size; length *= 2) {
+			int half = length / 2;
+			int step = size / length;
+			for (int start = 0; start < size; start += length) {
+				for (int k = 0; k < half; k++) {
+					double wr = cos[k*step];
+					double wi = sign * sin[k*step];
+					int a = (start + k)*rowLength;
+					int b = a + half*rowLength;
+					for (int v = 0; v < numColumns; v++, a++, b++) {
+						double xr = re[b]*wr - im[b]*wi;
+						double xi = re[b]*wi + im[b]*wr;
+						re[b] = re[a] - xr;
+						im[b] = im[a] - xi;
+						re[a] += xr;
+						im[a] += xi;
+					}
+				}
+			}
+		}
+	}
+}
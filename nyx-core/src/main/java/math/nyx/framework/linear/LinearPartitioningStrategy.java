@@ -2,6 +2,10 @@ package math.nyx.framework.linear;
 
 import math.nyx.core.Signal;
 import math.nyx.framework.AbstractPartitioningStrategy;
+import math.nyx.framework.DomainLattice;
+import math.nyx.framework.LatticeGeometry;
+
+import org.springframework.util.Assert;
 
 public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 	private final int scale;
@@ -9,9 +13,20 @@ public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 	private final int signalDimension;
 	private final int domainDimension;
 	private final int rangeDimension;
+	private final int domainStride;
+	private final LatticeGeometry latticeGeometry;
 
 	public LinearPartitioningStrategy(Signal signal, int scale) {
+		this(signal, scale, 1);
+	}
+
+	/**
+	 * Partitions the signal using domain blocks that start every domainStride (unscaled)
+	 * samples, instead of at every sample.
+	 */
+	public LinearPartitioningStrategy(Signal signal, int scale, int domainStride) {
 		super(signal, scale);
+		Assert.isTrue(domainStride >= 1, "Domain stride must be positive.");
 
 		if(!isCompatible(signal, scale)) {
 			signal.pad(getPaddedDimension(signal));
@@ -22,6 +37,9 @@ public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 		signalDimension = signal.getDimension();
 		domainDimension = calculateDomainDimension();
 		rangeDimension = calculateRangeDimension();
+		this.domainStride = domainStride;
+		latticeGeometry = new LatticeGeometry(new DomainLattice(1, 1, getNumDomainPartitions()),
+				1, getNumRangePartitions(), rangeDimension / ratio, domainStride);
 	}
 
 	@Override
@@ -68,9 +86,13 @@ public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 		return rangeDimension;
 	}
 
+	public int getDomainStride() {
+		return domainStride;
+	}
+
 	@Override
 	public int getNumDomainPartitions() {
-		return signalDimension - (int)((float)getDomainDimension() / ratio) + 1;
+		return (signalDimension - (int)((float)getDomainDimension() / ratio)) / domainStride + 1;
 	}
 
 	@Override
@@ -81,7 +103,7 @@ public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 	@Override
 	public void getDomainIndices(int domainBlockIndex, int domainIndices[]) {
 		for (int k = 0; k < domainDimension; k++) {
-			domainIndices[k] = domainBlockIndex * scale + k;
+			domainIndices[k] = domainBlockIndex * domainStride * scale + k;
 		}
 	}
 
@@ -92,6 +114,11 @@ public class LinearPartitioningStrategy extends AbstractPartitioningStrategy {
 		}
 	}
 
+	@Override
+	public LatticeGeometry getLatticeGeometry() {
+		return latticeGeometry;
+	}
+
 	public int getPaddedDimension(Signal signal) {
 		// If the signal dimension is odd, pad it to the next (even) integer
 		if (signal.getDimension() % 2 == 1) {
@@ -0,0 +1,181 @@
+package math.nyx.framework.planar;
+
+import org.springframework.util.Assert;
+
+import math.nyx.core.Signal;
+import math.nyx.framework.AbstractPartitioningStrategy;
+import math.nyx.framework.DomainLattice;
+import math.nyx.framework.LatticeGeometry;
+import math.nyx.image.ImageMetadata;
+
+/**
+ * Partitions an image signal, whose channels are stored one after another as
+ * width x height planes, into square blocks that never cross the edge of a plane.
+ *
+ * The planes don't need to be square, and their dimensions don't need to be multiples
+ * of the block width: the last row and column of range blocks are shifted inwards so that
+ * they end on the edge of the plane, overlapping their neighbours. The overlapping entries
+ * are taken from the last block, which the decoder writes last, or lets the earlier blocks
+ * skip when it doesn't write them in order.
+ *
+ * @author jwhite
+ */
+public class PlanarPartitioningStrategy extends AbstractPartitioningStrategy {
+	private final int scale;
+	private final int planeWidth;
+	private final int planeHeight;
+	private final int numPlanes;
+	private final int rangeWidth;
+	private final int domainWidth;
+	private final int domainStride;
+	private final int numRangeColumns;
+	private final int numRangeRows;
+	private final int numDomainColumns;
+	private final int numDomainRows;
+	private final LatticeGeometry latticeGeometry;
+
+	public PlanarPartitioningStrategy(Signal signal, int scale, int maxRangeWidth) {
+		this(signal, scale, maxRangeWidth, 1);
+	}
+
+	/**
+	 * Same as above, with domain blocks that start every domainStride (unscaled)
+	 * rows and columns of their plane.
+	 */
+	public PlanarPartitioningStrategy(Signal signal, int scale, int maxRangeWidth, int domainStride) {
+		super(signal, scale);
+		Assert.isTrue(isCompatible(signal, scale), "Signal must be an image made up of planes at least 2x2.");
+		Assert.isTrue(maxRangeWidth >= 1, "Range width must be positive.");
+		Assert.isTrue(domainStride >= 1, "Domain stride must be positive.");
+
+		ImageMetadata metadata = (ImageMetadata)signal.getMetadata();
+		this.scale = scale;
+		planeWidth = metadata.getWidth();
+		planeHeight = metadata.getHeight();
+		numPlanes = signal.getDimension() / (planeWidth * planeHeight);
+
+		// Make sure there's at least one domain block in every plane
+		int width = Math.max(Math.min(maxRangeWidth, Math.min(planeWidth, planeHeight) / 2), 1);
+		rangeWidth = width;
+		domainWidth = 2 * width;
+		this.domainStride = domainStride;
+
+		numRangeColumns = (planeWidth + rangeWidth - 1) / rangeWidth;
+		numRangeRows = (planeHeight + rangeWidth - 1) / rangeWidth;
+		numDomainColumns = (planeWidth - domainWidth) / domainStride + 1;
+		numDomainRows = (planeHeight - domainWidth) / domainStride + 1;
+		latticeGeometry = new LatticeGeometry(new DomainLattice(numPlanes, numDomainRows, numDomainColumns),
+				numRangeRows, numRangeColumns, rangeWidth, planeHeight, planeWidth, domainStride);
+	}
+
+	@Override
+	public boolean isCompatible(Signal signal, int scale) {
+		return scale >= 1 && isPlanarImage(signal);
+	}
+
+	/**
+	 * Returns true if the signal is an image made up of one or more planes that are at least 2x2.
+	 */
+	public static boolean isPlanarImage(Signal signal) {
+		if (!(signal.getMetadata() instanceof ImageMetadata)) {
+			return false;
+		}
+
+		ImageMetadata metadata = (ImageMetadata)signal.getMetadata();
+		if (metadata.getWidth() < 2 || metadata.getHeight() < 2) {
+			return false;
+		}
+		int planeDimension = metadata.getWidth() * metadata.getHeight();
+		return signal.getDimension() > 0 && signal.getDimension() % planeDimension == 0;
+	}
+
+	public int getPlaneWidth() {
+		return planeWidth;
+	}
+
+	public int getPlaneHeight() {
+		return planeHeight;
+	}
+
+	public int getNumPlanes() {
+		return numPlanes;
+	}
+
+	public int getNumDomainRows() {
+		return numDomainRows;
+	}
+
+	public int getNumDomainColumns() {
+		return numDomainColumns;
+	}
+
+	public int getDomainStride() {
+		return domainStride;
+	}
+
+	@Override
+	public int getDomainDimension() {
+		return domainWidth * domainWidth * scale * scale;
+	}
+
+	@Override
+	public int getRangeDimension() {
+		return rangeWidth * rangeWidth * scale * scale;
+	}
+
+	@Override
+	public int getNumDomainPartitions() {
+		return numPlanes * numDomainColumns * numDomainRows;
+	}
+
+	@Override
+	public int getNumRangePartitions() {
+		return numPlanes * numRangeColumns * numRangeRows;
+	}
+
+	@Override
+	public void getDomainIndices(int domainBlockIndex, int domainIndices[]) {
+		int numDomainBlocksPerPlane = numDomainColumns * numDomainRows;
+		int plane = domainBlockIndex / numDomainBlocksPerPlane;
+		int k = domainBlockIndex % numDomainBlocksPerPlane;
+		int row = k / numDomainColumns;
+		int column = k % numDomainColumns;
+		getBlockIndices(plane, row * domainStride, column * domainStride, domainWidth, domainIndices);
+	}
+
+	@Override
+	public void getRangeIndices(int rangeBlockIndex, int rangeIndices[]) {
+		// The blocks on the edges are shifted inwards
+		int plane = rangeBlockIndex / (numRangeColumns * numRangeRows);
+		getBlockIndices(plane, latticeGeometry.getRangeRow(rangeBlockIndex),
+				latticeGeometry.getRangeColumn(rangeBlockIndex), rangeWidth, rangeIndices);
+	}
+
+	/**
+	 * The blocks on the edges only overlap their neighbours when the plane's dimensions
+	 * aren't multiples of the block width.
+	 */
+	@Override
+	public boolean hasDisjointRangeBlocks() {
+		return planeWidth % rangeWidth == 0 && planeHeight % rangeWidth == 0;
+	}
+
+	@Override
+	public LatticeGeometry getLatticeGeometry() {
+		return latticeGeometry;
+	}
+
+	/**
+	 * Computes the indices of the square block of the given (unscaled) width
+	 * whose top left corner is at the given (unscaled) row and column of the plane.
+	 */
+	private void getBlockIndices(int plane, int row, int column, int blockWidth, int indices[]) {
+		int scaledPlaneWidth = planeWidth * scale;
+		int scaledBlockWidth = blockWidth * scale;
+		int offset = plane * (scaledPlaneWidth * planeHeight * scale)
+				+ (row * scale * scaledPlaneWidth) + (column * scale);
+		for (int k = 0; k < scaledBlockWidth * scaledBlockWidth; k++) {
+			indices[k] = offset + ((k / scaledBlockWidth) * scaledPlaneWidth) + (k % scaledBlockWidth);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package math.nyx.framework.planar;
+
+import math.nyx.core.Signal;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.PartitioningStrategyFactory;
+import math.nyx.framework.square.SquarePartitioningStrategy;
+
+/**
+ * Partitions images plane by plane, and falls back to square partitioning
+ * for signals that can't be split into planes.
+ */
+public class PlanarPartitioningStrategyFactory implements PartitioningStrategyFactory {
+	public final static int SCALE = 1;
+
+	public static final int RANGE_WIDTH = 8;
+
+	private int rangeWidth = RANGE_WIDTH;
+
+	public static final int DOMAIN_STRIDE = 1;
+
+	private int domainStride = DOMAIN_STRIDE;
+
+	@Override
+	public PartitioningStrategy getPartitioner(Signal signal) {
+		return getPartitioner(signal, SCALE);
+	}
+
+	@Override
+	public PartitioningStrategy getPartitioner(Signal signal, int scale) {
+		if (PlanarPartitioningStrategy.isPlanarImage(signal)) {
+			return new PlanarPartitioningStrategy(signal, scale, rangeWidth, domainStride);
+		}
+		return new SquarePartitioningStrategy(signal, scale, 0, domainStride);
+	}
+
+	/**
+	 * Largest (unscaled) width of the range blocks, smaller blocks are used
+	 * when the planes are too small to fit a domain block.
+	 */
+	public void setRangeWidth(int rangeWidth) {
+		this.rangeWidth = rangeWidth;
+	}
+
+	public int getRangeWidth() {
+		return rangeWidth;
+	}
+
+	/**
+	 * Number of (unscaled) rows and columns between the starts of neighbouring domain blocks,
+	 * also used by the square fallback. The encoder and the decoder must use the same stride.
+	 */
+	public void setDomainStride(int domainStride) {
+		this.domainStride = domainStride;
+	}
+
+	public int getDomainStride() {
+		return domainStride;
+	}
+}
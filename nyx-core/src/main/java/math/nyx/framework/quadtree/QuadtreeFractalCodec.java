@@ -0,0 +1,148 @@
+package math.nyx.framework.quadtree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.util.Assert;
+
+import math.nyx.core.Fractal;
+import math.nyx.core.FractalDecoderVisitor;
+import math.nyx.core.Signal;
+import math.nyx.core.Transform;
+import math.nyx.framework.BlockDecoder;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.FractalCodec;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.SignalBlock;
+import math.nyx.framework.square.SquarePartitioningStrategy;
+
+/**
+ * Encodes the signal using a quadtree of range blocks.
+ *
+ * Encoding starts with the largest range blocks, and any range block whose best transform
+ * has a root-mean-square error greater than the split threshold is replaced by the four
+ * range blocks that cover it on the next level. Flat regions are then covered by a few large
+ * range blocks, while detailed regions are covered by many small ones.
+ *
+ * @author jwhite
+ */
+public class QuadtreeFractalCodec extends FractalCodec {
+	private static Logger logger = LogManager.getLogger("Nyx");
+
+	public static final double SPLIT_THRESHOLD = 8.0;
+
+	private double splitThreshold = SPLIT_THRESHOLD;
+
+	@Override
+	public Fractal encode(Signal signal) {
+		// Fetch the partitioner, this will pad the signal if necessary
+		QuadtreePartitioningStrategy partitioner = getPartitioner(signal, 1);
+
+		// Now fetch the underlying vector
+		double x[] = signal.getSamples().toArray();
+
+		// Construct the fractal used to store our results
+		Fractal fractal = new Fractal(signal);
+		fractal.setCodecName(getName());
+
+		// Start with all of the range blocks on the first level
+		List<Integer> rangeBlockIndices = new ArrayList<Integer>();
+		for (int i = 0; i < partitioner.getLevel(0).getNumRangePartitions(); i++) {
+			rangeBlockIndices.add(i);
+		}
+
+		for (int level = 0; level < partitioner.getNumLevels() && !rangeBlockIndices.isEmpty(); level++) {
+			SquarePartitioningStrategy levelPartitioner = partitioner.getLevel(level);
+			logger.info("Encoding {} range blocks of dimension {} on level {}.",
+					rangeBlockIndices.size(), levelPartitioner.getRangeDimension(), level);
+
+			List<SignalBlock> rangeBlocks = new ArrayList<SignalBlock>(rangeBlockIndices.size());
+			for (int rangeBlockIndex : rangeBlockIndices) {
+				rangeBlocks.add(getRangeBlock(x, partitioner, rangeBlockIndex));
+			}
+
+			DomainPool domainPool = getDomainPool(x, levelPartitioner, getDecimator(levelPartitioner),
+					partitioner.getFirstDomainBlockIndex(level));
+
+			// Keep the transforms that are good enough, and split the other range blocks
+			boolean lastLevel = level == partitioner.getNumLevels() - 1;
+			double maxDistance = splitThreshold * Math.sqrt(levelPartitioner.getRangeDimension());
+			List<Integer> rangeBlocksToSplit = new ArrayList<Integer>();
+			for (Transform transform : encode(levelPartitioner, rangeBlocks, domainPool)) {
+				if (!lastLevel && transform.getDistance() > maxDistance) {
+					for (int childIndex : partitioner.getChildRangeBlockIndices(transform.getRangeBlockIndex())) {
+						rangeBlocksToSplit.add(childIndex);
+					}
+				} else {
+					fractal.addTransform(transform);
+				}
+			}
+			rangeBlockIndices = rangeBlocksToSplit;
+		}
+
+		logger.info("Encoded the signal with {} transforms.", fractal.getTransforms().size());
+		return fractal;
+	}
+
+	/**
+	 * The sparse operators assume that all of the blocks have the same dimension,
+	 * so we always use the optimized decoder.
+	 */
+	@Override
+	public Signal decodeSimple(Fractal fractal, int scale, int numberOfIterations, FractalDecoderVisitor visitor) {
+		return decodeOptimized(fractal, scale, numberOfIterations, visitor);
+	}
+
+	@Override
+	protected BlockDecoder[] getBlockDecoders(PartitioningStrategy partitioner) {
+		QuadtreePartitioningStrategy quadtree = asQuadtree(partitioner);
+		BlockDecoder blockDecoders[] = new BlockDecoder[quadtree.getNumLevels()];
+		for (int level = 0; level < blockDecoders.length; level++) {
+			SquarePartitioningStrategy levelPartitioner = quadtree.getLevel(level);
+			blockDecoders[level] = new BlockDecoder(levelPartitioner.getDomainDimension(),
+					levelPartitioner.getRangeDimension(), getDecimator(levelPartitioner));
+		}
+		return blockDecoders;
+	}
+
+	/**
+	 * The range blocks of all the levels share a single index space, which the level partitioners
+	 * don't know about, so the whole signal is always searched.
+	 */
+	@Override
+	protected DomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner, DomainPool domainPool) {
+		if (getSearchRadius() > 0) {
+			logger.warn("The quadtree codec doesn't support search windows, searching the whole signal.");
+		}
+		return getDomainSearchStrategyFactory().getSearchStrategy(partitioner, domainPool);
+	}
+
+	@Override
+	protected int getBlockDecoderIndex(PartitioningStrategy partitioner, Transform transform) {
+		return asQuadtree(partitioner).getLevelOfRangeBlock(transform.getRangeBlockIndex());
+	}
+
+	private QuadtreePartitioningStrategy getPartitioner(Signal signal, int scale) {
+		return asQuadtree(getPartitioningStrategyFactory().getPartitioner(signal, scale));
+	}
+
+	private static QuadtreePartitioningStrategy asQuadtree(PartitioningStrategy partitioner) {
+		Assert.isInstanceOf(QuadtreePartitioningStrategy.class, partitioner,
+				"The quadtree codec requires a quadtree partitioner.");
+		return (QuadtreePartitioningStrategy)partitioner;
+	}
+
+	/**
+	 * Maximum root-mean-square error of a transform before its range block is split.
+	 */
+	public void setSplitThreshold(double splitThreshold) {
+		this.splitThreshold = splitThreshold;
+	}
+
+	public double getSplitThreshold() {
+		return splitThreshold;
+	}
+}
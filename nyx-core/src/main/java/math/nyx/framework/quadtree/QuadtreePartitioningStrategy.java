@@ -0,0 +1,185 @@
+package math.nyx.framework.quadtree;
+
+import org.springframework.util.Assert;
+
+import math.nyx.core.Signal;
+import math.nyx.framework.AbstractPartitioningStrategy;
+import math.nyx.framework.square.SquarePartitioningStrategy;
+
+/**
+ * Partitions a square signal into a quadtree of range blocks.
+ *
+ * Every level of the tree is a square partitioning of the signal, with range blocks
+ * half as wide as those of the previous level, so that every range block is covered by
+ * exactly four range blocks of the next level. The range and domain blocks of all the
+ * levels share a single index space: the blocks of level l are numbered after
+ * all the blocks of the levels before it.
+ *
+ * @author jwhite
+ */
+public class QuadtreePartitioningStrategy extends AbstractPartitioningStrategy {
+	private final SquarePartitioningStrategy levels[];
+	private final int rangeWidths[];
+	private final int firstRangeBlockIndices[];
+	private final int firstDomainBlockIndices[];
+	private final int signalWidth;
+
+	public QuadtreePartitioningStrategy(Signal signal, int scale, int maxRangeWidth, int minRangeWidth) {
+		super(signal, scale);
+		Assert.isTrue(minRangeWidth >= 1, "Minimum range width must be positive.");
+		Assert.isTrue(maxRangeWidth >= minRangeWidth, "Maximum range width must be >= the minimum range width.");
+
+		// Use the largest range blocks for which there is at least one domain block
+		int width = Math.max((int)Math.ceil(Math.sqrt(signal.getDimension())), 2);
+		int topRangeWidth = maxRangeWidth;
+		while (topRangeWidth > minRangeWidth && 2*topRangeWidth > width) {
+			topRangeWidth /= 2;
+		}
+
+		// Pad the signal to a square whose width is a multiple of the largest range blocks
+		signalWidth = Math.max(((width + topRangeWidth - 1) / topRangeWidth) * topRangeWidth, 2*topRangeWidth);
+		if (signal.getDimension() != signalWidth * signalWidth) {
+			signal.pad(signalWidth * signalWidth);
+		}
+
+		int numLevels = 0;
+		for (int rangeWidth = topRangeWidth; rangeWidth >= minRangeWidth && rangeWidth >= 1; rangeWidth /= 2) {
+			numLevels++;
+		}
+
+		levels = new SquarePartitioningStrategy[numLevels];
+		rangeWidths = new int[numLevels];
+		firstRangeBlockIndices = new int[numLevels + 1];
+		firstDomainBlockIndices = new int[numLevels + 1];
+		for (int l = 0; l < numLevels; l++) {
+			rangeWidths[l] = topRangeWidth >> l;
+			levels[l] = new SquarePartitioningStrategy(signal, scale, rangeWidths[l]);
+			firstRangeBlockIndices[l + 1] = firstRangeBlockIndices[l] + levels[l].getNumRangePartitions();
+			firstDomainBlockIndices[l + 1] = firstDomainBlockIndices[l] + levels[l].getNumDomainPartitions();
+		}
+	}
+
+	public int getNumLevels() {
+		return levels.length;
+	}
+
+	/**
+	 * Returns the square partitioning used by the given level, which is
+	 * indexed by the level's local block indices.
+	 */
+	public SquarePartitioningStrategy getLevel(int level) {
+		return levels[level];
+	}
+
+	/**
+	 * Returns the (unscaled) width of the range blocks at the given level.
+	 */
+	public int getRangeWidth(int level) {
+		return rangeWidths[level];
+	}
+
+	public int getFirstRangeBlockIndex(int level) {
+		return firstRangeBlockIndices[level];
+	}
+
+	public int getFirstDomainBlockIndex(int level) {
+		return firstDomainBlockIndices[level];
+	}
+
+	public int getLevelOfRangeBlock(int rangeBlockIndex) {
+		return getLevel(firstRangeBlockIndices, rangeBlockIndex);
+	}
+
+	public int getLevelOfDomainBlock(int domainBlockIndex) {
+		return getLevel(firstDomainBlockIndices, domainBlockIndex);
+	}
+
+	private int getLevel(int firstBlockIndices[], int blockIndex) {
+		Assert.isTrue(blockIndex >= 0 && blockIndex < firstBlockIndices[levels.length],
+				"Block index is out of range.");
+		int level = 0;
+		while (blockIndex >= firstBlockIndices[level + 1]) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Returns the indices of the four range blocks on the next level that cover the given range block.
+	 */
+	public int[] getChildRangeBlockIndices(int rangeBlockIndex) {
+		int level = getLevelOfRangeBlock(rangeBlockIndex);
+		Assert.isTrue(level + 1 < levels.length, "Range blocks on the last level can't be split.");
+
+		int numBlocksPerRow = signalWidth / rangeWidths[level];
+		int localIndex = rangeBlockIndex - firstRangeBlockIndices[level];
+		int row = 2 * (localIndex / numBlocksPerRow);
+		int column = 2 * (localIndex % numBlocksPerRow);
+
+		int numChildrenPerRow = 2 * numBlocksPerRow;
+		int firstChildIndex = firstRangeBlockIndices[level + 1];
+		return new int[] {
+			firstChildIndex + row * numChildrenPerRow + column,
+			firstChildIndex + row * numChildrenPerRow + column + 1,
+			firstChildIndex + (row + 1) * numChildrenPerRow + column,
+			firstChildIndex + (row + 1) * numChildrenPerRow + column + 1
+		};
+	}
+
+	@Override
+	public boolean isCompatible(Signal signal, int scale) {
+		int dimension = signal.getDimension();
+		int root = (int)Math.round(Math.sqrt(dimension));
+		return root*root == dimension && root == signalWidth && scale >= 1;
+	}
+
+	/**
+	 * Returns the dimension of the largest domain blocks.
+	 */
+	@Override
+	public int getDomainDimension() {
+		return levels[0].getDomainDimension();
+	}
+
+	/**
+	 * Returns the dimension of the largest range blocks.
+	 */
+	@Override
+	public int getRangeDimension() {
+		return levels[0].getRangeDimension();
+	}
+
+	@Override
+	public int getNumDomainPartitions() {
+		return firstDomainBlockIndices[levels.length];
+	}
+
+	@Override
+	public int getNumRangePartitions() {
+		return firstRangeBlockIndices[levels.length];
+	}
+
+	@Override
+	public int[] getDomainIndices(int domainBlockIndex) {
+		int level = getLevelOfDomainBlock(domainBlockIndex);
+		return levels[level].getDomainIndices(domainBlockIndex - firstDomainBlockIndices[level]);
+	}
+
+	@Override
+	public int[] getRangeIndices(int rangeBlockIndex) {
+		int level = getLevelOfRangeBlock(rangeBlockIndex);
+		return levels[level].getRangeIndices(rangeBlockIndex - firstRangeBlockIndices[level]);
+	}
+
+	@Override
+	public void getDomainIndices(int domainBlockIndex, int domainIndices[]) {
+		int level = getLevelOfDomainBlock(domainBlockIndex);
+		levels[level].getDomainIndices(domainBlockIndex - firstDomainBlockIndices[level], domainIndices);
+	}
+
+	@Override
+	public void getRangeIndices(int rangeBlockIndex, int rangeIndices[]) {
+		int level = getLevelOfRangeBlock(rangeBlockIndex);
+		levels[level].getRangeIndices(rangeBlockIndex - firstRangeBlockIndices[level], rangeIndices);
+	}
+}
@@ -0,0 +1,42 @@
+package math.nyx.framework.quadtree;
+
+import math.nyx.core.Signal;
+import math.nyx.framework.PartitioningStrategyFactory;
+
+public class QuadtreePartitioningStrategyFactory implements PartitioningStrategyFactory {
+	public final static int SCALE = 1;
+
+	public static final int MAX_RANGE_WIDTH = 16;
+
+	private int maxRangeWidth = MAX_RANGE_WIDTH;
+
+	public static final int MIN_RANGE_WIDTH = 4;
+
+	private int minRangeWidth = MIN_RANGE_WIDTH;
+
+	@Override
+	public QuadtreePartitioningStrategy getPartitioner(Signal signal) {
+		return getPartitioner(signal, SCALE);
+	}
+
+	@Override
+	public QuadtreePartitioningStrategy getPartitioner(Signal signal, int scale) {
+		return new QuadtreePartitioningStrategy(signal, scale, maxRangeWidth, minRangeWidth);
+	}
+
+	public void setMaxRangeWidth(int maxRangeWidth) {
+		this.maxRangeWidth = maxRangeWidth;
+	}
+
+	public int getMaxRangeWidth() {
+		return maxRangeWidth;
+	}
+
+	public void setMinRangeWidth(int minRangeWidth) {
+		this.minRangeWidth = minRangeWidth;
+	}
+
+	public int getMinRangeWidth() {
+		return minRangeWidth;
+	}
+}
@@ -0,0 +1,95 @@
+package math.nyx.framework.search;
+
+import java.util.Arrays;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.SignalBlock;
+
+/**
+ * Buckets the decimated domain blocks by class, and only compares a range
+ * block against the domain blocks in its class, and in the closest neighbouring
+ * classes.
+ *
+ * @author jwhite
+ */
+public class ClassifiedDomainSearchStrategy implements DomainSearchStrategy {
+	private final QuadrantClassifier classifier;
+	private final int numClassesToSearch;
+	private final int buckets[][];
+	private final int nonEmptyClasses[];
+
+	public ClassifiedDomainSearchStrategy(DomainPool domainPool,
+			QuadrantClassifier classifier, int numClassesToSearch) {
+		this.classifier = classifier;
+		this.numClassesToSearch = numClassesToSearch;
+
+		// Classify all of the domain blocks
+		int numClasses = classifier.getNumClasses();
+		int numDomainBlocks = domainPool.size();
+		int domainClasses[] = new int[numDomainBlocks];
+		int bucketSizes[] = new int[numClasses];
+		for (int i = 0; i < numDomainBlocks; i++) {
+			domainClasses[i] = classifier.classify(domainPool.getData(), domainPool.getOffset(i));
+			bucketSizes[domainClasses[i]]++;
+		}
+
+		// Fill the buckets, preserving the original order of the blocks
+		buckets = new int[numClasses][];
+		int numNonEmptyClasses = 0;
+		for (int c = 0; c < numClasses; c++) {
+			buckets[c] = new int[bucketSizes[c]];
+			if (bucketSizes[c] > 0) {
+				numNonEmptyClasses++;
+			}
+		}
+
+		int fill[] = new int[numClasses];
+		for (int i = 0; i < numDomainBlocks; i++) {
+			int c = domainClasses[i];
+			buckets[c][fill[c]++] = i;
+		}
+
+		nonEmptyClasses = new int[numNonEmptyClasses];
+		int k = 0;
+		for (int c = 0; c < numClasses; c++) {
+			if (bucketSizes[c] > 0) {
+				nonEmptyClasses[k++] = c;
+			}
+		}
+	}
+
+	public int getNumNonEmptyClasses() {
+		return nonEmptyClasses.length;
+	}
+
+	@Override
+	public int[] getCandidates(SignalBlock rangeBlock) {
+		int rangeClass = classifier.classify(rangeBlock.getData(), 0);
+
+		// Sort the non-empty classes by their distance to the range block's class
+		int numClasses = classifier.getNumClasses();
+		long keys[] = new long[nonEmptyClasses.length];
+		for (int i = 0; i < nonEmptyClasses.length; i++) {
+			int c = nonEmptyClasses[i];
+			keys[i] = (long)classifier.getDistance(rangeClass, c) * numClasses + c;
+		}
+		Arrays.sort(keys);
+
+		// Gather the domain blocks from the closest classes
+		int numClassesSearched = Math.min(numClassesToSearch, keys.length);
+		int numCandidates = 0;
+		for (int i = 0; i < numClassesSearched; i++) {
+			numCandidates += buckets[(int)(keys[i] % numClasses)].length;
+		}
+
+		int candidates[] = new int[numCandidates];
+		int k = 0;
+		for (int i = 0; i < numClassesSearched; i++) {
+			int bucket[] = buckets[(int)(keys[i] % numClasses)];
+			System.arraycopy(bucket, 0, candidates, k, bucket.length);
+			k += bucket.length;
+		}
+		return candidates;
+	}
+}
@@ -0,0 +1,60 @@
+package math.nyx.framework.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategyFactory;
+import math.nyx.framework.PartitioningStrategy;
+
+public class ClassifiedDomainSearchStrategyFactory implements DomainSearchStrategyFactory {
+	private static Logger logger = LogManager.getLogger("Nyx");
+
+	public static final int NUM_CLASSES_TO_SEARCH = 4;
+
+	private int numClassesToSearch = NUM_CLASSES_TO_SEARCH;
+
+	public static final boolean ISOMETRY_INVARIANT = true;
+
+	private boolean isometryInvariant = ISOMETRY_INVARIANT;
+
+	public static final boolean USE_VARIANCE = true;
+
+	private boolean useVariance = USE_VARIANCE;
+
+	@Override
+	public ClassifiedDomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner,
+			DomainPool domainPool) {
+		QuadrantClassifier classifier = new QuadrantClassifier(partitioner.getRangeDimension(),
+				isometryInvariant, useVariance);
+		ClassifiedDomainSearchStrategy searchStrategy = new ClassifiedDomainSearchStrategy(
+				domainPool, classifier, numClassesToSearch);
+		logger.info("Classified {} domain blocks into {} non-empty classes, searching {} classes per range block.",
+				domainPool.size(), searchStrategy.getNumNonEmptyClasses(), numClassesToSearch);
+		return searchStrategy;
+	}
+
+	public void setNumClassesToSearch(int numClassesToSearch) {
+		this.numClassesToSearch = numClassesToSearch;
+	}
+
+	public int getNumClassesToSearch() {
+		return numClassesToSearch;
+	}
+
+	public void setIsometryInvariant(boolean isometryInvariant) {
+		this.isometryInvariant = isometryInvariant;
+	}
+
+	public boolean getIsometryInvariant() {
+		return isometryInvariant;
+	}
+
+	public void setUseVariance(boolean useVariance) {
+		this.useVariance = useVariance;
+	}
+
+	public boolean getUseVariance() {
+		return useVariance;
+	}
+}
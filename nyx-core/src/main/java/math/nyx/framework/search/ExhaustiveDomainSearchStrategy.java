@@ -0,0 +1,23 @@
+package math.nyx.framework.search;
+
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.SignalBlock;
+
+/**
+ * Compares every range block against every decimated domain block.
+ */
+public class ExhaustiveDomainSearchStrategy implements DomainSearchStrategy {
+	private final int candidates[];
+
+	public ExhaustiveDomainSearchStrategy(int numDomainBlocks) {
+		candidates = new int[numDomainBlocks];
+		for (int i = 0; i < numDomainBlocks; i++) {
+			candidates[i] = i;
+		}
+	}
+
+	@Override
+	public int[] getCandidates(SignalBlock rangeBlock) {
+		return candidates;
+	}
+}
@@ -0,0 +1,13 @@
+package math.nyx.framework.search;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategyFactory;
+import math.nyx.framework.PartitioningStrategy;
+
+public class ExhaustiveDomainSearchStrategyFactory implements DomainSearchStrategyFactory {
+	@Override
+	public ExhaustiveDomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner,
+			DomainPool domainPool) {
+		return new ExhaustiveDomainSearchStrategy(domainPool.size());
+	}
+}
@@ -0,0 +1,252 @@
+package math.nyx.framework.search;
+
+import org.springframework.util.Assert;
+
+/**
+ * Static k-d tree over a set of points with k-nearest neighbour queries.
+ *
+ * The points are stored contiguously in a single array, with the coordinates
+ * of point i in points[i*dimension] to points[(i+1)*dimension - 1].
+ *
+ * @author jwhite
+ */
+public class KdTree {
+	public static final int LEAF_SIZE = 8;
+
+	private final int dimension;
+	private final double points[];
+	private final int indices[];
+
+	// Nodes are stored in parallel arrays, leaves have a split dimension of -1
+	private final int splitDimensions[];
+	private final double splitValues[];
+	private final int lowerChildren[];
+	private final int upperChildren[];
+	private final int starts[];
+	private final int ends[];
+	private int numNodes = 0;
+
+	public KdTree(double points[], int dimension) {
+		Assert.isTrue(dimension > 0, "Dimension must be positive.");
+		Assert.isTrue(points.length % dimension == 0, "Number of coordinates must be a multiple of the dimension.");
+		this.dimension = dimension;
+		this.points = points;
+
+		int numPoints = points.length / dimension;
+		indices = new int[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			indices[i] = i;
+		}
+
+		// Both children of a split node hold at least half a leaf
+		int maxNodes = 2 * (numPoints / (LEAF_SIZE / 2) + 1);
+		splitDimensions = new int[maxNodes];
+		splitValues = new double[maxNodes];
+		lowerChildren = new int[maxNodes];
+		upperChildren = new int[maxNodes];
+		starts = new int[maxNodes];
+		ends = new int[maxNodes];
+
+		if (numPoints > 0) {
+			build(0, numPoints);
+		}
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getNumPoints() {
+		return indices.length;
+	}
+
+	private int build(int start, int end) {
+		int node = numNodes++;
+		starts[node] = start;
+		ends[node] = end;
+		splitDimensions[node] = -1;
+		if (end - start <= LEAF_SIZE) {
+			return node;
+		}
+
+		// Split along the dimension with the largest spread
+		int splitDimension = 0;
+		double largestSpread = -1;
+		for (int d = 0; d < dimension; d++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < end; i++) {
+				double value = points[indices[i] * dimension + d];
+				if (value < min) min = value;
+				if (value > max) max = value;
+			}
+			if (max - min > largestSpread) {
+				largestSpread = max - min;
+				splitDimension = d;
+			}
+		}
+
+		int median = (start + end) >>> 1;
+		select(start, end - 1, median, splitDimension);
+
+		splitDimensions[node] = splitDimension;
+		splitValues[node] = points[indices[median] * dimension + splitDimension];
+		lowerChildren[node] = build(start, median);
+		upperChildren[node] = build(median, end);
+		return node;
+	}
+
+	/**
+	 * Partially sorts indices[left..right] so that the k-th entry is in its sorted position.
+	 */
+	private void select(int left, int right, int k, int d) {
+		while (right > left) {
+			double pivot = points[indices[(left + right) >>> 1] * dimension + d];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (points[indices[i] * dimension + d] < pivot) i++;
+				while (points[indices[j] * dimension + d] > pivot) j--;
+				if (i <= j) {
+					int tmp = indices[i];
+					indices[i] = indices[j];
+					indices[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Finds the (at most) k points closest to the query point.
+	 *
+	 * @param epsilon allows for approximate searches, subtrees are skipped unless they may contain
+	 *   a point that is closer than the current k-th best distance divided by (1 + epsilon)
+	 * @return the number of neighbours found, the indices and squared distances are stored in
+	 *   neighbours and distances in order of increasing distance
+	 */
+	public int findNearest(double query[], int k, double epsilon, int neighbours[], double distances[]) {
+		Assert.isTrue(query.length == dimension, "Query must have the same dimension as the tree.");
+		if (numNodes == 0 || k < 1) {
+			return 0;
+		}
+
+		Neighbours heap = new Neighbours(k, neighbours, distances);
+		search(0, query, heap, (1 + epsilon) * (1 + epsilon));
+		return heap.sort();
+	}
+
+	private void search(int node, double query[], Neighbours heap, double scale) {
+		if (splitDimensions[node] < 0) {
+			for (int i = starts[node]; i < ends[node]; i++) {
+				int offset = indices[i] * dimension;
+				double distance = 0;
+				for (int d = 0; d < dimension; d++) {
+					double diff = points[offset + d] - query[d];
+					distance += diff * diff;
+				}
+				heap.offer(indices[i], distance);
+			}
+			return;
+		}
+
+		double diff = query[splitDimensions[node]] - splitValues[node];
+		int near = diff < 0 ? lowerChildren[node] : upperChildren[node];
+		int far = diff < 0 ? upperChildren[node] : lowerChildren[node];
+		search(near, query, heap, scale);
+		if (!heap.isFull() || diff * diff * scale < heap.getWorstDistance()) {
+			search(far, query, heap, scale);
+		}
+	}
+
+	/**
+	 * Bounded max-heap of the best neighbours found so far.
+	 */
+	private static class Neighbours {
+		private final int k;
+		private final int indices[];
+		private final double distances[];
+		private int size = 0;
+
+		public Neighbours(int k, int indices[], double distances[]) {
+			Assert.isTrue(indices.length >= k && distances.length >= k, "Buffers are too small.");
+			this.k = k;
+			this.indices = indices;
+			this.distances = distances;
+		}
+
+		public boolean isFull() {
+			return size == k;
+		}
+
+		public double getWorstDistance() {
+			return distances[0];
+		}
+
+		public void offer(int index, double distance) {
+			if (size < k) {
+				indices[size] = index;
+				distances[size] = distance;
+				siftUp(size++);
+			} else if (distance < distances[0]) {
+				indices[0] = index;
+				distances[0] = distance;
+				siftDown(0, size);
+			}
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (distances[parent] >= distances[i]) {
+					break;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i, int n) {
+			while (true) {
+				int largest = i;
+				int left = 2 * i + 1;
+				int right = left + 1;
+				if (left < n && distances[left] > distances[largest]) largest = left;
+				if (right < n && distances[right] > distances[largest]) largest = right;
+				if (largest == i) {
+					return;
+				}
+				swap(i, largest);
+				i = largest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			int index = indices[i];
+			indices[i] = indices[j];
+			indices[j] = index;
+			double distance = distances[i];
+			distances[i] = distances[j];
+			distances[j] = distance;
+		}
+
+		/**
+		 * Heap sort in place, leaving the closest neighbour first.
+		 */
+		public int sort() {
+			for (int n = size - 1; n > 0; n--) {
+				swap(0, n);
+				siftDown(0, n);
+			}
+			return size;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package math.nyx.framework.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import math.nyx.affine.Symmetry;
+import math.nyx.affine.SymmetryPermutations;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.SignalBlock;
+
+/**
+ * Finds the domain blocks that best match a given range block using a nearest neighbour
+ * search in feature space, as described by Saupe.
+ *
+ * Every block is projected onto a feature vector by averaging it down to at most
+ * maxFeatureDimension entries, removing the mean and normalizing the result. The
+ * least-squares error of the best affine map from a domain block to a range block
+ * is then a monotonic function of the distance between their feature vectors, so
+ * the closest domain blocks in feature space are also the best candidates for the kernel.
+ *
+ * @author jwhite
+ */
+public class NearestNeighbourDomainSearchStrategy implements DomainSearchStrategy {
+	private final int blockDimension;
+	private final int featureDimension;
+	private final int poolWidth;
+	private final boolean square;
+	private final int numNeighbours;
+	private final double epsilon;
+	private final Symmetry symmetries[];
+	private final boolean negativeScales;
+	private final KdTree tree;
+
+	public NearestNeighbourDomainSearchStrategy(DomainPool domainPool, int blockDimension,
+			int maxFeatureDimension, int numNeighbours, double epsilon,
+			boolean isometries, boolean negativeScales) {
+		this.blockDimension = blockDimension;
+		this.numNeighbours = numNeighbours;
+		this.epsilon = epsilon;
+		this.negativeScales = negativeScales;
+
+		// Average the blocks down to the largest feature size that evenly divides the block
+		int width = (int)Math.round(Math.sqrt(blockDimension));
+		square = width * width == blockDimension && width > 1;
+		if (square) {
+			int featureWidth = 1;
+			for (int k = 1; k <= width; k++) {
+				if (width % k == 0 && k * k <= maxFeatureDimension) {
+					featureWidth = k;
+				}
+			}
+			poolWidth = width / featureWidth;
+			featureDimension = featureWidth * featureWidth;
+		} else {
+			int length = 1;
+			for (int k = 1; k <= blockDimension; k++) {
+				if (blockDimension % k == 0 && k <= maxFeatureDimension) {
+					length = k;
+				}
+			}
+			poolWidth = blockDimension / length;
+			featureDimension = length;
+		}
+
+		// The symmetries only make sense for square blocks
+		if (isometries && square) {
+			symmetries = Symmetry.values();
+		} else {
+			symmetries = new Symmetry[] {Symmetry.ORIGINAL};
+		}
+
+		int numDomainBlocks = domainPool.size();
+		double features[] = new double[numDomainBlocks * featureDimension];
+		for (int i = 0; i < numDomainBlocks; i++) {
+			double feature[] = getFeature(domainPool.getData(), domainPool.getOffset(i));
+			System.arraycopy(feature, 0, features, i * featureDimension, featureDimension);
+		}
+		tree = new KdTree(features, featureDimension);
+	}
+
+	public int getFeatureDimension() {
+		return featureDimension;
+	}
+
+	protected double[] getFeature(double data[], int offset) {
+		double feature[] = new double[featureDimension];
+
+		// Average pool
+		if (square) {
+			int width = (int)Math.round(Math.sqrt(blockDimension));
+			int featureWidth = width / poolWidth;
+			for (int k = 0; k < blockDimension; k++) {
+				int row = (k / width) / poolWidth;
+				int column = (k % width) / poolWidth;
+				feature[row * featureWidth + column] += data[offset + k];
+			}
+		} else {
+			for (int k = 0; k < blockDimension; k++) {
+				feature[k / poolWidth] += data[offset + k];
+			}
+		}
+
+		// Remove the mean and normalize
+		double mean = 0;
+		for (int k = 0; k < featureDimension; k++) {
+			mean += feature[k];
+		}
+		mean /= featureDimension;
+
+		double norm = 0;
+		for (int k = 0; k < featureDimension; k++) {
+			feature[k] -= mean;
+			norm += feature[k] * feature[k];
+		}
+		norm = Math.sqrt(norm);
+
+		// Flat blocks are mapped to the origin
+		for (int k = 0; k < featureDimension; k++) {
+			feature[k] = norm > 0 ? feature[k] / norm : 0;
+		}
+		return feature;
+	}
+
+	@Override
+	public int[] getCandidates(SignalBlock rangeBlock) {
+		double feature[] = getFeature(rangeBlock.getData(), 0);
+
+		// A domain block D matches the range block R under a symmetry S when S(D) ~ R,
+		// so we look for the neighbours of every permutation of R
+		int numQueries = symmetries.length * (negativeScales ? 2 : 1);
+		int k = Math.min(numNeighbours, tree.getNumPoints());
+		int neighbours[] = new int[k];
+		double distances[] = new double[k];
+		long keys[] = new long[numQueries * k];
+		int numKeys = 0;
+
+		double query[] = new double[featureDimension];
+		for (Symmetry symmetry : symmetries) {
+			int j;
+			if (square) {
+				int permutation[] = SymmetryPermutations.getPermutation(symmetry, featureDimension);
+				for (j = 0; j < featureDimension; j++) {
+					query[j] = feature[permutation[j]];
+				}
+			} else {
+				System.arraycopy(feature, 0, query, 0, featureDimension);
+			}
+
+			for (int sign = 0; sign < (negativeScales ? 2 : 1); sign++) {
+				if (sign == 1) {
+					for (j = 0; j < featureDimension; j++) {
+						query[j] = -query[j];
+					}
+				}
+
+				int numFound = tree.findNearest(query, k, epsilon, neighbours, distances);
+				for (int i = 0; i < numFound; i++) {
+					// Sort by distance first, and index second
+					keys[numKeys++] = ((long)Float.floatToIntBits((float)distances[i]) << 32) | neighbours[i];
+				}
+			}
+		}
+		Arrays.sort(keys, 0, numKeys);
+
+		// Remove duplicates, keeping the closest occurrence of each block
+		int candidates[] = new int[numKeys];
+		int numCandidates = 0;
+		BitSet seen = new BitSet(tree.getNumPoints());
+		for (int i = 0; i < numKeys; i++) {
+			int index = (int)keys[i];
+			if (!seen.get(index)) {
+				seen.set(index);
+				candidates[numCandidates++] = index;
+			}
+		}
+		return Arrays.copyOf(candidates, numCandidates);
+	}
+}
@@ -0,0 +1,83 @@
+package math.nyx.framework.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategyFactory;
+import math.nyx.framework.PartitioningStrategy;
+
+public class NearestNeighbourDomainSearchStrategyFactory implements DomainSearchStrategyFactory {
+	private static Logger logger = LogManager.getLogger("Nyx");
+
+	public static final int NUM_NEIGHBOURS = 8;
+
+	private int numNeighbours = NUM_NEIGHBOURS;
+
+	public static final int MAX_FEATURE_DIMENSION = 16;
+
+	private int maxFeatureDimension = MAX_FEATURE_DIMENSION;
+
+	public static final double EPSILON = 0;
+
+	private double epsilon = EPSILON;
+
+	public static final boolean ISOMETRIES = true;
+
+	private boolean isometries = ISOMETRIES;
+
+	public static final boolean NEGATIVE_SCALES = false;
+
+	private boolean negativeScales = NEGATIVE_SCALES;
+
+	@Override
+	public NearestNeighbourDomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner,
+			DomainPool domainPool) {
+		NearestNeighbourDomainSearchStrategy searchStrategy = new NearestNeighbourDomainSearchStrategy(
+				domainPool, partitioner.getRangeDimension(), maxFeatureDimension,
+				numNeighbours, epsilon, isometries, negativeScales);
+		logger.info("Indexed {} domain blocks using features of dimension {}.",
+				domainPool.size(), searchStrategy.getFeatureDimension());
+		return searchStrategy;
+	}
+
+	public void setNumNeighbours(int numNeighbours) {
+		this.numNeighbours = numNeighbours;
+	}
+
+	public int getNumNeighbours() {
+		return numNeighbours;
+	}
+
+	public void setMaxFeatureDimension(int maxFeatureDimension) {
+		this.maxFeatureDimension = maxFeatureDimension;
+	}
+
+	public int getMaxFeatureDimension() {
+		return maxFeatureDimension;
+	}
+
+	public void setEpsilon(double epsilon) {
+		this.epsilon = epsilon;
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	public void setIsometries(boolean isometries) {
+		this.isometries = isometries;
+	}
+
+	public boolean getIsometries() {
+		return isometries;
+	}
+
+	public void setNegativeScales(boolean negativeScales) {
+		this.negativeScales = negativeScales;
+	}
+
+	public boolean getNegativeScales() {
+		return negativeScales;
+	}
+}
@@ -0,0 +1,387 @@
+package math.nyx.framework.search;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import math.nyx.affine.SymmetryPermutations;
+import math.nyx.framework.DecimationStrategy;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.SignalBlock;
+import math.nyx.framework.linear.AveragingDecimationStrategy;
+import math.nyx.framework.square.SquareDecimationStrategy;
+
+import org.springframework.util.Assert;
+
+/**
+ * Finds the domain blocks that best match a given range block with a coarse-to-fine search.
+ *
+ * The blocks are repeatedly averaged down by a factor of 2 along each side, using the same
+ * decimation strategies as the partitioners, which gives a pyramid of coarser and coarser blocks.
+ * On level l, only the domain blocks whose positions are multiples of 2^l are kept, as if the
+ * signal itself had been averaged down l times. All of these are compared with the range block
+ * on the coarsest level, and the positions around the numCandidates best ones are compared again
+ * on every finer level. The positions around the best ones on the finest level are left for the
+ * kernel to compare at full resolution.
+ *
+ * The pool's blocks must be stored by plane, row and column of their positions for this to work,
+ * otherwise every block is kept on every level, and only the blocks themselves are averaged down.
+ *
+ * The blocks are compared using the least-squares error of the best affine map between them,
+ * relative to the range block's variance, which only depends on their normalized correlation.
+ *
+ * @author jwhite
+ */
+public class PyramidDomainSearchStrategy implements DomainSearchStrategy {
+	/**
+	 * Don't average the blocks down to fewer entries than this.
+	 */
+	private static final int MIN_DIMENSION = 4;
+
+	private final int numDomainBlocks;
+	private final int numCandidates;
+	private final boolean negativeScales;
+	private final boolean spatial;
+	private final int numRows;
+	private final int numColumns;
+	private final int numLevels;
+
+	/**
+	 * dimensions[l] is the dimension of the blocks on level l, where level 0 holds the original blocks.
+	 */
+	private final int dimensions[];
+
+	/**
+	 * decimationIndices[l] and decimationRatios[l] average the blocks on level l down to level l + 1.
+	 */
+	private final int decimationIndices[][][];
+	private final int decimationRatios[];
+
+	/**
+	 * permutations[l] holds the symmetry permutations of the blocks on level l.
+	 */
+	private final int permutations[][][];
+
+	/**
+	 * Spacing between the positions kept on each level, and the number of rows and columns of these.
+	 */
+	private final int steps[];
+	private final int numLevelRows[];
+	private final int numLevelColumns[];
+
+	/**
+	 * features[l] holds the normalized domain blocks kept on level l, for l >= 1.
+	 */
+	private final double features[][];
+
+	public PyramidDomainSearchStrategy(DomainPool domainPool, int blockDimension, boolean square,
+			int numPlanes, int numRows, int numColumns, int maxNumLevels, int numCandidates,
+			boolean isometries, boolean negativeScales) {
+		Assert.isTrue(numCandidates > 0, "Number of candidates must be positive.");
+		this.numDomainBlocks = domainPool.size();
+		this.numCandidates = numCandidates;
+		this.negativeScales = negativeScales;
+
+		// Fall back to a single row when the positions don't match the pool
+		spatial = numPlanes * numRows * numColumns == numDomainBlocks;
+		this.numRows = spatial ? numRows : 1;
+		this.numColumns = spatial ? numColumns : numDomainBlocks;
+		int numPlanesOrOne = spatial ? numPlanes : 1;
+
+		// Halve the blocks along each side while they're evenly divisible
+		int levelDimensions[] = new int[maxNumLevels + 1];
+		levelDimensions[0] = blockDimension;
+		int n = 0;
+		while (n < maxNumLevels) {
+			int dimension = levelDimensions[n];
+			int width = (int)Math.round(Math.sqrt(dimension));
+			boolean divisible = square ? width * width == dimension && width % 2 == 0 : dimension % 2 == 0;
+			int nextDimension = square ? dimension / 4 : dimension / 2;
+			if (!divisible || nextDimension < MIN_DIMENSION) {
+				break;
+			}
+			levelDimensions[++n] = nextDimension;
+		}
+		numLevels = n;
+		dimensions = Arrays.copyOf(levelDimensions, numLevels + 1);
+
+		decimationIndices = new int[numLevels][][];
+		decimationRatios = new int[numLevels];
+		for (int l = 0; l < numLevels; l++) {
+			DecimationStrategy decimator = square ? new SquareDecimationStrategy(dimensions[l + 1], dimensions[l])
+					: new AveragingDecimationStrategy(dimensions[l + 1], dimensions[l]);
+			decimationIndices[l] = decimator.getIndices();
+			decimationRatios[l] = decimator.getDecimationRatio();
+		}
+
+		// The symmetries only make sense for square blocks
+		permutations = new int[numLevels + 1][][];
+		for (int l = 0; l <= numLevels; l++) {
+			if (isometries && square) {
+				permutations[l] = SymmetryPermutations.getPermutations(dimensions[l]);
+			} else {
+				int identity[] = new int[dimensions[l]];
+				for (int k = 0; k < identity.length; k++) {
+					identity[k] = k;
+				}
+				permutations[l] = new int[][] {identity};
+			}
+		}
+
+		// Build the pyramid of every domain block, keeping the levels on which its position is kept
+		steps = new int[numLevels + 1];
+		numLevelRows = new int[numLevels + 1];
+		numLevelColumns = new int[numLevels + 1];
+		features = new double[numLevels + 1][];
+		for (int l = 0; l <= numLevels; l++) {
+			steps[l] = spatial ? 1 << l : 1;
+			numLevelRows[l] = (this.numRows + steps[l] - 1) / steps[l];
+			numLevelColumns[l] = (this.numColumns + steps[l] - 1) / steps[l];
+			if (l > 0) {
+				features[l] = new double[numPlanesOrOne * numLevelRows[l] * numLevelColumns[l] * dimensions[l]];
+			}
+		}
+		for (int i = 0; i < numDomainBlocks; i++) {
+			if (numLevels == 0 || getSlot(1, i) < 0) {
+				continue;
+			}
+			double levels[][] = getPyramid(domainPool.getData(), domainPool.getOffset(i));
+			for (int l = 1; l <= numLevels; l++) {
+				int slot = getSlot(l, i);
+				if (slot < 0) {
+					break;
+				}
+				System.arraycopy(levels[l], 0, features[l], slot * dimensions[l], dimensions[l]);
+			}
+		}
+	}
+
+	public int getNumLevels() {
+		return numLevels;
+	}
+
+	/**
+	 * Returns the slot of the domain block in the features of the given level,
+	 * or -1 if its position isn't kept on that level.
+	 */
+	private int getSlot(int level, int index) {
+		int step = steps[level];
+		int plane = index / (numRows * numColumns);
+		int row = (index / numColumns) % numRows;
+		int column = index % numColumns;
+		if (row % step != 0 || column % step != 0) {
+			return -1;
+		}
+		return (plane * numLevelRows[level] + row / step) * numLevelColumns[level] + column / step;
+	}
+
+	/**
+	 * Returns the index of the domain block at the given slot of the given level.
+	 */
+	private int getIndex(int level, int slot) {
+		int step = steps[level];
+		int plane = slot / (numLevelRows[level] * numLevelColumns[level]);
+		int row = (slot / numLevelColumns[level]) % numLevelRows[level];
+		int column = slot % numLevelColumns[level];
+		return (plane * numRows + row * step) * numColumns + column * step;
+	}
+
+	/**
+	 * Averages the block down to every level, and normalizes all of the levels but the first.
+	 */
+	private double[][] getPyramid(double data[], int offset) {
+		double levels[][] = new double[numLevels + 1][];
+		levels[0] = Arrays.copyOfRange(data, offset, offset + dimensions[0]);
+		for (int l = 0; l < numLevels; l++) {
+			int indices[][] = decimationIndices[l];
+			double ratio = decimationRatios[l];
+			levels[l + 1] = new double[dimensions[l + 1]];
+			for (int k = 0; k < indices.length; k++) {
+				double sum = 0;
+				for (int j = 0; j < indices[k].length; j++) {
+					sum += levels[l][indices[k][j]];
+				}
+				levels[l + 1][k] = sum / ratio;
+			}
+		}
+
+		for (int l = 1; l <= numLevels; l++) {
+			normalize(levels[l]);
+		}
+		return levels;
+	}
+
+	/**
+	 * Removes the mean and normalizes the block, flat blocks are mapped to the origin.
+	 */
+	private static void normalize(double block[]) {
+		double mean = 0;
+		for (int k = 0; k < block.length; k++) {
+			mean += block[k];
+		}
+		mean /= block.length;
+
+		double norm = 0;
+		for (int k = 0; k < block.length; k++) {
+			block[k] -= mean;
+			norm += block[k] * block[k];
+		}
+		norm = Math.sqrt(norm);
+
+		for (int k = 0; k < block.length; k++) {
+			block[k] = norm > 0 ? block[k] / norm : 0;
+		}
+	}
+
+	@Override
+	public int[] getCandidates(SignalBlock rangeBlock) {
+		if (numLevels == 0) {
+			// The blocks are too small to average down, so compare all of them
+			int candidates[] = new int[numDomainBlocks];
+			for (int i = 0; i < numDomainBlocks; i++) {
+				candidates[i] = i;
+			}
+			return candidates;
+		}
+
+		double levels[][] = getPyramid(rangeBlock.getData(), 0);
+
+		// Compare all of the domain blocks kept on the coarsest level
+		int numSlots = features[numLevels].length / dimensions[numLevels];
+		long keys[] = new long[Math.min(numCandidates, numSlots)];
+		int numKeys = 0;
+		double queries[] = getQueries(levels[numLevels], numLevels);
+		for (int slot = 0; slot < numSlots; slot++) {
+			numKeys = keep(keys, numKeys, getKey(queries, numLevels, slot, getIndex(numLevels, slot)));
+		}
+
+		// Compare the positions around the best of these on every finer level
+		for (int l = numLevels - 1; l >= 1; l--) {
+			int neighbours[] = getNeighbours(keys, numKeys, steps[l]);
+			keys = new long[Math.min(numCandidates, neighbours.length)];
+			numKeys = 0;
+			queries = getQueries(levels[l], l);
+			for (int index : neighbours) {
+				numKeys = keep(keys, numKeys, getKey(queries, l, getSlot(l, index), index));
+			}
+		}
+
+		// Leave the positions around the best ones for the kernel, from best to worst
+		Arrays.sort(keys, 0, numKeys);
+		return getNeighbours(keys, numKeys, steps[0]);
+	}
+
+	/**
+	 * Returns the domain blocks whose positions are at most step away from those of the given
+	 * blocks along each side, in the same plane, in the same order as the given blocks.
+	 */
+	private int[] getNeighbours(long keys[], int numKeys, int step) {
+		if (!spatial) {
+			int indices[] = new int[numKeys];
+			for (int i = 0; i < numKeys; i++) {
+				indices[i] = (int)keys[i];
+			}
+			return indices;
+		}
+
+		Set<Integer> visited = new HashSet<Integer>();
+		int neighbours[] = new int[numKeys * 9];
+		int numNeighbours = 0;
+		for (int i = 0; i < numKeys; i++) {
+			int index = (int)keys[i];
+			int planeOffset = (index / (numRows * numColumns)) * numRows * numColumns;
+			int row = (index / numColumns) % numRows;
+			int column = index % numColumns;
+
+			// Start with the block itself, at the center of the 3x3 neighbourhood
+			for (int d = 0; d < 9; d++) {
+				int r = row + ((d + 4) % 9 / 3 - 1) * step;
+				int c = column + ((d + 4) % 3 - 1) * step;
+				if (r < 0 || r >= numRows || c < 0 || c >= numColumns) {
+					continue;
+				}
+				int neighbour = planeOffset + r * numColumns + c;
+				if (visited.add(neighbour)) {
+					neighbours[numNeighbours++] = neighbour;
+				}
+			}
+		}
+		return Arrays.copyOf(neighbours, numNeighbours);
+	}
+
+	/**
+	 * Returns the range block under every permutation, one after the other.
+	 */
+	private double[] getQueries(double feature[], int level) {
+		int levelPermutations[][] = permutations[level];
+		int dimension = feature.length;
+		double queries[] = new double[levelPermutations.length * dimension];
+		for (int s = 0; s < levelPermutations.length; s++) {
+			for (int k = 0; k < dimension; k++) {
+				queries[s * dimension + k] = feature[levelPermutations[s][k]];
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Returns a key that sorts by the relative error of the best affine map from the domain block
+	 * in the given slot to the range block on the given level first, and by the domain block's index second.
+	 */
+	private long getKey(double queries[], int level, int slot, int index) {
+		int dimension = dimensions[level];
+		double feature[] = features[level];
+		int offset = slot * dimension;
+
+		double bestCorrelation = 0;
+		for (int q = 0; q < queries.length; q += dimension) {
+			double correlation = 0;
+			for (int k = 0; k < dimension; k++) {
+				correlation += feature[offset + k] * queries[q + k];
+			}
+			bestCorrelation = Math.max(bestCorrelation, negativeScales ? Math.abs(correlation) : correlation);
+		}
+
+		float error = (float)Math.max(1 - bestCorrelation * bestCorrelation, 0);
+		return ((long)Float.floatToIntBits(error) << 32) | index;
+	}
+
+	/**
+	 * Keeps the smallest heap.length keys in a max-heap, returning the number of keys in the heap.
+	 */
+	private static int keep(long heap[], int size, long key) {
+		int i;
+		if (size < heap.length) {
+			// Sift the new key up from the bottom
+			i = size++;
+			while (i > 0 && heap[(i - 1) / 2] < key) {
+				heap[i] = heap[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			heap[i] = key;
+			return size;
+		} else if (size == 0 || key >= heap[0]) {
+			return size;
+		}
+
+		// Replace the largest key, and sift it down
+		i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] > heap[child]) {
+				child++;
+			}
+			if (heap[child] <= key) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = key;
+		return size;
+	}
+}
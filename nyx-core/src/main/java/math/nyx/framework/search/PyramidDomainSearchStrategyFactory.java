@@ -0,0 +1,80 @@
+package math.nyx.framework.search;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import math.nyx.framework.DomainLattice;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategyFactory;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.linear.LinearPartitioningStrategy;
+
+public class PyramidDomainSearchStrategyFactory implements DomainSearchStrategyFactory {
+	private static Logger logger = LogManager.getLogger("Nyx");
+
+	public static final int NUM_LEVELS = 2;
+
+	private int numLevels = NUM_LEVELS;
+
+	public static final int NUM_CANDIDATES = 48;
+
+	private int numCandidates = NUM_CANDIDATES;
+
+	public static final boolean ISOMETRIES = true;
+
+	private boolean isometries = ISOMETRIES;
+
+	public static final boolean NEGATIVE_SCALES = false;
+
+	private boolean negativeScales = NEGATIVE_SCALES;
+
+	@Override
+	public PyramidDomainSearchStrategy getSearchStrategy(PartitioningStrategy partitioner,
+			DomainPool domainPool) {
+		// All of the other partitioners use square blocks
+		boolean square = !(partitioner instanceof LinearPartitioningStrategy);
+		DomainLattice lattice = partitioner.getDomainLattice();
+		if (lattice == null) {
+			lattice = new DomainLattice(1, 1, Math.max(domainPool.size(), 1));
+		}
+
+		PyramidDomainSearchStrategy searchStrategy = new PyramidDomainSearchStrategy(domainPool,
+				partitioner.getRangeDimension(), square, lattice.getNumPlanes(), lattice.getNumRows(),
+				lattice.getNumColumns(), numLevels, numCandidates, isometries, negativeScales);
+		logger.info("Built a pyramid of {} levels for {} domain blocks, keeping {} candidates per range block.",
+				searchStrategy.getNumLevels(), domainPool.size(), numCandidates);
+		return searchStrategy;
+	}
+
+	public void setNumLevels(int numLevels) {
+		this.numLevels = numLevels;
+	}
+
+	public int getNumLevels() {
+		return numLevels;
+	}
+
+	public void setNumCandidates(int numCandidates) {
+		this.numCandidates = numCandidates;
+	}
+
+	public int getNumCandidates() {
+		return numCandidates;
+	}
+
+	public void setIsometries(boolean isometries) {
+		this.isometries = isometries;
+	}
+
+	public boolean getIsometries() {
+		return isometries;
+	}
+
+	public void setNegativeScales(boolean negativeScales) {
+		this.negativeScales = negativeScales;
+	}
+
+	public boolean getNegativeScales() {
+		return negativeScales;
+	}
+}
@@ -0,0 +1,193 @@
+package math.nyx.framework.search;
+
+/**
+ * Fisher/Jacquin style block classifier.
+ *
+ * A block is split into four quadrants and classified by the ordering of the quadrant
+ * means and, optionally, by the ordering of the quadrant variances. Square blocks can be
+ * classified in a way that is invariant under the eight isometries of the square, so that
+ * a block and any of its rotations or flips are always placed in the same class.
+ *
+ * Blocks that are not square are split into four contiguous segments instead.
+ *
+ * @author jwhite
+ */
+public class QuadrantClassifier {
+	public static final int NUM_QUADRANTS = 4;
+
+	/** Number of ways in which the four quadrants can be ordered (4!). */
+	public static final int NUM_ORDERINGS = 24;
+
+	/**
+	 * Quadrant permutations for each of the symmetries in math.nyx.affine.Symmetry (in
+	 * declaration order) when applied to a block with quadrants 0 1 / 2 3.
+	 */
+	private static final int QUADRANT_PERMUTATIONS[][] = new int[][] {
+		{0, 1, 2, 3}, // ORIGINAL
+		{2, 0, 3, 1}, // ROTATE_90
+		{3, 2, 1, 0}, // ROTATE_180
+		{1, 3, 0, 2}, // ROTATE_270
+		{2, 3, 0, 1}, // FLIP
+		{3, 1, 2, 0}, // ROTATE_90_FLIP
+		{1, 0, 3, 2}, // ROTATE_180_FLIP
+		{0, 2, 1, 3}, // ROTATE_270_FLIP
+	};
+
+	private static final int FACTORIALS[] = new int[] {6, 2, 1, 1};
+
+	private final int dimension;
+	private final int quadrants[];
+	private final int quadrantSizes[] = new int[NUM_QUADRANTS];
+	private final boolean isometryInvariant;
+	private final boolean useVariance;
+
+	public QuadrantClassifier(int dimension, boolean isometryInvariant, boolean useVariance) {
+		this.dimension = dimension;
+		this.useVariance = useVariance;
+
+		// Map every entry of the block to one of the quadrants
+		quadrants = new int[dimension];
+		int width = (int)Math.round(Math.sqrt(dimension));
+		boolean square = width * width == dimension && width > 1;
+		for (int k = 0; k < dimension; k++) {
+			if (square) {
+				int row = k / width;
+				int column = k % width;
+				quadrants[k] = 2 * ((2 * row) / width) + ((2 * column) / width);
+			} else {
+				quadrants[k] = Math.min((NUM_QUADRANTS * k) / dimension, NUM_QUADRANTS - 1);
+			}
+			quadrantSizes[quadrants[k]]++;
+		}
+
+		// The isometries only make sense for square blocks
+		this.isometryInvariant = isometryInvariant && square;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getNumClasses() {
+		return useVariance ? NUM_ORDERINGS * NUM_ORDERINGS : NUM_ORDERINGS;
+	}
+
+	/**
+	 * Classifies the block stored in data[offset] to data[offset + dimension - 1].
+	 */
+	public int classify(double data[], int offset) {
+		double means[] = new double[NUM_QUADRANTS];
+		double variances[] = new double[NUM_QUADRANTS];
+		for (int k = 0; k < dimension; k++) {
+			double xi = data[offset + k];
+			means[quadrants[k]] += xi;
+			variances[quadrants[k]] += xi * xi;
+		}
+
+		for (int q = 0; q < NUM_QUADRANTS; q++) {
+			if (quadrantSizes[q] == 0) {
+				continue;
+			}
+			means[q] /= quadrantSizes[q];
+			variances[q] = variances[q] / quadrantSizes[q] - means[q] * means[q];
+		}
+
+		if (!isometryInvariant) {
+			return getClass(means, variances, QUADRANT_PERMUTATIONS[0]);
+		}
+
+		// Use the smallest class over all of the isometries as the canonical class
+		int canonicalClass = Integer.MAX_VALUE;
+		for (int permutation[] : QUADRANT_PERMUTATIONS) {
+			canonicalClass = Math.min(canonicalClass, getClass(means, variances, permutation));
+		}
+		return canonicalClass;
+	}
+
+	private int getClass(double means[], double variances[], int permutation[]) {
+		int meanOrdering = getOrdering(means, permutation);
+		if (!useVariance) {
+			return meanOrdering;
+		}
+		return meanOrdering * NUM_ORDERINGS + getOrdering(variances, permutation);
+	}
+
+	/**
+	 * Distance between two classes, used to determine which classes neighbour one another.
+	 *
+	 * Classes whose mean orderings differ are always further apart than classes that
+	 * only differ in their variance ordering.
+	 */
+	public int getDistance(int classA, int classB) {
+		if (!useVariance) {
+			return getKendallDistance(classA, classB);
+		}
+		int meanDistance = getKendallDistance(classA / NUM_ORDERINGS, classB / NUM_ORDERINGS);
+		int varianceDistance = getKendallDistance(classA % NUM_ORDERINGS, classB % NUM_ORDERINGS);
+		return meanDistance * (NUM_QUADRANTS * (NUM_QUADRANTS - 1) / 2 + 1) + varianceDistance;
+	}
+
+	/**
+	 * Returns the index (0 to 23) of the ordering of the permuted values, sorted
+	 * in descending order. Ties are broken using the quadrant position.
+	 */
+	protected static int getOrdering(double values[], int permutation[]) {
+		int order[] = new int[] {0, 1, 2, 3};
+		// Insertion sort, stable
+		for (int i = 1; i < NUM_QUADRANTS; i++) {
+			int q = order[i];
+			int j = i - 1;
+			while (j >= 0 && values[permutation[order[j]]] < values[permutation[q]]) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = q;
+		}
+
+		// Lehmer code
+		int index = 0;
+		for (int i = 0; i < NUM_QUADRANTS; i++) {
+			int smaller = 0;
+			for (int j = i + 1; j < NUM_QUADRANTS; j++) {
+				if (order[j] < order[i]) {
+					smaller++;
+				}
+			}
+			index += smaller * FACTORIALS[i];
+		}
+		return index;
+	}
+
+	protected static int[] getPositions(int ordering) {
+		int remaining[] = new int[] {0, 1, 2, 3};
+		int numRemaining = NUM_QUADRANTS;
+		int positions[] = new int[NUM_QUADRANTS];
+		for (int i = 0; i < NUM_QUADRANTS; i++) {
+			int k = ordering / FACTORIALS[i];
+			ordering %= FACTORIALS[i];
+			positions[remaining[k]] = i;
+			for (int j = k; j < numRemaining - 1; j++) {
+				remaining[j] = remaining[j + 1];
+			}
+			numRemaining--;
+		}
+		return positions;
+	}
+
+	/**
+	 * Number of quadrant pairs that appear in a different relative order.
+	 */
+	protected static int getKendallDistance(int orderingA, int orderingB) {
+		int a[] = getPositions(orderingA);
+		int b[] = getPositions(orderingB);
+		int distance = 0;
+		for (int i = 0; i < NUM_QUADRANTS; i++) {
+			for (int j = i + 1; j < NUM_QUADRANTS; j++) {
+				if ((a[i] < a[j]) != (b[i] < b[j])) {
+					distance++;
+				}
+			}
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,94 @@
+package math.nyx.framework.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.DomainSearchStrategy;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.SignalBlock;
+
+/**
+ * Only compares a range block against the domain blocks that are close to it in the signal,
+ * starting with the closest ones, so that good matches are usually found early.
+ *
+ * The domain blocks in the window are further restricted to the candidates of the given
+ * search strategy, unless it's exhaustive or none of them are candidates.
+ *
+ * @author jwhite
+ */
+public class WindowedDomainSearchStrategy implements DomainSearchStrategy {
+	private final PartitioningStrategy partitioner;
+	private final int radius;
+	private final DomainSearchStrategy searchStrategy;
+	private final int poolSize;
+
+	/**
+	 * poolIndices[i] is the pool index of the domain block with index i, or -1 when it isn't in the pool.
+	 */
+	private final int poolIndices[];
+
+	public WindowedDomainSearchStrategy(PartitioningStrategy partitioner, DomainPool domainPool, int radius,
+			DomainSearchStrategy searchStrategy) {
+		this.partitioner = partitioner;
+		this.radius = radius;
+		this.searchStrategy = searchStrategy instanceof ExhaustiveDomainSearchStrategy ? null : searchStrategy;
+
+		poolSize = domainPool.size();
+		poolIndices = new int[partitioner.getNumDomainPartitions()];
+		Arrays.fill(poolIndices, -1);
+		for (int i = 0; i < domainPool.size(); i++) {
+			poolIndices[domainPool.getDomainBlockIndex(i)] = i;
+		}
+	}
+
+	@Override
+	public int[] getCandidates(SignalBlock rangeBlock) {
+		BitSet allowed = null;
+		if (searchStrategy != null) {
+			allowed = new BitSet(poolIndices.length);
+			for (int index : searchStrategy.getCandidates(rangeBlock)) {
+				allowed.set(index);
+			}
+		}
+
+		int window[] = partitioner.getDomainWindow(rangeBlock.getIndex(), radius);
+		int candidates[] = getCandidates(window, allowed);
+		if (candidates.length == 0 && allowed != null) {
+			// None of the nearby domain blocks were allowed, so compare all of them
+			candidates = getCandidates(window, null);
+		}
+		if (candidates.length == 0) {
+			// None of the nearby domain blocks are in the pool, so look further away
+			candidates = searchStrategy != null ? searchStrategy.getCandidates(rangeBlock) : getAllCandidates();
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns the pool indices of the domain blocks in the window, skipping those that aren't allowed.
+	 */
+	private int[] getCandidates(int window[], BitSet allowed) {
+		int candidates[] = new int[window.length];
+		int numCandidates = 0;
+		for (int domainBlockIndex : window) {
+			int index = poolIndices[domainBlockIndex];
+			if (index >= 0 && (allowed == null || allowed.get(index))) {
+				candidates[numCandidates++] = index;
+			}
+		}
+		return Arrays.copyOf(candidates, numCandidates);
+	}
+
+	private int[] getAllCandidates() {
+		int candidates[] = new int[poolSize];
+		for (int i = 0; i < poolSize; i++) {
+			candidates[i] = i;
+		}
+		return candidates;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+}
@@ -2,6 +2,10 @@ package math.nyx.framework.square;
 
 import math.nyx.core.Signal;
 import math.nyx.framework.AbstractPartitioningStrategy;
+import math.nyx.framework.DomainLattice;
+import math.nyx.framework.LatticeGeometry;
+
+import org.springframework.util.Assert;
 
 public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 	private final int scale;
@@ -12,10 +16,29 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 	private int rangeWidth;
 	private final int domainDimension;
 	private final int rangeDimension;
+	private final int domainStride;
+	private final LatticeGeometry latticeGeometry;
 
 	public SquarePartitioningStrategy(Signal signal, int scale) {
+		this(signal, scale, 0);
+	}
+
+	/**
+	 * Partitions the signal using range blocks of the given (unscaled) width, or
+	 * the widest suitable range blocks when the given width is not positive.
+	 */
+	public SquarePartitioningStrategy(Signal signal, int scale, int rangeWidth) {
+		this(signal, scale, rangeWidth, 1);
+	}
+
+	/**
+	 * Same as above, with domain blocks that start every domainStride (unscaled)
+	 * rows and columns, instead of at every row and column.
+	 */
+	public SquarePartitioningStrategy(Signal signal, int scale, int rangeWidth, int domainStride) {
 		super(signal, scale);
-		
+		Assert.isTrue(domainStride >= 1, "Domain stride must be positive.");
+
 		if(!isCompatible(signal, scale)) {
 			signal.pad(getPaddedDimension(signal));
 		}
@@ -26,11 +49,24 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 		originalSignalWidth = (int)Math.round(Math.sqrt(signalDimension));
 		scaledSignalWidth = (int)Math.round(Math.sqrt(getScaledSignalDimension()));
 		
-		rangeWidth = calculateRangeWidth(signalDimension) * scale;
-		domainWidth = 2*rangeWidth;
+		if (rangeWidth <= 0) {
+			rangeWidth = calculateRangeWidth(signalDimension);
+		}
+		this.rangeWidth = rangeWidth * scale;
+		domainWidth = 2*this.rangeWidth;
 
 		domainDimension = domainWidth * domainWidth;
-		rangeDimension = rangeWidth * rangeWidth;
+		rangeDimension = this.rangeWidth * this.rangeWidth;
+
+		this.domainStride = domainStride;
+		int numDomainBlocksPerRow = getNumDomainBlocksPerRow();
+		int numRangeBlocksPerRow = scaledSignalWidth / this.rangeWidth;
+		latticeGeometry = new LatticeGeometry(new DomainLattice(1, numDomainBlocksPerRow, numDomainBlocksPerRow),
+				numRangeBlocksPerRow, numRangeBlocksPerRow, rangeWidth, domainStride);
+	}
+
+	private int getNumDomainBlocksPerRow() {
+		return (originalSignalWidth - (domainWidth / scale)) / domainStride + 1;
 	}
 
 	private int calculateRangeWidth(int signalDimension) {
@@ -74,9 +110,13 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 		return rangeDimension;
 	}
 
+	public int getDomainStride() {
+		return domainStride;
+	}
+
 	@Override
 	public int getNumDomainPartitions() {
-		int k = originalSignalWidth - (domainWidth / getScale()) + 1;
+		int k = getNumDomainBlocksPerRow();
 		return k*k;
 	}
 
@@ -115,8 +155,8 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 			numBlocksPerRow = spaceWidth / blockWidth;
 			numBlocksPerColumn = spaceHeight / blockHeight; 
 		} else {
-			numBlocksPerRow = (spaceWidth / scale) - (blockWidth / scale) + 1;
-			numBlocksPerColumn = (spaceHeight / scale) - (blockHeight / scale) + 1;
+			numBlocksPerRow = ((spaceWidth / scale) - (blockWidth / scale)) / domainStride + 1;
+			numBlocksPerColumn = ((spaceHeight / scale) - (blockHeight / scale)) / domainStride + 1;
 		}
 
 		int rowIndex = index / numBlocksPerRow;
@@ -127,7 +167,7 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 			offset = (rowIndex * (numBlocksPerRow * blockWidth * blockHeight)) + (columnIndex * blockWidth);
 		} else {
 			offset = (rowIndex * spaceWidth) + columnIndex;
-			offset *= scale;
+			offset *= scale * domainStride;
 		}
 
 		/*
@@ -139,6 +179,11 @@ public class SquarePartitioningStrategy extends AbstractPartitioningStrategy {
 		return offset;
 	}
 
+	@Override
+	public LatticeGeometry getLatticeGeometry() {
+		return latticeGeometry;
+	}
+
 	public int getPaddedDimension(Signal signal) {
 		// Pad the signal to the closest integer of the form k^2
 		int k = (int)Math.ceil(Math.sqrt(signal.getDimension()));
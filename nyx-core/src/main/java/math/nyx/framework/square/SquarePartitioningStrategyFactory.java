@@ -6,13 +6,29 @@ import math.nyx.framework.PartitioningStrategyFactory;
 public class SquarePartitioningStrategyFactory implements PartitioningStrategyFactory {
 	public final static int SCALE = 1;
 
+	public static final int DOMAIN_STRIDE = 1;
+
+	private int domainStride = DOMAIN_STRIDE;
+
 	@Override
 	public SquarePartitioningStrategy getPartitioner(Signal signal) {
-		return new SquarePartitioningStrategy(signal, SCALE);
+		return getPartitioner(signal, SCALE);
 	}
 
 	@Override
 	public SquarePartitioningStrategy getPartitioner(Signal signal, int scale) {
-		return new SquarePartitioningStrategy(signal, scale);
+		return new SquarePartitioningStrategy(signal, scale, 0, domainStride);
+	}
+
+	/**
+	 * Number of (unscaled) rows and columns between the starts of neighbouring domain blocks. Larger strides
+	 * shrink the domain pool, the encoder and the decoder must use the same stride.
+	 */
+	public void setDomainStride(int domainStride) {
+		this.domainStride = domainStride;
+	}
+
+	public int getDomainStride() {
+		return domainStride;
 	}
 }
@@ -8,15 +8,19 @@ import java.awt.image.DataBufferUShort;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
-import org.apache.commons.math.linear.Array2DRowRealMatrix;
 import org.apache.commons.math.linear.RealMatrix;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import math.nyx.core.ByteSampleVector;
+import math.nyx.core.DoubleSampleVector;
 import math.nyx.core.Fractal;
+import math.nyx.core.SampleVector;
+import math.nyx.core.ShortSampleVector;
 import math.nyx.core.Signal;
 
 /**
@@ -47,22 +51,31 @@ public class ImageSignal extends Signal {
 		this.metadata = metadata;
 	}
 
+	public ImageSignal(Fractal fractal, SampleVector decodedVector, ImageMetadata metadata) {
+		super(fractal, decodedVector);
+		this.metadata = metadata;
+	}
+
 	public ImageSignal(BufferedImage img) {
 		this(bufferedImageToVector(img), new ImageMetadata(img.getWidth(), img.getHeight(),
 														   img.getType(), img.getColorModel().getNumComponents()));
 	}
 
 	public ImageSignal(int size) {
-		this(new Array2DRowRealMatrix(size, 1));
+		this(new DoubleSampleVector(size));
 	}
 
 	public ImageSignal(RealMatrix v) {
+		this(SampleVector.valueOf(v));
+	}
+
+	public ImageSignal(SampleVector v) {
 		super(v);
-		metadata = new ImageMetadata(1, v.getRowDimension(), BufferedImage.TYPE_BYTE_GRAY, 1);
+		metadata = new ImageMetadata(1, v.size(), BufferedImage.TYPE_BYTE_GRAY, 1);
 	}
 
 	public ImageSignal(Signal s, ImageMetadata metadata) {
-		super(s.getVector());
+		super(s.getSamples());
 		this.metadata = metadata;
 	}
 
@@ -71,6 +84,11 @@ public class ImageSignal extends Signal {
 		this.metadata = metadata;
 	}
 
+	public ImageSignal(SampleVector v, ImageMetadata metadata) {
+		super(v);
+		this.metadata = metadata;
+	}
+
 	public ImageSignal(InputStream is) throws IOException {
 		this(ImageIO.read(is));
 	}
@@ -91,7 +109,7 @@ public class ImageSignal extends Signal {
 	public BufferedImage getImage() {
 		BufferedImage img = metadata.getBufferedImage();
 		DataBuffer dataBuffer = img.getRaster().getDataBuffer();
-		double[] data = getVector().getColumn(0);
+		SampleVector data = getSamples();
 
 		int numChannels = getNumChannels();
 		int numEntriesPerChannel = Math.round((float)dataBuffer.getSize() / numChannels);
@@ -105,7 +123,7 @@ public class ImageSignal extends Signal {
 					for (int j = 0; j < numEntriesPerChannel; j++) {
 						int u = numEntriesPerChannel*i + j;
 						int v = i + j*numChannels;
-						pixels[v] = (byte)data[u];
+						pixels[v] = (byte)data.get(u);
 					}
 				}
 			}
@@ -114,7 +132,7 @@ public class ImageSignal extends Signal {
 			{
 				final short[] pixels = ((DataBufferUShort)dataBuffer).getData();
 				for (int i = 0; i < pixels.length; i++) {
-					pixels[i] = (short)data[i];
+					pixels[i] = (short)data.get(i);
 				}
 			}
 			break;
@@ -122,7 +140,7 @@ public class ImageSignal extends Signal {
 			{
 				final int[] pixels = ((DataBufferInt)dataBuffer).getData();
 				for (int i = 0; i < pixels.length; i++) {
-					pixels[i] = (int)data[i];
+					pixels[i] = (int)data.get(i);
 				}
 			}
 			break;
@@ -133,41 +151,43 @@ public class ImageSignal extends Signal {
 		return img;
 	}
 
-	private static RealMatrix bufferedImageToVector(BufferedImage img)  {
+	/**
+	 * Stores the samples in the smallest type that can hold them.
+	 */
+	private static SampleVector bufferedImageToVector(BufferedImage img)  {
 		if (img == null) throw new IllegalArgumentException("Image cannot be null.");
 		DataBuffer dataBuffer = img.getRaster().getDataBuffer();
 		final int numChannels = img.getColorModel().getNumComponents();
 		final int bufferSize = dataBuffer.getSize();
-		RealMatrix x = new Array2DRowRealMatrix(bufferSize, 1);
+		SampleVector x;
 
 		int k = 0;
 		switch(dataBuffer.getDataType()) {
 		case DataBuffer.TYPE_BYTE:
 			{
+				// Store the channels one after another
 				final byte[] pixels = ((DataBufferByte)dataBuffer).getData();
+				final byte[] samples = new byte[bufferSize];
 				for (int i = 0; i < numChannels; i++) {
 					for (int j = i; j < pixels.length; j += numChannels) {
-						int u = j;
-						int v = k++;
-						//System.out.println("u: " + u + " v: " + v);
-						x.setEntry(v, 0, pixels[u] & 0xFF);
+						samples[k++] = pixels[j];
 					}
 				}
+				x = new ByteSampleVector(samples);
 			}
 			break;
 		case DataBuffer.TYPE_USHORT:
 			{
 				final short[] pixels = ((DataBufferUShort)dataBuffer).getData();
-				for (int j = 0; j < bufferSize; j++) {
-					x.setEntry(k++, 0, pixels[j]);
-				}
+				x = new ShortSampleVector(Arrays.copyOf(pixels, bufferSize));
 			}
 			break;
 			case DataBuffer.TYPE_INT:
 			{
 				final int[] pixels = ((DataBufferInt)dataBuffer).getData();
+				x = new DoubleSampleVector(bufferSize);
 				for (int j = 0; j < bufferSize; j++) {
-					x.setEntry(k++, 0, pixels[j]);
+					x.set(k++, pixels[j]);
 				}
 			}
 			break;
@@ -183,6 +203,12 @@ public class ImageSignal extends Signal {
 		ImageIO.write(getImage(), "png", file);
 	}
 
+	@Override
+	protected void setRange(double minVal, double maxVal) {
+		setMinVal(minVal);
+		setMaxVal(maxVal);
+	}
+
 	public void setMinVal(double minVal) {
 		this.minVal = minVal;
 	}
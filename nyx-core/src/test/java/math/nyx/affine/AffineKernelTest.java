@@ -1,8 +1,16 @@
 package math.nyx.affine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
 import math.nyx.affine.AffineKernel;
 import math.nyx.affine.AffineTransform;
+import math.nyx.core.FixedPointSampleVector;
+import math.nyx.core.FloatSampleVector;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.Precision;
 import math.nyx.framework.SignalBlock;
 import math.nyx.framework.square.SquareDecimationStrategyFactory;
 import math.nyx.utils.TestUtils;
@@ -54,6 +62,250 @@ public class AffineKernelTest {
 		assertEquals(expectedOffset, transform.getOffset(), TestUtils.DELTA);
 	}
 
+	@Test
+	public void distanceMatchesTransformedDomain() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+		kernel.setAllowNegativeScales(true);
+
+		Random random = new Random(13);
+		for (int n = 0; n < 20; n++) {
+			RealMatrix domain = new Array2DRowRealMatrix(16, 1);
+			RealMatrix range = new Array2DRowRealMatrix(16, 1);
+			for (int i = 0; i < 16; i++) {
+				domain.setEntry(i, 0, random.nextInt(256));
+				range.setEntry(i, 0, random.nextInt(256));
+			}
+			SignalBlock domainBlock = new SignalBlock(0, domain);
+			SignalBlock rangeBlock = new SignalBlock(0, range);
+
+			AffineTransform transform = kernel.encode(domainBlock, rangeBlock);
+			assertEquals(transform.getDistance(), kernel.getDistance(domainBlock, rangeBlock), TestUtils.DELTA);
+
+			// The closed form distance should match the distance to the permuted domain
+			RealMatrix transformedDomain = domain.copy();
+			AffineTransform.permute(transformedDomain, transform.getSymmetry());
+			double sum = 0;
+			for (int i = 0; i < 16; i++) {
+				double diff = range.getEntry(i, 0) - transform.getScale() * transformedDomain.getEntry(i, 0) - transform.getOffset();
+				sum += diff * diff;
+			}
+			assertEquals(Math.sqrt(sum), transform.getDistance(), TestUtils.DELTA);
+		}
+	}
+
+	@Test
+	public void quantizedDistanceMatchesTransformedDomain() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+		kernel.setAllowNegativeScales(true);
+		kernel.setScaleBits(5);
+		kernel.setOffsetBits(7);
+
+		Random random = new Random(17);
+		for (int n = 0; n < 20; n++) {
+			RealMatrix domain = new Array2DRowRealMatrix(16, 1);
+			RealMatrix range = new Array2DRowRealMatrix(16, 1);
+			for (int i = 0; i < 16; i++) {
+				domain.setEntry(i, 0, random.nextInt(256));
+				range.setEntry(i, 0, random.nextInt(256));
+			}
+			SignalBlock domainBlock = new SignalBlock(0, domain);
+			SignalBlock rangeBlock = new SignalBlock(0, range);
+
+			QuantizedAffineTransform transform = (QuantizedAffineTransform)kernel.encode(domainBlock, rangeBlock);
+			assertEquals(transform.getDistance(), kernel.getDistance(domainBlock, rangeBlock), TestUtils.DELTA);
+			assertTrue(Math.abs(transform.getScale()) <= 1);
+			assertEquals(transform.getScaleQuantizer().getValue(transform.getScaleCode()), transform.getScale(), 0);
+			assertEquals(transform.getOffsetQuantizer().getValue(transform.getOffsetCode()), transform.getOffset(), 0);
+
+			// The distance should be measured with the quantized coefficients
+			RealMatrix transformedDomain = domain.copy();
+			AffineTransform.permute(transformedDomain, transform.getSymmetry());
+			double sum = 0;
+			for (int i = 0; i < 16; i++) {
+				double diff = range.getEntry(i, 0) - transform.getScale() * transformedDomain.getEntry(i, 0) - transform.getOffset();
+				sum += diff * diff;
+			}
+			assertEquals(Math.sqrt(sum), transform.getDistance(), TestUtils.DELTA);
+		}
+	}
+
+	@Test
+	public void poolMatchesBlocks() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+
+		Random random = new Random(17);
+		int numDomainBlocks = 8;
+		DomainPool domainPool = new DomainPool(numDomainBlocks, 16);
+		SignalBlock domainBlocks[] = new SignalBlock[numDomainBlocks];
+		for (int k = 0; k < numDomainBlocks; k++) {
+			RealMatrix domain = new Array2DRowRealMatrix(16, 1);
+			for (int i = 0; i < 16; i++) {
+				domain.setEntry(i, 0, random.nextInt(256));
+			}
+			domainBlocks[k] = new SignalBlock(k, domain);
+			domainPool.setBlock(k, domain.getColumn(0));
+		}
+
+		RealMatrix range = new Array2DRowRealMatrix(16, 1);
+		for (int i = 0; i < 16; i++) {
+			range.setEntry(i, 0, random.nextInt(256));
+		}
+		SignalBlock rangeBlock = new SignalBlock(3, range);
+
+		for (int k = 0; k < numDomainBlocks; k++) {
+			assertEquals(domainBlocks[k].getSumOfPoints(), domainPool.getSumOfPoints(k), TestUtils.DELTA);
+			assertEquals(domainBlocks[k].getSumOfSquaredPoints(), domainPool.getSumOfSquaredPoints(k), TestUtils.DELTA);
+
+			AffineTransform expected = kernel.encode(domainBlocks[k], rangeBlock);
+			AffineTransform actual = kernel.encode(domainPool, k, rangeBlock);
+			assertEquals(expected.getDomainBlockIndex(), actual.getDomainBlockIndex());
+			assertEquals(expected.getRangeBlockIndex(), actual.getRangeBlockIndex());
+			assertEquals(expected.getSymmetry(), actual.getSymmetry());
+			assertEquals(expected.getScale(), actual.getScale(), TestUtils.DELTA);
+			assertEquals(expected.getOffset(), actual.getOffset(), TestUtils.DELTA);
+			assertEquals(kernel.getDistance(domainBlocks[k], rangeBlock),
+					kernel.getDistance(domainPool, k, rangeBlock), TestUtils.DELTA);
+		}
+	}
+
+	@Test
+	public void reducedPrecisionPoolsMatchDoublePool() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+
+		Random random = new Random(29);
+		int numDomainBlocks = 32;
+		DomainPool domainPool = new DomainPool(numDomainBlocks, 16);
+		DomainPool floatPool = new DomainPool(numDomainBlocks, 16);
+		floatPool.setPrecision(Precision.FLOAT, 0, 255);
+		DomainPool fixedPool = new DomainPool(numDomainBlocks, 16);
+		fixedPool.setPrecision(Precision.FIXED, 0, 255);
+		for (int k = 0; k < numDomainBlocks; k++) {
+			double domain[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				domain[i] = random.nextInt(1024) / 4.0;
+			}
+			domainPool.setBlock(k, domain);
+			floatPool.setBlock(k, domain);
+			fixedPool.setBlock(k, domain);
+		}
+		assertTrue(floatPool.getSamples() instanceof FloatSampleVector);
+		assertTrue(fixedPool.getSamples() instanceof FixedPointSampleVector);
+
+		for (int r = 0; r < 4; r++) {
+			double range[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				range[i] = random.nextInt(256);
+			}
+			SignalBlock rangeBlock = new SignalBlock(r, range);
+			SignalBlock floatRangeBlock = new SignalBlock(r, range);
+			floatRangeBlock.setSamples(new FloatSampleVector(16));
+			floatRangeBlock.getSamples().set(0, range, 0, 16);
+			SignalBlock fixedRangeBlock = new SignalBlock(r, range);
+			fixedRangeBlock.setSamples(fixedPool.getSamples().create(16));
+			fixedRangeBlock.getSamples().set(0, range, 0, 16);
+
+			for (int k = 0; k < numDomainBlocks; k++) {
+				// The quarters are exact with floats and codes, so only the sums are rounded
+				AffineTransform expected = kernel.encode(domainPool, k, rangeBlock);
+				AffineTransform fixed = kernel.encode(fixedPool, k, fixedRangeBlock);
+				assertEquals(expected.getSymmetry(), fixed.getSymmetry());
+				assertEquals(expected.getScale(), fixed.getScale(), TestUtils.DELTA);
+				assertEquals(expected.getOffset(), fixed.getOffset(), TestUtils.DELTA);
+				assertEquals(kernel.getDistance(domainPool, k, rangeBlock),
+						kernel.getDistance(fixedPool, k, fixedRangeBlock), TestUtils.DELTA);
+
+				AffineTransform floatTransform = kernel.encode(floatPool, k, floatRangeBlock);
+				assertEquals(expected.getScale(), floatTransform.getScale(), 0.001);
+				assertEquals(expected.getOffset(), floatTransform.getOffset(), 0.1);
+				assertEquals(kernel.getDistance(domainPool, k, rangeBlock),
+						kernel.getDistance(floatPool, k, floatRangeBlock), 0.1);
+			}
+		}
+	}
+
+	@Test
+	public void fusedKernelMatchesAffineKernel() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+		FusedAffineKernel fusedKernel = new FusedAffineKernel();
+		fusedKernel.setPermute(true);
+
+		Random random = new Random(19);
+		int numDomainBlocks = 32;
+		DomainPool domainPool = new DomainPool(numDomainBlocks, 16, 5);
+		for (int k = 0; k < numDomainBlocks; k++) {
+			double domain[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				domain[i] = random.nextInt(256);
+			}
+			domainPool.setBlock(k, domain);
+		}
+
+		for (int r = 0; r < 4; r++) {
+			double range[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				range[i] = random.nextInt(256);
+			}
+			SignalBlock rangeBlock = new SignalBlock(r, range);
+
+			for (int k = 0; k < numDomainBlocks; k++) {
+				AffineTransform expected = kernel.encode(domainPool, k, rangeBlock);
+				AffineTransform actual = fusedKernel.encode(domainPool, k, rangeBlock);
+				assertEquals(expected.getDomainBlockIndex(), actual.getDomainBlockIndex());
+				assertEquals(expected.getRangeBlockIndex(), actual.getRangeBlockIndex());
+				assertEquals(expected.getSymmetry(), actual.getSymmetry());
+				assertEquals(expected.getScale(), actual.getScale(), TestUtils.DELTA);
+				assertEquals(expected.getOffset(), actual.getOffset(), TestUtils.DELTA);
+				assertEquals(expected.getDistance(), actual.getDistance(), TestUtils.DELTA);
+				assertEquals(kernel.getDistance(domainPool, k, rangeBlock),
+						fusedKernel.getDistance(domainPool, k, rangeBlock), TestUtils.DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void lowerBoundDoesNotExceedDistance() {
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+		kernel.setMaxScale(0.75);
+
+		Random random = new Random(23);
+		int numDomainBlocks = 32;
+		DomainPool domainPool = new DomainPool(numDomainBlocks, 16);
+		for (int k = 0; k < numDomainBlocks; k++) {
+			// Vary the contrast of the domain blocks
+			double domain[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				domain[i] = random.nextInt(1 + 8*k);
+			}
+			domainPool.setBlock(k, domain);
+		}
+
+		int numBounded = 0;
+		for (int r = 0; r < 4; r++) {
+			double range[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				range[i] = random.nextInt(256);
+			}
+			SignalBlock rangeBlock = new SignalBlock(r, range);
+
+			for (int k = 0; k < numDomainBlocks; k++) {
+				double lowerBound = kernel.getLowerBound(domainPool, k, rangeBlock);
+				AffineTransform transform = kernel.encode(domainPool, k, rangeBlock);
+				assertTrue(lowerBound <= transform.getDistance());
+				assertTrue(Math.abs(transform.getScale()) <= kernel.getMaxScale());
+				if (lowerBound > 0) {
+					numBounded++;
+				}
+			}
+		}
+		assertTrue(numBounded > 0);
+	}
+
 	@Test
 	public void verifyTransform() {
 		double rangeVector[] = new double[] {
@@ -2,6 +2,7 @@ package math.nyx.affine;
 
 import math.nyx.affine.AffineTransform;
 import math.nyx.affine.Symmetry;
+import math.nyx.core.FixedPointSampleVector;
 import math.nyx.image.ImageSignal;
 import math.nyx.utils.TestUtils;
 
@@ -32,6 +33,72 @@ public class AffineTransformTest {
 		assertArrayEquals(expected, x.getColumn(0), TestUtils.DELTA);
 	}
 
+	@Test
+	public void applyToBuffer() {
+		final int n = 16;
+		ImageSignal signal = new ImageSignal(new Array2DColumnRealMatrix(n, 1));
+		signal.setMinVal(-1000);
+		signal.setMaxVal(1000);
+
+		for (Symmetry symmetry : Symmetry.values()) {
+			AffineTransform t = new AffineTransform(0, 0, 0, 2, 3, symmetry);
+
+			// Permute and scale a matrix in place
+			RealMatrix expected = TestUtils.generateSignal(n);
+			AffineTransform.permute(expected, symmetry);
+			expected = expected.scalarMultiply(2).scalarAdd(3);
+
+			// Transform the same values from one buffer into another
+			double source[] = TestUtils.generateSignal(n).getColumn(0);
+			double target[] = new double[n];
+			t.apply(source, target, signal);
+
+			assertArrayEquals(expected.getColumn(0), target, TestUtils.DELTA);
+		}
+	}
+
+	@Test
+	public void applyToFixedPointCodes() {
+		final int n = 16;
+		ImageSignal signal = new ImageSignal(new Array2DColumnRealMatrix(n, 1));
+		signal.setMinVal(10);
+		signal.setMaxVal(200);
+
+		// Q8.8 codes of values in [5, 260], as used for 8-bit images
+		double minVal = 5;
+		int fractionBits = 8;
+		FixedPointSampleVector source = new FixedPointSampleVector(n, minVal, fractionBits);
+		for (int i = 0; i < n; i++) {
+			source.set(i, 5 + i * 12.3);
+		}
+
+		for (Symmetry symmetry : Symmetry.values()) {
+			for (double scale : new double[] {0.75, -0.4, 1.5}) {
+				AffineTransform t = new AffineTransform(0, 0, 0, scale, 17.2, symmetry);
+				double expected[] = new double[n];
+				t.apply(source.toArray(), expected, signal);
+
+				FixedPointSampleVector target = source.create(n);
+				t.apply(source.getDataRef(), target.getDataRef(), minVal, fractionBits, signal);
+
+				// The results are within a code of the exact ones, and still bounded by the signal
+				assertArrayEquals(expected, target.toArray(), source.getStep());
+			}
+		}
+	}
+
+	@Test
+	public void applyToConstant() {
+		ImageSignal signal = new ImageSignal(new Array2DColumnRealMatrix(4, 1));
+		signal.setMinVal(0);
+		signal.setMaxVal(255);
+
+		AffineTransform t = new AffineTransform(0, 0, 0, -0.5, 100, Symmetry.ROTATE_90);
+		assertEquals(50, t.applyToConstant(100, signal), TestUtils.DELTA);
+		assertEquals(0, t.applyToConstant(300, signal), TestUtils.DELTA);
+		assertEquals(0.5, t.getContractivity(), TestUtils.DELTA);
+	}
+
 	@Test
 	public void compareTo() {
 		AffineTransform t1 = new AffineTransform(0, 0, 1, 0, 0);
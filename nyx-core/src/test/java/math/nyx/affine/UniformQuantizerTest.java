@@ -0,0 +1,26 @@
+package math.nyx.affine;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class UniformQuantizerTest {
+	@Test
+	public void quantize() {
+		UniformQuantizer quantizer = new UniformQuantizer(2, -1, 2);
+		assertEquals(4, quantizer.getNumLevels());
+		assertEquals(0, quantizer.quantize(-5));
+		assertEquals(0, quantizer.quantize(-0.6));
+		assertEquals(1, quantizer.quantize(-0.4));
+		assertEquals(2, quantizer.quantize(1.2));
+		assertEquals(3, quantizer.quantize(7));
+		assertEquals(3, quantizer.quantize(Double.POSITIVE_INFINITY));
+		assertEquals(0, quantizer.quantize(Double.NaN));
+
+		for (int code = 0; code < quantizer.getNumLevels(); code++) {
+			assertEquals(code - 1.0, quantizer.getValue(code), 0);
+			assertEquals(code, quantizer.quantize(quantizer.getValue(code)));
+		}
+		assertEquals(1.0, quantizer.round(0.8), 0);
+	}
+}
@@ -0,0 +1,245 @@
+package math.nyx.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import math.nyx.affine.AffineTransform;
+import math.nyx.affine.QuantizedAffineTransform;
+import math.nyx.affine.Symmetry;
+import math.nyx.affine.UniformQuantizer;
+import math.nyx.audio.AudioMetadata;
+import math.nyx.audio.AudioSignal;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.planar.PlanarPartitioningStrategy;
+import math.nyx.framework.planar.PlanarPartitioningStrategyFactory;
+import math.nyx.image.ImageMetadata;
+import math.nyx.image.ImageSignal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+
+public class FractalFormatTest {
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private static ImageSignal getImageSignal() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		ImageSignal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+		signal.pad(signal.getDimension() + 5);
+		return signal;
+	}
+
+	@Test
+	public void writeAndLoad() throws IOException {
+		ImageSignal signal = getImageSignal();
+		Fractal fractal = new Fractal(signal);
+		fractal.setCodecName("imageCodec");
+		fractal.addTransform(new AffineTransform(17, 0, 1.5, 0.75, -3.25, Symmetry.ROTATE_270_FLIP));
+		fractal.addTransform(new ConstantTransform(0, 1, 0, 42.5));
+		fractal.addTransform(new AffineTransform(1023, 9, 2.5, -0.5, 100.125, Symmetry.ORIGINAL));
+		fractal.addTransform(new AffineTransform(3, 5, 0, 1, 0, Symmetry.FLIP));
+
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		fractal.write(fractalFile);
+		assertEquals(fractalFile.length(), fractal.getSizeInBytes());
+
+		Fractal loadedFractal = Fractal.load(fractalFile);
+		assertEquals("imageCodec", loadedFractal.getCodecName());
+		assertEquals(fractal.getTransforms().size(), loadedFractal.getTransforms().size());
+
+		// The transforms should be identical, apart from their distances
+		Iterator<Transform> it = loadedFractal.getTransforms().iterator();
+		for (Transform transform : fractal.getTransforms()) {
+			Transform loadedTransform = it.next();
+			assertEquals(transform.getClass(), loadedTransform.getClass());
+			assertEquals(transform.getDomainBlockIndex(), loadedTransform.getDomainBlockIndex());
+			assertEquals(transform.getRangeBlockIndex(), loadedTransform.getRangeBlockIndex());
+			assertEquals(transform.getKernelParameters(), loadedTransform.getKernelParameters());
+		}
+		assertEquals(42.5, ((ConstantTransform)loadedFractal.getTransforms().get(1)).getValue(), 0);
+
+		// Along with the geometry and metadata of the signal
+		SignalDescriptor descriptor = loadedFractal.getDescriptor();
+		assertEquals(ImageSignal.class.getName(), descriptor.getType());
+		assertEquals(signal.getDimension(), descriptor.getDimension());
+		assertEquals(signal.getPad(), descriptor.getPad());
+		assertEquals(signal.getNumChannels(), descriptor.getNumChannels());
+		assertEquals(signal.getMaxVal(), descriptor.getMaxVal(), 0);
+		ImageMetadata metadata = (ImageMetadata)descriptor.getMetadata();
+		assertEquals(64, metadata.getWidth());
+		assertEquals(64, metadata.getHeight());
+		assertEquals(signal.getMetadata().getType(), metadata.getType());
+		assertEquals(3, metadata.getNumComponents());
+	}
+
+	@Test
+	public void storeQuantizedTransformsAsCodes() throws IOException {
+		UniformQuantizer scaleQuantizer = new UniformQuantizer(5, 0, 1);
+		UniformQuantizer offsetQuantizer = new UniformQuantizer(7, -255, 255);
+		Fractal fractal = new Fractal(getImageSignal());
+		fractal.setCodecName("imageCodec");
+		int numTransforms = 1024;
+		for (int i = 0; i < numTransforms; i++) {
+			fractal.addTransform(new QuantizedAffineTransform((i * 37) % 4096, i, 0, scaleQuantizer, i % 32,
+					offsetQuantizer, (i * 7) % 128, Symmetry.values()[i % 8]));
+		}
+
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		fractal.write(fractalFile);
+
+		// 1 + 12 + 3 + 5 + 7 bits per transform, the range blocks are implied by the order
+		assertTrue(fractal.getSizeInBytes() <= 256 + numTransforms * 28 / 8);
+
+		int i = 0;
+		for (Transform transform : Fractal.load(fractalFile).getTransforms()) {
+			QuantizedAffineTransform quantizedTransform = (QuantizedAffineTransform)transform;
+			assertEquals(i, quantizedTransform.getRangeBlockIndex());
+			assertEquals((i * 37) % 4096, quantizedTransform.getDomainBlockIndex());
+			assertEquals(i % 32, quantizedTransform.getScaleCode());
+			assertEquals((i * 7) % 128, quantizedTransform.getOffsetCode());
+			assertEquals(Symmetry.values()[i % 8], quantizedTransform.getSymmetry());
+			assertEquals(scaleQuantizer, quantizedTransform.getScaleQuantizer());
+			assertEquals(offsetQuantizer, quantizedTransform.getOffsetQuantizer());
+			i++;
+		}
+		assertEquals(numTransforms, i);
+	}
+
+	@Test
+	public void storeNearbyDomainBlocksRelativeToTheirRangeBlocks() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		ImageSignal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+		PartitioningStrategy partitioner = new PlanarPartitioningStrategy(signal, 1,
+				PlanarPartitioningStrategyFactory.RANGE_WIDTH);
+
+		// Pick domain blocks within 2 positions of each range block, as a search window would
+		UniformQuantizer scaleQuantizer = new UniformQuantizer(5, 0, 1);
+		UniformQuantizer offsetQuantizer = new UniformQuantizer(7, -255, 255);
+		Fractal fractal = new Fractal(signal);
+		Fractal absoluteFractal = new Fractal(signal);
+		fractal.setCodecName("unknownCodec");
+		fractal.setLatticeGeometry(partitioner.getLatticeGeometry());
+		absoluteFractal.setCodecName("unknownCodec");
+		for (int i = 0; i < partitioner.getNumRangePartitions(); i++) {
+			int window[] = partitioner.getDomainWindow(i, 2);
+			Transform transform = new QuantizedAffineTransform(window[(i * 7) % window.length], i, 0,
+					scaleQuantizer, i % 32, offsetQuantizer, (i * 7) % 128, Symmetry.values()[i % 8]);
+			fractal.addTransform(transform);
+			absoluteFractal.addTransform(transform);
+		}
+
+		// Without the lattice geometry, the indices can only be stored as is
+		assertTrue(fractal.getSizeInBytes() < absoluteFractal.getSizeInBytes());
+
+		// The geometry is stored in the header, so the codec doesn't need to be known to read the indices
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		fractal.write(fractalFile);
+		FractalView view = FractalView.map(fractalFile);
+		assertTrue(view.isRelative());
+		assertEquals(partitioner.getLatticeGeometry(), view.getLatticeGeometry());
+		for (int i = 0; i < view.getNumTransforms(); i++) {
+			assertEquals(fractal.getTransforms().get(i).getDomainBlockIndex(), view.getDomainBlockIndex(i));
+		}
+		assertEquals(partitioner.getLatticeGeometry(), Fractal.load(fractalFile).getLatticeGeometry());
+	}
+
+	@Test
+	public void writeAndLoadAudio() throws IOException, UnsupportedAudioFileException {
+		ClassPathResource audioFile = new ClassPathResource("math/nyx/samples/beep-100ms-pcm.wav");
+		AudioSignal signal = new AudioSignal(audioFile.getInputStream());
+		Fractal fractal = new Fractal(signal);
+		fractal.setCodecName("audioCodec");
+		fractal.addTransform(new AffineTransform(1, 0, 0, -0.25, 7));
+
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		fractal.write(fractalFile);
+
+		SignalDescriptor descriptor = Fractal.load(fractalFile).getDescriptor();
+		assertEquals(signal.getDimension(), descriptor.getDimension());
+		AudioMetadata metadata = (AudioMetadata)descriptor.getMetadata();
+		assertEquals(signal.getMetadata().getFrameLength(), metadata.getFrameLength());
+		assertTrue(signal.getMetadata().getFormat().matches(metadata.getFormat()));
+	}
+
+	@Test
+	public void writeAndLoadAudioProperties() throws IOException {
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("title", "beep");
+		properties.put("duration", 100000L);
+		properties.put("quality", 7);
+		properties.put("vbr", true);
+		AudioFormat format = new AudioFormat(Encoding.PCM_SIGNED, 8000, 16, 1, 2, 8000, false, properties);
+		Fractal fractal = new Fractal(new SignalDescriptor(AudioSignal.class.getName(), 800, 0, 1, -1, 1, new AudioMetadata(format, 800)));
+		fractal.setCodecName("audioCodec");
+		fractal.addTransform(new AffineTransform(1, 0, 0, -0.25, 7));
+
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		fractal.write(fractalFile);
+
+		AudioMetadata metadata = (AudioMetadata)Fractal.load(fractalFile).getDescriptor().getMetadata();
+		assertEquals(800, metadata.getFrameLength());
+		assertTrue(format.matches(metadata.getFormat()));
+		assertEquals(properties, metadata.getFormat().properties());
+	}
+
+	@Test(expected=IOException.class)
+	public void refuseToWriteUnknownMetadata() throws IOException {
+		SignalMetadata metadata = new SignalMetadata() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public SignalMetadata scale(int scale) {
+				return this;
+			}
+		};
+		Fractal fractal = new Fractal(new SignalDescriptor(AudioSignal.class.getName(), 16, 0, 1, 0, 1, metadata));
+		fractal.setCodecName("otherCodec");
+		fractal.addTransform(new AffineTransform(1, 0, 0, 0.5, 1));
+		fractal.write(testFolder.newFile("fractal.nyx"));
+	}
+
+	@Test
+	public void convertSerializedFractals() throws IOException {
+		// Encoded from ocean-32x32-gray.png with the imageCodec, and serialized, by the first version of Nyx
+		File serializedFile = new ClassPathResource("math/nyx/samples/ocean-32x32-gray-serialized.nyx").getFile();
+		Fractal serializedFractal = Fractal.load(serializedFile);
+		assertEquals("imageCodec", serializedFractal.getCodecName());
+		assertEquals(32*32, serializedFractal.getDescriptor().getDimension());
+		assertEquals(32*32, serializedFractal.getSourceSignal().getDimension());
+		assertEquals(64, serializedFractal.getTransforms().size());
+
+		File fractalFile = testFolder.newFile("fractal.nyx");
+		Fractal.convert(serializedFile, fractalFile);
+		assertTrue(fractalFile.length() < serializedFile.length());
+
+		Fractal loadedFractal = Fractal.load(fractalFile);
+		assertEquals("imageCodec", loadedFractal.getCodecName());
+		assertEquals(32*32, loadedFractal.getDescriptor().getDimension());
+		assertEquals(null, loadedFractal.getSourceSignal());
+		assertEquals(serializedFractal.getTransforms().size(), loadedFractal.getTransforms().size());
+		Iterator<Transform> it = loadedFractal.getTransforms().iterator();
+		for (Transform expected : serializedFractal.getTransforms()) {
+			AffineTransform expectedTransform = (AffineTransform)expected;
+			AffineTransform actualTransform = (AffineTransform)it.next();
+			assertEquals(expectedTransform.getRangeBlockIndex(), actualTransform.getRangeBlockIndex());
+			assertEquals(expectedTransform.getDomainBlockIndex(), actualTransform.getDomainBlockIndex());
+			assertEquals(expectedTransform.getSymmetry(), actualTransform.getSymmetry());
+			assertEquals(expectedTransform.getScale(), actualTransform.getScale(), 0);
+			assertEquals(expectedTransform.getOffset(), actualTransform.getOffset(), 0);
+		}
+		assertEquals(serializedFractal.decode(), loadedFractal.decode());
+	}
+}
@@ -0,0 +1,108 @@
+package math.nyx.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import math.nyx.affine.AffineTransform;
+import math.nyx.affine.QuantizedAffineTransform;
+import math.nyx.affine.Symmetry;
+import math.nyx.affine.UniformQuantizer;
+import math.nyx.image.ImageSignal;
+import math.nyx.utils.TestUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FractalViewTest {
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+
+	private File write(Fractal fractal) throws IOException {
+		File fractalFile = testFolder.newFile();
+		fractal.write(fractalFile);
+		return fractalFile;
+	}
+
+	@Test
+	public void readTransformsByIndex() throws IOException {
+		Fractal fractal = new Fractal(new ImageSignal(TestUtils.generateSignal(64)));
+		fractal.setCodecName("quadtreeImageCodec");
+		int numTransforms = 100;
+		for (int i = 0; i < numTransforms; i++) {
+			// Out of order range blocks, with a constant transform every 7 transforms
+			int rangeBlockIndex = (i * 31) % numTransforms;
+			if (i % 7 == 0) {
+				fractal.addTransform(new ConstantTransform(i, rangeBlockIndex, 0, i + 0.5));
+			} else {
+				fractal.addTransform(new AffineTransform(i * 3, rangeBlockIndex, 0, 1.0 / i, -i,
+						Symmetry.values()[i % 8]));
+			}
+		}
+
+		FractalView view = FractalView.map(write(fractal));
+		assertEquals("quadtreeImageCodec", view.getCodecName());
+		assertEquals(numTransforms, view.getNumTransforms());
+		assertFalse(view.isQuantized());
+
+		// Read the transforms in reverse, to make sure they don't depend on each other
+		for (int i = numTransforms - 1; i >= 0; i--) {
+			assertEquals(i % 7 == 0, view.isConstant(i));
+			assertEquals((i * 31) % numTransforms, view.getRangeBlockIndex(i));
+			if (view.isConstant(i)) {
+				assertEquals(i, view.getDomainBlockIndex(i));
+				assertEquals(i + 0.5, view.getValue(i), 0);
+			} else {
+				assertEquals(i * 3, view.getDomainBlockIndex(i));
+				assertEquals(Symmetry.values()[i % 8], view.getSymmetry(i));
+				assertEquals(1.0 / i, view.getScale(i), 0);
+				assertEquals(-i, view.getOffset(i), 0);
+			}
+		}
+		assertEquals(64, view.getDescriptor().getDimension());
+	}
+
+	@Test
+	public void readQuantizedTransformsByIndex() throws IOException {
+		UniformQuantizer scaleQuantizer = new UniformQuantizer(5, -1, 1);
+		UniformQuantizer offsetQuantizer = new UniformQuantizer(7, -255, 255);
+		Fractal fractal = new Fractal(new ImageSignal(TestUtils.generateSignal(64)));
+		fractal.setCodecName("imageCodec");
+		for (int i = 0; i < 16; i++) {
+			fractal.addTransform(new QuantizedAffineTransform(15 - i, i, 0, scaleQuantizer, 2 * i,
+					offsetQuantizer, 127 - i, Symmetry.ORIGINAL));
+		}
+
+		FractalView view = FractalView.map(write(fractal));
+		assertTrue(view.isQuantized());
+		for (int i = 0; i < 16; i++) {
+			assertEquals(i, view.getRangeBlockIndex(i));
+			assertEquals(15 - i, view.getDomainBlockIndex(i));
+			assertEquals(2 * i, view.getScaleCode(i));
+			assertEquals(127 - i, view.getOffsetCode(i));
+			assertEquals(scaleQuantizer.getValue(2 * i), view.getScale(i), 0);
+			assertEquals(offsetQuantizer.getValue(127 - i), view.getOffset(i), 0);
+			assertEquals(Symmetry.ORIGINAL, view.getSymmetry(i));
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void rejectTruncatedFractals() throws IOException {
+		Fractal fractal = new Fractal(new ImageSignal(TestUtils.generateSignal(64)));
+		fractal.setCodecName("imageCodec");
+		for (int i = 0; i < 16; i++) {
+			fractal.addTransform(new AffineTransform(i, i, 0, 0.5, i));
+		}
+
+		File fractalFile = write(fractal);
+		try (RandomAccessFile file = new RandomAccessFile(fractalFile, "rw")) {
+			file.setLength(file.length() - 1);
+		}
+		FractalView.map(fractalFile);
+	}
+}
@@ -0,0 +1,81 @@
+package math.nyx.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math.linear.Array2DColumnRealMatrix;
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+import org.junit.Test;
+
+public class SampleVectorTest {
+	@Test
+	public void roundAndClampIntegerSamples() {
+		SampleVector bytes = new ByteSampleVector(3);
+		bytes.set(0, 254.6);
+		bytes.set(1, 300);
+		bytes.set(2, -7);
+		assertArrayEquals(new double[] {255, 255, 0}, bytes.toArray(), 0);
+
+		SampleVector shorts = new ShortSampleVector(2);
+		shorts.set(0, 40000.2);
+		shorts.set(1, 70000);
+		assertArrayEquals(new double[] {40000, 65535}, shorts.toArray(), 0);
+		assertEquals(4, shorts.getSizeInBytes());
+	}
+
+	@Test
+	public void fixedPointCoversTheSignalsRange() {
+		assertEquals(8, FixedPointSampleVector.getFractionBits(0, 255));
+		assertEquals(0, FixedPointSampleVector.getFractionBits(0, Double.MAX_VALUE));
+
+		SampleVector x = new FixedPointSampleVector(4, 10, 8);
+		x.set(0, 10.3);
+		x.set(1, 265);
+		x.set(2, 1000);
+		assertArrayEquals(new double[] {10.3, 265, 10 + 65535 / 256.0, 10}, x.toArray(), 1.0 / 512);
+		assertEquals(8, x.getSizeInBytes());
+	}
+
+	@Test
+	public void copyPadsWithZeros() {
+		SampleVector x = new FloatSampleVector(2);
+		x.set(0, 1.5);
+		x.set(1, -2);
+
+		SampleVector y = x.copyOf(4);
+		assertTrue(y instanceof FloatSampleVector);
+		assertArrayEquals(new double[] {1.5, -2, 0, 0}, y.toArray(), 0);
+
+		// The copy is independent of the original
+		y.set(0, 3);
+		assertEquals(1.5, x.get(0), 0);
+	}
+
+	@Test
+	public void wrapColumnMatrices() {
+		double data[] = {1, 2, 3};
+		Array2DColumnRealMatrix column = new Array2DColumnRealMatrix(new double[][] {data}, false);
+		SampleVector x = SampleVector.valueOf(column);
+		assertSame(data, ((DoubleSampleVector)x).getDataRef());
+
+		RealMatrix rows = new Array2DRowRealMatrix(new double[] {4, 5});
+		assertArrayEquals(new double[] {4, 5}, SampleVector.valueOf(rows).toArray(), 0);
+	}
+
+	@Test
+	public void matrixWritesThrough() {
+		SampleVector x = new ByteSampleVector(4);
+		RealMatrix m = x.toRealMatrix();
+		m.setEntry(2, 0, 17);
+		m.addToEntry(2, 0, 3);
+		assertEquals(20, x.get(2), 0);
+		assertSame(x, SampleVector.valueOf(m));
+
+		RealMatrix sum = m.add(m);
+		assertEquals(40, sum.getEntry(2, 0), 0);
+		assertEquals(4, sum.getRowDimension());
+	}
+}
@@ -0,0 +1,34 @@
+package math.nyx.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import math.nyx.image.ImageMetadata;
+import math.nyx.image.ImageSignal;
+import math.nyx.utils.TestUtils;
+
+import org.junit.Test;
+
+public class SignalDescriptorTest {
+	@Test
+	public void createEmptySignal() {
+		ImageSignal signal = new ImageSignal(TestUtils.generateSignal(48), new ImageMetadata(4, 4, 5, 3));
+		signal.pad(50);
+		signal.setMaxVal(1000);
+
+		SignalDescriptor descriptor = new SignalDescriptor(signal);
+		assertEquals(50, descriptor.getDimension());
+		assertEquals(48, descriptor.getUnpaddedDimension());
+		assertEquals(3, descriptor.getNumChannels());
+
+		ImageSignal emptySignal = (ImageSignal)descriptor.createSignal();
+		assertTrue(emptySignal.getSamples() instanceof ZeroSampleVector);
+		assertEquals(0, emptySignal.getSamples().getSizeInBytes());
+		assertEquals(signal.getDimension(), emptySignal.getDimension());
+		assertEquals(signal.getPad(), emptySignal.getPad());
+		assertEquals(signal.getNumChannels(), emptySignal.getNumChannels());
+		assertEquals(1000, emptySignal.getMaxVal(), 0);
+		assertEquals(signal.getMetadata(), emptySignal.getMetadata());
+		assertEquals(0, emptySignal.getEntry(47), 0);
+	}
+}
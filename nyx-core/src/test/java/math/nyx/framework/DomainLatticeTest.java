@@ -0,0 +1,58 @@
+package math.nyx.framework;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class DomainLatticeTest {
+	@Test
+	public void relativeIndicesRoundTrip() {
+		DomainLattice lattice = new DomainLattice(3, 7, 5);
+		for (int center = 0; center < lattice.size(); center++) {
+			Set<Integer> relativeIndices = new HashSet<Integer>();
+			for (int index = 0; index < lattice.size(); index++) {
+				int relativeIndex = lattice.getRelativeIndex(center, index);
+				assertTrue(relativeIndices.add(relativeIndex));
+				assertEquals(index, lattice.getIndexFromRelative(center, relativeIndex));
+			}
+			assertEquals(0, lattice.getRelativeIndex(center, center));
+		}
+	}
+
+	@Test
+	public void windowIsInSpiralOrder() {
+		DomainLattice lattice = new DomainLattice(2, 6, 6);
+		int center = lattice.getIndex(1, 1, 2);
+		int window[] = lattice.getWindow(center, 2);
+
+		// Clipped to rows [0, 3] and columns [0, 4] of the same plane
+		assertEquals(4 * 5, window.length);
+		assertEquals(center, window[0]);
+		int previousDistance = 0;
+		for (int index : window) {
+			assertEquals(1, lattice.getPlane(index));
+			int distance = Math.max(Math.abs(lattice.getRow(index) - 1), Math.abs(lattice.getColumn(index) - 2));
+			assertTrue(distance <= 2 && distance >= previousDistance);
+			previousDistance = distance;
+		}
+
+		// The first ring starts at the top left corner and goes clockwise
+		assertEquals(lattice.getIndex(1, 0, 1), window[1]);
+		assertEquals(lattice.getIndex(1, 0, 2), window[2]);
+		assertEquals(lattice.getIndex(1, 0, 3), window[3]);
+		assertEquals(lattice.getIndex(1, 1, 3), window[4]);
+	}
+
+	@Test
+	public void windowAlternatesOnASingleRow() {
+		DomainLattice lattice = new DomainLattice(1, 1, 10);
+		assertArrayEquals(new int[] {4, 5, 3, 6, 2}, lattice.getWindow(4, 2));
+		assertArrayEquals(new int[] {1, 2, 0, 3}, lattice.getWindow(1, 2));
+		assertEquals(2, lattice.getRelativeIndex(4, 3));
+	}
+}
@@ -0,0 +1,79 @@
+package math.nyx.framework;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import math.nyx.utils.TestUtils;
+
+import org.junit.Test;
+
+public class DomainPoolReducerTest {
+	@Test
+	public void reduceDuplicateAndFlatBlocks() {
+		Random random = new Random(29);
+		double block[] = new double[16];
+		for (int i = 0; i < 16; i++) {
+			block[i] = random.nextInt(256);
+		}
+
+		// Flat blocks at 0 and 3, a block at 1 and a scaled and shifted copy of it at 4
+		DomainPool domainPool = new DomainPool(6, 16, 10);
+		domainPool.setBlock(0, new double[16]);
+		domainPool.setBlock(1, block);
+		domainPool.setBlock(3, new double[16]);
+		double copy[] = new double[16];
+		for (int i = 0; i < 16; i++) {
+			copy[i] = 0.5 * block[i] + 7;
+		}
+		domainPool.setBlock(4, copy);
+		for (int k : new int[] {2, 5}) {
+			double other[] = new double[16];
+			for (int i = 0; i < 16; i++) {
+				other[i] = random.nextInt(256);
+			}
+			domainPool.setBlock(k, other);
+		}
+
+		DomainPoolReducer reducer = new DomainPoolReducer(1);
+		DomainPool reducedDomainPool = reducer.reduce(domainPool);
+		assertEquals(1, reducer.getNumDuplicates());
+		assertEquals(2, reducer.getNumFlat());
+
+		// The first flat block and the first copy are kept, in pool order
+		int expectedIndices[] = new int[] {0, 1, 2, 5};
+		assertEquals(expectedIndices.length, reducedDomainPool.size());
+		for (int i = 0; i < expectedIndices.length; i++) {
+			int k = expectedIndices[i];
+			assertEquals(domainPool.getDomainBlockIndex(k), reducedDomainPool.getDomainBlockIndex(i));
+			assertEquals(domainPool.getSumOfPoints(k), reducedDomainPool.getSumOfPoints(i), TestUtils.DELTA);
+			assertEquals(domainPool.getNormOfDeviations(k), reducedDomainPool.getNormOfDeviations(i),
+					TestUtils.DELTA);
+			double expected[] = domainPool.getBlock(k);
+			double actual[] = reducedDomainPool.getBlock(i);
+			for (int j = 0; j < 16; j++) {
+				assertEquals(expected[j], actual[j], TestUtils.DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void keepBlocksWithTheLargestVariance() {
+		DomainPool domainPool = new DomainPool(8, 4);
+		for (int k = 0; k < 8; k++) {
+			// Distinct spikes, whose variance increases with k
+			double block[] = new double[4];
+			block[k % 4] = k + 1;
+			if (k >= 4) {
+				block[(k + 1) % 4] = k + 1;
+			}
+			domainPool.setBlock(k, block);
+		}
+
+		DomainPool reducedDomainPool = new DomainPoolReducer(0.5).reduce(domainPool);
+		assertEquals(4, reducedDomainPool.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(4 + i, reducedDomainPool.getDomainBlockIndex(i));
+		}
+	}
+}
@@ -1,8 +1,33 @@
 package math.nyx.framework;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import math.nyx.affine.AffineKernel;
+import math.nyx.affine.AffineTransform;
+import math.nyx.core.ConstantTransform;
+import math.nyx.core.DummyFractalDecoderVisitor;
 import math.nyx.core.Fractal;
+import math.nyx.core.FractalDecoderVisitor;
 import math.nyx.core.Signal;
+import math.nyx.core.Transform;
+import math.nyx.image.ImageMetadata;
 import math.nyx.image.ImageSignal;
 
 import org.apache.commons.math.linear.Array2DRowRealMatrix;
@@ -11,6 +36,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -21,6 +47,10 @@ public class FractalCodecTest {
 	@Qualifier("imageCodec")
 	private FractalCodec fractalCodec;
 
+	@Autowired
+	@Qualifier("planarImageCodec")
+	private FractalCodec planarCodec;
+
 	public static Signal generateConstantSignal(final int dimension, final double value) {
 		RealMatrix signal = new Array2DRowRealMatrix(dimension, 1);
 		for (int i = 0; i < dimension; i++) {
@@ -29,6 +59,85 @@ public class FractalCodecTest {
 		return new ImageSignal(signal);
 	}
 
+	/**
+	 * Generates a column vector whose entries are uniformly distributed in [0, 255].
+	 */
+	public static RealMatrix generateNoise(final int dimension, final long seed) {
+		Random random = new Random(seed);
+		RealMatrix x = new Array2DRowRealMatrix(dimension, 1);
+		for (int i = 0; i < dimension; i++) {
+			x.setEntry(i, 0, random.nextInt(256));
+		}
+		return x;
+	}
+
+	/**
+	 * Generates a width x width image of noise whose contrast grows from the left to the right,
+	 * so that the lower bounds of some of the candidates are tight.
+	 */
+	public static RealMatrix generateGradedNoise(final int width, final long seed) {
+		Random random = new Random(seed);
+		RealMatrix x = new Array2DRowRealMatrix(width * width, 1);
+		for (int i = 0; i < width * width; i++) {
+			x.setEntry(i, 0, random.nextInt(1 + (i % width) * 5));
+		}
+		return x;
+	}
+
+	/**
+	 * Affine kernel with permutations and bounded scales, which counts the candidates that it scores,
+	 * instead of pruning them with their lower bound.
+	 */
+	private static class CountingAffineKernel extends AffineKernel {
+		private final boolean bounded;
+		private final AtomicInteger numComparisons = new AtomicInteger();
+
+		public CountingAffineKernel(boolean bounded) {
+			this.bounded = bounded;
+			setPermute(true);
+			setMaxScale(0.5);
+		}
+
+		@Override
+		public double getLowerBound(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+			return bounded ? super.getLowerBound(domainPool, index, rangeBlock) : 0;
+		}
+
+		@Override
+		public double getDistance(DomainPool domainPool, int index, SignalBlock rangeBlock) {
+			numComparisons.incrementAndGet();
+			return super.getDistance(domainPool, index, rangeBlock);
+		}
+
+		public int getAndResetNumComparisons() {
+			return numComparisons.getAndSet(0);
+		}
+	}
+
+	/**
+	 * Asserts that the fractals map the same domain blocks to the same range blocks, at the same distances.
+	 */
+	private static void assertSameTransforms(Fractal expected, Fractal actual) {
+		assertSameDistances(expected, actual);
+		Iterator<Transform> actualTransforms = actual.getTransforms().iterator();
+		for (Transform expectedTransform : expected.getTransforms()) {
+			Transform actualTransform = actualTransforms.next();
+			assertEquals(expectedTransform.getDomainBlockIndex(), actualTransform.getDomainBlockIndex());
+			assertEquals(expectedTransform.getRangeBlockIndex(), actualTransform.getRangeBlockIndex());
+		}
+	}
+
+	/**
+	 * Asserts that the fractals have as many transforms, at the same distances.
+	 */
+	private static void assertSameDistances(Fractal expected, Fractal actual) {
+		assertEquals(expected.getTransforms().size(), actual.getTransforms().size());
+		Iterator<Transform> actualTransforms = actual.getTransforms().iterator();
+		for (Transform expectedTransform : expected.getTransforms()) {
+			assertEquals(expectedTransform.getDistance(), actualTransforms.next().getDistance(), 0.000001);
+		}
+	}
+
 	@Test
 	public void encodeConstantSignalOfArbitraryLengths() {
 		for (int k = 1; k <= 101; k+=7) {
@@ -38,4 +147,412 @@ public class FractalCodecTest {
 			assertEquals(k, decodedSignal.getDimension());
 		}
 	}
+
+	@Test
+	public void encodeSignalLargerThanSparseMatrixLimit() {
+		// Sparse fetch operators can't be used for signals of this size
+		int k = 400*400;
+		Signal signal = generateConstantSignal(k, 7);
+		Fractal fractal = fractalCodec.encode(signal);
+		Signal decodedSignal = fractal.decode();
+		assertEquals(k, decodedSignal.getDimension());
+		assertEquals(7, decodedSignal.getVector().getEntry(k/2, 0), 0.001);
+	}
+
+	@Test
+	public void codecOfADecodedFractalStaysUsable() {
+		RealMatrix x = generateNoise(16*16, 5);
+		Signal signal = new ImageSignal(x);
+		Fractal fractal = fractalCodec.encode(signal);
+		fractal.decode();
+
+		// The codec's executor must still accept tasks once the fractal has looked it up
+		FractalCodec codec = fractal.getCodec();
+		assertEquals(fractal.getTransforms().size(), codec.encode(signal).getTransforms().size());
+	}
+
+	@Test
+	public void splittingDomainBlocksFindsTheSameTransforms() {
+		// Generate a signal with some texture
+		RealMatrix x = generateNoise(32*32, 7);
+
+		ExecutorService executor = fractalCodec.getExecutor();
+		ForkJoinPool sequential = new ForkJoinPool(1);
+		ForkJoinPool wide = new ForkJoinPool(128);
+		try {
+			// A single thread encodes the range blocks in batches
+			fractalCodec.setExecutor(sequential);
+			Fractal expected = fractalCodec.encode(new ImageSignal(x.copy()));
+
+			// There are fewer range blocks than threads, so the domain blocks get split
+			fractalCodec.setExecutor(wide);
+			Fractal actual = fractalCodec.encode(new ImageSignal(x.copy()));
+			assertTrue(actual.getTransforms().size() < wide.getParallelism());
+
+			// The transforms are identical, parameters included
+			assertSameTransforms(expected, actual);
+			Iterator<Transform> actualTransforms = actual.getTransforms().iterator();
+			for (Transform expectedTransform : expected.getTransforms()) {
+				assertEquals(expectedTransform.toString(), actualTransforms.next().toString());
+			}
+		} finally {
+			fractalCodec.setExecutor(executor);
+			sequential.shutdown();
+			wide.shutdown();
+		}
+	}
+
+	@Test
+	public void crossCorrelationFindsTheSameTransforms() {
+		RealMatrix x = generateNoise(48*48, 11);
+
+		Fractal expected = fractalCodec.encode(new ImageSignal(x.copy()));
+		fractalCodec.setCrossCorrelate(true);
+		try {
+			Fractal actual = fractalCodec.encode(new ImageSignal(x.copy()));
+			assertSameTransforms(expected, actual);
+
+			// The scales and offsets are derived from the correlated inner products
+			Iterator<Transform> actualTransforms = actual.getTransforms().iterator();
+			for (Transform expectedTransform : expected.getTransforms()) {
+				Transform actualTransform = actualTransforms.next();
+				if (expectedTransform instanceof AffineTransform) {
+					AffineTransform expectedAffine = (AffineTransform)expectedTransform;
+					AffineTransform actualAffine = (AffineTransform)actualTransform;
+					assertEquals(expectedAffine.getSymmetry(), actualAffine.getSymmetry());
+					assertEquals(expectedAffine.getScale(), actualAffine.getScale(), 0.000001);
+					assertEquals(expectedAffine.getOffset(), actualAffine.getOffset(), 0.0001);
+				}
+			}
+		} finally {
+			fractalCodec.setCrossCorrelate(false);
+		}
+	}
+
+	@Test
+	public void pruningFindsTheSameTransforms() {
+		RealMatrix x = generateGradedNoise(48, 13);
+
+		// Same kernel, with and without a lower bound
+		CountingAffineKernel kernel = new CountingAffineKernel(true);
+		CountingAffineKernel kernelWithoutBound = new CountingAffineKernel(false);
+
+		Kernel originalKernel = fractalCodec.getKernel();
+		try {
+			fractalCodec.setKernel(kernelWithoutBound);
+			Fractal expected = fractalCodec.encode(new ImageSignal(x.copy()));
+			fractalCodec.setKernel(kernel);
+			Fractal actual = fractalCodec.encode(new ImageSignal(x.copy()));
+			assertSameTransforms(expected, actual);
+
+			// Some of the candidates were pruned without being scored
+			int numComparisons = kernel.getAndResetNumComparisons();
+			assertTrue(numComparisons > 0);
+			assertTrue(numComparisons < kernelWithoutBound.getAndResetNumComparisons());
+		} finally {
+			fractalCodec.setKernel(originalKernel);
+		}
+	}
+
+	@Test
+	public void sortedDomainPoolStopsAtTheFirstPrunedCandidate() {
+		RealMatrix x = generateGradedNoise(48, 29);
+		CountingAffineKernel kernel = new CountingAffineKernel(true);
+		kernel.setThreshold(0);
+
+		Kernel originalKernel = fractalCodec.getKernel();
+		try {
+			fractalCodec.setKernel(kernel);
+			Fractal expected = fractalCodec.encode(new ImageSignal(x.copy()));
+			int numUnsortedComparisons = kernel.getAndResetNumComparisons();
+
+			fractalCodec.setSortDomainPool(true);
+			Fractal actual = fractalCodec.encode(new ImageSignal(x.copy()));
+			assertTrue(kernel.getAndResetNumComparisons() < numUnsortedComparisons);
+
+			// The best distances are the same, even if ties may be broken differently
+			assertSameDistances(expected, actual);
+		} finally {
+			fractalCodec.setKernel(originalKernel);
+			fractalCodec.setSortDomainPool(FractalCodec.SORT_DOMAIN_POOL);
+		}
+	}
+
+	@Test
+	public void encodeFlatRangeBlocksWithConstantTransforms() {
+		// Flat on the left, noise on the right
+		Random random = new Random(17);
+		RealMatrix x = new Array2DRowRealMatrix(32*32, 1);
+		for (int i = 0; i < 32*32; i++) {
+			x.setEntry(i, 0, i % 32 < 16 ? 100 : random.nextInt(256));
+		}
+
+		Fractal fractal = fractalCodec.encode(new ImageSignal(x.copy()));
+		int numConstantTransforms = 0;
+		for (Transform transform : fractal.getTransforms()) {
+			if (transform instanceof ConstantTransform) {
+				assertEquals(100, ((ConstantTransform)transform).getValue(), 0.000001);
+				numConstantTransforms++;
+			}
+		}
+		assertEquals(fractal.getTransforms().size() / 2, numConstantTransforms);
+
+		Signal decodedSignal = fractal.decode();
+		for (int i = 0; i < 32*32; i++) {
+			if (i % 32 < 16) {
+				assertEquals(100, decodedSignal.getEntry(i), 0.000001);
+			}
+		}
+	}
+
+	@Test
+	public void searchWindowOnlyUsesNearbyDomainBlocks() {
+		RealMatrix x = generateNoise(32*32, 19);
+
+		int radius = 3;
+		fractalCodec.setSearchRadius(radius);
+		try {
+			Signal signal = new ImageSignal(x.copy());
+			Fractal fractal = fractalCodec.encode(signal);
+			PartitioningStrategy partitioner = fractalCodec.getPartitioningStrategyFactory().getPartitioner(signal);
+			assertEquals(partitioner.getNumRangePartitions(), fractal.getTransforms().size());
+			assertEquals(partitioner.getLatticeGeometry(), fractal.getLatticeGeometry());
+			for (Transform transform : fractal.getTransforms()) {
+				if (transform instanceof ConstantTransform) {
+					continue;
+				}
+				int rangeBlockIndex = transform.getRangeBlockIndex();
+				int domainBlockIndex = transform.getDomainBlockIndex();
+				boolean inWindow = false;
+				for (int index : partitioner.getDomainWindow(rangeBlockIndex, radius)) {
+					inWindow |= index == domainBlockIndex;
+				}
+				assertTrue(inWindow);
+
+				// The domain blocks in the window have the smallest relative indices
+				int relativeIndex = partitioner.getRelativeDomainBlockIndex(rangeBlockIndex, domainBlockIndex);
+				assertTrue(relativeIndex < (2 * radius + 1) * (2 * radius + 1));
+				assertEquals(domainBlockIndex, partitioner.getDomainBlockIndex(rangeBlockIndex, relativeIndex));
+			}
+		} finally {
+			fractalCodec.setSearchRadius(FractalCodec.SEARCH_RADIUS);
+		}
+	}
+
+	@Test
+	public void reducedPrecisionStaysCloseToDouble() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		Signal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+
+		double psnr[] = new double[Precision.values().length];
+		try {
+			for (Precision precision : Precision.values()) {
+				planarCodec.setPrecision(precision);
+				Fractal fractal = planarCodec.encode(signal);
+				Signal decodedSignal = planarCodec.decode(fractal, 1);
+				assertEquals(signal.getDimension(), decodedSignal.getDimension());
+				psnr[precision.ordinal()] = signal.getPSNR(decodedSignal);
+			}
+		} finally {
+			planarCodec.setPrecision(FractalCodec.PRECISION);
+		}
+
+		double doublePSNR = psnr[Precision.DOUBLE.ordinal()];
+		assertEquals(doublePSNR, psnr[Precision.FLOAT.ordinal()], 0.001);
+		assertEquals(doublePSNR, psnr[Precision.FIXED.ordinal()], 0.01);
+	}
+
+	@Test
+	public void reducedPrecisionDecodingStaysCloseToDouble() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		Signal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+		Fractal fractal = planarCodec.encode(signal);
+
+		// Decode the same transforms with each precision
+		Signal decodedSignals[] = new Signal[Precision.values().length];
+		try {
+			for (Precision precision : Precision.values()) {
+				planarCodec.setPrecision(precision);
+				decodedSignals[precision.ordinal()] = planarCodec.decode(fractal, 1);
+			}
+		} finally {
+			planarCodec.setPrecision(FractalCodec.PRECISION);
+		}
+
+		double doublePSNR = signal.getPSNR(decodedSignals[Precision.DOUBLE.ordinal()]);
+		assertEquals(doublePSNR, signal.getPSNR(decodedSignals[Precision.FLOAT.ordinal()]), 0.001);
+		assertEquals(doublePSNR, signal.getPSNR(decodedSignals[Precision.FIXED.ordinal()]), 0.01);
+
+		// The codes are 1/256 apart for 8-bit images, and the rounding errors don't build up over the iterations
+		Signal doubleSignal = decodedSignals[Precision.DOUBLE.ordinal()];
+		Signal fixedSignal = decodedSignals[Precision.FIXED.ordinal()];
+		for (int i = 0; i < signal.getDimension(); i++) {
+			assertEquals(doubleSignal.getEntry(i), fixedSignal.getEntry(i), 0.05);
+		}
+	}
+
+	@Test
+	public void reducedPrecisionScoringStaysCloseToDouble() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		Signal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+
+		// Score the domain blocks with each precision, and decode the transforms with doubles
+		double psnr[] = new double[Precision.values().length];
+		for (Precision precision : Precision.values()) {
+			planarCodec.setPrecision(precision);
+			Fractal fractal;
+			try {
+				fractal = planarCodec.encode(signal);
+			} finally {
+				planarCodec.setPrecision(FractalCodec.PRECISION);
+			}
+			psnr[precision.ordinal()] = signal.getPSNR(planarCodec.decode(fractal, 1));
+		}
+
+		double doublePSNR = psnr[Precision.DOUBLE.ordinal()];
+		assertEquals(doublePSNR, psnr[Precision.FLOAT.ordinal()], 0.001);
+		assertEquals(doublePSNR, psnr[Precision.FIXED.ordinal()], 0.01);
+	}
+
+	@Test
+	public void parallelDecodeMatchesSerialDecode() {
+		RealMatrix x = generateNoise(48*48, 23);
+		Fractal fractal = fractalCodec.encode(new ImageSignal(x));
+
+		ExecutorService executor = fractalCodec.getExecutor();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			fractalCodec.setExecutor(pool);
+			fractalCodec.setParallelDecode(false);
+			Signal expected = fractalCodec.decode(fractal, 2);
+			fractalCodec.setParallelDecode(true);
+			Signal actual = fractalCodec.decode(fractal, 2);
+			assertEquals(expected, actual);
+
+			// Visitors see every transform, so they're always given a serial decode
+			final AtomicInteger numTransformsVisited = new AtomicInteger();
+			fractalCodec.decode(fractal, 1, new DummyFractalDecoderVisitor() {
+				@Override
+				public void afterTransform(int iteration, Transform transform, RealMatrix source, RealMatrix domain,
+						RealMatrix decimatedDomain, RealMatrix target) {
+					numTransformsVisited.incrementAndGet();
+				}
+			});
+			assertEquals(fractal.getTransforms().size() * fractalCodec.getDecodeIterations(), numTransformsVisited.get());
+		} finally {
+			fractalCodec.setExecutor(executor);
+			fractalCodec.setParallelDecode(FractalCodec.PARALLEL_DECODE);
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void parallelDecodeKeepsTheOrderOfOverlappingRangeBlocks() {
+		// The planes aren't multiples of the range width, so the blocks on the edges overlap
+		RealMatrix x = generateNoise(60*60, 29);
+		Signal signal = new ImageSignal(x, new ImageMetadata(60, 60, BufferedImage.TYPE_BYTE_GRAY, 1));
+		assertFalse(planarCodec.getPartitioningStrategyFactory().getPartitioner(signal).hasDisjointRangeBlocks());
+		Fractal fractal = planarCodec.encode(signal);
+
+		// Counts the batches of decode tasks
+		final AtomicInteger numBatches = new AtomicInteger();
+		ForkJoinPool pool = new ForkJoinPool(8) {
+			@Override
+			public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+				numBatches.incrementAndGet();
+				return super.invokeAll(tasks);
+			}
+		};
+		ExecutorService executor = planarCodec.getExecutor();
+		try {
+			planarCodec.setExecutor(pool);
+			planarCodec.setParallelDecode(false);
+			Signal expected = planarCodec.decode(fractal, 1);
+			planarCodec.setParallelDecode(true);
+			assertEquals(expected, planarCodec.decode(fractal, 1));
+			assertEquals(0, numBatches.get());
+
+			// Disjoint blocks are still decoded in parallel
+			fractal = planarCodec.encode(new ImageSignal(x.getSubMatrix(0, 48*48 - 1, 0, 0),
+					new ImageMetadata(48, 48, BufferedImage.TYPE_BYTE_GRAY, 1)));
+			numBatches.set(0);
+			planarCodec.decode(fractal, 1);
+			assertTrue(numBatches.get() > 0);
+		} finally {
+			planarCodec.setExecutor(executor);
+			planarCodec.setParallelDecode(FractalCodec.PARALLEL_DECODE);
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void decodingStopsOnceConverged() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		Signal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+		Fractal fractal = fractalCodec.encode(signal);
+		double psnr = signal.getPSNR(fractalCodec.decode(fractal, 1));
+
+		final AtomicInteger numIterations = new AtomicInteger();
+		FractalDecoderVisitor visitor = new DummyFractalDecoderVisitor() {
+			@Override
+			public void beforeIteration(int n, RealMatrix source, RealMatrix target) {
+				numIterations.incrementAndGet();
+			}
+		};
+
+		try {
+			fractalCodec.setDecodeTolerance(0.5);
+			fractalCodec.setDecodeFromDC(true);
+			Signal decodedSignal = fractalCodec.decode(fractal, 1, visitor);
+			assertTrue(numIterations.get() < fractalCodec.getDecodeIterations());
+			assertEquals(psnr, signal.getPSNR(decodedSignal), 0.05);
+		} finally {
+			fractalCodec.setDecodeTolerance(FractalCodec.DECODE_TOLERANCE);
+			fractalCodec.setDecodeFromDC(FractalCodec.DECODE_FROM_DC);
+		}
+	}
+
+	@Test
+	public void inPlaceDecodeReachesTheSameAttractor() throws IOException {
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		Signal signal = new ImageSignal(ImageIO.read(imgFile.getInputStream()));
+		Fractal fractal = fractalCodec.encode(signal);
+		double psnr = signal.getPSNR(fractalCodec.decode(fractal, 1));
+		Signal scaledSignal = fractalCodec.decode(fractal, 2);
+
+		try {
+			fractalCodec.setInPlaceDecode(true);
+			assertEquals(psnr, signal.getPSNR(fractalCodec.decode(fractal, 1)), 0.05);
+			assertEquals(scaledSignal.getDimension(), fractalCodec.decode(fractal, 2).getDimension());
+
+			// The changes are tracked by the block decoders, since there's no previous iterate to compare with
+			fractalCodec.setDecodeTolerance(0.5);
+			assertEquals(psnr, signal.getPSNR(fractalCodec.decode(fractal, 1)), 0.05);
+		} finally {
+			fractalCodec.setInPlaceDecode(FractalCodec.IN_PLACE_DECODE);
+			fractalCodec.setDecodeTolerance(FractalCodec.DECODE_TOLERANCE);
+		}
+	}
+
+	@Test
+	public void inPlaceDecodeTakesOverlappingEntriesFromTheLastBlock() throws IOException {
+		// The planes aren't multiples of the range width, so the blocks on the edges overlap
+		ClassPathResource imgFile = new ClassPathResource("math/nyx/samples/lena-64x64-color.jpg");
+		BufferedImage img = new BufferedImage(60, 60, BufferedImage.TYPE_3BYTE_BGR);
+		img.getGraphics().drawImage(ImageIO.read(imgFile.getInputStream()), 0, 0, null);
+		Signal signal = new ImageSignal(img);
+		assertFalse(planarCodec.getPartitioningStrategyFactory().getPartitioner(signal).hasDisjointRangeBlocks());
+		Fractal fractal = planarCodec.encode(signal);
+		Signal expected = planarCodec.decode(fractal, 1, 64, new DummyFractalDecoderVisitor());
+
+		// Both decodes converge to the same attractor, edges included
+		Signal actual;
+		try {
+			planarCodec.setInPlaceDecode(true);
+			actual = planarCodec.decode(fractal, 1, 64, new DummyFractalDecoderVisitor());
+		} finally {
+			planarCodec.setInPlaceDecode(FractalCodec.IN_PLACE_DECODE);
+		}
+		assertArrayEquals(expected.getSamples().toArray(), actual.getSamples().toArray(), 1e-6);
+	}
 }
@@ -0,0 +1,136 @@
+package math.nyx.framework.correlation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import math.nyx.affine.SymmetryPermutations;
+import math.nyx.core.Signal;
+import math.nyx.framework.DecimationStrategy;
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.linear.AveragingDecimationStrategyFactory;
+import math.nyx.framework.linear.LinearPartitioningStrategyFactory;
+import math.nyx.framework.planar.PlanarPartitioningStrategy;
+import math.nyx.framework.planar.PlanarPartitioningStrategyFactory;
+import math.nyx.framework.square.SquareDecimationStrategyFactory;
+import math.nyx.framework.square.SquarePartitioningStrategyFactory;
+import math.nyx.image.ImageMetadata;
+import math.nyx.image.ImageSignal;
+
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/resources/applicationContext.xml"})
+public class CrossCorrelatorTest {
+	private static final double DELTA = 1e-6;
+
+	@Autowired
+	private LinearPartitioningStrategyFactory lpFactory;
+
+	@Autowired
+	private AveragingDecimationStrategyFactory adFactory;
+
+	@Autowired
+	private SquarePartitioningStrategyFactory spFactory;
+
+	@Autowired
+	private PlanarPartitioningStrategyFactory ppFactory;
+
+	@Autowired
+	private SquareDecimationStrategyFactory sdFactory;
+
+	private static RealMatrix generateNoise(int dimension, long seed) {
+		Random random = new Random(seed);
+		RealMatrix x = new Array2DRowRealMatrix(dimension, 1);
+		for (int i = 0; i < dimension; i++) {
+			x.setEntry(i, 0, random.nextInt(256));
+		}
+		return x;
+	}
+
+	@Test
+	public void correlateLinearSignal() {
+		// Long enough for the correlator to use several tiles
+		Signal signal = new ImageSignal(generateNoise(4000, 3));
+		PartitioningStrategy partitioner = lpFactory.getPartitioner(signal);
+		DecimationStrategy decimator = adFactory.getDecimator(partitioner.getRangeDimension(),
+				partitioner.getDomainDimension());
+		double x[] = signal.getVector().getColumn(0);
+
+		CrossCorrelator correlator = CrossCorrelator.forLinearSignal(x, partitioner.getRangeDimension());
+		int identity[] = new int[partitioner.getRangeDimension()];
+		for (int k = 0; k < identity.length; k++) {
+			identity[k] = k;
+		}
+		verifyInnerProducts(correlator, partitioner, decimator, x, new int[][] {identity});
+	}
+
+	@Test
+	public void correlateSquareSignal() {
+		Signal signal = new ImageSignal(generateNoise(32*32, 5));
+		PartitioningStrategy partitioner = spFactory.getPartitioner(signal);
+		DecimationStrategy decimator = sdFactory.getDecimator(partitioner.getRangeDimension(),
+				partitioner.getDomainDimension());
+		double x[] = signal.getVector().getColumn(0);
+
+		int rangeWidth = (int)Math.round(Math.sqrt(partitioner.getRangeDimension()));
+		CrossCorrelator correlator = CrossCorrelator.forPlanes(x, 1, 32, 32, rangeWidth);
+		verifyInnerProducts(correlator, partitioner, decimator, x,
+				SymmetryPermutations.getPermutations(partitioner.getRangeDimension()));
+	}
+
+	@Test
+	public void correlatePlanarSignal() {
+		// Planes with odd dimensions
+		ImageMetadata metadata = new ImageMetadata(37, 21, BufferedImage.TYPE_3BYTE_BGR, 3);
+		Signal signal = new ImageSignal(generateNoise(37*21*3, 11), metadata);
+		PlanarPartitioningStrategy partitioner = (PlanarPartitioningStrategy)ppFactory.getPartitioner(signal);
+		DecimationStrategy decimator = sdFactory.getDecimator(partitioner.getRangeDimension(),
+				partitioner.getDomainDimension());
+		double x[] = signal.getVector().getColumn(0);
+
+		int rangeWidth = (int)Math.round(Math.sqrt(partitioner.getRangeDimension()));
+		CrossCorrelator correlator = CrossCorrelator.forPlanes(x, 3, 21, 37, rangeWidth);
+		verifyInnerProducts(correlator, partitioner, decimator, x,
+				SymmetryPermutations.getPermutations(partitioner.getRangeDimension()));
+	}
+
+	private void verifyInnerProducts(CrossCorrelator correlator, PartitioningStrategy partitioner,
+			DecimationStrategy decimator, double x[], int permutations[][]) {
+		int numDomainBlocks = partitioner.getNumDomainPartitions();
+		assertEquals(numDomainBlocks, correlator.getNumDomainBlocks());
+
+		double block[] = generateNoise(partitioner.getRangeDimension(), 13).getColumn(0);
+		double products[][] = new double[permutations.length][numDomainBlocks];
+		correlator.correlate(block, permutations, products);
+
+		int decimationIndices[][] = decimator.getIndices();
+		double decimatedDomain[] = new double[partitioner.getRangeDimension()];
+		for (int i = 0; i < numDomainBlocks; i++) {
+			// Fetch and decimate the domain block
+			int domainIndices[] = partitioner.getDomainIndices(i);
+			for (int j = 0; j < decimationIndices.length; j++) {
+				double sum = 0;
+				for (int l = 0; l < decimationIndices[j].length; l++) {
+					sum += x[domainIndices[decimationIndices[j][l]]];
+				}
+				decimatedDomain[j] = sum / decimator.getDecimationRatio();
+			}
+
+			for (int k = 0; k < permutations.length; k++) {
+				double expected = 0;
+				for (int m = 0; m < block.length; m++) {
+					expected += decimatedDomain[permutations[k][m]] * block[m];
+				}
+				assertEquals(expected, products[k][i], DELTA);
+			}
+		}
+	}
+}
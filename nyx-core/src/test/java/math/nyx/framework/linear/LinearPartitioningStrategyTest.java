@@ -1,6 +1,7 @@
 package math.nyx.framework.linear;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 import math.nyx.core.Signal;
 import math.nyx.framework.AbstractPartitioningStrategyTest;
 import math.nyx.framework.linear.LinearPartitioningStrategy;
@@ -99,4 +100,17 @@ public class LinearPartitioningStrategyTest extends AbstractPartitioningStrategy
 		assertEquals(8, scaledPartitioner.getDomainDimension());
 		assertEquals(3, scaledPartitioner.getNumDomainPartitions());
 	}
+
+	@Test
+	public void domainStride() {
+		// Domain blocks of 2 samples that start every 2 samples
+		LinearPartitioningStrategy lpStrategy = new LinearPartitioningStrategy(new ImageSignal(8), 1, 2);
+		assertEquals(2, lpStrategy.getDomainDimension());
+		assertEquals(4, lpStrategy.getNumDomainPartitions());
+		assertEquals(4, lpStrategy.getDomainIndices(2)[0]);
+		assertEquals(7, lpStrategy.getDomainIndices(3)[1]);
+
+		// The range block at 5 is closest to the domain block at 4, then to the ones at 6 and 2
+		assertArrayEquals(new int[] {2, 3, 1}, lpStrategy.getDomainWindow(5, 1));
+	}
 }
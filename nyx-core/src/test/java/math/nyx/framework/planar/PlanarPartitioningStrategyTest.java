@@ -0,0 +1,111 @@
+package math.nyx.framework.planar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+
+import math.nyx.framework.PartitioningStrategy;
+import math.nyx.framework.square.SquarePartitioningStrategy;
+import math.nyx.image.ImageMetadata;
+import math.nyx.image.ImageSignal;
+
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/resources/applicationContext.xml"}) 
+public class PlanarPartitioningStrategyTest {
+	@Autowired
+	private PlanarPartitioningStrategyFactory ppFactory;
+
+	private ImageSignal getImageSignal(int width, int height, int numComponents) {
+		ImageMetadata metadata = new ImageMetadata(width, height, BufferedImage.TYPE_3BYTE_BGR, numComponents);
+		return new ImageSignal(new Array2DRowRealMatrix(width * height * numComponents, 1), metadata);
+	}
+
+	@Test
+	public void fallBackToSquarePartitioning() {
+		PartitioningStrategy partitioner = ppFactory.getPartitioner(new ImageSignal(16));
+		assertTrue(partitioner instanceof SquarePartitioningStrategy);
+
+		partitioner = ppFactory.getPartitioner(getImageSignal(24, 20, 3));
+		assertTrue(partitioner instanceof PlanarPartitioningStrategy);
+		assertEquals(24*20*3, partitioner.getSignal().getDimension());
+	}
+
+	@Test
+	public void blocksStayWithinTheirPlane() {
+		// Planes that aren't multiples of the range width
+		final int width = 37;
+		final int height = 21;
+		final int numPlanes = 3;
+		for (int scale = 1; scale <= 3; scale++) {
+			PlanarPartitioningStrategy partitioner = (PlanarPartitioningStrategy)ppFactory.getPartitioner(
+					getImageSignal(width, height, numPlanes), scale);
+			int scaledPlaneDimension = width * height * scale * scale;
+			assertEquals(numPlanes * scaledPlaneDimension, partitioner.getScaledSignalDimension());
+
+			// Every entry should be covered by a range block
+			boolean covered[] = new boolean[partitioner.getScaledSignalDimension()];
+			for (int i = 0; i < partitioner.getNumRangePartitions(); i++) {
+				int rangeIndices[] = partitioner.getRangeIndices(i);
+				assertSamePlane(rangeIndices, scaledPlaneDimension);
+				for (int index : rangeIndices) {
+					covered[index] = true;
+				}
+			}
+			for (int i = 0; i < covered.length; i++) {
+				assertTrue("Entry " + i + " is not covered at scale " + scale, covered[i]);
+			}
+
+			for (int i = 0; i < partitioner.getNumDomainPartitions(); i++) {
+				assertSamePlane(partitioner.getDomainIndices(i), scaledPlaneDimension);
+			}
+		}
+	}
+
+	@Test
+	public void rangeBlocksOnlyOverlapOnPartialEdges() {
+		assertTrue(ppFactory.getPartitioner(getImageSignal(32, 24, 3)).hasDisjointRangeBlocks());
+		assertFalse(ppFactory.getPartitioner(getImageSignal(37, 24, 3)).hasDisjointRangeBlocks());
+		assertFalse(ppFactory.getPartitioner(getImageSignal(32, 21, 3)).hasDisjointRangeBlocks());
+	}
+
+	@Test
+	public void domainStride() {
+		PlanarPartitioningStrategyFactory factory = new PlanarPartitioningStrategyFactory();
+		factory.setDomainStride(2);
+
+		// Two 24x20 planes with 16x16 domain blocks that start every 2 pixels
+		PlanarPartitioningStrategy partitioner = (PlanarPartitioningStrategy)factory.getPartitioner(
+				getImageSignal(24, 20, 2));
+		assertEquals(2, partitioner.getDomainStride());
+		assertEquals(5, partitioner.getNumDomainColumns());
+		assertEquals(3, partitioner.getNumDomainRows());
+		assertEquals(2 * 5 * 3, partitioner.getNumDomainPartitions());
+		assertEquals(2, partitioner.getDomainIndices(1)[0]);
+		assertEquals(2 * 24, partitioner.getDomainIndices(5)[0]);
+		assertEquals(24 * 20, partitioner.getDomainIndices(15)[0]);
+		assertEquals(24 * 20 * 2 - 1, partitioner.getDomainIndices(29)[16 * 16 - 1]);
+
+		// The range block at (8, 8) is centered on the domain block at (4, 4)
+		assertEquals(2 * 5 + 2, partitioner.getDomainWindow(4, 0)[0]);
+
+		// The square fallback uses the same stride
+		PartitioningStrategy fallback = factory.getPartitioner(new ImageSignal(64));
+		assertEquals(2, ((SquarePartitioningStrategy)fallback).getDomainStride());
+	}
+
+	private void assertSamePlane(int indices[], int planeDimension) {
+		int plane = indices[0] / planeDimension;
+		for (int index : indices) {
+			assertEquals(plane, index / planeDimension);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package math.nyx.framework.quadtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import math.nyx.core.Fractal;
+import math.nyx.core.Signal;
+import math.nyx.framework.FractalCodecTest;
+import math.nyx.image.ImageSignal;
+
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/resources/applicationContext.xml"}) 
+public class QuadtreeFractalCodecTest {
+	@Autowired
+	@Qualifier("quadtreeImageCodec")
+	private QuadtreeFractalCodec fractalCodec;
+
+	@Test
+	public void flatSignalUsesLargestBlocks() {
+		Signal signal = FractalCodecTest.generateConstantSignal(64*64, 13);
+		Fractal fractal = fractalCodec.encode(signal);
+		assertEquals(16, fractal.getTransforms().size());
+
+		Signal decodedSignal = fractalCodec.decode(fractal, 1);
+		for (int i = 0; i < 64*64; i++) {
+			assertEquals(13, decodedSignal.getVector().getEntry(i, 0), 0.001);
+		}
+	}
+
+	@Test
+	public void detailedRegionsAreSplit() {
+		// Flat signal with a checkerboard in the top left corner
+		RealMatrix x = new Array2DRowRealMatrix(64*64, 1);
+		for (int i = 0; i < 64*64; i++) {
+			int row = i / 64;
+			int column = i % 64;
+			boolean detailed = row < 16 && column < 16;
+			x.setEntry(i, 0, detailed && (row + column) % 2 == 0 ? 255 : 64);
+		}
+		Fractal fractal = fractalCodec.encode(new ImageSignal(x));
+
+		// The flat blocks should be kept, while the detailed block should be split
+		int numTransforms = fractal.getTransforms().size();
+		assertTrue(numTransforms > 16);
+		assertTrue(numTransforms <= 15 + 16);
+
+		Signal decodedSignal = fractalCodec.decode(fractal, 1);
+		assertEquals(64*64, decodedSignal.getDimension());
+	}
+}
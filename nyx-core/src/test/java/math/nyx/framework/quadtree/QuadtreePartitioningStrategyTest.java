@@ -0,0 +1,68 @@
+package math.nyx.framework.quadtree;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import math.nyx.image.ImageSignal;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"file:src/main/resources/applicationContext.xml"}) 
+public class QuadtreePartitioningStrategyTest {
+	@Autowired
+	private QuadtreePartitioningStrategyFactory qpFactory;
+
+	@Test
+	public void getLevels() {
+		// 64x64 signal with range blocks of width 16, 8 and 4
+		QuadtreePartitioningStrategy partitioner = qpFactory.getPartitioner(new ImageSignal(64*64));
+		assertEquals(3, partitioner.getNumLevels());
+		assertEquals(16*16, partitioner.getRangeDimension());
+		assertEquals(16 + 64 + 256, partitioner.getNumRangePartitions());
+		assertEquals(33*33 + 49*49 + 57*57, partitioner.getNumDomainPartitions());
+
+		assertEquals(0, partitioner.getLevelOfRangeBlock(15));
+		assertEquals(1, partitioner.getLevelOfRangeBlock(16));
+		assertEquals(2, partitioner.getLevelOfRangeBlock(80));
+		assertEquals(8*8, partitioner.getRangeIndices(16).length);
+		assertEquals(16*16, partitioner.getDomainIndices(33*33).length);
+
+		// Small signals are padded to fit at least one domain block
+		partitioner = qpFactory.getPartitioner(new ImageSignal(20*20));
+		assertEquals(24*24, partitioner.getSignal().getDimension());
+		assertEquals(8*8, partitioner.getRangeDimension());
+		assertEquals(2, partitioner.getNumLevels());
+	}
+
+	@Test
+	public void childrenCoverTheirParent() {
+		QuadtreePartitioningStrategy partitioner = qpFactory.getPartitioner(new ImageSignal(64*64));
+		for (int level = 0; level < partitioner.getNumLevels() - 1; level++) {
+			int firstRangeBlockIndex = partitioner.getFirstRangeBlockIndex(level);
+			int lastRangeBlockIndex = partitioner.getFirstRangeBlockIndex(level + 1);
+			for (int i = firstRangeBlockIndex; i < lastRangeBlockIndex; i++) {
+				int parentIndices[] = partitioner.getRangeIndices(i);
+
+				int childIndices[] = new int[parentIndices.length];
+				int k = 0;
+				for (int child : partitioner.getChildRangeBlockIndices(i)) {
+					assertEquals(level + 1, partitioner.getLevelOfRangeBlock(child));
+					for (int index : partitioner.getRangeIndices(child)) {
+						childIndices[k++] = index;
+					}
+				}
+
+				Arrays.sort(parentIndices);
+				Arrays.sort(childIndices);
+				assertArrayEquals(parentIndices, childIndices);
+			}
+		}
+	}
+}
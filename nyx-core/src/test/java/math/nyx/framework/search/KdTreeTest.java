@@ -0,0 +1,67 @@
+package math.nyx.framework.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import math.nyx.utils.TestUtils;
+
+import org.junit.Test;
+
+public class KdTreeTest {
+	@Test
+	public void findNearestMatchesBruteForce() {
+		Random random = new Random(7);
+		int dimension = 5;
+		int numPoints = 1000;
+		int k = 10;
+
+		double points[] = new double[numPoints * dimension];
+		for (int i = 0; i < points.length; i++) {
+			// Use a coarse grid so that some of the coordinates are identical
+			points[i] = random.nextInt(20);
+		}
+		KdTree tree = new KdTree(points, dimension);
+		assertEquals(numPoints, tree.getNumPoints());
+
+		int neighbours[] = new int[k];
+		double distances[] = new double[k];
+		for (int n = 0; n < 50; n++) {
+			double query[] = new double[dimension];
+			for (int d = 0; d < dimension; d++) {
+				query[d] = random.nextDouble() * 20;
+			}
+
+			// Compute the expected distances using a linear scan
+			double expectedDistances[] = new double[numPoints];
+			for (int i = 0; i < numPoints; i++) {
+				for (int d = 0; d < dimension; d++) {
+					double diff = points[i * dimension + d] - query[d];
+					expectedDistances[i] += diff * diff;
+				}
+			}
+			Arrays.sort(expectedDistances);
+
+			assertEquals(k, tree.findNearest(query, k, 0, neighbours, distances));
+			assertArrayEquals(Arrays.copyOf(expectedDistances, k), distances, TestUtils.DELTA);
+		}
+	}
+
+	@Test
+	public void findNearestWithFewerPointsThanNeighbours() {
+		KdTree tree = new KdTree(new double[] {0, 0, 3, 4}, 2);
+
+		int neighbours[] = new int[5];
+		double distances[] = new double[5];
+		assertEquals(2, tree.findNearest(new double[] {3, 3}, 5, 0, neighbours, distances));
+		assertEquals(1, neighbours[0]);
+		assertEquals(0, neighbours[1]);
+		assertEquals(1, distances[0], TestUtils.DELTA);
+		assertEquals(18, distances[1], TestUtils.DELTA);
+
+		tree = new KdTree(new double[0], 2);
+		assertEquals(0, tree.findNearest(new double[] {3, 3}, 5, 0, neighbours, distances));
+	}
+}
@@ -0,0 +1,113 @@
+package math.nyx.framework.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import math.nyx.affine.AffineKernel;
+import math.nyx.affine.Symmetry;
+import math.nyx.affine.SymmetryPermutations;
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.SignalBlock;
+
+import org.junit.Test;
+
+public class NearestNeighbourDomainSearchStrategyTest {
+	private static final int NUM_DOMAIN_BLOCKS = 64;
+	private static final int BLOCK_WIDTH = 8;
+	private static final int BLOCK_DIMENSION = BLOCK_WIDTH * BLOCK_WIDTH;
+
+	/**
+	 * Returns a pool of random 8x8 blocks.
+	 */
+	private static DomainPool getDomainPool() {
+		Random random = new Random(17);
+		DomainPool domainPool = new DomainPool(NUM_DOMAIN_BLOCKS, BLOCK_DIMENSION);
+		for (int i = 0; i < NUM_DOMAIN_BLOCKS; i++) {
+			double block[] = new double[BLOCK_DIMENSION];
+			for (int k = 0; k < block.length; k++) {
+				block[k] = random.nextInt(256);
+			}
+			domainPool.setBlock(i, block);
+		}
+		return domainPool;
+	}
+
+	/**
+	 * Returns the index of the domain block the exhaustive search would pick for the given range block.
+	 */
+	private static int getBestDomainBlock(AffineKernel kernel, DomainPool domainPool, SignalBlock rangeBlock) {
+		int best = -1;
+		double minDistance = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < domainPool.size(); i++) {
+			double distance = kernel.getDistance(domainPool, i, rangeBlock);
+			if (distance < minDistance) {
+				minDistance = distance;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private static boolean contains(int candidates[], int index) {
+		for (int candidate : candidates) {
+			if (candidate == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void candidatesContainTheBestDomainBlock() {
+		DomainPool domainPool = getDomainPool();
+		NearestNeighbourDomainSearchStrategy searchStrategy = new NearestNeighbourDomainSearchStrategy(
+				domainPool, BLOCK_DIMENSION, 16, 2, 0, true, true);
+		assertEquals(16, searchStrategy.getFeatureDimension());
+
+		AffineKernel kernel = new AffineKernel();
+		kernel.setPermute(true);
+		kernel.setAllowNegativeScales(true);
+
+		Random random = new Random(5);
+		for (Symmetry symmetry : new Symmetry[] {Symmetry.ORIGINAL, Symmetry.ROTATE_90, Symmetry.ROTATE_180_FLIP}) {
+			for (double scale : new double[] {0.5, -0.75}) {
+				// Map a domain block onto the range block with the given symmetry and scale, plus some noise
+				int index = random.nextInt(NUM_DOMAIN_BLOCKS);
+				double domainBlock[] = domainPool.getBlock(index);
+				int permutation[] = SymmetryPermutations.getPermutation(symmetry, BLOCK_DIMENSION);
+				double block[] = new double[BLOCK_DIMENSION];
+				for (int k = 0; k < block.length; k++) {
+					block[k] = scale * domainBlock[permutation[k]] + 100 + random.nextDouble();
+				}
+				SignalBlock rangeBlock = new SignalBlock(0, block);
+
+				int best = getBestDomainBlock(kernel, domainPool, rangeBlock);
+				assertEquals(index, best);
+
+				// Each of the 16 queries returns at most 2 neighbours
+				int candidates[] = searchStrategy.getCandidates(rangeBlock);
+				assertTrue(candidates.length <= 8 * 2 * 2);
+				assertTrue(symmetry + " with scale " + scale, contains(candidates, best));
+			}
+		}
+	}
+
+	@Test
+	public void candidatesAreDistinct() {
+		DomainPool domainPool = new DomainPool(3, 4);
+		domainPool.setBlock(0, new double[] {0, 1, 2, 3});
+		domainPool.setBlock(1, new double[] {3, 2, 1, 0});
+		domainPool.setBlock(2, new double[] {0, 3, 1, 2});
+
+		// Every query finds all three blocks, but each one is only returned once
+		NearestNeighbourDomainSearchStrategy searchStrategy = new NearestNeighbourDomainSearchStrategy(
+				domainPool, 4, 4, 3, 0, true, true);
+		int candidates[] = searchStrategy.getCandidates(new SignalBlock(0, new double[] {0, 1, 2, 3}));
+		assertEquals(3, candidates.length);
+		assertEquals(0, candidates[0]);
+		assertTrue(contains(candidates, 1));
+		assertTrue(contains(candidates, 2));
+	}
+}
@@ -0,0 +1,88 @@
+package math.nyx.framework.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import math.nyx.framework.DomainPool;
+import math.nyx.framework.SignalBlock;
+
+import org.junit.Test;
+
+public class PyramidDomainSearchStrategyTest {
+	private static final int NUM_PLANES = 2;
+	private static final int NUM_ROWS = 12;
+	private static final int NUM_COLUMNS = 10;
+	private static final int BLOCK_WIDTH = 4;
+
+	/**
+	 * Returns a pool holding every 4x4 block of a random image made up of two planes.
+	 */
+	private static DomainPool getDomainPool() {
+		Random random = new Random(11);
+		int width = NUM_COLUMNS + BLOCK_WIDTH - 1;
+		int height = NUM_ROWS + BLOCK_WIDTH - 1;
+		double image[] = new double[NUM_PLANES * width * height];
+		for (int i = 0; i < image.length; i++) {
+			image[i] = random.nextInt(256);
+		}
+
+		DomainPool domainPool = new DomainPool(NUM_PLANES * NUM_ROWS * NUM_COLUMNS, BLOCK_WIDTH * BLOCK_WIDTH);
+		int index = 0;
+		for (int plane = 0; plane < NUM_PLANES; plane++) {
+			for (int row = 0; row < NUM_ROWS; row++) {
+				for (int column = 0; column < NUM_COLUMNS; column++) {
+					double block[] = new double[BLOCK_WIDTH * BLOCK_WIDTH];
+					for (int k = 0; k < block.length; k++) {
+						int y = row + k / BLOCK_WIDTH;
+						int x = column + k % BLOCK_WIDTH;
+						block[k] = image[(plane * height + y) * width + x];
+					}
+					domainPool.setBlock(index++, block);
+				}
+			}
+		}
+		return domainPool;
+	}
+
+	@Test
+	public void findExactCopiesOfDomainBlocks() {
+		DomainPool domainPool = getDomainPool();
+		PyramidDomainSearchStrategy searchStrategy = new PyramidDomainSearchStrategy(domainPool,
+				BLOCK_WIDTH * BLOCK_WIDTH, true, NUM_PLANES, NUM_ROWS, NUM_COLUMNS, 3, 2, true, false);
+		assertEquals(1, searchStrategy.getNumLevels());
+
+		// Blocks on the coarse lattice, in the corners and in the second plane
+		for (int index : new int[] {0, 2 * NUM_COLUMNS + 4, 10 * NUM_COLUMNS + 8,
+				(NUM_ROWS + 6) * NUM_COLUMNS + 8}) {
+			double block[] = domainPool.getBlock(index);
+			for (int k = 0; k < block.length; k++) {
+				// The search is invariant to scaling and shifting the blocks
+				block[k] = 0.5 * block[k] + 3;
+			}
+
+			int candidates[] = searchStrategy.getCandidates(new SignalBlock(0, block));
+			assertTrue(candidates.length <= 2 * 9);
+			assertEquals(index, candidates[0]);
+		}
+	}
+
+	@Test
+	public void compareAllBlocksWhenTheyAreTooSmall() {
+		DomainPool domainPool = new DomainPool(5, 4);
+		for (int i = 0; i < 5; i++) {
+			domainPool.setBlock(i, new double[] {i, 0, 1, 2});
+		}
+
+		PyramidDomainSearchStrategy searchStrategy = new PyramidDomainSearchStrategy(domainPool,
+				4, false, 1, 1, 5, 2, 1, false, false);
+		assertEquals(0, searchStrategy.getNumLevels());
+
+		int candidates[] = searchStrategy.getCandidates(new SignalBlock(0, new double[] {0, 1, 2, 3}));
+		assertEquals(5, candidates.length);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, candidates[i]);
+		}
+	}
+}
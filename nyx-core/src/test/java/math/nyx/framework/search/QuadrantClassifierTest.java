@@ -0,0 +1,64 @@
+package math.nyx.framework.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import math.nyx.affine.AffineTransform;
+import math.nyx.affine.Symmetry;
+
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.RealMatrix;
+import org.junit.Test;
+
+public class QuadrantClassifierTest {
+	@Test
+	public void classIsInvariantUnderIsometries() {
+		Random random = new Random(42);
+		QuadrantClassifier classifier = new QuadrantClassifier(64, true, true);
+
+		for (int n = 0; n < 100; n++) {
+			RealMatrix block = new Array2DRowRealMatrix(64, 1);
+			for (int i = 0; i < 64; i++) {
+				block.setEntry(i, 0, random.nextInt(256));
+			}
+			int expectedClass = classifier.classify(block.getColumn(0), 0);
+			assertTrue(expectedClass < classifier.getNumClasses());
+
+			for (Symmetry symmetry : Symmetry.values()) {
+				RealMatrix permutedBlock = block.copy();
+				AffineTransform.permute(permutedBlock, symmetry);
+				assertEquals(symmetry.toString(), expectedClass, classifier.classify(permutedBlock.getColumn(0), 0));
+			}
+		}
+	}
+
+	@Test
+	public void classifyMeanOrderings() {
+		QuadrantClassifier classifier = new QuadrantClassifier(4, false, false);
+		assertEquals(0, classifier.classify(new double[]{4, 3, 2, 1}, 0));
+		assertEquals(23, classifier.classify(new double[]{1, 2, 3, 4}, 0));
+
+		// Blocks are read starting at the given offset
+		assertEquals(23, classifier.classify(new double[]{9, 9, 1, 2, 3, 4}, 2));
+
+		// Non-square blocks are split into segments
+		classifier = new QuadrantClassifier(8, true, false);
+		assertEquals(0, classifier.classify(new double[]{4, 4, 3, 3, 2, 2, 1, 1}, 0));
+	}
+
+	@Test
+	public void getDistance() {
+		QuadrantClassifier classifier = new QuadrantClassifier(16, true, true);
+		for (int c = 0; c < classifier.getNumClasses(); c++) {
+			assertEquals(0, classifier.getDistance(c, c));
+		}
+
+		// Reversing the mean ordering is further than reversing the variance ordering
+		int reversedMeans = classifier.getDistance(0, 23 * QuadrantClassifier.NUM_ORDERINGS);
+		int reversedVariances = classifier.getDistance(0, 23);
+		assertEquals(6, reversedVariances);
+		assertTrue(reversedMeans > reversedVariances);
+	}
+}
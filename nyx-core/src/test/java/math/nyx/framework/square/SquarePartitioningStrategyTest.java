@@ -368,4 +368,26 @@ public class SquarePartitioningStrategyTest extends AbstractPartitioningStrategy
 		assertEquals(0, spStrategy.getBlockOffset(0, blockWidth, blockWidth, true));
 		assertEquals(1, spStrategy.getBlockOffset(1, blockWidth, blockWidth, true));
 	}
+
+	@Test
+	public void domainStride() {
+		// An 8x8 image with 2x2 range blocks and 4x4 domain blocks that start every 2 pixels
+		SquarePartitioningStrategy spStrategy = new SquarePartitioningStrategy(new ImageSignal(64), 1, 2, 2);
+		assertEquals(16, spStrategy.getDomainDimension());
+		assertEquals(9, spStrategy.getNumDomainPartitions());
+		assertEquals(0, spStrategy.getDomainIndices(0)[0]);
+		assertEquals(2, spStrategy.getDomainIndices(1)[0]);
+		assertEquals(4, spStrategy.getDomainIndices(2)[0]);
+		assertEquals(16, spStrategy.getDomainIndices(3)[0]);
+		assertEquals(36, spStrategy.getDomainIndices(8)[0]);
+		assertEquals(63, spStrategy.getDomainIndices(8)[15]);
+
+		// The windows are centered on the domain blocks closest to the range blocks, and clipped to the lattice
+		assertArrayEquals(new int[] {4, 0, 1, 2, 5, 8, 7, 6, 3}, spStrategy.getDomainWindow(5, 1));
+		assertArrayEquals(new int[] {0, 1, 4, 3}, spStrategy.getDomainWindow(0, 1));
+		assertEquals(8, spStrategy.getDomainWindow(15, 1)[0]);
+		for (int i = 0; i < 9; i++) {
+			assertEquals(i, spStrategy.getDomainBlockIndex(0, spStrategy.getRelativeDomainBlockIndex(0, i)));
+		}
+	}
 }